@@ -29,10 +29,11 @@ import org.gradle.api.internal.artifacts.dsl.DefaultRepositoryHandler;
 import org.gradle.api.internal.artifacts.dsl.dependencies.*;
 import org.gradle.api.internal.artifacts.ivyservice.*;
 import org.gradle.api.internal.artifacts.ivyservice.dynamicrevisions.DynamicRevisionCache;
-import org.gradle.api.internal.artifacts.ivyservice.dynamicrevisions.SingleFileBackedDynamicRevisionCache;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicrevisions.StripedDynamicRevisionCache;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.*;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.*;
 import org.gradle.api.internal.artifacts.mvnsettings.DefaultLocalMavenCacheLocator;
+import org.gradle.api.internal.artifacts.repositories.CommonsHttpClientBackedRepository;
 import org.gradle.api.internal.artifacts.repositories.DefaultInternalRepository;
 import org.gradle.api.internal.artifacts.repositories.DefaultResolverFactory;
 import org.gradle.api.internal.file.FileResolver;
@@ -43,6 +44,7 @@ import org.gradle.cache.CacheRepository;
 import org.gradle.cache.internal.FileLockManager;
 import org.gradle.listener.ListenerManager;
 import org.gradle.logging.ProgressLoggerFactory;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.util.TimeProvider;
 import org.gradle.util.WrapUtil;
 import org.jfrog.wharf.ivy.lock.LockHolderFactory;
@@ -138,8 +140,15 @@ public class DefaultDependencyManagementServices extends DefaultServiceRegistry
         );
     }
     
+    protected ResolvedConfigurationCache createResolvedConfigurationCache() {
+        return new ResolvedConfigurationCache(
+                get(ArtifactCacheMetaData.class),
+                get(CacheLockingManager.class)
+        );
+    }
+
     protected DynamicRevisionCache createDynamicRevisionCache() {
-        return new SingleFileBackedDynamicRevisionCache(
+        return new StripedDynamicRevisionCache(
                 get(ArtifactCacheMetaData.class),
                 get(TimeProvider.class),
                 get(CacheLockingManager.class)
@@ -245,7 +254,9 @@ public class DefaultDependencyManagementServices extends DefaultServiceRegistry
                 actualResolver = new DefaultDependencyResolver(
                         ivyFactory,
                         get(PublishModuleDescriptorConverter.class),
-                        resolvedArtifactFactory);
+                        resolvedArtifactFactory,
+                        get(ExecutorFactory.class),
+                        Integer.getInteger(CommonsHttpClientBackedRepository.MAX_CONCURRENT_DOWNLOADS_PROPERTY, CommonsHttpClientBackedRepository.DEFAULT_MAX_CONCURRENT_DOWNLOADS));
             } else {
                 throw new IllegalArgumentException(String.format("Unknown resolver implementation '%s' specified.", resolverName));
             }
@@ -253,9 +264,16 @@ public class DefaultDependencyManagementServices extends DefaultServiceRegistry
                     new EventBroadcastingArtifactDependencyResolver(
                             new ShortcircuitEmptyConfigsArtifactDependencyResolver(
                                     new SelfResolvingDependencyResolver(
-                                            new CacheLockingArtifactDependencyResolver(
+                                            new CachingArtifactDependencyResolver(
+                                                    new CacheLockingArtifactDependencyResolver(
+                                                            get(CacheLockingManager.class),
+                                                            actualResolver),
+                                                    ivyFactory,
+                                                    get(PublishModuleDescriptorConverter.class),
+                                                    resolverProvider,
+                                                    get(ResolvedConfigurationCache.class),
                                                     get(CacheLockingManager.class),
-                                                    actualResolver)))));
+                                                    get(TimeProvider.class))))));
         }
 
         ArtifactPublisher createArtifactPublisher(DefaultRepositoryHandler resolverProvider) {
@@ -15,13 +15,11 @@
  */
 package org.gradle.api.internal.artifacts.ivyservice;
 
-import org.gradle.cache.internal.FileLock;
-
 import java.io.File;
 import java.util.concurrent.Callable;
 
 public interface CacheLockingManager {
     <T> T withCacheLock(String operationDisplayName, Callable<? extends T> action);
 
-    FileLock getCacheMetadataFileLock(File metadataFile);
+    CacheMetadataFileLock getCacheMetadataFileLock(File metadataFile);
 }
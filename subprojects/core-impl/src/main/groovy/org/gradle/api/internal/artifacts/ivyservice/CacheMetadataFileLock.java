@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.cache.internal.FileLock;
+import org.gradle.cache.internal.FileLockManager;
+
+/**
+ * The lock on an artifact cache meta-data file. The file lock is released and acquired again when it is escalated from
+ * shared to exclusive mode, and when the cache lock is released. Another process may modify the file while the lock is
+ * not held, so callers which keep state read from the file must check whether the lock has been acquired again.
+ */
+public interface CacheMetadataFileLock extends FileLock {
+    /**
+     * Acquires the file lock in the given mode, if it is not already held in this mode or in exclusive mode.
+     *
+     * @return A value which identifies the acquisition of the file lock which is now held. When this differs from the
+     * value returned by an earlier call, the file may have been modified by another process in the meantime, and any
+     * state read from the file must be discarded.
+     */
+    long lock(FileLockManager.LockMode mode);
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.gradle.api.artifacts.*;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedDependency;
+import org.gradle.api.internal.artifacts.ivyservice.dynamicrevisions.DefaultResolvedModule;
+import org.gradle.api.internal.file.FileSource;
+import org.gradle.api.specs.Spec;
+
+import java.io.File;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A serializable snapshot of a successfully resolved configuration: the resolved dependency graph, the files of its
+ * artifacts, and the time at which it was resolved.
+ */
+class CachedResolvedConfiguration implements Serializable {
+    private static final int ROOT = -1;
+    private final long timestamp;
+    private final List<NodeEntry> nodes = new ArrayList<NodeEntry>();
+    private final List<ArtifactEntry> artifacts = new ArrayList<ArtifactEntry>();
+    private final List<List<Integer>> firstLevelDependencies = new ArrayList<List<Integer>>();
+
+    private CachedResolvedConfiguration(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Takes a snapshot of the given result. Resolves the files of all artifacts of the result. Returns null if the
+     * result cannot be cached.
+     */
+    static CachedResolvedConfiguration snapshot(Configuration configuration, ResolvedConfiguration result, long timestamp) {
+        if (result.hasError()) {
+            return null;
+        }
+        try {
+            CachedResolvedConfiguration snapshot = new CachedResolvedConfiguration(timestamp);
+            snapshot.addGraph(configuration, result);
+            return snapshot;
+        } catch (RuntimeException e) {
+            // The artifact files could not be resolved. Leave it to the build to report the failure
+            return null;
+        }
+    }
+
+    private void addGraph(Configuration configuration, ResolvedConfiguration result) {
+        Map<ResolvedDependency, Integer> nodeIds = new LinkedHashMap<ResolvedDependency, Integer>();
+        LinkedList<ResolvedDependency> queue = new LinkedList<ResolvedDependency>(result.getFirstLevelModuleDependencies());
+        while (!queue.isEmpty()) {
+            ResolvedDependency dependency = queue.removeFirst();
+            if (!nodeIds.containsKey(dependency)) {
+                nodeIds.put(dependency, nodeIds.size());
+                queue.addAll(dependency.getChildren());
+            }
+        }
+
+        Map<ResolvedArtifact, Integer> artifactIds = new HashMap<ResolvedArtifact, Integer>();
+        for (Map.Entry<ResolvedDependency, Integer> entry : nodeIds.entrySet()) {
+            ResolvedDependency dependency = entry.getKey();
+            NodeEntry node = new NodeEntry(dependency);
+            for (ResolvedDependency parent : dependency.getParents()) {
+                Integer parentId = nodeIds.get(parent);
+                int id = parentId == null ? ROOT : parentId;
+                node.parents.add(id);
+                node.parentArtifacts.put(id, addArtifacts(dependency.getParentArtifacts(parent), entry.getValue(), artifactIds));
+            }
+            node.moduleArtifacts.addAll(addArtifacts(dependency.getModuleArtifacts(), entry.getValue(), artifactIds));
+            nodes.add(node);
+        }
+
+        for (final ModuleDependency moduleDependency : configuration.getAllDependencies().withType(ModuleDependency.class)) {
+            List<Integer> ids = new ArrayList<Integer>();
+            for (ResolvedDependency dependency : result.getFirstLevelModuleDependencies(new Spec<Dependency>() {
+                public boolean isSatisfiedBy(Dependency element) {
+                    return element == moduleDependency;
+                }
+            })) {
+                ids.add(nodeIds.get(dependency));
+            }
+            firstLevelDependencies.add(ids);
+        }
+    }
+
+    private ArrayList<Integer> addArtifacts(Set<ResolvedArtifact> resolvedArtifacts, int owner, Map<ResolvedArtifact, Integer> artifactIds) {
+        ArrayList<Integer> ids = new ArrayList<Integer>();
+        for (ResolvedArtifact resolvedArtifact : resolvedArtifacts) {
+            Integer id = artifactIds.get(resolvedArtifact);
+            if (id == null) {
+                id = artifacts.size();
+                artifacts.add(new ArtifactEntry(resolvedArtifact, owner));
+                artifactIds.put(resolvedArtifact, id);
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    /**
+     * Recreates the resolved configuration from this snapshot. Returns null if the snapshot is no longer up-to-date,
+     * because an artifact file has been removed or because a module has expired according to the dynamic revision cache
+     * policy of the configuration.
+     */
+    ResolvedConfiguration restore(Configuration configuration, long now) {
+        Set<ModuleDependency> moduleDependencies = configuration.getAllDependencies().withType(ModuleDependency.class);
+        if (moduleDependencies.size() != firstLevelDependencies.size()) {
+            return null;
+        }
+
+        DynamicRevisionCachePolicy cachePolicy = configuration.getResolutionStrategy().getDynamicRevisionCachePolicy();
+        long age = now - timestamp;
+        for (NodeEntry node : nodes) {
+            ResolvedModule module = new DefaultResolvedModule(ModuleRevisionId.newInstance(node.group, node.module, node.version));
+            if (!cachePolicy.canUseCachedRevision(module, age)) {
+                return null;
+            }
+        }
+        for (ArtifactEntry artifact : artifacts) {
+            if (artifact.file != null && !artifact.file.exists()) {
+                return null;
+            }
+        }
+
+        Module rootModule = configuration.getModule();
+        DefaultResolvedDependency root = new DefaultResolvedDependency(rootModule.getGroup(), rootModule.getName(), rootModule.getVersion(), configuration.getName());
+        List<DefaultResolvedDependency> dependencies = new ArrayList<DefaultResolvedDependency>();
+        for (NodeEntry node : nodes) {
+            dependencies.add(new DefaultResolvedDependency(node.name, node.group, node.module, node.version, node.configuration));
+        }
+        List<ResolvedArtifact> resolvedArtifacts = new ArrayList<ResolvedArtifact>();
+        for (ArtifactEntry artifact : artifacts) {
+            resolvedArtifacts.add(artifact.restore(dependencies.get(artifact.owner)));
+        }
+
+        for (int i = 0; i < nodes.size(); i++) {
+            NodeEntry node = nodes.get(i);
+            DefaultResolvedDependency dependency = dependencies.get(i);
+            for (Integer moduleArtifact : node.moduleArtifacts) {
+                dependency.addModuleArtifact(resolvedArtifacts.get(moduleArtifact));
+            }
+            for (Integer parentId : node.parents) {
+                DefaultResolvedDependency parent = parentId == ROOT ? root : dependencies.get(parentId);
+                parent.addChild(dependency);
+                Set<ResolvedArtifact> parentArtifacts = new LinkedHashSet<ResolvedArtifact>();
+                for (Integer parentArtifact : node.parentArtifacts.get(parentId)) {
+                    parentArtifacts.add(resolvedArtifacts.get(parentArtifact));
+                }
+                dependency.addParentSpecificArtifacts(parent, parentArtifacts);
+            }
+        }
+
+        RestoredResolvedConfiguration result = new RestoredResolvedConfiguration(root, new LinkedHashSet<ResolvedArtifact>(resolvedArtifacts));
+        Iterator<List<Integer>> firstLevel = firstLevelDependencies.iterator();
+        for (ModuleDependency moduleDependency : moduleDependencies) {
+            Set<ResolvedDependency> resolvedDependencies = new LinkedHashSet<ResolvedDependency>();
+            for (Integer id : firstLevel.next()) {
+                resolvedDependencies.add(dependencies.get(id));
+            }
+            result.firstLevelDependencies.put(moduleDependency, resolvedDependencies);
+        }
+        return result;
+    }
+
+    private static class NodeEntry implements Serializable {
+        private final String name;
+        private final String group;
+        private final String module;
+        private final String version;
+        private final String configuration;
+        private final List<Integer> parents = new ArrayList<Integer>();
+        private final List<Integer> moduleArtifacts = new ArrayList<Integer>();
+        private final Map<Integer, List<Integer>> parentArtifacts = new HashMap<Integer, List<Integer>>();
+
+        private NodeEntry(ResolvedDependency dependency) {
+            name = dependency.getName();
+            group = dependency.getModuleGroup();
+            module = dependency.getModuleName();
+            version = dependency.getModuleVersion();
+            configuration = dependency.getConfiguration();
+        }
+    }
+
+    private static class ArtifactEntry implements Serializable {
+        private final int owner;
+        private final String name;
+        private final String type;
+        private final String extension;
+        private final String classifier;
+        private final File file;
+
+        private ArtifactEntry(ResolvedArtifact artifact, int owner) {
+            this.owner = owner;
+            name = artifact.getName();
+            type = artifact.getType();
+            extension = artifact.getExtension();
+            classifier = artifact.getClassifier();
+            file = artifact.getFile();
+        }
+
+        private ResolvedArtifact restore(ResolvedDependency owner) {
+            Map<String, String> extraAttributes = new HashMap<String, String>();
+            if (classifier != null) {
+                extraAttributes.put(Dependency.CLASSIFIER, classifier);
+            }
+            ModuleRevisionId moduleRevisionId = ModuleRevisionId.newInstance(owner.getModuleGroup(), owner.getModuleName(), owner.getModuleVersion());
+            return new DefaultResolvedArtifact(owner, new DefaultArtifact(moduleRevisionId, null, name, type, extension, extraAttributes), new FileSource() {
+                public File get() {
+                    return file;
+                }
+            });
+        }
+    }
+
+    private static class RestoredResolvedConfiguration extends AbstractResolvedConfiguration {
+        private final ResolvedDependency root;
+        private final Set<ResolvedArtifact> artifacts;
+        private final Map<ModuleDependency, Set<ResolvedDependency>> firstLevelDependencies = new LinkedHashMap<ModuleDependency, Set<ResolvedDependency>>();
+
+        private RestoredResolvedConfiguration(ResolvedDependency root, Set<ResolvedArtifact> artifacts) {
+            this.root = root;
+            this.artifacts = artifacts;
+        }
+
+        public boolean hasError() {
+            return false;
+        }
+
+        public void rethrowFailure() throws ResolveException {
+        }
+
+        @Override
+        Set<UnresolvedDependency> getUnresolvedDependencies() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        Set<ResolvedDependency> doGetFirstLevelModuleDependencies(Spec<? super Dependency> dependencySpec) {
+            Set<ResolvedDependency> matches = new LinkedHashSet<ResolvedDependency>();
+            for (Map.Entry<ModuleDependency, Set<ResolvedDependency>> entry : firstLevelDependencies.entrySet()) {
+                if (dependencySpec.isSatisfiedBy(entry.getKey())) {
+                    matches.addAll(entry.getValue());
+                }
+            }
+            return matches;
+        }
+
+        @Override
+        protected ResolvedDependency getRoot() {
+            return root;
+        }
+
+        public Set<ResolvedArtifact> getResolvedArtifacts() throws ResolveException {
+            return artifacts;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.IncludeRule;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.ExternalModuleDependency;
+import org.gradle.api.artifacts.ForcedVersion;
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.ResolutionStrategy;
+import org.gradle.api.artifacts.ResolveException;
+import org.gradle.api.artifacts.ResolvedConfiguration;
+import org.gradle.api.artifacts.ResolvedDependency;
+import org.gradle.api.internal.artifacts.ArtifactDependencyResolver;
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
+import org.gradle.api.internal.artifacts.configurations.ResolverProvider;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.IvyConfig;
+import org.gradle.util.HashUtil;
+import org.gradle.util.TimeProvider;
+import org.jfrog.wharf.ivy.model.WharfResolverMetadata;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * An {@link ArtifactDependencyResolver} which reuses the result of a previous resolve of an equivalent configuration,
+ * across builds. A configuration is equivalent when it has the same module descriptor, resolution strategy and
+ * repositories.
+ *
+ * <p>Configurations which depend on projects, client modules or changing modules are always resolved by the backing
+ * resolver, as are configurations which fail to resolve. The result is not cached when the resolved graph contains a
+ * snapshot module anywhere, as such a module may change without its version changing. Dynamic versions anywhere in the
+ * graph are handled by {@link CachedResolvedConfiguration#restore}, which expires the whole result using the dynamic
+ * revision cache policy of the configuration. Must not be used while holding the cache lock.</p>
+ */
+public class CachingArtifactDependencyResolver implements ArtifactDependencyResolver {
+    private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+    private final ArtifactDependencyResolver resolver;
+    private final ResolveIvyFactory ivyFactory;
+    private final ModuleDescriptorConverter moduleDescriptorConverter;
+    private final ResolverProvider resolverProvider;
+    private final ResolvedConfigurationCache cache;
+    private final CacheLockingManager lockingManager;
+    private final TimeProvider timeProvider;
+
+    public CachingArtifactDependencyResolver(ArtifactDependencyResolver resolver, ResolveIvyFactory ivyFactory, ModuleDescriptorConverter moduleDescriptorConverter,
+                                             ResolverProvider resolverProvider, ResolvedConfigurationCache cache, CacheLockingManager lockingManager, TimeProvider timeProvider) {
+        this.resolver = resolver;
+        this.ivyFactory = ivyFactory;
+        this.moduleDescriptorConverter = moduleDescriptorConverter;
+        this.resolverProvider = resolverProvider;
+        this.cache = cache;
+        this.lockingManager = lockingManager;
+        this.timeProvider = timeProvider;
+    }
+
+    public ResolvedConfiguration resolve(final ConfigurationInternal configuration) throws ResolveException {
+        if (!isCacheable(configuration)) {
+            return resolver.resolve(configuration);
+        }
+
+        final String key = createKey(configuration);
+        ResolvedConfiguration cachedResult = lockingManager.withCacheLock(String.format("load cached resolve of %s", configuration), new Callable<ResolvedConfiguration>() {
+            public ResolvedConfiguration call() throws Exception {
+                CachedResolvedConfiguration entry = cache.get(key);
+                return entry == null ? null : entry.restore(configuration, timeProvider.getCurrentTime());
+            }
+        });
+        if (cachedResult != null) {
+            return cachedResult;
+        }
+
+        long timestamp = timeProvider.getCurrentTime();
+        ResolvedConfiguration result = resolver.resolve(configuration);
+        if (result.hasError() || containsSnapshotModule(result)) {
+            return result;
+        }
+        final CachedResolvedConfiguration entry = CachedResolvedConfiguration.snapshot(configuration, result, timestamp);
+        if (entry != null) {
+            lockingManager.withCacheLock(String.format("cache resolve of %s", configuration), new Callable<Object>() {
+                public Object call() throws Exception {
+                    cache.put(key, entry);
+                    return null;
+                }
+            });
+        }
+        return result;
+    }
+
+    private boolean isCacheable(Configuration configuration) {
+        for (Dependency dependency : configuration.getAllDependencies()) {
+            if (dependency instanceof ProjectDependency || dependency instanceof ClientModule) {
+                return false;
+            }
+            if (dependency instanceof ExternalModuleDependency && ((ExternalModuleDependency) dependency).isChanging()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean containsSnapshotModule(ResolvedConfiguration result) {
+        Set<ResolvedDependency> seen = new HashSet<ResolvedDependency>();
+        LinkedList<ResolvedDependency> queue = new LinkedList<ResolvedDependency>(result.getFirstLevelModuleDependencies());
+        while (!queue.isEmpty()) {
+            ResolvedDependency dependency = queue.removeFirst();
+            if (!seen.add(dependency)) {
+                continue;
+            }
+            if (dependency.getModuleVersion().endsWith(SNAPSHOT_SUFFIX)) {
+                return true;
+            }
+            queue.addAll(dependency.getChildren());
+        }
+        return false;
+    }
+
+    private String createKey(ConfigurationInternal configuration) {
+        ResolutionStrategy resolutionStrategy = configuration.getResolutionStrategy();
+        Ivy ivy = ivyFactory.create(resolutionStrategy);
+        IvyConfig ivyConfig = new IvyConfig(ivy.getSettings(), resolutionStrategy);
+        ModuleDescriptor moduleDescriptor = moduleDescriptorConverter.convert(configuration.getAll(), configuration.getModule(), ivyConfig);
+
+        StringBuilder key = new StringBuilder();
+        key.append("configuration ").append(configuration.getName()).append('\n');
+        appendModuleDescriptor(moduleDescriptor, key);
+        key.append("conflict resolution ").append(resolutionStrategy.getConflictResolution().getClass().getName()).append('\n');
+        for (ForcedVersion forcedVersion : resolutionStrategy.getForcedVersions()) {
+            key.append("force ").append(forcedVersion.getGroup()).append(':').append(forcedVersion.getName()).append(':').append(forcedVersion.getVersion()).append('\n');
+        }
+        for (DependencyResolver dependencyResolver : resolverProvider.getResolvers()) {
+            key.append("repository ").append(new WharfResolverMetadata(dependencyResolver).getId()).append('\n');
+        }
+        return HashUtil.createHash(key.toString());
+    }
+
+    private void appendModuleDescriptor(ModuleDescriptor moduleDescriptor, StringBuilder key) {
+        key.append("module ").append(moduleDescriptor.getModuleRevisionId().encodeToString()).append('\n');
+        for (org.apache.ivy.core.module.descriptor.Configuration configuration : moduleDescriptor.getConfigurations()) {
+            key.append("conf ").append(configuration.getName()).append(' ').append(configuration.getVisibility()).append(' ');
+            key.append(configuration.isTransitive()).append(' ').append(Arrays.toString(configuration.getExtends())).append('\n');
+        }
+        for (DependencyDescriptor dependencyDescriptor : moduleDescriptor.getDependencies()) {
+            key.append("dependency ").append(dependencyDescriptor.getDependencyRevisionId().encodeToString()).append(' ');
+            key.append(dependencyDescriptor.isForce()).append(' ').append(dependencyDescriptor.isTransitive()).append('\n');
+            for (String moduleConfiguration : dependencyDescriptor.getModuleConfigurations()) {
+                key.append("  conf ").append(moduleConfiguration).append(" -> ");
+                key.append(Arrays.toString(dependencyDescriptor.getDependencyConfigurations(moduleConfiguration))).append('\n');
+            }
+            for (DependencyArtifactDescriptor artifact : dependencyDescriptor.getAllDependencyArtifacts()) {
+                key.append("  artifact ").append(artifact.getName()).append(' ').append(artifact.getType()).append(' ').append(artifact.getExt()).append(' ');
+                key.append(artifact.getUrl()).append(' ').append(artifact.getQualifiedExtraAttributes()).append(' ').append(Arrays.toString(artifact.getConfigurations())).append('\n');
+            }
+            for (IncludeRule includeRule : dependencyDescriptor.getAllIncludeRules()) {
+                key.append("  include ");
+                appendRule(includeRule.getId(), includeRule.getMatcher().getName(), includeRule.getConfigurations(), key);
+            }
+            for (ExcludeRule excludeRule : dependencyDescriptor.getAllExcludeRules()) {
+                key.append("  exclude ");
+                appendRule(excludeRule.getId(), excludeRule.getMatcher().getName(), excludeRule.getConfigurations(), key);
+            }
+        }
+        for (ExcludeRule excludeRule : moduleDescriptor.getAllExcludeRules()) {
+            key.append("exclude ");
+            appendRule(excludeRule.getId(), excludeRule.getMatcher().getName(), excludeRule.getConfigurations(), key);
+        }
+    }
+
+    private void appendRule(Object id, String matcher, String[] configurations, StringBuilder key) {
+        key.append(id).append(' ').append(matcher).append(' ').append(Arrays.toString(configurations)).append('\n');
+    }
+}
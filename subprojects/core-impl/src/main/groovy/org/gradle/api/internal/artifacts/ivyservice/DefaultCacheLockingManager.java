@@ -32,16 +32,35 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+
+/**
+ * Coordinates access to the artifact cache by the threads of this process and by other processes.
+ *
+ * <p>Any number of threads may hold the cache lock at the same time. Each artifact file and each meta-data file is
+ * locked separately, so that threads and processes which use different entries of the cache do not block each other:</p>
+ *
+ * <ul>
+ * <li>An artifact file is locked by a single thread at a time, and its exclusive file lock is held only while that
+ * thread holds the artifact lock.</li>
+ * <li>A meta-data file is locked in shared mode when it is first read and in exclusive mode when it is first written.
+ * The file lock is retained until the last thread releases the cache lock. The file may be modified by another process
+ * while its lock is escalated or after the cache lock is released, so each acquisition of the file lock is reported to
+ * the users of the file, see {@link CacheMetadataFileLock}.</li>
+ * </ul>
+ */
 public class DefaultCacheLockingManager implements LockHolderFactory, CacheLockingManager {
     private final FileLockManager fileLockManager;
     private final Lock lock = new ReentrantLock();
     private final Map<File, ArtifactLock> artifactLocks = new HashMap<File, ArtifactLock>();
-    private final Map<File, FileLock> metadataLocks = new HashMap<File, FileLock>();
-    
-    private boolean locked;
+    private final Map<File, MetadataLock> metadataLocks = new HashMap<File, MetadataLock>();
+    private final ThreadLocal<Boolean> lockedByThread = new ThreadLocal<Boolean>();
+    private final AtomicLong metadataLockAcquisitions = new AtomicLong();
+
+    private int lockCount;
     private String operationDisplayName;
 
     public DefaultCacheLockingManager(FileLockManager fileLockManager) {
@@ -60,39 +79,50 @@ public class DefaultCacheLockingManager implements LockHolderFactory, CacheLocki
     }
 
     private void lockCache(String operationDisplayName) {
+        if (lockedByThread.get() != null) {
+            throw new IllegalStateException("Cannot lock the artifact cache, as it is already locked by this thread.");
+        }
         lock.lock();
         try {
-            if (locked) {
-                throw new IllegalStateException("Cannot lock the artifact cache, as it is already locked by this process.");
-            }
             this.operationDisplayName = operationDisplayName;
-            locked = true;
+            lockCount++;
         } finally {
             lock.unlock();
         }
+        lockedByThread.set(true);
     }
 
     private void unlockCache() {
+        lockedByThread.remove();
         lock.lock();
         try {
-            // Metadata locks are opened on demand, but closed when the cache lock is released
-            closeMetadataLocks();
+            lockCount--;
+            if (lockCount == 0) {
+                releaseFileLocks();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseFileLocks() {
+        try {
+            // Metadata locks are opened on demand, but closed when the last cache lock is released
+            new CompositeStoppable().addCloseables(metadataLocks.values()).stop();
 
             if (!artifactLocks.isEmpty()) {
                 new CompositeStoppable().addCloseables(artifactLocks.values()).stop();
                 throw new IllegalStateException("Some artifact file locks were not released.");
             }
         } finally {
-            locked = false;
             metadataLocks.clear();
             artifactLocks.clear();
-            lock.unlock();
         }
     }
 
-    private void closeMetadataLocks() {
-        for (FileLock metadataFileLock : metadataLocks.values()) {
-            metadataFileLock.close();
+    private void assertCacheLocked() {
+        if (lockCount == 0) {
+            throw new IllegalStateException("Cannot acquire artifact lock, as the artifact cache is not locked by this process.");
         }
     }
 
@@ -113,34 +143,55 @@ public class DefaultCacheLockingManager implements LockHolderFactory, CacheLocki
     }
 
     private void acquire(File protectedFile) {
+        ArtifactLock artifactLock;
+        String operationDisplayName;
         lock.lock();
         try {
-            if (!locked) {
-                throw new IllegalStateException("Cannot acquire artifact lock, as the artifact cache is not locked by this process.");
-            }
-            ArtifactLock artifactLock = artifactLocks.get(protectedFile);
+            assertCacheLocked();
+            artifactLock = artifactLocks.get(protectedFile);
             if (artifactLock == null) {
-                FileLock fileLock = fileLockManager.lock(protectedFile, FileLockManager.LockMode.Exclusive, String.format("artifact file %s", protectedFile), operationDisplayName);
-                artifactLock = new ArtifactLock(fileLock);
+                artifactLock = new ArtifactLock(protectedFile);
                 artifactLocks.put(protectedFile, artifactLock);
             }
-            artifactLock.refCount++;
+            artifactLock.users++;
+            operationDisplayName = this.operationDisplayName;
         } finally {
             lock.unlock();
         }
+
+        // Wait for other threads outside the manager lock, so that threads using other artifacts are not blocked
+        try {
+            artifactLock.lock(operationDisplayName);
+        } catch (RuntimeException e) {
+            removeUser(artifactLock);
+            throw e;
+        }
     }
 
     private void release(File protectedFile) {
+        ArtifactLock artifactLock;
         lock.lock();
         try {
-            ArtifactLock artifactLock = artifactLocks.get(protectedFile);
-            if (artifactLock == null || artifactLock.refCount <= 0) {
-                throw new IllegalStateException("Cannot release artifact file lock, as the file is not locked.");
-            }
-            artifactLock.refCount--;
-            if (artifactLock.refCount == 0) {
-                artifactLocks.remove(protectedFile);
-                artifactLock.lock.close();
+            artifactLock = artifactLocks.get(protectedFile);
+        } finally {
+            lock.unlock();
+        }
+        if (artifactLock == null || !artifactLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Cannot release artifact file lock, as the file is not locked.");
+        }
+        try {
+            artifactLock.unlock();
+        } finally {
+            removeUser(artifactLock);
+        }
+    }
+
+    private void removeUser(ArtifactLock artifactLock) {
+        lock.lock();
+        try {
+            artifactLock.users--;
+            if (artifactLock.users == 0) {
+                artifactLocks.remove(artifactLock.protectedFile);
             }
         } finally {
             lock.unlock();
@@ -185,37 +236,133 @@ public class DefaultCacheLockingManager implements LockHolderFactory, CacheLocki
         throw new UnsupportedOperationException();
     }
 
-    public FileLock getCacheMetadataFileLock(final File metadataFile) {
+    public CacheMetadataFileLock getCacheMetadataFileLock(final File metadataFile) {
         return new MetadataFileLock(metadataFile);
     }
 
-    private FileLock acquireMetadataFileLock(File metadataFile) {
+    private MetadataLock getMetadataLock(File metadataFile) {
         lock.lock();
         try {
-            if (!locked) {
-                throw new IllegalStateException("Cannot acquire artifact lock, as the artifact cache is not locked by this process.");
+            assertCacheLocked();
+            MetadataLock metadataLock = metadataLocks.get(metadataFile);
+            if (metadataLock == null) {
+                metadataLock = new MetadataLock(metadataFile, operationDisplayName);
+                metadataLocks.put(metadataFile, metadataLock);
             }
-            FileLock metadataFileLock = metadataLocks.get(metadataFile);
-            if (metadataFileLock == null) {
-                metadataFileLock = fileLockManager.lock(metadataFile, FileLockManager.LockMode.Exclusive, String.format("metadata file %s", metadataFile.getName()), operationDisplayName);
-                metadataLocks.put(metadataFile, metadataFileLock);
-            }
-            return metadataFileLock;
+            return metadataLock;
         } finally {
             lock.unlock();
         }
     }
 
-    private static class ArtifactLock implements Closeable {
-        private final FileLock lock;
-        private int refCount;
+    /**
+     * The lock on an artifact file. Re-entrant for the thread which holds it. The users of the lock, including the
+     * threads waiting for it, are counted while holding the manager lock.
+     */
+    private class ArtifactLock implements Closeable {
+        private final File protectedFile;
+        private final ReentrantLock threadLock = new ReentrantLock();
+        private int users;
+        private FileLock fileLock;
+
+        private ArtifactLock(File protectedFile) {
+            this.protectedFile = protectedFile;
+        }
+
+        public void lock(String operationDisplayName) {
+            threadLock.lock();
+            if (threadLock.getHoldCount() > 1) {
+                return;
+            }
+            try {
+                fileLock = fileLockManager.lock(protectedFile, FileLockManager.LockMode.Exclusive, String.format("artifact file %s", protectedFile), operationDisplayName);
+            } catch (RuntimeException e) {
+                threadLock.unlock();
+                throw e;
+            }
+        }
 
-        private ArtifactLock(FileLock lock) {
-            this.lock = lock;
+        public boolean isHeldByCurrentThread() {
+            return threadLock.isHeldByCurrentThread();
+        }
+
+        public void unlock() {
+            try {
+                if (threadLock.getHoldCount() == 1) {
+                    FileLock released = fileLock;
+                    fileLock = null;
+                    released.close();
+                }
+            } finally {
+                threadLock.unlock();
+            }
         }
 
         public void close() {
-            lock.close();
+            if (fileLock != null) {
+                fileLock.close();
+            }
+        }
+    }
+
+    /**
+     * The lock on a meta-data file. Locks the file in shared mode for reading and escalates to exclusive mode on the
+     * first write. Access to the file by the threads of this process is serialized. Each acquisition of the file lock is
+     * given a new id.
+     */
+    private class MetadataLock implements Closeable {
+        private final File metadataFile;
+        private final String operationDisplayName;
+        private FileLock fileLock;
+        private FileLockManager.LockMode mode;
+        private long acquisitionId;
+
+        private MetadataLock(File metadataFile, String operationDisplayName) {
+            this.metadataFile = metadataFile;
+            this.operationDisplayName = operationDisplayName;
+        }
+
+        public synchronized <T> T readFromFile(Callable<T> action) {
+            return lock(FileLockManager.LockMode.Shared).readFromFile(action);
+        }
+
+        public synchronized void writeToFile(Runnable action) {
+            lock(FileLockManager.LockMode.Exclusive).writeToFile(action);
+        }
+
+        public synchronized long acquire(FileLockManager.LockMode mode) {
+            lock(mode);
+            return acquisitionId;
+        }
+
+        public synchronized boolean getUnlockedCleanly() {
+            return lock(FileLockManager.LockMode.Shared).getUnlockedCleanly();
+        }
+
+        public synchronized boolean isLockFile(File file) {
+            return lock(FileLockManager.LockMode.Shared).isLockFile(file);
+        }
+
+        private FileLock lock(FileLockManager.LockMode mode) {
+            if (fileLock != null && (mode == FileLockManager.LockMode.Shared || this.mode == FileLockManager.LockMode.Exclusive)) {
+                return fileLock;
+            }
+            if (fileLock != null) {
+                // A shared lock cannot be escalated in place. Another process may write to the file before the exclusive
+                // lock is acquired, which the users of the file detect using the new acquisition id
+                fileLock.close();
+                fileLock = null;
+            }
+            fileLock = fileLockManager.lock(metadataFile, mode, String.format("metadata file %s", metadataFile.getName()), operationDisplayName);
+            this.mode = mode;
+            acquisitionId = metadataLockAcquisitions.incrementAndGet();
+            return fileLock;
+        }
+
+        public synchronized void close() {
+            if (fileLock != null) {
+                fileLock.close();
+            }
         }
     }
 
@@ -224,7 +371,7 @@ public class DefaultCacheLockingManager implements LockHolderFactory, CacheLocki
      * Any call to {@link #readFromFile} or {@link #writeToFile} will open the lock, even if it was previously closed. Thus the lock can be used for a long
      * lived persistent cache, as long as all access occurs within a withCacheLock() block.
      */
-    private class MetadataFileLock implements FileLock {
+    private class MetadataFileLock implements CacheMetadataFileLock {
         private final File metadataFile;
 
         public MetadataFileLock(File metadataFile) {
@@ -233,27 +380,27 @@ public class DefaultCacheLockingManager implements LockHolderFactory, CacheLocki
 
         public boolean getUnlockedCleanly() {
             // TODO Not sure about this
-            return acquireLock().getUnlockedCleanly();
+            return getMetadataLock(metadataFile).getUnlockedCleanly();
         }
 
         public boolean isLockFile(File file) {
             // TODO Not sure about this
-            return acquireLock().isLockFile(file);
+            return getMetadataLock(metadataFile).isLockFile(file);
         }
 
         public <T> T readFromFile(Callable<T> action) throws LockTimeoutException {
-            return acquireLock().readFromFile(action);
+            return getMetadataLock(metadataFile).readFromFile(action);
         }
 
         public void writeToFile(Runnable action) throws LockTimeoutException {
-            acquireLock().writeToFile(action);
+            getMetadataLock(metadataFile).writeToFile(action);
         }
 
-        public void close() {
+        public long lock(FileLockManager.LockMode mode) {
+            return getMetadataLock(metadataFile).acquire(mode);
         }
 
-        private FileLock acquireLock() {
-            return acquireMetadataFileLock(metadataFile);
+        public void close() {
         }
     }
 }
@@ -38,19 +38,25 @@ import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.EnhancedDependencyDescriptor;
 import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.IvyConfig;
 import org.gradle.api.specs.Spec;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.util.WrapUtil;
 
 import java.util.*;
 
 public class DefaultDependencyResolver implements ArtifactDependencyResolver {
+    private static final int MAX_CONCURRENT_RESOLVES = 8;
     private final ModuleDescriptorConverter moduleDescriptorConverter;
     private final ResolvedArtifactFactory resolvedArtifactFactory;
     private final ResolveIvyFactory ivyFactory;
+    private final ExecutorFactory executorFactory;
+    private final int maxConcurrentDownloads;
 
-    public DefaultDependencyResolver(ResolveIvyFactory ivyFactory, ModuleDescriptorConverter moduleDescriptorConverter, ResolvedArtifactFactory resolvedArtifactFactory) {
+    public DefaultDependencyResolver(ResolveIvyFactory ivyFactory, ModuleDescriptorConverter moduleDescriptorConverter, ResolvedArtifactFactory resolvedArtifactFactory, ExecutorFactory executorFactory, int maxConcurrentDownloads) {
         this.ivyFactory = ivyFactory;
         this.moduleDescriptorConverter = moduleDescriptorConverter;
         this.resolvedArtifactFactory = resolvedArtifactFactory;
+        this.executorFactory = executorFactory;
+        this.maxConcurrentDownloads = maxConcurrentDownloads;
     }
 
     public ResolvedConfiguration resolve(ConfigurationInternal configuration) throws ResolveException {
@@ -63,12 +69,17 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         options.setDownload(false);
         options.setConfs(WrapUtil.toArray(configuration.getName()));
         ResolveData resolveData = new ResolveData(ivy.getResolveEngine(), options);
-        DependencyToModuleResolver dependencyResolver = new IvyResolverBackedDependencyToModuleResolver(ivy, resolveData, resolver);
-        IvyResolverBackedArtifactToFileResolver artifactResolver = new IvyResolverBackedArtifactToFileResolver(resolver);
+        PrefetchingDependencyToModuleResolver dependencyResolver = new PrefetchingDependencyToModuleResolver(new IvyResolverBackedDependencyToModuleResolver(ivy, resolveData, resolver), executorFactory, MAX_CONCURRENT_RESOLVES);
+        PrefetchingArtifactToFileResolver artifactResolver = new PrefetchingArtifactToFileResolver(new IvyResolverBackedArtifactToFileResolver(resolver), executorFactory, maxConcurrentDownloads);
         ResolveState resolveState = new ResolveState();
         ConfigurationResolveState root = resolveState.getConfiguration(moduleDescriptor, configuration.getName());
         ResolvedConfigurationImpl result = new ResolvedConfigurationImpl(configuration, root.getResult());
-        resolve(dependencyResolver, result, root, resolveState, resolveData, artifactResolver);
+        try {
+            resolve(dependencyResolver, result, root, resolveState, resolveData, artifactResolver);
+        } finally {
+            dependencyResolver.stop();
+            artifactResolver.stop();
+        }
 
         System.out.println("-> RESULT");
         for (ResolvedArtifact artifact : result.getResolvedArtifacts()) {
@@ -81,13 +92,14 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         return result;
     }
 
-    private void resolve(DependencyToModuleResolver resolver, ResolvedConfigurationImpl result, ConfigurationResolveState root, ResolveState resolveState, ResolveData resolveData, ArtifactToFileResolver artifactResolver) {
+    private void resolve(PrefetchingDependencyToModuleResolver resolver, ResolvedConfigurationImpl result, ConfigurationResolveState root, ResolveState resolveState, ResolveData resolveData, PrefetchingArtifactToFileResolver artifactResolver) {
         System.out.println("-> RESOLVE " + root);
 
         SetMultimap<ModuleId, DependencyResolvePath> conflicts = LinkedHashMultimap.create();
 
         List<DependencyResolvePath> queue = new ArrayList<DependencyResolvePath>();
         root.addOutgoingDependencies(new RootPath(), queue);
+        prefetch(resolver, queue);
 
         while (!queue.isEmpty() || !conflicts.isEmpty()) {
             if (queue.isEmpty()) {
@@ -130,15 +142,30 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
             if (path.targetModuleRevision.status == Status.Conflict) {
                 conflicts.put(path.targetModuleRevision.descriptor.getModuleRevisionId().getModuleId(), path);
             } else {
+                int queued = queue.size();
                 path.addOutgoingDependencies(resolveData, resolveState, queue);
+                prefetch(resolver, queue.subList(queued, queue.size()));
             }
         }
         
+        // Downloads the artifacts of each included configuration in the background, as it is attached
         for (ConfigurationResolveState resolvedConfiguration : resolveState.getConfigurations()) {
             resolvedConfiguration.attachToParents(resolvedArtifactFactory, artifactResolver, result);
         }
     }
 
+    /**
+     * Starts fetching the meta-data for the given paths in the background. The paths are still traversed one at a
+     * time and in queue order, so the result of resolution, including conflict resolution, does not change.
+     */
+    private void prefetch(PrefetchingDependencyToModuleResolver resolver, List<DependencyResolvePath> paths) {
+        for (DependencyResolvePath path : paths) {
+            if (path.dependency.resolvedRevision == null) {
+                resolver.prefetch(path.dependency.descriptor);
+            }
+        }
+    }
+
     private static class ResolveState {
         final SetMultimap<ModuleId, ModuleRevisionResolveState> modules = LinkedHashMultimap.create();
         final Map<ModuleRevisionId, ModuleRevisionResolveState> revisions = new LinkedHashMap<ModuleRevisionId, ModuleRevisionResolveState>();
@@ -274,11 +301,12 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
             return String.format("%s(%s)", descriptor.getModuleRevisionId(), configurationName);
         }
 
-        public Set<ResolvedArtifact> getArtifacts(ResolvedArtifactFactory resolvedArtifactFactory, ArtifactToFileResolver resolver) {
+        public Set<ResolvedArtifact> getArtifacts(ResolvedArtifactFactory resolvedArtifactFactory, PrefetchingArtifactToFileResolver resolver) {
             if (artifacts == null) {
                 artifacts = new LinkedHashSet<ResolvedArtifact>();
                 for (String config : heirarchy) {
                     for (Artifact artifact : descriptor.getArtifacts(config)) {
+                        resolver.prefetch(artifact);
                         artifacts.add(resolvedArtifactFactory.create(getResult(), artifact, resolver));
                     }
                 }
@@ -298,7 +326,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
             return result;
         }
 
-        public void attachToParents(ResolvedArtifactFactory resolvedArtifactFactory, ArtifactToFileResolver resolver, ResolvedConfigurationImpl result) {
+        public void attachToParents(ResolvedArtifactFactory resolvedArtifactFactory, PrefetchingArtifactToFileResolver resolver, ResolvedConfigurationImpl result) {
             switch (getStatus()) {
                 case Include:
                     System.out.println("Attaching " + this + " to parents");
@@ -316,7 +344,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
     }
 
     private static abstract class ResolvePath {
-        public abstract void attachToParents(ConfigurationResolveState childConfiguration, ResolvedArtifactFactory resolvedArtifactFactory, ArtifactToFileResolver resolver, ResolvedConfigurationImpl result);
+        public abstract void attachToParents(ConfigurationResolveState childConfiguration, ResolvedArtifactFactory resolvedArtifactFactory, PrefetchingArtifactToFileResolver resolver, ResolvedConfigurationImpl result);
 
         public abstract boolean excludes(ModuleRevisionResolveState moduleRevision);
 
@@ -346,7 +374,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
         }
 
         @Override
-        public void attachToParents(ConfigurationResolveState childConfiguration, ResolvedArtifactFactory resolvedArtifactFactory, ArtifactToFileResolver resolver, ResolvedConfigurationImpl result) {
+        public void attachToParents(ConfigurationResolveState childConfiguration, ResolvedArtifactFactory resolvedArtifactFactory, PrefetchingArtifactToFileResolver resolver, ResolvedConfigurationImpl result) {
             // Don't need to do anything
         }
     }
@@ -487,7 +515,7 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
             queue.add(this);
         }
 
-        private Set<ResolvedArtifact> getArtifacts(ConfigurationResolveState childConfiguration, ResolvedArtifactFactory resolvedArtifactFactory, ArtifactToFileResolver resolver) {
+        private Set<ResolvedArtifact> getArtifacts(ConfigurationResolveState childConfiguration, ResolvedArtifactFactory resolvedArtifactFactory, PrefetchingArtifactToFileResolver resolver) {
             String[] targetConfigurations = from.heirarchy.toArray(new String[from.heirarchy.size()]);
             DependencyArtifactDescriptor[] dependencyArtifacts = dependency.descriptor.getDependencyArtifacts(targetConfigurations);
             if (dependencyArtifacts.length == 0) {
@@ -496,13 +524,14 @@ public class DefaultDependencyResolver implements ArtifactDependencyResolver {
             Set<ResolvedArtifact> artifacts = new LinkedHashSet<ResolvedArtifact>();
             for (DependencyArtifactDescriptor artifactDescriptor : dependencyArtifacts) {
                 MDArtifact artifact = new MDArtifact(childConfiguration.descriptor, artifactDescriptor.getName(), artifactDescriptor.getType(), artifactDescriptor.getExt(), artifactDescriptor.getUrl(), artifactDescriptor.getQualifiedExtraAttributes());
+                resolver.prefetch(artifact);
                 artifacts.add(resolvedArtifactFactory.create(childConfiguration.getResult(), artifact, resolver));
             }
             return artifacts;
         }
 
         @Override
-        public void attachToParents(ConfigurationResolveState childConfiguration, ResolvedArtifactFactory resolvedArtifactFactory, ArtifactToFileResolver resolver, ResolvedConfigurationImpl result) {
+        public void attachToParents(ConfigurationResolveState childConfiguration, ResolvedArtifactFactory resolvedArtifactFactory, PrefetchingArtifactToFileResolver resolver, ResolvedConfigurationImpl result) {
             System.out.println("  attach via " + this);
             System.out.println("    " + from + " -> " + childConfiguration);
             DefaultResolvedDependency parent = from.getResult();
@@ -31,12 +31,18 @@ import org.gradle.api.internal.artifacts.ivyservice.dynamicrevisions.DynamicRevi
 import org.gradle.api.internal.artifacts.repositories.InternalRepository;
 import org.gradle.logging.ProgressLogger;
 import org.gradle.logging.ProgressLoggerFactory;
+import org.gradle.messaging.concurrent.CompositeStoppable;
 import org.gradle.util.WrapUtil;
 import org.jfrog.wharf.ivy.model.WharfResolverMetadata;
 
+import java.io.Closeable;
 import java.util.*;
 
 /**
+ * Resolvers for the same repository are shared across resolves, so that each repository keeps its connections open
+ * while the build resolves dependencies. A {@link Closeable} resolver which is replaced by a shared resolver is closed
+ * straight away, and the shared resolvers are closed when this converter is closed.
+ *
  * @author Hans Dockter
  */
 public class DefaultSettingsConverter implements SettingsConverter {
@@ -135,6 +141,8 @@ public class DefaultSettingsConverter implements SettingsConverter {
                     assert resolveSettings.getResolver(resolver.getName()) == resolver;
                     resolversById.put(id, resolver);
                     sharedResolver = resolver;
+                } else if (sharedResolver != resolver) {
+                    closeResolvers(WrapUtil.toList(resolver));
                 }
             }
             resolveSettings.addResolver(sharedResolver);
@@ -142,6 +150,27 @@ public class DefaultSettingsConverter implements SettingsConverter {
         }
     }
 
+    /**
+     * Closes the resolvers which have been shared across resolves.
+     */
+    public void close() {
+        try {
+            closeResolvers(resolversById.values());
+        } finally {
+            resolversById.clear();
+        }
+    }
+
+    static void closeResolvers(Collection<? extends DependencyResolver> resolvers) {
+        List<Closeable> closeables = new ArrayList<Closeable>();
+        for (DependencyResolver resolver : resolvers) {
+            if (resolver instanceof Closeable) {
+                closeables.add((Closeable) resolver);
+            }
+        }
+        new CompositeStoppable().addCloseables(closeables).stop();
+    }
+
     private void initializeResolvers(IvySettings ivySettings, List<DependencyResolver> allResolvers) {
         for (DependencyResolver dependencyResolver : allResolvers) {
             ivySettings.addResolver(dependencyResolver);
@@ -176,27 +205,30 @@ public class DefaultSettingsConverter implements SettingsConverter {
     }
 
     private class ProgressLoggingTransferListener implements TransferListener {
-        private ProgressLogger logger;
-        private long total;
+        // Artifacts may be downloaded concurrently, each transfer happening entirely in one thread
+        private final ThreadLocal<TransferProgress> transfer = new ThreadLocal<TransferProgress>();
 
         public void transferProgress(TransferEvent evt) {
             if (evt.getResource().isLocal()) {
                 return;
             }
             if (evt.getEventType() == TransferEvent.TRANSFER_STARTED) {
-                total = 0;
-                logger = progressLoggerFactory.newOperation(DefaultSettingsConverter.class);
+                TransferProgress progress = new TransferProgress();
+                progress.logger = progressLoggerFactory.newOperation(DefaultSettingsConverter.class);
                 String description = String.format("%s %s", StringUtils.capitalize(getRequestType(evt)), evt.getResource().getName());
-                logger.setDescription(description);
-                logger.setLoggingHeader(description);
-                logger.started();
+                progress.logger.setDescription(description);
+                progress.logger.setLoggingHeader(description);
+                progress.logger.started();
+                transfer.set(progress);
             }
             if (evt.getEventType() == TransferEvent.TRANSFER_PROGRESS) {
-                total += evt.getLength();
-                logger.progress(String.format("%s/%s %sed", getLengthText(total), getLengthText(evt), getRequestType(evt)));
+                TransferProgress progress = transfer.get();
+                progress.total += evt.getLength();
+                progress.logger.progress(String.format("%s/%s %sed", getLengthText(progress.total), getLengthText(evt), getRequestType(evt)));
             }
             if (evt.getEventType() == TransferEvent.TRANSFER_COMPLETED) {
-                logger.completed();
+                transfer.get().logger.completed();
+                transfer.remove();
             }
         }
 
@@ -208,4 +240,9 @@ public class DefaultSettingsConverter implements SettingsConverter {
             }
         }
     }
+
+    private static class TransferProgress {
+        private ProgressLogger logger;
+        private long total;
+    }
 }
@@ -65,17 +65,21 @@ public class IvyBackedArtifactPublisher implements ArtifactPublisher {
 
     public void publish(ConfigurationInternal configuration, File descriptorDestination) throws PublishException {
         List<DependencyResolver> publishResolvers = resolverProvider.getResolvers();
-        Ivy ivy = ivyForPublish(publishResolvers);
-        Set<Configuration> configurationsToPublish = configuration.getHierarchy();
-        Set<String> confs = Configurations.getNames(configurationsToPublish, false);
-        IvyConfig ivyConfig = new IvyConfig(ivy.getSettings(), configuration.getResolutionStrategy());
-        writeDescriptorFile(descriptorDestination, configurationsToPublish, ivyConfig, configuration.getModule());
-        dependencyPublisher.publish(
-                confs,
-                publishResolvers,
-                publishModuleDescriptorConverter.convert(configurationsToPublish, configuration.getModule(), ivyConfig),
-                descriptorDestination,
-                ivy.getPublishEngine());
+        try {
+            Ivy ivy = ivyForPublish(publishResolvers);
+            Set<Configuration> configurationsToPublish = configuration.getHierarchy();
+            Set<String> confs = Configurations.getNames(configurationsToPublish, false);
+            IvyConfig ivyConfig = new IvyConfig(ivy.getSettings(), configuration.getResolutionStrategy());
+            writeDescriptorFile(descriptorDestination, configurationsToPublish, ivyConfig, configuration.getModule());
+            dependencyPublisher.publish(
+                    confs,
+                    publishResolvers,
+                    publishModuleDescriptorConverter.convert(configurationsToPublish, configuration.getModule(), ivyConfig),
+                    descriptorDestination,
+                    ivy.getPublishEngine());
+        } finally {
+            DefaultSettingsConverter.closeResolvers(publishResolvers);
+        }
     }
 
     private void writeDescriptorFile(File descriptorDestination, Set<Configuration> configurationsToPublish, IvyConfig ivyConfig, Module module) {
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.Stoppable;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.gradle.util.UncheckedException;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Calculates values ahead of time, using up to the given number of threads. The value for a key which has been
+ * prefetched is calculated once only, and {@link #get(Object)} returns it or rethrows its failure. When no thread has
+ * started on a prefetched key yet, {@link #get(Object)} calculates its value in the calling thread.
+ */
+abstract class Prefetcher<K, V> implements Stoppable {
+    private final StoppableExecutor executor;
+    private final int maxThreads;
+    private final Map<K, FutureTask<V>> tasks = new HashMap<K, FutureTask<V>>();
+    private final LinkedList<FutureTask<V>> queue = new LinkedList<FutureTask<V>>();
+    private int workers;
+
+    Prefetcher(ExecutorFactory executorFactory, String displayName, int maxThreads) {
+        this.maxThreads = maxThreads;
+        executor = executorFactory.create(displayName);
+    }
+
+    /**
+     * Calculates the value for the given key. Called at most once for a key which has been prefetched.
+     */
+    protected abstract V calculate(K key);
+
+    /**
+     * Starts calculating the value for the given key in the background, if it has not already been started.
+     */
+    public void prefetch(final K key) {
+        synchronized (queue) {
+            if (tasks.containsKey(key)) {
+                return;
+            }
+            FutureTask<V> task = new FutureTask<V>(new Callable<V>() {
+                public V call() throws Exception {
+                    return calculate(key);
+                }
+            });
+            tasks.put(key, task);
+            queue.add(task);
+            if (workers < maxThreads) {
+                workers++;
+                executor.execute(new Worker());
+            }
+        }
+    }
+
+    public V get(K key) {
+        FutureTask<V> task;
+        synchronized (queue) {
+            task = tasks.get(key);
+            if (task != null) {
+                queue.remove(task);
+            }
+        }
+        if (task == null) {
+            return calculate(key);
+        }
+
+        // Calculate in this thread if no worker has started on it yet
+        task.run();
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw UncheckedException.asUncheckedException(e.getCause());
+        } catch (InterruptedException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+    }
+
+    /**
+     * Discards the keys which have been prefetched but not started. A later {@link #get(Object)} for such a key
+     * calculates its value in the calling thread.
+     */
+    public void discardPending() {
+        synchronized (queue) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Waits for all keys which have been prefetched, and not discarded, to complete.
+     */
+    public void stop() {
+        executor.stop();
+    }
+
+    private class Worker implements Runnable {
+        public void run() {
+            while (true) {
+                FutureTask<V> task;
+                synchronized (queue) {
+                    if (queue.isEmpty()) {
+                        workers--;
+                        return;
+                    }
+                    task = queue.removeFirst();
+                }
+                task.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.Stoppable;
+
+import java.io.File;
+
+/**
+ * An {@link ArtifactToFileResolver} which can download artifacts ahead of time, using up to the given number of
+ * threads. An artifact which has been prefetched is resolved by the backing resolver once only, and {@link
+ * #resolve(Artifact)} returns its file or rethrows its failure.
+ */
+class PrefetchingArtifactToFileResolver implements ArtifactToFileResolver, Stoppable {
+    private final Prefetcher<Artifact, File> downloads;
+
+    PrefetchingArtifactToFileResolver(final ArtifactToFileResolver resolver, ExecutorFactory executorFactory, int maxThreads) {
+        downloads = new Prefetcher<Artifact, File>(executorFactory, "Artifact downloader", maxThreads) {
+            @Override
+            protected File calculate(Artifact artifact) {
+                return resolver.resolve(artifact);
+            }
+        };
+    }
+
+    /**
+     * Starts downloading the given artifact in the background, if it has not already been started.
+     */
+    public void prefetch(Artifact artifact) {
+        downloads.prefetch(artifact);
+    }
+
+    public File resolve(Artifact artifact) {
+        return downloads.get(artifact);
+    }
+
+    /**
+     * Waits for all artifacts which have been prefetched to be downloaded. Unlike {@link
+     * PrefetchingDependencyToModuleResolver#stop()}, does not discard the artifacts which have not been started.
+     */
+    public void stop() {
+        downloads.stop();
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.resolve.ResolvedModuleRevision;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.Stoppable;
+
+/**
+ * A {@link DependencyToModuleResolver} which can resolve dependencies ahead of time, using up to the given number of
+ * threads. A dependency which has been prefetched is resolved by the backing resolver once only, and {@link
+ * #resolve(DependencyDescriptor)} returns its result or rethrows its failure.
+ */
+class PrefetchingDependencyToModuleResolver implements DependencyToModuleResolver, Stoppable {
+    private final Prefetcher<DependencyDescriptor, ResolvedModuleRevision> resolves;
+
+    PrefetchingDependencyToModuleResolver(final DependencyToModuleResolver resolver, ExecutorFactory executorFactory, int maxThreads) {
+        resolves = new Prefetcher<DependencyDescriptor, ResolvedModuleRevision>(executorFactory, "Dependency resolver", maxThreads) {
+            @Override
+            protected ResolvedModuleRevision calculate(DependencyDescriptor dependencyDescriptor) {
+                return resolver.resolve(dependencyDescriptor);
+            }
+        };
+    }
+
+    /**
+     * Starts resolving the given dependency in the background, if it has not already been started.
+     */
+    public void prefetch(DependencyDescriptor dependencyDescriptor) {
+        resolves.prefetch(dependencyDescriptor);
+    }
+
+    public ResolvedModuleRevision resolve(DependencyDescriptor dependencyDescriptor) throws ModuleNotFoundException {
+        return resolves.get(dependencyDescriptor);
+    }
+
+    /**
+     * Discards any dependencies which have not been started, and waits for the remaining dependencies to complete.
+     */
+    public void stop() {
+        resolves.discardPending();
+        resolves.stop();
+    }
+}
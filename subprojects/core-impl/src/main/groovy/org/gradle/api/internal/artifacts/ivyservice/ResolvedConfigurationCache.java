@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.cache.PersistentIndexedCache;
+
+/**
+ * Stores the results of resolving configurations in the artifact cache, keyed by a hash of the inputs to the
+ * resolve. Must be used while holding the cache lock.
+ */
+public class ResolvedConfigurationCache {
+    private final ArtifactCacheMetaData cacheMetadata;
+    private final CacheLockingManager cacheLockingManager;
+    private PersistentIndexedCache<String, CachedResolvedConfiguration> cache;
+
+    public ResolvedConfigurationCache(ArtifactCacheMetaData cacheMetadata, CacheLockingManager cacheLockingManager) {
+        this.cacheMetadata = cacheMetadata;
+        this.cacheLockingManager = cacheLockingManager;
+    }
+
+    private synchronized PersistentIndexedCache<String, CachedResolvedConfiguration> getCache() {
+        if (cache == null) {
+            cache = initCache();
+        }
+        return cache;
+    }
+
+    private PersistentIndexedCache<String, CachedResolvedConfiguration> initCache() {
+        return new StripedPersistentIndexedCache<String, CachedResolvedConfiguration>(cacheMetadata.getCacheDir(), "resolved-configurations", cacheLockingManager,
+                new DefaultSerializer<CachedResolvedConfiguration>(CachedResolvedConfiguration.class.getClassLoader()));
+    }
+
+    CachedResolvedConfiguration get(String key) {
+        return getCache().get(key);
+    }
+
+    void put(String key, CachedResolvedConfiguration resolvedConfiguration) {
+        getCache().put(key, resolvedConfiguration);
+    }
+}
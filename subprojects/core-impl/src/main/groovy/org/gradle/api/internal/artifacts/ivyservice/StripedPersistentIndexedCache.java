@@ -0,0 +1,107 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
+import org.gradle.cache.internal.FileLockManager;
+import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link PersistentIndexedCache} for artifact cache meta-data, which spreads its entries across a number of files.
+ * Each file is locked separately, so that threads and processes which use entries in different files do not block each
+ * other. Like {@link BTreePersistentIndexedCache}, uses the string representation of a key to identify it, so this must
+ * be the same in every process. Must be used while holding the cache lock.
+ *
+ * <p>A stripe file is locked for update before it is modified, and the in-memory state of a stripe is discarded
+ * whenever the lock on its file has been acquired again, as the file may have been modified by another process while
+ * the lock was not held.</p>
+ */
+public class StripedPersistentIndexedCache<K, V> implements PersistentIndexedCache<K, V> {
+    public static final int DEFAULT_STRIPE_COUNT = 16;
+    private final CacheLockingManager cacheLockingManager;
+    private final Serializer<V> serializer;
+    private final List<Stripe> stripes = new ArrayList<Stripe>();
+
+    public StripedPersistentIndexedCache(File cacheDir, String name, CacheLockingManager cacheLockingManager, Serializer<V> serializer) {
+        this(cacheDir, name, DEFAULT_STRIPE_COUNT, cacheLockingManager, serializer);
+    }
+
+    public StripedPersistentIndexedCache(File cacheDir, String name, int stripeCount, CacheLockingManager cacheLockingManager, Serializer<V> serializer) {
+        this.cacheLockingManager = cacheLockingManager;
+        this.serializer = serializer;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes.add(new Stripe(new File(cacheDir, String.format("%s-%d.bin", name, i))));
+        }
+    }
+
+    public V get(K key) {
+        Stripe stripe = getStripe(key);
+        synchronized (stripe) {
+            return stripe.getCache(FileLockManager.LockMode.Shared).get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Stripe stripe = getStripe(key);
+        synchronized (stripe) {
+            stripe.getCache(FileLockManager.LockMode.Exclusive).put(key, value);
+        }
+    }
+
+    public void remove(K key) {
+        Stripe stripe = getStripe(key);
+        synchronized (stripe) {
+            stripe.getCache(FileLockManager.LockMode.Exclusive).remove(key);
+        }
+    }
+
+    private Stripe getStripe(K key) {
+        int hashCode = key.toString().hashCode();
+        return stripes.get((hashCode & Integer.MAX_VALUE) % stripes.size());
+    }
+
+    private class Stripe {
+        private final File file;
+        private CacheMetadataFileLock fileLock;
+        private BTreePersistentIndexedCache<K, V> cache;
+        private long cacheLockAcquisition;
+
+        private Stripe(File file) {
+            this.file = file;
+        }
+
+        private PersistentIndexedCache<K, V> getCache(FileLockManager.LockMode mode) {
+            if (fileLock == null) {
+                fileLock = cacheLockingManager.getCacheMetadataFileLock(file);
+            }
+            long lockAcquisition = fileLock.lock(mode);
+            if (cache != null && lockAcquisition != cacheLockAcquisition) {
+                cache.close();
+                cache = null;
+            }
+            if (cache == null) {
+                cache = new BTreePersistentIndexedCache<K, V>(file, fileLock, serializer);
+            }
+            cacheLockAcquisition = lockAcquisition;
+            return cache;
+        }
+    }
+}
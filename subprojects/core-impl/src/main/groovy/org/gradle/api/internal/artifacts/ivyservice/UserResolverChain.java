@@ -40,14 +40,19 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Method;
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A chain of the user's resolvers. Modules may be resolved by several threads at the same time, see {@link
+ * PrefetchingDependencyToModuleResolver}, so the resolver used for each module and the dynamic revision cache are
+ * accessed in a thread-safe way.
+ */
 public class UserResolverChain extends ChainResolver {
     private static final Logger LOGGER = LoggerFactory.getLogger(UserResolverChain.class);
     
-    private final Map<ModuleRevisionId, DependencyResolver> artifactResolvers = new HashMap<ModuleRevisionId, DependencyResolver>();
+    private final Map<ModuleRevisionId, DependencyResolver> artifactResolvers = new ConcurrentHashMap<ModuleRevisionId, DependencyResolver>();
     private final DynamicRevisionDependencyConverter dynamicRevisions;
 
     public UserResolverChain(DynamicRevisionCache dynamicRevisionCache) {
@@ -69,7 +74,7 @@ public class UserResolverChain extends ChainResolver {
             ResolvedModuleRevision cachedModule = findModuleInCache(resolver, resolvedDynamicDependency, data);
             if (cachedModule != null) {
                 LOGGER.debug("Found module {} in resolver cache {}", cachedModule, resolver.getName());
-                artifactResolvers.put(cachedModule.getId(), resolver);
+                rememberArtifactResolver(cachedModule.getId(), resolver);
                 return cachedModule;
             }
         }
@@ -78,12 +83,17 @@ public class UserResolverChain extends ChainResolver {
         ResolvedModuleRevision downloadedModule = getModuleRevisionFromAnyRepository(dd, data);
         if (downloadedModule != null) {
             LOGGER.debug("Found module {} using resolver {}", downloadedModule, downloadedModule.getArtifactResolver());
-            artifactResolvers.put(downloadedModule.getId(), downloadedModule.getArtifactResolver());
+            rememberArtifactResolver(downloadedModule.getId(), downloadedModule.getArtifactResolver());
             dynamicRevisions.maybeSaveDynamicRevision(dd, downloadedModule);
         }
         return downloadedModule;
     }
 
+    private void rememberArtifactResolver(ModuleRevisionId moduleId, DependencyResolver resolver) {
+        if (resolver != null) {
+            artifactResolvers.put(moduleId, resolver);
+        }
+    }
 
     private ResolvedModuleRevision findModuleInCache(DependencyResolver resolver, DependencyDescriptor dd, ResolveData resolveData) {
         CacheMetadataOptions cacheOptions = getCacheMetadataOptions(resolver, resolveData);
@@ -192,6 +202,10 @@ public class UserResolverChain extends ChainResolver {
         return super.getResolvers();
     }
 
+    /**
+     * Access to the dynamic revision cache is serialized, as the modules of a configuration may be resolved by several
+     * threads at the same time.
+     */
     private static class DynamicRevisionDependencyConverter {
         private final DynamicRevisionCache dynamicRevisionCache;
         private DynamicRevisionCachePolicy dynamicRevisionCachePolicy;
@@ -200,11 +214,11 @@ public class UserResolverChain extends ChainResolver {
             this.dynamicRevisionCache = dynamicRevisionCache;
         }
 
-        public void setDynamicRevisionCachePolicy(DynamicRevisionCachePolicy dynamicRevisionCachePolicy) {
+        public synchronized void setDynamicRevisionCachePolicy(DynamicRevisionCachePolicy dynamicRevisionCachePolicy) {
             this.dynamicRevisionCachePolicy = dynamicRevisionCachePolicy;
         }
 
-        public void maybeSaveDynamicRevision(DependencyDescriptor original, ResolvedModuleRevision downloadedModule) {
+        public synchronized void maybeSaveDynamicRevision(DependencyDescriptor original, ResolvedModuleRevision downloadedModule) {
             ModuleRevisionId originalId = original.getDependencyRevisionId();
             ModuleRevisionId resolvedId = downloadedModule.getId();
             if (originalId.equals(resolvedId)) {
@@ -215,7 +229,7 @@ public class UserResolverChain extends ChainResolver {
             dynamicRevisionCache.saveResolvedRevision(downloadedModule.getResolver(), originalId, resolvedId);
         }
 
-        public DependencyDescriptor maybeResolveDynamicRevision(DependencyResolver resolver, DependencyDescriptor original) {
+        public synchronized DependencyDescriptor maybeResolveDynamicRevision(DependencyResolver resolver, DependencyDescriptor original) {
             assert dynamicRevisionCachePolicy != null : "dynamicRevisionExpiryPolicy was not configured";
 
             ModuleRevisionId originalId = original.getDependencyRevisionId();
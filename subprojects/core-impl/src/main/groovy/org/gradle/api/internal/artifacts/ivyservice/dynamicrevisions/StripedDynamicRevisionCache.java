@@ -19,29 +19,27 @@ import org.apache.ivy.core.module.id.ModuleRevisionId;
 import org.apache.ivy.plugins.resolver.DependencyResolver;
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCacheMetaData;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLockingManager;
+import org.gradle.api.internal.artifacts.ivyservice.StripedPersistentIndexedCache;
 import org.gradle.cache.DefaultSerializer;
 import org.gradle.cache.PersistentIndexedCache;
-import org.gradle.cache.internal.FileLock;
-import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
 import org.gradle.util.TimeProvider;
 import org.jfrog.wharf.ivy.model.WharfResolverMetadata;
 
-import java.io.File;
 import java.io.Serializable;
 
-public class SingleFileBackedDynamicRevisionCache implements DynamicRevisionCache {
+public class StripedDynamicRevisionCache implements DynamicRevisionCache {
     private final TimeProvider timeProvider;
     private final ArtifactCacheMetaData cacheMetadata;
     private final CacheLockingManager cacheLockingManager;
     private PersistentIndexedCache<RevisionKey, CachedRevisionEntry> cache;
 
-    public SingleFileBackedDynamicRevisionCache(ArtifactCacheMetaData cacheMetadata, TimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
+    public StripedDynamicRevisionCache(ArtifactCacheMetaData cacheMetadata, TimeProvider timeProvider, CacheLockingManager cacheLockingManager) {
         this.timeProvider = timeProvider;
         this.cacheLockingManager = cacheLockingManager;
         this.cacheMetadata = cacheMetadata;
     }
     
-    private PersistentIndexedCache<RevisionKey, CachedRevisionEntry> getCache() {
+    private synchronized PersistentIndexedCache<RevisionKey, CachedRevisionEntry> getCache() {
         if (cache == null) {
             cache = initCache();
         }
@@ -49,9 +47,7 @@ public class SingleFileBackedDynamicRevisionCache implements DynamicRevisionCach
     }
 
     private PersistentIndexedCache<RevisionKey, CachedRevisionEntry> initCache() {
-        File dynamicRevisionsFile = new File(cacheMetadata.getCacheDir(), "dynamic-revisions.bin");
-        FileLock dynamicRevisionsLock = cacheLockingManager.getCacheMetadataFileLock(dynamicRevisionsFile);
-        return new BTreePersistentIndexedCache<RevisionKey, CachedRevisionEntry>(dynamicRevisionsFile, dynamicRevisionsLock,
+        return new StripedPersistentIndexedCache<RevisionKey, CachedRevisionEntry>(cacheMetadata.getCacheDir(), "dynamic-revisions", cacheLockingManager,
                 new DefaultSerializer<CachedRevisionEntry>(CachedRevisionEntry.class.getClassLoader()));
     }
 
@@ -90,6 +86,11 @@ public class SingleFileBackedDynamicRevisionCache implements DynamicRevisionCach
         public int hashCode() {
             return resolverId.hashCode() ^ revisionId.hashCode();
         }
+
+        @Override
+        public String toString() {
+            return resolverId + ":" + revisionId;
+        }
     }
 
     private CachedRevisionEntry createEntry(ModuleRevisionId revisionId) {
@@ -18,11 +18,13 @@ package org.gradle.api.internal.artifacts.repositories;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpMethodRetryHandler;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
 import org.apache.commons.httpclient.methods.RequestEntity;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.ivy.plugins.repository.*;
@@ -40,97 +42,191 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A repository which uses commons-httpclient to access resources using HTTP/HTTPS.
+ *
+ * <p>Resources can be transferred concurrently, using a pool of connections whose size is given by the {@value
+ * #MAX_CONCURRENT_DOWNLOADS_PROPERTY} system property. Each transfer fires its own sequence of {@link
+ * TransferEvent}s.</p>
+ *
+ * <p>A resource is fetched with a single GET request when it is first queried. On success, the response body is copied to
+ * a temporary file before the connection is returned to the pool. So a resource which Ivy only checks for existence does
+ * not hold a connection, and a later {@link #get(String, java.io.File)} of the resource does not request it again. A
+ * thread waits at most five minutes for a free connection.</p>
+ *
+ * <p>The connections are held open between transfers. Call {@link #close()} to release them, and to delete any fetched
+ * resources which have not been read, once the repository is no longer required.</p>
  */
 public class CommonsHttpClientBackedRepository extends AbstractRepository {
+    /**
+     * The system property which specifies the maximum number of artifacts to download concurrently.
+     */
+    public static final String MAX_CONCURRENT_DOWNLOADS_PROPERTY = "org.gradle.resolver.maxConcurrentDownloads";
+    public static final int DEFAULT_MAX_CONCURRENT_DOWNLOADS = 4;
+    static final long CONNECTION_MANAGER_TIMEOUT = 5 * 60 * 1000;
     private static final Logger LOGGER = LoggerFactory.getLogger(CommonsHttpClientBackedRepository.class);
-    private final Map<String, Resource> resources = new HashMap<String, Resource>();
-    private final HttpClient client = new HttpClient();
-    private final RepositoryCopyProgressListener progress = new RepositoryCopyProgressListener(this);
+    private final Map<String, HttpResource> fetchedResources = new ConcurrentHashMap<String, HttpResource>();
+    private final ThreadLocal<TransferEventImpl> transferEvent = new ThreadLocal<TransferEventImpl>();
+    private final MultiThreadedHttpConnectionManager connectionManager;
+    private final HttpClient client;
 
     public CommonsHttpClientBackedRepository(String username, String password) {
+        int maxConnections = Integer.getInteger(MAX_CONCURRENT_DOWNLOADS_PROPERTY, DEFAULT_MAX_CONCURRENT_DOWNLOADS);
+        connectionManager = new MultiThreadedHttpConnectionManager();
+        HttpConnectionManagerParams connectionParams = connectionManager.getParams();
+        connectionParams.setDefaultMaxConnectionsPerHost(maxConnections);
+        connectionParams.setMaxTotalConnections(maxConnections);
+        client = new HttpClient(connectionManager);
+        client.getParams().setConnectionManagerTimeout(CONNECTION_MANAGER_TIMEOUT);
         if (GUtil.isTrue(username)) {
             client.getParams().setAuthenticationPreemptive(true);
             client.getState().setCredentials(new AuthScope(null, -1, null), new UsernamePasswordCredentials(username, password));
         }
     }
 
+    /**
+     * Closes the connections held by this repository, and deletes the fetched resources which have not been read.
+     */
+    public void close() {
+        try {
+            for (HttpResource resource : fetchedResources.values()) {
+                resource.discard();
+            }
+            fetchedResources.clear();
+        } finally {
+            connectionManager.shutdown();
+        }
+    }
+
     public Resource getResource(final String source) throws IOException {
         LOGGER.debug("Attempting to get resource {}.", source);
-        GetMethod method = new GetMethod(source);
-        configureMethod(method);
-        Resource resource = createLazyResource(source, method);
-        resources.put(source, resource);
-        return resource;
+        return createLazyResource(source);
     }
 
-    private Resource createLazyResource(String source, GetMethod method) {
-        LazyResourceInvocationHandler invocationHandler = new LazyResourceInvocationHandler(source, method);
+    private Resource createLazyResource(String source) {
+        LazyResourceInvocationHandler invocationHandler = new LazyResourceInvocationHandler(source);
         return Resource.class.cast(Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Resource.class}, invocationHandler));
     }
 
     public void get(String source, File destination) throws IOException {
-        Resource resource = resources.get(source);
-        fireTransferInitiated(resource, TransferEvent.REQUEST_GET);
+        HttpResource resource = fetchedResources.get(source);
+        File file = resource == null ? null : resource.takeFile();
+        if (file == null) {
+            file = fetchFile(source);
+        }
         try {
-            progress.setTotalLength(resource.getContentLength());
-            downloadResource(resource, destination);
-        } catch (IOException e) {
-            fireTransferError(e);
-            throw e;
-        } catch (Exception e) {
-            fireTransferError(e);
-            throw UncheckedException.asUncheckedException(e);
+            moveFile(file, destination);
         } finally {
-            progress.setTotalLength(null);
+            file.delete();
         }
     }
 
-    public void downloadResource(Resource resource, File destination) throws IOException {
-        FileOutputStream output = new FileOutputStream(destination);
+    /**
+     * Moves the fetched file to the destination. Copies it to a temporary file next to the destination first when it
+     * cannot be moved directly, so that the destination is never seen partially written.
+     */
+    private void moveFile(File file, File destination) throws IOException {
+        if (file.renameTo(destination)) {
+            return;
+        }
+        File tempFile = File.createTempFile("gradle_download", ".part", destination.getParentFile());
         try {
-            InputStream input = resource.openStream();
-            try {
-                FileUtil.copy(input, output, progress);
-            } finally {
-                input.close();
+            copy(file, tempFile, null);
+            if (!tempFile.renameTo(destination)) {
+                // Cannot replace an existing file on some platforms
+                destination.delete();
+                if (!tempFile.renameTo(destination)) {
+                    throw new IOException(String.format("Could not move downloaded file %s to %s.", tempFile, destination));
+                }
             }
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    private static void copy(File source, File destination, RepositoryCopyProgressListener progress) throws IOException {
+        FileInputStream input = new FileInputStream(source);
+        try {
+            copy(input, destination, progress);
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void copy(InputStream input, File destination, RepositoryCopyProgressListener progress) throws IOException {
+        FileOutputStream output = new FileOutputStream(destination);
+        try {
+            FileUtil.copy(input, output, progress);
         } finally {
             output.close();
         }
     }
 
+    /**
+     * Fetches the given resource. On success, the response body is copied to a temporary file owned by the returned
+     * resource. The connection is released before this method returns.
+     */
+    private Resource fetch(String source) throws IOException {
+        LOGGER.debug("Attempting to get resource {}.", source);
+        GetMethod method = new GetMethod(source);
+        configureMethod(method);
+        try {
+            int result = client.executeMethod(method);
+            if (result == 404) {
+                return new MissingResource(source);
+            }
+            if (!wasSuccessful(result)) {
+                throw new IOException(String.format("Could not GET '%s'. Received status code %s from server: %s", source, result, method.getStatusText()));
+            }
+            HttpResource resource = new HttpResource(source, method.getResponseContentLength());
+            resource.download(method);
+            return resource;
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    private File fetchFile(String source) throws IOException {
+        Resource resource = fetch(source);
+        if (!resource.exists()) {
+            throw new IOException(String.format("Could not GET '%s'. Received status code 404 from server.", source));
+        }
+        return ((HttpResource) resource).takeFile();
+    }
+
     @Override
     protected void put(final File source, String destination, boolean overwrite) throws IOException {
         LOGGER.debug("Attempting to put resource {}.", destination);
         assert source.isFile();
         fireTransferInitiated(new BasicResource(destination, true, source.length(), source.lastModified(), false), TransferEvent.REQUEST_PUT);
         try {
+            RepositoryCopyProgressListener progress = new RepositoryCopyProgressListener(this);
             progress.setTotalLength(source.length());
-            doPut(source, destination);
+            doPut(source, destination, progress);
         } catch (IOException e) {
             fireTransferError(e);
             throw e;
         } catch (Exception e) {
             fireTransferError(e);
             throw UncheckedException.asUncheckedException(e);
-        } finally {
-            progress.setTotalLength(null);
         }
     }
 
-    private void doPut(File source, String destination) throws IOException {
+    private void doPut(File source, String destination, RepositoryCopyProgressListener progress) throws IOException {
         PutMethod method = new PutMethod(destination);
         configureMethod(method);
-        method.setRequestEntity(new FileRequestEntity(source));
-        int result = client.executeMethod(method);
-        if (!wasSuccessful(result)) {
-            throw new IOException(String.format("Could not PUT '%s'. Received status code %s from server: %s", destination, result, method.getStatusText()));
+        method.setRequestEntity(new FileRequestEntity(source, progress));
+        try {
+            int result = client.executeMethod(method);
+            if (!wasSuccessful(result)) {
+                throw new IOException(String.format("Could not PUT '%s'. Received status code %s from server: %s", destination, result, method.getStatusText()));
+            }
+        } finally {
+            method.releaseConnection();
         }
     }
 
@@ -161,43 +257,180 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
         return result >= 200 && result < 300;
     }
 
+    @Override
+    protected void fireTransferInitiated(Resource resource, int requestType) {
+        TransferEventImpl event = new TransferEventImpl(this, resource, requestType);
+        transferEvent.set(event);
+        fireTransferEvent(event);
+    }
+
+    @Override
+    protected void fireTransferStarted() {
+        TransferEventImpl event = transferEvent.get();
+        event.started();
+        fireTransferEvent(event);
+    }
+
+    @Override
+    protected void fireTransferStarted(long totalLength) {
+        TransferEventImpl event = transferEvent.get();
+        event.started();
+        event.totalLength(totalLength);
+        fireTransferEvent(event);
+    }
+
+    @Override
+    protected void fireTransferProgress(long length) {
+        TransferEventImpl event = transferEvent.get();
+        event.progress(length);
+        fireTransferEvent(event);
+    }
+
+    @Override
+    protected void fireTransferCompleted() {
+        TransferEventImpl event = transferEvent.get();
+        transferEvent.remove();
+        event.completed();
+        fireTransferEvent(event);
+    }
+
+    @Override
+    protected void fireTransferCompleted(long totalLength) {
+        TransferEventImpl event = transferEvent.get();
+        transferEvent.remove();
+        event.completed();
+        event.totalLength(totalLength);
+        fireTransferEvent(event);
+    }
+
+    @Override
+    protected void fireTransferError() {
+        fireTransferError(null);
+    }
+
+    @Override
+    protected void fireTransferError(Exception e) {
+        TransferEventImpl event = transferEvent.get();
+        transferEvent.remove();
+        event.failed(e);
+        fireTransferEvent(event);
+    }
+
+    /**
+     * A {@link TransferEvent} for a single transfer, which {@link AbstractRepository} would otherwise share between all
+     * transfers.
+     */
+    private static class TransferEventImpl extends TransferEvent {
+        private TransferEventImpl(Repository repository, Resource resource, int requestType) {
+            super(repository, resource, TRANSFER_INITIATED, requestType);
+        }
+
+        void started() {
+            setEventType(TRANSFER_STARTED);
+        }
+
+        void totalLength(long totalLength) {
+            setTotalLength(totalLength);
+            setTotalLengthSet(true);
+        }
+
+        void progress(long length) {
+            setEventType(TRANSFER_PROGRESS);
+            setLength(length);
+            if (!isTotalLengthSet()) {
+                setTotalLength(getTotalLength() + length);
+            }
+        }
+
+        void completed() {
+            setEventType(TRANSFER_COMPLETED);
+        }
+
+        void failed(Exception e) {
+            setEventType(TRANSFER_ERROR);
+            setException(e);
+        }
+    }
+
     private class LazyResourceInvocationHandler implements InvocationHandler {
         private final String source;
-        private final GetMethod method;
         private Resource delegate;
 
-        private LazyResourceInvocationHandler(String source, GetMethod method) {
-            this.method = method;
+        private LazyResourceInvocationHandler(String source) {
             this.source = source;
         }
 
         public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-            if (delegate == null) {
-                delegate = init();
+            synchronized (this) {
+                if (delegate == null) {
+                    delegate = init();
+                }
             }
             return method.invoke(delegate, args);
         }
 
         private Resource init() throws IOException {
-            LOGGER.debug("Attempting to get resource {}.", source);
-            int result = client.executeMethod(method);
-            if (result == 404) {
-                return new MissingResource(source);
+            Resource resource = fetch(source);
+            if (resource instanceof HttpResource) {
+                // Keep the content for a later get() of the same resource, replacing any content fetched earlier
+                HttpResource previous = fetchedResources.put(source, (HttpResource) resource);
+                if (previous != null) {
+                    previous.discard();
+                }
             }
-            if (!wasSuccessful(result)) {
-                throw new IOException(String.format("Could not GET '%s'. Received status code %s from server: %s", source, result, method.getStatusText()));
-            }
-            return new HttpResource(source, method);
+            return resource;
         }
     }
 
+    /**
+     * A resource whose content has been fetched to a temporary file. The file is handed over to the first reader, and
+     * deleted once read.
+     */
     private class HttpResource implements Resource {
         private final String source;
-        private final GetMethod method;
+        private final long contentLength;
+        private File file;
 
-        public HttpResource(String source, GetMethod method) {
+        public HttpResource(String source, long contentLength) {
             this.source = source;
-            this.method = method;
+            this.contentLength = contentLength;
+        }
+
+        void download(HttpMethod method) throws IOException {
+            fireTransferInitiated(this, TransferEvent.REQUEST_GET);
+            File tempFile = File.createTempFile("gradle_download", ".part");
+            try {
+                RepositoryCopyProgressListener progress = new RepositoryCopyProgressListener(CommonsHttpClientBackedRepository.this);
+                progress.setTotalLength(contentLength);
+                InputStream input = method.getResponseBodyAsStream();
+                copy(input == null ? new ByteArrayInputStream(new byte[0]) : input, tempFile, progress);
+                file = tempFile;
+            } catch (IOException e) {
+                tempFile.delete();
+                fireTransferError(e);
+                throw e;
+            } catch (Exception e) {
+                tempFile.delete();
+                fireTransferError(e);
+                throw UncheckedException.asUncheckedException(e);
+            }
+        }
+
+        /**
+         * Takes ownership of the fetched file. Returns null when the file has already been taken or discarded.
+         */
+        synchronized File takeFile() {
+            fetchedResources.remove(source, this);
+            File result = file;
+            file = null;
+            return result;
+        }
+
+        synchronized void discard() {
+            if (file != null) {
+                file.delete();
+                file = null;
+            }
         }
 
         public String getName() {
@@ -214,7 +447,7 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
         }
 
         public long getContentLength() {
-            return method.getResponseContentLength();
+            return contentLength;
         }
 
         public boolean exists() {
@@ -230,7 +463,21 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
         }
 
         public InputStream openStream() throws IOException {
-            return method.getResponseBodyAsStream();
+            File content = takeFile();
+            if (content == null) {
+                content = fetchFile(source);
+            }
+            final File contentFile = content;
+            return new FileInputStream(contentFile) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        contentFile.delete();
+                    }
+                }
+            };
         }
     }
 
@@ -270,11 +517,13 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
         }
     }
 
-    private class FileRequestEntity implements RequestEntity {
+    private static class FileRequestEntity implements RequestEntity {
         private final File source;
+        private final RepositoryCopyProgressListener progress;
 
-        public FileRequestEntity(File source) {
+        public FileRequestEntity(File source, RepositoryCopyProgressListener progress) {
             this.source = source;
+            this.progress = progress;
         }
 
         public boolean isRepeatable() {
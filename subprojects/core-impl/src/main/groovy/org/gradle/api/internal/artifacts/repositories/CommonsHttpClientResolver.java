@@ -17,8 +17,17 @@ package org.gradle.api.internal.artifacts.repositories;
 
 import org.apache.ivy.plugins.resolver.RepositoryResolver;
 
-public class CommonsHttpClientResolver extends RepositoryResolver {
+import java.io.Closeable;
+
+public class CommonsHttpClientResolver extends RepositoryResolver implements Closeable {
+    private final CommonsHttpClientBackedRepository repository;
+
     public CommonsHttpClientResolver(String username, String password) {
-        setRepository(new CommonsHttpClientBackedRepository(username, password));
+        repository = new CommonsHttpClientBackedRepository(username, password);
+        setRepository(repository);
+    }
+
+    public void close() {
+        repository.close();
     }
 }
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.apache.ivy.core.module.descriptor.DefaultArtifact
+import org.apache.ivy.core.module.id.ModuleRevisionId
+import org.gradle.api.internal.DefaultDomainObjectSet
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.api.internal.artifacts.DefaultResolvedDependency
+import org.gradle.api.internal.file.FileSource
+import org.gradle.api.specs.Spec
+import org.gradle.api.specs.Specs
+import org.gradle.cache.DefaultSerializer
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+import org.gradle.api.artifacts.*
+
+class CachedResolvedConfigurationTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final Configuration configuration = Mock()
+    final ResolutionStrategy resolutionStrategy = Mock()
+    final DynamicRevisionCachePolicy cachePolicy = Mock()
+    final DependencySet dependencies = Mock()
+    final Module module = Mock()
+    final ModuleDependency dependency = Mock()
+    final ResolvedConfiguration resolvedConfiguration = Mock()
+    final DefaultResolvedDependency root = new DefaultResolvedDependency("group", "root", "1.0", "compile")
+    final DefaultResolvedDependency a = new DefaultResolvedDependency("group", "a", "1.0", "default")
+    final DefaultResolvedDependency b = new DefaultResolvedDependency("group", "b", "[1.0,)", "default")
+    final TestFile aJar = tmpDir.createFile("a.jar")
+    final TestFile bJar = tmpDir.createFile("b.jar")
+
+    def setup() {
+        _ * configuration.name >> "compile"
+        _ * configuration.module >> module
+        _ * configuration.allDependencies >> dependencies
+        _ * configuration.resolutionStrategy >> resolutionStrategy
+        _ * dependencies.withType(ModuleDependency) >> new DefaultDomainObjectSet<ModuleDependency>(ModuleDependency, [dependency])
+        _ * resolutionStrategy.dynamicRevisionCachePolicy >> cachePolicy
+        _ * module.group >> "group"
+        _ * module.name >> "root"
+        _ * module.version >> "1.0"
+
+        root.addChild(a)
+        a.addChild(b)
+        def aArtifact = artifact(a, aJar)
+        a.addModuleArtifact(aArtifact)
+        a.addParentSpecificArtifacts(root, [aArtifact] as Set)
+        def bArtifact = artifact(b, bJar)
+        b.addModuleArtifact(bArtifact)
+        b.addParentSpecificArtifacts(a, [bArtifact] as Set)
+
+        _ * resolvedConfiguration.hasError() >> false
+        _ * resolvedConfiguration.firstLevelModuleDependencies >> ([a] as Set)
+        _ * resolvedConfiguration.getFirstLevelModuleDependencies(!null) >> { Spec spec -> spec.isSatisfiedBy(dependency) ? [a] as Set : [] as Set }
+    }
+
+    def "restores the resolved dependency graph and files"() {
+        def snapshot = serialize(CachedResolvedConfiguration.snapshot(configuration, resolvedConfiguration, 1000))
+
+        when:
+        def result = snapshot.restore(configuration, 2000)
+
+        then:
+        _ * cachePolicy.canUseCachedRevision(_, 1000) >> true
+
+        and:
+        !result.hasError()
+        result.getFiles(Specs.satisfyAll()) == [aJar, bJar] as Set
+        result.getFiles(Specs.satisfyNone()).empty
+        result.resolvedArtifacts*.file == [aJar, bJar]
+
+        and:
+        def firstLevel = result.getFirstLevelModuleDependencies({ it == dependency } as Spec)
+        firstLevel*.name == ["group:a:1.0"]
+        def restoredA = firstLevel.iterator().next()
+        restoredA.children*.name == ["group:b:[1.0,)"]
+        restoredA.moduleArtifacts*.name == ["a"]
+        restoredA.children.iterator().next().getParentArtifacts(restoredA)*.file == [bJar]
+    }
+
+    def "does not restore when a module has expired"() {
+        def snapshot = serialize(CachedResolvedConfiguration.snapshot(configuration, resolvedConfiguration, 1000))
+
+        when:
+        def result = snapshot.restore(configuration, 2000)
+
+        then:
+        1 * cachePolicy.canUseCachedRevision({ it.id.name == "a" }, 1000) >> true
+        1 * cachePolicy.canUseCachedRevision({ it.id.name == "b" }, 1000) >> false
+
+        and:
+        result == null
+    }
+
+    def "does not restore when an artifact file has been removed"() {
+        def snapshot = serialize(CachedResolvedConfiguration.snapshot(configuration, resolvedConfiguration, 1000))
+        _ * cachePolicy.canUseCachedRevision(_, _) >> true
+
+        when:
+        bJar.delete()
+
+        then:
+        snapshot.restore(configuration, 2000) == null
+    }
+
+    def "does not snapshot a result with errors"() {
+        ResolvedConfiguration failed = Mock()
+        _ * failed.hasError() >> true
+
+        expect:
+        CachedResolvedConfiguration.snapshot(configuration, failed, 1000) == null
+    }
+
+    def "does not snapshot a result whose artifact files cannot be resolved"() {
+        def c = new DefaultResolvedDependency("group", "c", "1.0", "default")
+        c.addModuleArtifact(artifact(c, { throw new RuntimeException("broken") } as FileSource))
+        a.addChild(c)
+
+        expect:
+        CachedResolvedConfiguration.snapshot(configuration, resolvedConfiguration, 1000) == null
+    }
+
+    def artifact(ResolvedDependency owner, File file) {
+        return artifact(owner, { file } as FileSource)
+    }
+
+    def artifact(ResolvedDependency owner, FileSource fileSource) {
+        def id = ModuleRevisionId.newInstance(owner.moduleGroup, owner.moduleName, owner.moduleVersion)
+        return new DefaultResolvedArtifact(owner, new DefaultArtifact(id, null, owner.moduleName, "jar", "jar"), fileSource)
+    }
+
+    def serialize(CachedResolvedConfiguration snapshot) {
+        def serializer = new DefaultSerializer<CachedResolvedConfiguration>(getClass().classLoader)
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, snapshot)
+        return serializer.read(new ByteArrayInputStream(outstr.toByteArray()))
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.apache.ivy.Ivy
+import org.apache.ivy.core.module.descriptor.DefaultArtifact
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor
+import org.apache.ivy.core.module.id.ModuleRevisionId
+import org.gradle.api.internal.DefaultDomainObjectSet
+import org.gradle.api.internal.artifacts.ArtifactDependencyResolver
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.api.internal.artifacts.DefaultResolvedDependency
+import org.gradle.api.internal.artifacts.configurations.ConfigurationInternal
+import org.gradle.api.internal.artifacts.configurations.ResolverProvider
+import org.gradle.api.internal.artifacts.configurations.conflicts.LatestConflictResolution
+import org.gradle.api.internal.file.FileSource
+import org.gradle.api.specs.Spec
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.gradle.util.TimeProvider
+import org.junit.Rule
+import spock.lang.Specification
+import org.gradle.api.artifacts.*
+
+class CachingArtifactDependencyResolverTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final ArtifactDependencyResolver target = Mock()
+    final ResolveIvyFactory ivyFactory = Mock()
+    final ModuleDescriptorConverter moduleDescriptorConverter = Mock()
+    final ResolverProvider resolverProvider = Mock()
+    final ResolvedConfigurationCache cache = Mock()
+    final CacheLockingManager lockingManager = Mock()
+    final TimeProvider timeProvider = Mock()
+    final ConfigurationInternal configuration = Mock()
+    final ResolutionStrategy resolutionStrategy = Mock()
+    final DynamicRevisionCachePolicy cachePolicy = Mock()
+    final DependencySet dependencies = Mock()
+    final Module module = Mock()
+    final ExternalModuleDependency dependency = Mock()
+    final ResolvedConfiguration resolvedConfiguration = Mock()
+    final DefaultResolvedDependency root = new DefaultResolvedDependency("group", "root", "1.0", "compile")
+    final DefaultResolvedDependency a = new DefaultResolvedDependency("group", "a", "1.0", "default")
+    final TestFile aJar = tmpDir.createFile("a.jar")
+    final CachingArtifactDependencyResolver resolver = new CachingArtifactDependencyResolver(target, ivyFactory, moduleDescriptorConverter,
+            resolverProvider, cache, lockingManager, timeProvider)
+
+    def setup() {
+        _ * configuration.name >> "compile"
+        _ * configuration.module >> module
+        _ * configuration.allDependencies >> dependencies
+        _ * configuration.resolutionStrategy >> resolutionStrategy
+        _ * dependencies.iterator() >> { [dependency].iterator() }
+        _ * dependencies.withType(ModuleDependency) >> new DefaultDomainObjectSet<ModuleDependency>(ModuleDependency, [dependency])
+        _ * resolutionStrategy.conflictResolution >> new LatestConflictResolution()
+        _ * resolutionStrategy.forcedVersions >> ([] as Set)
+        _ * resolutionStrategy.dynamicRevisionCachePolicy >> cachePolicy
+        _ * module.group >> "group"
+        _ * module.name >> "root"
+        _ * module.version >> "1.0"
+        _ * ivyFactory.create(resolutionStrategy) >> Ivy.newInstance()
+        _ * moduleDescriptorConverter.convert(_, module, !null) >> moduleDescriptor("a", "1.0")
+        _ * resolverProvider.resolvers >> []
+        _ * lockingManager.withCacheLock(!null, !null) >> { it[1].call() }
+        _ * timeProvider.currentTime >> 1000
+
+        root.addChild(a)
+        def aArtifact = artifact(a, aJar)
+        a.addModuleArtifact(aArtifact)
+        a.addParentSpecificArtifacts(root, [aArtifact] as Set)
+
+        _ * resolvedConfiguration.hasError() >> false
+        _ * resolvedConfiguration.firstLevelModuleDependencies >> ([a] as Set)
+        _ * resolvedConfiguration.getFirstLevelModuleDependencies(!null) >> { Spec spec -> spec.isSatisfiedBy(dependency) ? [a] as Set : [] as Set }
+    }
+
+    def "resolves and caches the result when there is no cached result"() {
+        when:
+        def result = resolver.resolve(configuration)
+
+        then:
+        result == resolvedConfiguration
+
+        and:
+        1 * cache.get(!null) >> null
+        1 * target.resolve(configuration) >> resolvedConfiguration
+        1 * cache.put(!null, !null)
+    }
+
+    def "uses the cached result when there is one"() {
+        CachedResolvedConfiguration entry = null
+
+        when:
+        resolver.resolve(configuration)
+
+        then:
+        1 * target.resolve(configuration) >> resolvedConfiguration
+        1 * cache.put(!null, !null) >> { entry = it[1] }
+
+        when:
+        def result = resolver.resolve(configuration)
+
+        then:
+        1 * cache.get(!null) >> entry
+        _ * cachePolicy.canUseCachedRevision(_, _) >> true
+        0 * target._
+        0 * cache.put(_, _)
+
+        and:
+        result.resolvedArtifacts*.file == [aJar]
+        result.getFirstLevelModuleDependencies({ it == dependency } as Spec)*.name == ["group:a:1.0"]
+    }
+
+    def "uses a different cache key when the module descriptor changes"() {
+        def keys = []
+
+        when:
+        resolver.resolve(configuration)
+        resolver.resolve(configuration)
+
+        then:
+        1 * moduleDescriptorConverter.convert(_, module, !null) >> moduleDescriptor("a", "1.0")
+        1 * moduleDescriptorConverter.convert(_, module, !null) >> moduleDescriptor("a", "1.1")
+        2 * cache.get(!null) >> { keys << it[0]; null }
+        2 * target.resolve(configuration) >> resolvedConfiguration
+
+        and:
+        keys.size() == 2
+        keys[0] != keys[1]
+    }
+
+    def "uses the same cache key when the module descriptor is unchanged"() {
+        def keys = []
+
+        when:
+        resolver.resolve(configuration)
+        resolver.resolve(configuration)
+
+        then:
+        2 * cache.get(!null) >> { keys << it[0]; null }
+        2 * target.resolve(configuration) >> resolvedConfiguration
+
+        and:
+        keys[0] == keys[1]
+    }
+
+    def "does not use the cache for a configuration with a changing dependency"() {
+        _ * dependency.changing >> true
+
+        when:
+        def result = resolver.resolve(configuration)
+
+        then:
+        result == resolvedConfiguration
+
+        and:
+        1 * target.resolve(configuration) >> resolvedConfiguration
+        0 * cache._
+    }
+
+    def "does not cache a result which contains a snapshot module"() {
+        def b = new DefaultResolvedDependency("group", "b", "1.0-SNAPSHOT", "default")
+        a.addChild(b)
+
+        when:
+        def result = resolver.resolve(configuration)
+
+        then:
+        result == resolvedConfiguration
+
+        and:
+        1 * cache.get(!null) >> null
+        1 * target.resolve(configuration) >> resolvedConfiguration
+        0 * cache.put(_, _)
+    }
+
+    def "does not cache a result with errors"() {
+        ResolvedConfiguration failed = Mock()
+        _ * failed.hasError() >> true
+
+        when:
+        def result = resolver.resolve(configuration)
+
+        then:
+        result == failed
+
+        and:
+        1 * cache.get(!null) >> null
+        1 * target.resolve(configuration) >> failed
+        0 * cache.put(_, _)
+    }
+
+    def moduleDescriptor(String dependencyName, String dependencyVersion) {
+        DefaultModuleDescriptor descriptor = DefaultModuleDescriptor.newDefaultInstance(ModuleRevisionId.newInstance("group", "root", "1.0"))
+        descriptor.addDependency(new DefaultDependencyDescriptor(descriptor, ModuleRevisionId.newInstance("group", dependencyName, dependencyVersion), false, false, true))
+        return descriptor as ModuleDescriptor
+    }
+
+    def artifact(ResolvedDependency owner, File file) {
+        def id = ModuleRevisionId.newInstance(owner.moduleGroup, owner.moduleName, owner.moduleVersion)
+        return new DefaultResolvedArtifact(owner, new DefaultArtifact(id, null, owner.moduleName, "jar", "jar"), { file } as FileSource)
+    }
+}
@@ -100,6 +100,50 @@ class DefaultCacheLockingManagerTest extends Specification {
         0 * _._
     }
 
+    def "cannot lock artifact cache when already locked by this thread"() {
+        Callable<String> action = Mock()
+
+        when:
+        lockingManager.withCacheLock("some operation", action)
+
+        then:
+        IllegalStateException e = thrown()
+        e.message == 'Cannot lock the artifact cache, as it is already locked by this thread.'
+
+        and:
+        1 * action.call() >> {
+            lockingManager.withCacheLock("nested operation", Mock(Callable))
+        }
+        0 * _._
+    }
+
+    def "other threads can lock artifact cache and artifact files while artifact cache is locked"() {
+        Callable<String> action = Mock()
+        FileLock lock = Mock()
+        def otherThreadAcquired = false
+
+        when:
+        lockingManager.withCacheLock("some operation", action)
+
+        then:
+        1 * fileLockManager.lock(cacheDir, LockMode.Exclusive, "artifact file $cacheDir", "other operation") >> lock
+        1 * action.call() >> {
+            def thread = Thread.start {
+                lockingManager.withCacheLock("other operation", {
+                    lockingManager.getLockHolder(cacheDir).acquireLock()
+                    otherThreadAcquired = true
+                    lockingManager.getLockHolder(cacheDir).releaseLock()
+                } as Callable)
+            }
+            thread.join()
+        }
+        1 * lock.close()
+        0 * _._
+
+        and:
+        otherThreadAcquired
+    }
+
     def "cannot lock file when artifact cache is not locked"() {
         given:
         def lockHolder = lockingManager.getLockHolder(tmpDir.file("artifact"))
@@ -199,6 +243,99 @@ class DefaultCacheLockingManagerTest extends Specification {
         0 * _._
     }
 
+    def "locks metadata file in shared mode when it is only read"() {
+        Callable<String> action = Mock()
+        FileLock lock = Mock()
+
+        when:
+        lockingManager.withCacheLock("use metadata file", action)
+
+        then:
+        1 * fileLockManager.lock(cacheDir, LockMode.Shared, "metadata file ${cacheDir.name}", "use metadata file") >> lock
+        2 * lock.readFromFile(_)
+        1 * action.call() >> {
+            FileLock metadataLock = lockingManager.getCacheMetadataFileLock(cacheDir)
+            metadataLock.readFromFile(Mock(Callable))
+            metadataLock.readFromFile(Mock(Callable))
+        }
+        1 * lock.close()
+        0 * _._
+    }
+
+    def "escalates metadata file lock to exclusive mode on first write"() {
+        Callable<String> action = Mock()
+        FileLock sharedLock = Mock()
+        FileLock exclusiveLock = Mock()
+
+        when:
+        lockingManager.withCacheLock("use metadata file", action)
+
+        then:
+        1 * action.call() >> {
+            FileLock metadataLock = lockingManager.getCacheMetadataFileLock(cacheDir)
+            metadataLock.readFromFile(Mock(Callable))
+            metadataLock.writeToFile(Mock(Runnable))
+            metadataLock.readFromFile(Mock(Callable))
+        }
+
+        then:
+        1 * fileLockManager.lock(cacheDir, LockMode.Shared, "metadata file ${cacheDir.name}", "use metadata file") >> sharedLock
+        1 * sharedLock.readFromFile(_)
+
+        then:
+        1 * sharedLock.close()
+
+        then:
+        1 * fileLockManager.lock(cacheDir, LockMode.Exclusive, "metadata file ${cacheDir.name}", "use metadata file") >> exclusiveLock
+        1 * exclusiveLock.writeToFile(_)
+        1 * exclusiveLock.readFromFile(_)
+
+        then:
+        1 * exclusiveLock.close()
+        0 * _._
+    }
+
+    def "reports new acquisition when metadata file lock is escalated or locked again"() {
+        Callable<String> action = Mock()
+        FileLock sharedLock = Mock()
+        FileLock exclusiveLock = Mock()
+        def acquisitions = []
+
+        when:
+        lockingManager.withCacheLock("use metadata file", action)
+
+        then:
+        1 * action.call() >> {
+            CacheMetadataFileLock metadataLock = lockingManager.getCacheMetadataFileLock(cacheDir)
+            acquisitions << metadataLock.lock(LockMode.Shared)
+            acquisitions << metadataLock.lock(LockMode.Shared)
+            acquisitions << metadataLock.lock(LockMode.Exclusive)
+            acquisitions << metadataLock.lock(LockMode.Shared)
+        }
+        1 * fileLockManager.lock(cacheDir, LockMode.Shared, "metadata file ${cacheDir.name}", "use metadata file") >> sharedLock
+        1 * sharedLock.close()
+        1 * fileLockManager.lock(cacheDir, LockMode.Exclusive, "metadata file ${cacheDir.name}", "use metadata file") >> exclusiveLock
+        1 * exclusiveLock.close()
+        0 * _._
+
+        when:
+        lockingManager.withCacheLock("use metadata file", action)
+
+        then:
+        1 * action.call() >> {
+            acquisitions << lockingManager.getCacheMetadataFileLock(cacheDir).lock(LockMode.Shared)
+        }
+        1 * fileLockManager.lock(cacheDir, LockMode.Shared, "metadata file ${cacheDir.name}", "use metadata file") >> sharedLock
+        1 * sharedLock.close()
+        0 * _._
+
+        and:
+        acquisitions[0] == acquisitions[1]
+        acquisitions[2] != acquisitions[1]
+        acquisitions[3] == acquisitions[2]
+        !(acquisitions[4] in acquisitions[0..3])
+    }
+
     def "can create metadata lock before cache is locked"() {
         Callable<String> action = Mock()
         FileLock lock = Mock()
@@ -103,6 +103,28 @@ class DefaultSettingsConverterTest extends Specification {
         assert !ivySettings.resolvers.contains(testResolver2)
     }
 
+    public void closesResolverReplacedBySharedResolverAndSharedResolversWhenClosed() {
+        ClosableResolver sharedResolver = new ClosableResolver(name: 'closable')
+        ClosableResolver duplicateResolver = new ClosableResolver(name: 'closable')
+
+        when:
+        converter.convertForResolve([sharedResolver], clientModuleRegistry, resolutionStrategy)
+        IvySettings settings = converter.convertForResolve([duplicateResolver], clientModuleRegistry, resolutionStrategy)
+
+        then:
+        _ * ivySettingsFactory.create() >> ivySettings
+        ChainResolver chainResolver = settings.getResolver(DefaultSettingsConverter.CHAIN_RESOLVER_NAME)
+        chainResolver.resolvers == [sharedResolver]
+        !sharedResolver.closed
+        duplicateResolver.closed
+
+        when:
+        converter.close()
+
+        then:
+        sharedResolver.closed
+    }
+
     public void testConvertForPublish() {
         when:
         IvySettings settings = converter.convertForPublish([testResolver, testResolver2])
@@ -146,4 +168,12 @@ class DefaultSettingsConverterTest extends Specification {
             settings.getResolver(it.name).repositoryCacheManager.settings == settings
         }
     }
+
+    static class ClosableResolver extends IBiblioResolver implements Closeable {
+        boolean closed
+
+        void close() {
+            closed = true
+        }
+    }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.TimeUnit
+import org.gradle.util.ConcurrentSpecification
+
+class PrefetcherTest extends ConcurrentSpecification {
+    final ValueCalculator target = Mock()
+    final Prefetcher<String, String> prefetcher = prefetcher(4)
+
+    def cleanup() {
+        prefetcher.stop()
+    }
+
+    def "calculates prefetched values concurrently"() {
+        def barrier = new CyclicBarrier(2)
+        _ * target.calculate("a") >> { barrier.await(5, TimeUnit.SECONDS); "value a" }
+        _ * target.calculate("b") >> { barrier.await(5, TimeUnit.SECONDS); "value b" }
+
+        when:
+        prefetcher.prefetch("a")
+        prefetcher.prefetch("b")
+
+        then:
+        prefetcher.get("a") == "value a"
+        prefetcher.get("b") == "value b"
+    }
+
+    def "calculates each prefetched value once"() {
+        when:
+        prefetcher.prefetch("a")
+        prefetcher.prefetch("a")
+        def result1 = prefetcher.get("a")
+        def result2 = prefetcher.get("a")
+
+        then:
+        1 * target.calculate("a") >> "value"
+        result1 == "value"
+        result2 == "value"
+    }
+
+    def "calculates value which has not been prefetched in the calling thread"() {
+        def thread = Thread.currentThread()
+
+        when:
+        def result = prefetcher.get("a")
+
+        then:
+        1 * target.calculate("a") >> { assert Thread.currentThread() == thread; "value" }
+        result == "value"
+    }
+
+    def "rethrows failure to calculate prefetched value"() {
+        def failure = new ModuleNotFoundException("broken")
+        _ * target.calculate("a") >> { throw failure }
+
+        when:
+        prefetcher.prefetch("a")
+        prefetcher.get("a")
+
+        then:
+        ModuleNotFoundException e = thrown()
+        e.is(failure)
+    }
+
+    def "stop waits for all prefetched values to be calculated"() {
+        def calculated = new CopyOnWriteArrayList()
+        def keys = (1..10).collect { it.toString() }
+        _ * target.calculate(_) >> { String key -> calculated << key; "value" }
+
+        when:
+        keys.each { prefetcher.prefetch(it) }
+        prefetcher.stop()
+
+        then:
+        calculated as Set == keys as Set
+    }
+
+    def "discards prefetched values which have not been started"() {
+        def started = new CyclicBarrier(2)
+        def release = new CyclicBarrier(2)
+        def singleThreaded = prefetcher(1)
+
+        when:
+        singleThreaded.prefetch("a")
+        started.await(5, TimeUnit.SECONDS)
+        singleThreaded.prefetch("b")
+        singleThreaded.discardPending()
+        release.await(5, TimeUnit.SECONDS)
+        singleThreaded.stop()
+
+        then:
+        1 * target.calculate("a") >> { started.await(5, TimeUnit.SECONDS); release.await(5, TimeUnit.SECONDS); "value a" }
+        0 * target.calculate("b")
+
+        when:
+        def result = singleThreaded.get("b")
+
+        then:
+        1 * target.calculate("b") >> "value b"
+        result == "value b"
+    }
+
+    def prefetcher(int maxThreads) {
+        return new Prefetcher<String, String>(executorFactory, "test", maxThreads) {
+            @Override
+            protected String calculate(String key) {
+                return target.calculate(key)
+            }
+        }
+    }
+}
+
+interface ValueCalculator {
+    String calculate(String key)
+}
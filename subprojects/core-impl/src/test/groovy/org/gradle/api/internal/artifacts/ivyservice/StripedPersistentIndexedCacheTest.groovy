@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.gradle.cache.DefaultSerializer
+import org.gradle.cache.internal.FileLockManager
+import org.gradle.cache.internal.NoOpFileLock
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class StripedPersistentIndexedCacheTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final CacheLockingManager lockingManager = Mock()
+    final TestFile cacheDir = tmpDir.createDir("cache")
+    final TestMetadataFileLock fileLock = new TestMetadataFileLock()
+
+    def setup() {
+        _ * lockingManager.getCacheMetadataFileLock(_) >> fileLock
+    }
+
+    def "can put and get values"() {
+        def cache = createCache()
+
+        when:
+        (0..20).each { cache.put("key$it", "value$it") }
+
+        then:
+        (0..20).every { cache.get("key$it") == "value$it" }
+        cache.get("unknown") == null
+    }
+
+    def "can remove values"() {
+        def cache = createCache()
+
+        when:
+        cache.put("key1", "value1")
+        cache.put("key2", "value2")
+        cache.remove("key1")
+
+        then:
+        cache.get("key1") == null
+        cache.get("key2") == "value2"
+    }
+
+    def "spreads entries across stripe files"() {
+        def cache = createCache()
+
+        when:
+        (0..20).each { cache.put("key$it", "value$it") }
+
+        then:
+        cacheDir.list() as Set == ["cache-0.bin", "cache-1.bin", "cache-2.bin", "cache-3.bin"] as Set
+    }
+
+    def "locks each stripe file separately"() {
+        CacheLockingManager lockingManager = Mock()
+        def cache = new StripedPersistentIndexedCache<String, String>(cacheDir, "cache", 4, lockingManager, new DefaultSerializer<String>())
+
+        when:
+        cache.put("key", "value")
+        cache.get("key")
+
+        then:
+        1 * lockingManager.getCacheMetadataFileLock({ it.parentFile == cacheDir && it.name ==~ /cache-\d\.bin/ }) >> fileLock
+        0 * _._
+    }
+
+    def "values are visible to another cache using the same files"() {
+        def cache = createCache()
+
+        when:
+        (0..20).each { cache.put("key$it", "value$it") }
+        def other = createCache()
+
+        then:
+        (0..20).every { other.get("key$it") == "value$it" }
+    }
+
+    def "locks stripe file for update before modifying it"() {
+        def cache = createCache()
+
+        when:
+        cache.get("key")
+
+        then:
+        fileLock.modes == [FileLockManager.LockMode.Shared]
+
+        when:
+        cache.put("key", "value")
+        cache.remove("key")
+
+        then:
+        fileLock.modes == [FileLockManager.LockMode.Shared, FileLockManager.LockMode.Exclusive, FileLockManager.LockMode.Exclusive]
+    }
+
+    def "discards in-memory state when the file lock has been acquired again"() {
+        def cache = createCache()
+        def other = createCache()
+
+        when:
+        (0..20).each { cache.put("key$it", "value$it") }
+        fileLock.acquisition++
+        (0..20).each { other.put("key$it", "other value $it") }
+        fileLock.acquisition++
+
+        then:
+        (0..20).every { cache.get("key$it") == "other value $it" }
+    }
+
+    def createCache() {
+        return new StripedPersistentIndexedCache<String, String>(cacheDir, "cache", 4, lockingManager, new DefaultSerializer<String>())
+    }
+
+    static class TestMetadataFileLock extends NoOpFileLock implements CacheMetadataFileLock {
+        long acquisition = 1
+        final List<FileLockManager.LockMode> modes = []
+
+        long lock(FileLockManager.LockMode mode) {
+            modes << mode
+            return acquisition
+        }
+    }
+}
@@ -82,6 +82,9 @@ public class StartParameter {
     private boolean colorOutput = true;
     private boolean profile;
     private boolean continueOnFailure;
+    private int parallelThreadCount;
+    private boolean configureOnDemand;
+    private boolean parallelProjectEvaluation;
     private File projectCacheDir;
 
     /**
@@ -147,6 +150,9 @@ public class StartParameter {
         startParameter.profile = profile;
         startParameter.projectCacheDir = projectCacheDir;
         startParameter.continueOnFailure = continueOnFailure;
+        startParameter.parallelThreadCount = parallelThreadCount;
+        startParameter.configureOnDemand = configureOnDemand;
+        startParameter.parallelProjectEvaluation = parallelProjectEvaluation;
         return startParameter;
     }
 
@@ -165,6 +171,9 @@ public class StartParameter {
         startParameter.colorOutput = colorOutput;
         startParameter.profile = profile;
         startParameter.continueOnFailure = continueOnFailure;
+        startParameter.parallelThreadCount = parallelThreadCount;
+        startParameter.configureOnDemand = configureOnDemand;
+        startParameter.parallelProjectEvaluation = parallelProjectEvaluation;
         return startParameter;
     }
 
@@ -532,6 +541,53 @@ public class StartParameter {
         this.continueOnFailure = continueOnFailure;
     }
 
+    /**
+     * Returns the number of threads to use to execute independent tasks concurrently. A value of 0 or 1 means tasks
+     * are executed serially. The default is 0.
+     */
+    public int getParallelThreadCount() {
+        return parallelThreadCount;
+    }
+
+    /**
+     * Specifies the number of threads to use to execute independent tasks concurrently. A value of 0 or 1 means tasks
+     * are executed serially. The default is 0.
+     */
+    public void setParallelThreadCount(int parallelThreadCount) {
+        this.parallelThreadCount = parallelThreadCount;
+    }
+
+    /**
+     * Returns true if only those projects which are required to build the requested tasks should be configured. When
+     * false, all projects are configured before any task is selected. The default is false.
+     */
+    public boolean isConfigureOnDemand() {
+        return configureOnDemand;
+    }
+
+    /**
+     * Specifies whether only those projects which are required to build the requested tasks should be configured. The
+     * default is false.
+     */
+    public void setConfigureOnDemand(boolean configureOnDemand) {
+        this.configureOnDemand = configureOnDemand;
+    }
+
+    /**
+     * Returns true if the projects should be evaluated concurrently. Ignored when the build is configured on demand.
+     * The default is false.
+     */
+    public boolean isParallelProjectEvaluation() {
+        return parallelProjectEvaluation;
+    }
+
+    /**
+     * Specifies whether the projects should be evaluated concurrently. The default is false.
+     */
+    public void setParallelProjectEvaluation(boolean parallelProjectEvaluation) {
+        this.parallelProjectEvaluation = parallelProjectEvaluation;
+    }
+
     @Override
     public String toString() {
         return "StartParameter{"
@@ -553,6 +609,9 @@ public class StartParameter {
                 + ", dryRun=" + dryRun
                 + ", noOpt=" + noOpt
                 + ", profile=" + profile
+                + ", parallelThreadCount=" + parallelThreadCount
+                + ", configureOnDemand=" + configureOnDemand
+                + ", parallelProjectEvaluation=" + parallelProjectEvaluation
                 + '}';
     }
 }
\ No newline at end of file
@@ -722,6 +722,9 @@ public interface Project extends Comparable<Project> {
     /**
      * <p>Locates a project by path. If the path is relative, it is interpreted relative to this project.</p>
      *
+     * <p>When the build is configured on demand, a project which is neither an ancestor nor a descendant of this
+     * project is configured before it is returned, if this has not happened already.</p>
+     *
      * @param path The path.
      * @return The project with the given path. Never returns null.
      * @throws UnknownProjectException If no project with the given path exists.
@@ -31,7 +31,17 @@ public abstract class AbstractClassGenerator implements ClassGenerator {
         return instantiator.newInstance(generate(type), parameters);
     }
 
+    /**
+     * Returns the decorated subclass of the given type, generating it if required. Can be called from multiple threads
+     * concurrently. Classes are generated one at a time, so that each type is only decorated once.
+     */
     public <T> Class<? extends T> generate(Class<T> type) {
+        synchronized (GENERATED_CLASSES) {
+            return doGenerate(type);
+        }
+    }
+
+    private <T> Class<? extends T> doGenerate(Class<T> type) {
         Map<Class, Class> cache = GENERATED_CLASSES.get(getClass());
         if (cache == null) {
             cache = new HashMap<Class, Class>();
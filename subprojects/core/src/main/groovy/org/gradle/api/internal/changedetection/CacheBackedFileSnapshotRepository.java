@@ -19,14 +19,17 @@ import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentIndexedCache;
 
+/**
+ * A {@link FileSnapshotRepository} backed by a persistent cache. Can be used by multiple threads concurrently.
+ */
 public class CacheBackedFileSnapshotRepository implements FileSnapshotRepository {
     private final PersistentIndexedCache<Object, Object> cache;
 
     public CacheBackedFileSnapshotRepository(CacheRepository repository, Gradle gradle) {
-        cache = repository.indexedCache(Object.class, Object.class, "fileSnapshots").forObject(gradle).open();
+        cache = repository.indexedCache(Object.class, Object.class, "fileSnapshots").forObject(gradle).withSerializer(new FileSnapshotSerializer()).open();
     }
 
-    public Long add(FileCollectionSnapshot snapshot) {
+    public synchronized Long add(FileCollectionSnapshot snapshot) {
         Long id = (Long) cache.get("nextId");
         if (id == null) {
             id = 1L;
@@ -36,11 +39,11 @@ public class CacheBackedFileSnapshotRepository implements FileSnapshotRepository
         return id;
     }
 
-    public FileCollectionSnapshot get(Long id) {
+    public synchronized FileCollectionSnapshot get(Long id) {
         return (FileCollectionSnapshot) cache.get(id);
     }
 
-    public void remove(Long id) {
+    public synchronized void remove(Long id) {
         cache.remove(id);
     }
 }
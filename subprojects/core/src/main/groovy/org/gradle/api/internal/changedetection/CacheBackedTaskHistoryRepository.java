@@ -28,6 +28,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * A {@link TaskHistoryRepository} backed by a persistent cache. Can be used by multiple threads concurrently, as tasks
+ * are when executed in parallel. Access to the cache, and to its serializer, is serialized.
+ */
 public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
     private final FileSnapshotRepository snapshotRepository;
     private final PersistentIndexedCache<String, TaskHistory> taskHistoryCache;
@@ -74,19 +78,23 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
                         snapshotRepository.remove(execution.outputFilesSnapshotId);
                     }
                 }
-                taskHistoryCache.put(task.getPath(), history);
+                synchronized (taskHistoryCache) {
+                    taskHistoryCache.put(task.getPath(), history);
+                }
             }
         };
     }
 
     private TaskHistory loadHistory(TaskInternal task) {
-        ClassLoader original = serializer.getClassLoader();
-        serializer.setClassLoader(task.getClass().getClassLoader());
-        try {
-            TaskHistory history = taskHistoryCache.get(task.getPath());
-            return history == null ? new TaskHistory() : history;
-        } finally {
-            serializer.setClassLoader(original);
+        synchronized (taskHistoryCache) {
+            ClassLoader original = serializer.getClassLoader();
+            serializer.setClassLoader(task.getClass().getClassLoader());
+            try {
+                TaskHistory history = taskHistoryCache.get(task.getPath());
+                return history == null ? new TaskHistory() : history;
+            } finally {
+                serializer.setClassLoader(original);
+            }
         }
     }
 
@@ -22,10 +22,13 @@ import org.gradle.cache.Serializer;
 
 import java.io.*;
 
+/**
+ * A {@link Hasher} which reuses the hash of a file when its length and last modified time have not changed. Can be
+ * used concurrently, provided the delegate hasher can be. The delegate hasher is not called while holding a lock.
+ */
 public class CachingHasher implements Hasher {
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
-    private long timestamp;
 
     public CachingHasher(Hasher hasher, CacheRepository cacheRepository, Gradle gradle) {
         this.hasher = hasher;
@@ -33,16 +36,21 @@ public class CachingHasher implements Hasher {
     }
 
     public byte[] hash(File file) {
-        FileInfo info = cache.get(file);
+        FileInfo info;
+        synchronized (cache) {
+            info = cache.get(file);
+        }
 
         long length = file.length();
-        timestamp = file.lastModified();
+        long timestamp = file.lastModified();
         if (info != null && length == info.length && timestamp == info.timestamp) {
             return info.hash;
         }
 
         byte[] hash = hasher.hash(file);
-        cache.put(file, new FileInfo(hash, length, timestamp));
+        synchronized (cache) {
+            cache.put(file, new FileInfo(hash, length, timestamp));
+        }
         return hash;
     }
 
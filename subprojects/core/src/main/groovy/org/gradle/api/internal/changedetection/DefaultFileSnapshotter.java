@@ -18,124 +18,227 @@ package org.gradle.api.internal.changedetection;
 
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
+import org.gradle.util.UncheckedException;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.Serializable;
-import java.math.BigInteger;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class DefaultFileSnapshotter implements FileSnapshotter {
+    private static final int MIN_FILES_TO_HASH_CONCURRENTLY = 64;
     private final Hasher hasher;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
 
     public DefaultFileSnapshotter(Hasher hasher) {
+        this(hasher, null, 1);
+    }
+
+    /**
+     * Creates a snapshotter which hashes the files of larger collections concurrently, using at most the given number
+     * of threads. The given hasher must be thread-safe.
+     */
+    public DefaultFileSnapshotter(Hasher hasher, ExecutorFactory executorFactory, int maxThreads) {
         this.hasher = hasher;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
     }
 
     public FileCollectionSnapshot emptySnapshot() {
-        return new FileCollectionSnapshotImpl(new HashMap<String, FileSnapshot>());
+        return new FileCollectionSnapshotImpl(new String[0], new byte[0], new byte[0][], new long[0], new long[0]);
     }
 
     public FileCollectionSnapshot snapshot(FileCollection sourceFiles) {
-        Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
-        for (File file : sourceFiles.getAsFileTree()) {
-            if (file.isFile()) {
-                snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(file)));
-            } else if (file.isDirectory()) {
-                snapshots.put(file.getAbsolutePath(), new DirSnapshot());
-            } else {
-                snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
-            }
-        }
-        return new FileCollectionSnapshotImpl(snapshots);
+        return snapshot(sourceFiles, emptySnapshot());
     }
 
-    private interface FileSnapshot extends Serializable {
-        boolean isUpToDate(FileSnapshot snapshot);
-    }
+    public FileCollectionSnapshot snapshot(FileCollection sourceFiles, FileCollectionSnapshot previousSnapshot) {
+        FileCollectionSnapshotImpl previous = (FileCollectionSnapshotImpl) previousSnapshot;
+        List<String> paths = new ArrayList<String>();
+        for (File file : sourceFiles.getAsFileTree()) {
+            paths.add(file.getAbsolutePath());
+        }
+        Collections.sort(paths);
 
-    private static class FileHashSnapshot implements FileSnapshot {
-        private final byte[] hash;
+        FileCollectionSnapshotImpl.Builder builder = new FileCollectionSnapshotImpl.Builder(paths.size());
+        List<Integer> modified = new ArrayList<Integer>();
+        List<File> modifiedFiles = new ArrayList<File>();
+        boolean unchanged = true;
+        int previousIndex = 0;
+        String lastPath = null;
+        for (String path : paths) {
+            if (path.equals(lastPath)) {
+                continue;
+            }
+            lastPath = path;
 
-        public FileHashSnapshot(byte[] hash) {
-            this.hash = hash;
-        }
+            while (previousIndex < previous.paths.length && previous.paths[previousIndex].compareTo(path) < 0) {
+                unchanged = false;
+                previousIndex++;
+            }
+            int match = previousIndex < previous.paths.length && previous.paths[previousIndex].equals(path) ? previousIndex++ : -1;
 
-        public boolean isUpToDate(FileSnapshot snapshot) {
-            if (!(snapshot instanceof FileHashSnapshot)) {
-                return false;
+            File file = new File(path);
+            if (file.isFile()) {
+                long length = file.length();
+                long timestamp = file.lastModified();
+                if (match >= 0 && previous.isUnmodified(match, length, timestamp)) {
+                    builder.add(previous, match);
+                } else {
+                    unchanged = false;
+                    modified.add(builder.size());
+                    modifiedFiles.add(file);
+                    builder.add(path, FileCollectionSnapshotImpl.FILE, null, length, timestamp);
+                }
+            } else {
+                byte type = file.isDirectory() ? FileCollectionSnapshotImpl.DIR : FileCollectionSnapshotImpl.MISSING;
+                if (match < 0 || previous.types[match] != type) {
+                    unchanged = false;
+                }
+                builder.add(path, type, null, 0, 0);
             }
+        }
 
-            FileHashSnapshot other = (FileHashSnapshot) snapshot;
-            return Arrays.equals(hash, other.hash);
+        if (unchanged && previousIndex == previous.paths.length) {
+            return previous;
         }
 
-        @Override
-        public String toString() {
-            return new BigInteger(1, hash).toString(16);
+        byte[][] hashes = hash(modifiedFiles);
+        for (int i = 0; i < hashes.length; i++) {
+            builder.setHash(modified.get(i), hashes[i]);
         }
+        return builder.build();
     }
 
-    private static class DirSnapshot implements FileSnapshot {
-        public boolean isUpToDate(FileSnapshot snapshot) {
-            return snapshot instanceof DirSnapshot;
+    private byte[][] hash(final List<File> files) {
+        final byte[][] hashes = new byte[files.size()][];
+        if (executorFactory == null || maxThreads < 2 || files.size() < MIN_FILES_TO_HASH_CONCURRENTLY) {
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = hasher.hash(files.get(i));
+            }
+            return hashes;
         }
-    }
 
-    private static class MissingFileSnapshot implements FileSnapshot {
-        public boolean isUpToDate(FileSnapshot snapshot) {
-            return snapshot instanceof MissingFileSnapshot;
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        StoppableExecutor executor = executorFactory.create("File hasher");
+        try {
+            int threads = Math.min(maxThreads, files.size() / MIN_FILES_TO_HASH_CONCURRENTLY + 1);
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        int index;
+                        while (failure.get() == null && (index = nextFile.getAndIncrement()) < hashes.length) {
+                            try {
+                                hashes[index] = hasher.hash(files.get(index));
+                            } catch (Throwable t) {
+                                failure.compareAndSet(null, t);
+                            }
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.stop();
+        }
+        if (failure.get() != null) {
+            throw UncheckedException.asUncheckedException(failure.get());
         }
+        return hashes;
     }
 
-    private static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
-        private final Map<String, FileSnapshot> snapshots;
+    /**
+     * A snapshot stored as arrays sorted by absolute path, so that two snapshots can be compared using a sorted merge.
+     * Also records the length and last modified time of each file, so that a later snapshot of the same files can
+     * reuse the hashes of those files which have not been modified.
+     */
+    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
+        static final byte FILE = 0;
+        static final byte DIR = 1;
+        static final byte MISSING = 2;
 
-        public FileCollectionSnapshotImpl(Map<String, FileSnapshot> snapshots) {
-            this.snapshots = snapshots;
+        private final String[] paths;
+        private final byte[] types;
+        private final byte[][] hashes;
+        private final long[] lengths;
+        private final long[] timestamps;
+
+        FileCollectionSnapshotImpl(String[] paths, byte[] types, byte[][] hashes, long[] lengths, long[] timestamps) {
+            this.paths = paths;
+            this.types = types;
+            this.hashes = hashes;
+            this.lengths = lengths;
+            this.timestamps = timestamps;
         }
 
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
-            for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
-                if (entry.getValue() instanceof FileHashSnapshot) {
-                    files.add(new File(entry.getKey()));
+            for (int i = 0; i < paths.length; i++) {
+                if (types[i] == FILE) {
+                    files.add(new File(paths[i]));
                 }
             }
             return new SimpleFileCollection(files);
         }
 
         public void changesSince(FileCollectionSnapshot oldSnapshot, final ChangeListener<File> listener) {
-            FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
-            diff(snapshots, other.snapshots, new ChangeListener<Map.Entry<String, FileSnapshot>>() {
-                public void added(Map.Entry<String, FileSnapshot> element) {
-                    listener.added(new File(element.getKey()));
+            final FileCollectionSnapshotImpl other = (FileCollectionSnapshotImpl) oldSnapshot;
+            diff(other, new DiffListener() {
+                public void added(int index) {
+                    listener.added(new File(paths[index]));
                 }
 
-                public void removed(Map.Entry<String, FileSnapshot> element) {
-                    listener.removed(new File(element.getKey()));
+                public void removed(int otherIndex) {
+                    listener.removed(new File(other.paths[otherIndex]));
                 }
 
-                public void changed(Map.Entry<String, FileSnapshot> element) {
-                    listener.changed(new File(element.getKey()));
+                public void changed(int index) {
+                    listener.changed(new File(paths[index]));
                 }
             });
         }
 
-        private void diff(Map<String, FileSnapshot> snapshots, Map<String, FileSnapshot> oldSnapshots,
-                          ChangeListener<Map.Entry<String, FileSnapshot>> listener) {
-            Map<String, FileSnapshot> otherSnapshots = new HashMap<String, FileSnapshot>(oldSnapshots);
-            for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
-                FileSnapshot otherFile = otherSnapshots.remove(entry.getKey());
-                if (otherFile == null) {
-                    listener.added(entry);
-                } else if (!entry.getValue().isUpToDate(otherFile)) {
-                    listener.changed(entry);
+        private boolean isUnmodified(int index, long length, long timestamp) {
+            return types[index] == FILE && lengths[index] == length && timestamps[index] == timestamp;
+        }
+
+        private boolean isUpToDate(int index, FileCollectionSnapshotImpl other, int otherIndex) {
+            return types[index] == other.types[otherIndex] && Arrays.equals(hashes[index], other.hashes[otherIndex]);
+        }
+
+        private void diff(FileCollectionSnapshotImpl oldSnapshot, DiffListener listener) {
+            int index = 0;
+            int otherIndex = 0;
+            while (index < paths.length || otherIndex < oldSnapshot.paths.length) {
+                int compare;
+                if (index == paths.length) {
+                    compare = 1;
+                } else if (otherIndex == oldSnapshot.paths.length) {
+                    compare = -1;
+                } else {
+                    compare = paths[index].compareTo(oldSnapshot.paths[otherIndex]);
+                }
+                if (compare < 0) {
+                    listener.added(index);
+                    index++;
+                } else if (compare > 0) {
+                    listener.removed(otherIndex);
+                    otherIndex++;
+                } else {
+                    if (!isUpToDate(index, oldSnapshot, otherIndex)) {
+                        listener.changed(index);
+                    }
+                    index++;
+                    otherIndex++;
                 }
-            }
-            for (Map.Entry<String, FileSnapshot> entry : otherSnapshots.entrySet()) {
-                listener.removed(entry);
             }
         }
 
@@ -148,11 +251,238 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
 
                 public FileCollectionSnapshot applyTo(FileCollectionSnapshot snapshot, final ChangeListener<Merge> listener) {
                     FileCollectionSnapshotImpl target = (FileCollectionSnapshotImpl) snapshot;
-                    final Map<String, FileSnapshot> newSnapshots = new HashMap<String, FileSnapshot>(target.snapshots);
-                    diff(snapshots, other.snapshots, new MapMergeChangeListener<String, FileSnapshot>(listener, newSnapshots));
-                    return new FileCollectionSnapshotImpl(newSnapshots);
+                    final List<Integer> updated = new ArrayList<Integer>();
+                    final List<String> removed = new ArrayList<String>();
+                    diff(other, new DiffListener() {
+                        public void added(int index) {
+                            DefaultMerge merge = new DefaultMerge();
+                            listener.added(merge);
+                            if (!merge.ignore) {
+                                updated.add(index);
+                            }
+                        }
+
+                        public void removed(int otherIndex) {
+                            DefaultMerge merge = new DefaultMerge();
+                            listener.removed(merge);
+                            if (!merge.ignore) {
+                                removed.add(other.paths[otherIndex]);
+                            }
+                        }
+
+                        public void changed(int index) {
+                            DefaultMerge merge = new DefaultMerge();
+                            listener.changed(merge);
+                            if (!merge.ignore) {
+                                updated.add(index);
+                            }
+                        }
+                    });
+                    return target.merge(FileCollectionSnapshotImpl.this, updated, removed);
                 }
             };
         }
+
+        /**
+         * Returns a copy of this snapshot with the given entries of the source snapshot added or replaced, and the
+         * given paths removed. The entries and paths must be sorted.
+         */
+        private FileCollectionSnapshotImpl merge(FileCollectionSnapshotImpl source, List<Integer> updated, List<String> removed) {
+            Builder builder = new Builder(paths.length + updated.size());
+            int index = 0;
+            int updatedIndex = 0;
+            int removedIndex = 0;
+            while (index < paths.length || updatedIndex < updated.size()) {
+                int compare;
+                if (index == paths.length) {
+                    compare = 1;
+                } else if (updatedIndex == updated.size()) {
+                    compare = -1;
+                } else {
+                    compare = paths[index].compareTo(source.paths[updated.get(updatedIndex)]);
+                }
+                if (compare > 0) {
+                    builder.add(source, updated.get(updatedIndex));
+                    updatedIndex++;
+                    continue;
+                }
+                if (compare == 0) {
+                    builder.add(source, updated.get(updatedIndex));
+                    updatedIndex++;
+                    index++;
+                    continue;
+                }
+                while (removedIndex < removed.size() && removed.get(removedIndex).compareTo(paths[index]) < 0) {
+                    removedIndex++;
+                }
+                if (removedIndex < removed.size() && removed.get(removedIndex).equals(paths[index])) {
+                    removedIndex++;
+                } else {
+                    builder.add(this, index);
+                }
+                index++;
+            }
+            return builder.build();
+        }
+
+        /**
+         * Writes this snapshot in a compact format: each path is stored as the length of the prefix it shares with
+         * the previous path plus the remaining suffix, followed by a type tag and, for files, a fixed-width hash, the
+         * length and the last modified time.
+         */
+        void write(DataOutputStream outputStream) throws IOException {
+            int hashLength = 0;
+            for (byte[] hash : hashes) {
+                if (hash != null) {
+                    hashLength = hash.length;
+                    break;
+                }
+            }
+            writeSize(outputStream, paths.length);
+            writeSize(outputStream, hashLength);
+            String previous = "";
+            for (int i = 0; i < paths.length; i++) {
+                String path = paths[i];
+                int prefix = commonPrefixLength(previous, path);
+                writeSize(outputStream, prefix);
+                outputStream.writeUTF(path.substring(prefix));
+                outputStream.writeByte(types[i]);
+                if (types[i] == FILE) {
+                    if (hashes[i].length != hashLength) {
+                        throw new IllegalStateException(String.format("Cannot write hash of %s, as it is not %s bytes long.", path, hashLength));
+                    }
+                    outputStream.write(hashes[i]);
+                    writeSize(outputStream, lengths[i]);
+                    outputStream.writeLong(timestamps[i]);
+                }
+                previous = path;
+            }
+        }
+
+        static FileCollectionSnapshotImpl read(DataInputStream inputStream) throws IOException {
+            int count = readSize(inputStream);
+            int hashLength = readSize(inputStream);
+            String[] paths = new String[count];
+            byte[] types = new byte[count];
+            byte[][] hashes = new byte[count][];
+            long[] lengths = new long[count];
+            long[] timestamps = new long[count];
+            String previous = "";
+            for (int i = 0; i < count; i++) {
+                int prefix = readSize(inputStream);
+                String path = previous.substring(0, prefix) + inputStream.readUTF();
+                paths[i] = path;
+                types[i] = inputStream.readByte();
+                if (types[i] == FILE) {
+                    hashes[i] = new byte[hashLength];
+                    inputStream.readFully(hashes[i]);
+                    lengths[i] = readLongSize(inputStream);
+                    timestamps[i] = inputStream.readLong();
+                }
+                previous = path;
+            }
+            return new FileCollectionSnapshotImpl(paths, types, hashes, lengths, timestamps);
+        }
+
+        private static int commonPrefixLength(String a, String b) {
+            int max = Math.min(a.length(), b.length());
+            int i = 0;
+            while (i < max && a.charAt(i) == b.charAt(i)) {
+                i++;
+            }
+            return i;
+        }
+
+        private static void writeSize(DataOutputStream outputStream, long value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                outputStream.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            outputStream.writeByte(value);
+        }
+
+        private static int readSize(DataInputStream inputStream) throws IOException {
+            return (int) readLongSize(inputStream);
+        }
+
+        private static long readLongSize(DataInputStream inputStream) throws IOException {
+            long value = 0;
+            int shift = 0;
+            while (true) {
+                int b = inputStream.readUnsignedByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+                shift += 7;
+            }
+        }
+
+        private interface DiffListener {
+            void added(int index);
+
+            void removed(int otherIndex);
+
+            void changed(int index);
+        }
+
+        private static class DefaultMerge implements Merge {
+            private boolean ignore;
+
+            public void ignore() {
+                ignore = true;
+            }
+        }
+
+        /**
+         * Collects entries, which must be added in path order.
+         */
+        static class Builder {
+            private final List<String> paths;
+            private final List<Byte> types;
+            private final List<byte[]> hashes;
+            private final List<Long> lengths;
+            private final List<Long> timestamps;
+
+            Builder(int expectedSize) {
+                paths = new ArrayList<String>(expectedSize);
+                types = new ArrayList<Byte>(expectedSize);
+                hashes = new ArrayList<byte[]>(expectedSize);
+                lengths = new ArrayList<Long>(expectedSize);
+                timestamps = new ArrayList<Long>(expectedSize);
+            }
+
+            int size() {
+                return paths.size();
+            }
+
+            void add(String path, byte type, byte[] hash, long length, long timestamp) {
+                paths.add(path);
+                types.add(type);
+                hashes.add(hash);
+                lengths.add(length);
+                timestamps.add(timestamp);
+            }
+
+            void add(FileCollectionSnapshotImpl snapshot, int index) {
+                add(snapshot.paths[index], snapshot.types[index], snapshot.hashes[index], snapshot.lengths[index], snapshot.timestamps[index]);
+            }
+
+            void setHash(int index, byte[] hash) {
+                hashes.set(index, hash);
+            }
+
+            FileCollectionSnapshotImpl build() {
+                byte[] typeArray = new byte[types.size()];
+                long[] lengthArray = new long[lengths.size()];
+                long[] timestampArray = new long[timestamps.size()];
+                for (int i = 0; i < typeArray.length; i++) {
+                    typeArray[i] = types.get(i);
+                    lengthArray[i] = lengths.get(i);
+                    timestampArray[i] = timestamps.get(i);
+                }
+                return new FileCollectionSnapshotImpl(paths.toArray(new String[paths.size()]), typeArray, hashes.toArray(new byte[hashes.size()][]), lengthArray, timestampArray);
+            }
+        }
     }
 }
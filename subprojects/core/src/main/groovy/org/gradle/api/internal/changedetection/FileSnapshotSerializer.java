@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.cache.Serializer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Serializes the values of the file snapshot cache. Snapshots created by {@link DefaultFileSnapshotter} and {@link
+ * OutputFilesSnapshotter}, and ids, are written in a compact binary format preceded by a type tag. Any other value is
+ * written using Java serialization.
+ */
+class FileSnapshotSerializer implements Serializer<Object> {
+    private static final byte ID = 1;
+    private static final byte FILES_SNAPSHOT = 2;
+    private static final byte OUTPUT_FILES_SNAPSHOT = 3;
+    private static final byte SERIALIZED_OBJECT = 4;
+    private final DefaultSerializer<Object> serializer = new DefaultSerializer<Object>();
+
+    public Object read(InputStream instr) throws Exception {
+        DataInputStream inputStream = new DataInputStream(instr);
+        byte tag = inputStream.readByte();
+        switch (tag) {
+            case ID:
+                return inputStream.readLong();
+            case FILES_SNAPSHOT:
+                return DefaultFileSnapshotter.FileCollectionSnapshotImpl.read(inputStream);
+            case OUTPUT_FILES_SNAPSHOT:
+                return OutputFilesSnapshotter.OutputFilesSnapshot.read(inputStream, this);
+            case SERIALIZED_OBJECT:
+                return serializer.read(inputStream);
+            default:
+                throw new IllegalArgumentException(String.format("Unexpected snapshot type tag %s found.", tag));
+        }
+    }
+
+    public void write(OutputStream outstr, Object value) throws Exception {
+        DataOutputStream outputStream = new DataOutputStream(outstr);
+        if (value instanceof Long) {
+            outputStream.writeByte(ID);
+            outputStream.writeLong((Long) value);
+        } else if (value instanceof DefaultFileSnapshotter.FileCollectionSnapshotImpl) {
+            outputStream.writeByte(FILES_SNAPSHOT);
+            ((DefaultFileSnapshotter.FileCollectionSnapshotImpl) value).write(outputStream);
+        } else if (value instanceof OutputFilesSnapshotter.OutputFilesSnapshot) {
+            outputStream.writeByte(OUTPUT_FILES_SNAPSHOT);
+            ((OutputFilesSnapshotter.OutputFilesSnapshot) value).write(outputStream, this);
+        } else {
+            outputStream.writeByte(SERIALIZED_OBJECT);
+            serializer.write(outputStream, value);
+        }
+        outputStream.flush();
+    }
+}
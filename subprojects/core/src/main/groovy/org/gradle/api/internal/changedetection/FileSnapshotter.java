@@ -32,4 +32,14 @@ public interface FileSnapshotter {
      * @return The snapshot.
      */
     FileCollectionSnapshot snapshot(FileCollection files);
+
+    /**
+     * Creates a snapshot of the contents of the given collection, reusing the contents of the given previous snapshot
+     * where possible. Returns the previous snapshot when none of the files have changed since it was taken.
+     *
+     * @param files The files to snapshot
+     * @param previousSnapshot A snapshot previously created by this snapshotter.
+     * @return The snapshot.
+     */
+    FileCollectionSnapshot snapshot(FileCollection files, FileCollectionSnapshot previousSnapshot);
 }
@@ -22,7 +22,9 @@ import java.io.File;
 import java.util.Collection;
 
 /**
- * A rule which marks a task out-of-date when its input files change.
+ * A rule which marks a task out-of-date when its input files change. The input files are snapshotted relative to the
+ * previous execution, so that the files of the previous snapshot are only hashed again when their length or last
+ * modified time has changed.
  */
 public class InputFilesChangedUpToDateRule implements UpToDateRule {
     private final FileSnapshotter inputFilesSnapshotter;
@@ -32,15 +34,21 @@ public class InputFilesChangedUpToDateRule implements UpToDateRule {
     }
 
     public TaskUpToDateState create(final TaskInternal task, final TaskExecution previousExecution, final TaskExecution currentExecution) {
-        final FileCollectionSnapshot inputFilesSnapshot = inputFilesSnapshotter.snapshot(task.getInputs().getFiles());
+        final FileCollectionSnapshot previousInputFilesSnapshot = previousExecution == null ? null : previousExecution.getInputFilesSnapshot();
+        final FileCollectionSnapshot inputFilesSnapshot = previousInputFilesSnapshot == null
+                ? inputFilesSnapshotter.snapshot(task.getInputs().getFiles())
+                : inputFilesSnapshotter.snapshot(task.getInputs().getFiles(), previousInputFilesSnapshot);
 
         return new TaskUpToDateState() {
             public void checkUpToDate(final Collection<String> messages) {
-                if (previousExecution.getInputFilesSnapshot() == null) {
+                if (previousInputFilesSnapshot == null) {
                     messages.add(String.format("Input file history is not available for %s.", task));
                     return;
                 }
-                inputFilesSnapshot.changesSince(previousExecution.getInputFilesSnapshot(), new ChangeListener<File>() {
+                if (inputFilesSnapshot == previousInputFilesSnapshot) {
+                    return;
+                }
+                inputFilesSnapshot.changesSince(previousInputFilesSnapshot, new ChangeListener<File>() {
                     public void added(File file) {
                         messages.add(String.format("Input file %s for %s added.", file, task));
                     }
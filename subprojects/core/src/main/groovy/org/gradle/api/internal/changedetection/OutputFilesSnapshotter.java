@@ -25,6 +25,8 @@ import org.gradle.util.DiffUtil;
 import org.gradle.util.IdGenerator;
 import org.gradle.util.NoOpChangeListener;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
@@ -58,24 +60,31 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
 
     public FileCollectionSnapshot snapshot(FileCollection files) {
         Map<String, Long> snapshotDirIds = new HashMap<String, Long>();
-        for (File file : files) {
-            Long dirId;
-            if (file.exists()) {
-                dirId = dirIdentiferCache.get(file.getAbsolutePath());
-                if (dirId == null) {
-                    dirId = idGenerator.generateId();
-                    dirIdentiferCache.put(file.getAbsolutePath(), dirId);
+        // The cache is shared by tasks which are executed in parallel
+        synchronized (dirIdentiferCache) {
+            for (File file : files) {
+                Long dirId;
+                if (file.exists()) {
+                    dirId = dirIdentiferCache.get(file.getAbsolutePath());
+                    if (dirId == null) {
+                        dirId = idGenerator.generateId();
+                        dirIdentiferCache.put(file.getAbsolutePath(), dirId);
+                    }
+                } else {
+                    dirIdentiferCache.remove(file.getAbsolutePath());
+                    dirId = null;
                 }
-            } else {
-                dirIdentiferCache.remove(file.getAbsolutePath());
-                dirId = null;
+                snapshotDirIds.put(file.getAbsolutePath(), dirId);
             }
-            snapshotDirIds.put(file.getAbsolutePath(), dirId);
         }
         return new OutputFilesSnapshot(snapshotDirIds, snapshotter.snapshot(files));
     }
 
-    private static class OutputFilesSnapshot implements FileCollectionSnapshot {
+    public FileCollectionSnapshot snapshot(FileCollection files, FileCollectionSnapshot previousSnapshot) {
+        return snapshot(files);
+    }
+
+    static class OutputFilesSnapshot implements FileCollectionSnapshot {
         private final Map<String, Long> rootFileIds;
         private final FileCollectionSnapshot filesSnapshot;
 
@@ -84,6 +93,28 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
             this.filesSnapshot = filesSnapshot;
         }
 
+        void write(DataOutputStream outputStream, FileSnapshotSerializer serializer) throws Exception {
+            outputStream.writeInt(rootFileIds.size());
+            for (Map.Entry<String, Long> entry : rootFileIds.entrySet()) {
+                outputStream.writeUTF(entry.getKey());
+                outputStream.writeBoolean(entry.getValue() != null);
+                if (entry.getValue() != null) {
+                    outputStream.writeLong(entry.getValue());
+                }
+            }
+            serializer.write(outputStream, filesSnapshot);
+        }
+
+        static OutputFilesSnapshot read(DataInputStream inputStream, FileSnapshotSerializer serializer) throws Exception {
+            int count = inputStream.readInt();
+            Map<String, Long> rootFileIds = new HashMap<String, Long>(count);
+            for (int i = 0; i < count; i++) {
+                String path = inputStream.readUTF();
+                rootFileIds.put(path, inputStream.readBoolean() ? inputStream.readLong() : null);
+            }
+            return new OutputFilesSnapshot(rootFileIds, (FileCollectionSnapshot) serializer.read(inputStream));
+        }
+
         public FileCollection getFiles() {
             return filesSnapshot.getFiles();
         }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.UnixStat;
+import org.apache.tools.zip.ZipEntry;
+import org.apache.tools.zip.ZipOutputStream;
+import org.gradle.api.file.FileTreeElement;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Writes a ZIP file using Ant's {@link ZipOutputStream}, which compresses each file entry as it is added.
+ */
+public class AntZipWriter implements ZipWriter {
+    private final ZipOutputStream zipOutStr;
+
+    public AntZipWriter(File zipFile) throws IOException {
+        zipOutStr = new ZipOutputStream(zipFile);
+    }
+
+    public void addDirectory(String path, long lastModified, int unixMode) throws IOException {
+        // Trailing slash in name indicates that entry is a directory
+        ZipEntry archiveEntry = new ZipEntry(path + '/');
+        archiveEntry.setTime(lastModified);
+        archiveEntry.setUnixMode(UnixStat.DIR_FLAG | unixMode);
+        zipOutStr.putNextEntry(archiveEntry);
+        zipOutStr.closeEntry();
+    }
+
+    public void addFile(String path, long lastModified, int unixMode, FileTreeElement content) throws IOException {
+        ZipEntry archiveEntry = new ZipEntry(path);
+        archiveEntry.setMethod(ZipEntry.DEFLATED);
+        archiveEntry.setTime(lastModified);
+        archiveEntry.setUnixMode(UnixStat.FILE_FLAG | unixMode);
+        zipOutStr.putNextEntry(archiveEntry);
+        content.copyTo(zipOutStr);
+        zipOutStr.closeEntry();
+    }
+
+    public void close() throws IOException {
+        zipOutStr.close();
+    }
+}
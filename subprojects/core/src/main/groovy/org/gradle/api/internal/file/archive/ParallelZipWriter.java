@@ -0,0 +1,430 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.UnixStat;
+import org.gradle.api.file.FileTreeElement;
+import org.gradle.util.UncheckedException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * <p>Writes a ZIP file, compressing the file entries concurrently.</p>
+ *
+ * <p>The content of each file entry is read into memory by the calling thread, and is compressed using the given
+ * {@link Executor}. The entries are written to the ZIP file in the order they are added, so the ZIP file does not
+ * depend on how long each entry takes to compress. At most {@code maxPendingEntries} entries are held in memory.</p>
+ *
+ * <p>Files which are already compressed, such as JARs and images, are stored without compressing them again. So is
+ * any file which does not get smaller when compressed. A file larger than {@link #MAX_BUFFERED_ENTRY_SIZE} is not held
+ * in memory. It is compressed by the calling thread as it is read, once the entries before it have been written.</p>
+ *
+ * <p>Entry names are encoded using the given charset, which defaults to the platform encoding, as Ant's {@code
+ * ZipOutputStream} does. The language encoding flag is set only when the charset is UTF-8.</p>
+ */
+public class ParallelZipWriter implements ZipWriter {
+    static final int MAX_BUFFERED_ENTRY_SIZE = 1024 * 1024;
+    private static final Set<String> COMPRESSED_EXTENSIONS = new HashSet<String>(Arrays.asList(
+            "jar", "war", "ear", "zip", "gz", "tgz", "bz2", "png", "jpg", "jpeg", "gif"));
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int UTF8_FLAG = 1 << 11;
+    private static final int PLATFORM_UNIX = 3;
+    private static final long DOS_TIME_MIN = 0x00002100L;
+    private final Executor executor;
+    private final int maxPendingEntries;
+    private final Charset nameCharset;
+    private final int generalPurposeFlags;
+    private final FileOutputStream fileOutputStream;
+    private final OutputStream out;
+    private final LinkedList<PendingEntry> pending = new LinkedList<PendingEntry>();
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private long offset;
+
+    /**
+     * Creates a writer which compresses the entries using the given executor. When the executor is null, the entries
+     * are compressed by the calling thread.
+     */
+    public ParallelZipWriter(File zipFile, Executor executor, int maxPendingEntries) throws IOException {
+        this(zipFile, executor, maxPendingEntries, Charset.defaultCharset());
+    }
+
+    ParallelZipWriter(File zipFile, Executor executor, int maxPendingEntries, Charset nameCharset) throws IOException {
+        this.executor = executor;
+        this.maxPendingEntries = maxPendingEntries;
+        this.nameCharset = nameCharset;
+        generalPurposeFlags = nameCharset.name().equals("UTF-8") ? UTF8_FLAG : 0;
+        fileOutputStream = new FileOutputStream(zipFile);
+        out = new BufferedOutputStream(fileOutputStream, 64 * 1024);
+    }
+
+    public void addDirectory(String path, long lastModified, int unixMode) throws IOException {
+        // Trailing slash in name indicates that entry is a directory
+        final Entry entry = new Entry(encodeName(path + '/'), lastModified, UnixStat.DIR_FLAG | unixMode, true);
+        entry.method = STORED;
+        FutureTask<byte[]> data = new FutureTask<byte[]>(new Callable<byte[]>() {
+            public byte[] call() {
+                return new byte[0];
+            }
+        });
+        data.run();
+        addPending(new PendingEntry(entry, data));
+    }
+
+    public void addFile(String path, long lastModified, int unixMode, FileTreeElement content) throws IOException {
+        Entry entry = new Entry(encodeName(path), lastModified, UnixStat.FILE_FLAG | unixMode, false);
+        EntryContentStream contentStream = new EntryContentStream(entry, isCompressed(path));
+        content.copyTo(contentStream);
+        contentStream.finish();
+    }
+
+    /**
+     * Writes the remaining entries and the central directory, and closes the ZIP file.
+     */
+    public void close() throws IOException {
+        try {
+            writePending(0);
+            long centralDirectoryOffset = offset;
+            for (Entry entry : entries) {
+                writeCentralDirectoryHeader(entry);
+            }
+            long centralDirectorySize = offset - centralDirectoryOffset;
+            writeInt(0x06054b50L);
+            writeShort(0);
+            writeShort(0);
+            writeShort(entries.size());
+            writeShort(entries.size());
+            writeInt(centralDirectorySize);
+            writeInt(centralDirectoryOffset);
+            writeShort(0);
+        } finally {
+            out.close();
+        }
+    }
+
+    private byte[] encodeName(String name) {
+        try {
+            return name.getBytes(nameCharset.name());
+        } catch (UnsupportedEncodingException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
+    }
+
+    private static boolean isCompressed(String path) {
+        int pos = path.lastIndexOf('.');
+        return pos >= 0 && COMPRESSED_EXTENSIONS.contains(path.substring(pos + 1).toLowerCase());
+    }
+
+    private void addPending(PendingEntry entry) throws IOException {
+        pending.add(entry);
+        writePending(maxPendingEntries);
+    }
+
+    /**
+     * Writes pending entries in order, until no more than the given number of entries are pending, and the next
+     * pending entry has not been compressed yet.
+     */
+    private void writePending(int maxPending) throws IOException {
+        while (!pending.isEmpty() && (pending.size() > maxPending || pending.getFirst().data.isDone())) {
+            PendingEntry next = pending.removeFirst();
+            byte[] data = next.getData();
+            Entry entry = next.entry;
+            entry.offset = offset;
+            writeLocalFileHeader(entry);
+            writeBytes(data, 0, (int) entry.compressedSize);
+            entries.add(entry);
+        }
+    }
+
+    private void writeLocalFileHeader(Entry entry) throws IOException {
+        writeInt(0x04034b50L);
+        writeShort(entry.method == DEFLATED ? 20 : 10);
+        writeShort(generalPurposeFlags);
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+        writeInt(entry.crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+        writeShort(entry.name.length);
+        writeShort(0);
+        writeBytes(entry.name, 0, entry.name.length);
+    }
+
+    /**
+     * Overwrites the CRC and sizes in the local file header of an entry which has been streamed.
+     */
+    private void updateLocalFileHeader(Entry entry) throws IOException {
+        out.flush();
+        ByteBuffer buffer = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt((int) entry.crc);
+        buffer.putInt((int) entry.compressedSize);
+        buffer.putInt((int) entry.size);
+        buffer.flip();
+        long position = entry.offset + 14;
+        while (buffer.hasRemaining()) {
+            position += fileOutputStream.getChannel().write(buffer, position);
+        }
+    }
+
+    private void writeCentralDirectoryHeader(Entry entry) throws IOException {
+        writeInt(0x02014b50L);
+        writeShort((PLATFORM_UNIX << 8) | 20);
+        writeShort(entry.method == DEFLATED ? 20 : 10);
+        writeShort(generalPurposeFlags);
+        writeShort(entry.method);
+        writeInt(entry.dosTime);
+        writeInt(entry.crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+        writeShort(entry.name.length);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(entry.externalAttributes);
+        writeInt(entry.offset);
+        writeBytes(entry.name, 0, entry.name.length);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        offset += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        out.write((int) (value & 0xff));
+        out.write((int) ((value >> 8) & 0xff));
+        out.write((int) ((value >> 16) & 0xff));
+        out.write((int) ((value >> 24) & 0xff));
+        offset += 4;
+    }
+
+    private void writeBytes(byte[] bytes, int start, int length) throws IOException {
+        out.write(bytes, start, length);
+        offset += length;
+    }
+
+    private static long toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return DOS_TIME_MIN;
+        }
+        return ((long) (year - 1980) << 25)
+                | ((calendar.get(Calendar.MONTH) + 1) << 21)
+                | (calendar.get(Calendar.DAY_OF_MONTH) << 16)
+                | (calendar.get(Calendar.HOUR_OF_DAY) << 11)
+                | (calendar.get(Calendar.MINUTE) << 5)
+                | (calendar.get(Calendar.SECOND) >> 1);
+    }
+
+    private static class Entry {
+        final byte[] name;
+        final long dosTime;
+        final long externalAttributes;
+        int method;
+        long crc;
+        long compressedSize;
+        long size;
+        long offset;
+
+        Entry(byte[] name, long lastModified, int unixMode, boolean directory) {
+            this.name = name;
+            dosTime = toDosTime(lastModified);
+            // Same as Ant's ZipEntry.setUnixMode()
+            externalAttributes = ((long) unixMode << 16) | ((unixMode & 0200) == 0 ? 1 : 0) | (directory ? 0x10 : 0);
+        }
+    }
+
+    private static class PendingEntry {
+        final Entry entry;
+        final FutureTask<byte[]> data;
+
+        PendingEntry(Entry entry, FutureTask<byte[]> data) {
+            this.entry = entry;
+            this.data = data;
+        }
+
+        byte[] getData() throws IOException {
+            try {
+                return data.get();
+            } catch (InterruptedException e) {
+                throw UncheckedException.asUncheckedException(e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw UncheckedException.asUncheckedException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Compresses the content of an entry, and returns the data to write to the ZIP file.
+     */
+    private static class Compressor implements Callable<byte[]> {
+        private final Entry entry;
+        private final byte[] content;
+        private final int length;
+
+        Compressor(Entry entry, byte[] content, int length) {
+            this.entry = entry;
+            this.content = content;
+            this.length = length;
+        }
+
+        public byte[] call() {
+            CRC32 crc = new CRC32();
+            crc.update(content, 0, length);
+            entry.crc = crc.getValue();
+            entry.size = length;
+
+            if (entry.method == DEFLATED) {
+                Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                try {
+                    deflater.setInput(content, 0, length);
+                    deflater.finish();
+                    byte[] compressed = new byte[length];
+                    int compressedLength = 0;
+                    while (!deflater.finished() && compressedLength < length) {
+                        compressedLength += deflater.deflate(compressed, compressedLength, length - compressedLength);
+                    }
+                    if (deflater.finished() && compressedLength < length) {
+                        entry.compressedSize = compressedLength;
+                        return compressed;
+                    }
+                } finally {
+                    deflater.end();
+                }
+                // Does not get smaller when compressed
+                entry.method = STORED;
+            }
+            entry.compressedSize = length;
+            return content;
+        }
+    }
+
+    /**
+     * Receives the content of a file entry. Holds the content in memory until it grows larger than {@link
+     * #MAX_BUFFERED_ENTRY_SIZE}, and then writes the entry directly to the ZIP file.
+     */
+    private class EntryContentStream extends OutputStream {
+        private final Entry entry;
+        private ContentBuffer buffer = new ContentBuffer();
+        private OutputStream entryOutputStream;
+        private Deflater deflater;
+        private final CRC32 crc = new CRC32();
+        private long dataOffset;
+
+        EntryContentStream(Entry entry, boolean compressed) {
+            this.entry = entry;
+            entry.method = compressed ? STORED : DEFLATED;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int start, int length) throws IOException {
+            if (entryOutputStream == null && buffer.size() + length > MAX_BUFFERED_ENTRY_SIZE) {
+                startStreaming();
+            }
+            if (entryOutputStream == null) {
+                buffer.write(bytes, start, length);
+            } else {
+                crc.update(bytes, start, length);
+                entry.size += length;
+                entryOutputStream.write(bytes, start, length);
+            }
+        }
+
+        private void startStreaming() throws IOException {
+            writePending(0);
+            entry.offset = offset;
+            writeLocalFileHeader(entry);
+            dataOffset = offset;
+            OutputStream dataOutputStream = new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    offset++;
+                }
+
+                @Override
+                public void write(byte[] bytes, int start, int length) throws IOException {
+                    writeBytes(bytes, start, length);
+                }
+            };
+            if (entry.method == DEFLATED) {
+                deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                entryOutputStream = new DeflaterOutputStream(dataOutputStream, deflater, 8192);
+            } else {
+                entryOutputStream = dataOutputStream;
+            }
+            ContentBuffer content = buffer;
+            buffer = null;
+            write(content.getBytes(), 0, content.size());
+        }
+
+        void finish() throws IOException {
+            if (entryOutputStream == null) {
+                Compressor compressor = new Compressor(entry, buffer.getBytes(), buffer.size());
+                buffer = null;
+                FutureTask<byte[]> data = new FutureTask<byte[]>(compressor);
+                if (executor == null) {
+                    data.run();
+                } else {
+                    executor.execute(data);
+                }
+                addPending(new PendingEntry(entry, data));
+                return;
+            }
+
+            if (deflater != null) {
+                ((DeflaterOutputStream) entryOutputStream).finish();
+                deflater.end();
+            }
+            entry.crc = crc.getValue();
+            entry.compressedSize = offset - dataOffset;
+            updateLocalFileHeader(entry);
+            entries.add(entry);
+        }
+    }
+
+    /**
+     * A {@link ByteArrayOutputStream} which provides access to its buffer without copying it.
+     */
+    private static class ContentBuffer extends ByteArrayOutputStream {
+        byte[] getBytes() {
+            return buf;
+        }
+    }
+}
@@ -15,7 +15,6 @@
  */
 package org.gradle.api.internal.file.archive;
 
-import org.apache.tools.zip.*;
 import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
 import org.gradle.api.internal.file.copy.CopyAction;
@@ -23,33 +22,74 @@ import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.file.copy.ArchiveCopyAction;
 import org.gradle.api.internal.file.copy.EmptyCopySpecVisitor;
 import org.gradle.api.internal.file.copy.ReadableCopySpec;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 
 import java.io.File;
 import java.io.IOException;
 
+/**
+ * Writes a ZIP file using a {@link ParallelZipWriter}, which compresses the file entries concurrently, or using an
+ * {@link AntZipWriter} when the number of compression threads is 0.
+ */
 public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
-    private ZipOutputStream zipOutStr;
+    /**
+     * The system property which specifies the number of threads used to compress the entries. Defaults to the number
+     * of available processors. When 1, the entries are compressed by the thread which visits the files. When 0, the
+     * ZIP file is written using Ant's {@code ZipOutputStream}, as in earlier versions.
+     */
+    public static final String COMPRESSION_THREADS_PROPERTY = "org.gradle.archive.compressionThreads";
+    private final ExecutorFactory executorFactory;
+    private final int compressionThreads;
+    private StoppableExecutor executor;
+    private ZipWriter zipWriter;
     private File zipFile;
     private ReadableCopySpec spec;
 
+    public ZipCopySpecVisitor() {
+        this(new DefaultExecutorFactory(), Integer.getInteger(COMPRESSION_THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public ZipCopySpecVisitor(ExecutorFactory executorFactory, int compressionThreads) {
+        this.executorFactory = executorFactory;
+        this.compressionThreads = compressionThreads;
+    }
+
     public void startVisit(CopyAction action) {
         ArchiveCopyAction archiveAction = (ArchiveCopyAction) action;
         zipFile = archiveAction.getArchivePath();
         try {
-            zipOutStr = new ZipOutputStream(zipFile);
+            if (compressionThreads <= 0) {
+                zipWriter = new AntZipWriter(zipFile);
+            } else {
+                if (compressionThreads > 1) {
+                    executor = executorFactory.create("Compress ZIP entries");
+                }
+                zipWriter = new ParallelZipWriter(zipFile, executor, compressionThreads);
+            }
         } catch (Exception e) {
+            stopExecutor();
             throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
         }
     }
 
     public void endVisit() {
         try {
-            zipOutStr.close();
+            zipWriter.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } finally {
+            stopExecutor();
             spec = null;
-            zipOutStr = null;
+            zipWriter = null;
+        }
+    }
+
+    private void stopExecutor() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
         }
     }
 
@@ -59,13 +99,8 @@ public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
 
     public void visitFile(FileVisitDetails fileDetails) {
         try {
-            ZipEntry archiveEntry = new ZipEntry(fileDetails.getRelativePath().getPathString());
-            archiveEntry.setMethod(ZipEntry.DEFLATED);
-            archiveEntry.setTime(fileDetails.getLastModified());
-            archiveEntry.setUnixMode(UnixStat.FILE_FLAG | spec.getFileMode());
-            zipOutStr.putNextEntry(archiveEntry);
-            fileDetails.copyTo(zipOutStr);
-            zipOutStr.closeEntry();
+            zipWriter.addFile(fileDetails.getRelativePath().getPathString(), fileDetails.getLastModified(),
+                    spec.getFileMode(), fileDetails);
         } catch (Exception e) {
             throw new GradleException(String.format("Could not add %s to ZIP '%s'.", fileDetails, zipFile), e);
         }
@@ -73,12 +108,8 @@ public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
 
     public void visitDir(FileVisitDetails dirDetails) {
         try {
-            // Trailing slash in name indicates that entry is a directory
-            ZipEntry archiveEntry = new ZipEntry(dirDetails.getRelativePath().getPathString() + '/');
-            archiveEntry.setTime(dirDetails.getLastModified());
-            archiveEntry.setUnixMode(UnixStat.DIR_FLAG | spec.getDirMode());
-            zipOutStr.putNextEntry(archiveEntry);
-            zipOutStr.closeEntry();
+            zipWriter.addDirectory(dirDetails.getRelativePath().getPathString(), dirDetails.getLastModified(),
+                    spec.getDirMode());
         } catch (Exception e) {
             throw new GradleException(String.format("Could not add %s to ZIP '%s'.", dirDetails, zipFile), e);
         }
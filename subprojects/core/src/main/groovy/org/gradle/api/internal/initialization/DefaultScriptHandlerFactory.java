@@ -64,11 +64,15 @@ public class DefaultScriptHandlerFactory implements ScriptHandlerFactory {
         ConfigurationContainer configurationContainer = services.getConfigurationContainer();
         DependencyHandler dependencyHandler = services.getDependencyHandler();
         Collection<Object> key = Arrays.asList(scriptSource.getClassName(), parentClassLoader);
-        ObservableUrlClassLoader classLoader = classLoaderCache.get(key);
-        if (classLoader == null) {
-            classLoader = new ObservableUrlClassLoader(parentClassLoader);
-            classLoaderCache.put(key, classLoader);
-            return new DefaultScriptHandler(scriptSource, repositoryHandler, dependencyHandler, configurationContainer, classLoader);
+        ObservableUrlClassLoader classLoader;
+        // Scripts may be applied by projects which are evaluated in parallel
+        synchronized (classLoaderCache) {
+            classLoader = classLoaderCache.get(key);
+            if (classLoader == null) {
+                classLoader = new ObservableUrlClassLoader(parentClassLoader);
+                classLoaderCache.put(key, classLoader);
+                return new DefaultScriptHandler(scriptSource, repositoryHandler, dependencyHandler, configurationContainer, classLoader);
+            }
         }
 
         return new NoClassLoaderUpdateScriptHandler(classLoader, repositoryHandler, dependencyHandler, scriptSource, configurationContainer);
@@ -46,6 +46,8 @@ import org.gradle.api.plugins.ExtensionContainer;
 import org.gradle.api.plugins.PluginContainer;
 import org.gradle.api.tasks.Directory;
 import org.gradle.api.tasks.WorkResult;
+import org.gradle.configuration.BuildConfigurer;
+import org.gradle.configuration.ParallelProjectEvaluator;
 import org.gradle.configuration.ProjectEvaluator;
 import org.gradle.configuration.ScriptPlugin;
 import org.gradle.configuration.ScriptPluginFactory;
@@ -415,6 +417,12 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
     }
 
     public ProjectInternal project(String path) {
+        ProjectInternal project = getExistingProject(path);
+        configureOnDemand(project);
+        return project;
+    }
+
+    private ProjectInternal getExistingProject(String path) {
         ProjectInternal project = findProject(path);
         if (project == null) {
             throw new UnknownProjectException(String.format("Project with path '%s' could not be found in %s.", path, this));
@@ -422,6 +430,29 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
         return project;
     }
 
+    /**
+     * When the build is configured on demand, configures a project which is referenced by this project, so that its
+     * properties and tasks can be used. Ancestors are always configured before this project and descendants after it,
+     * so only other projects are configured here.
+     */
+    private void configureOnDemand(ProjectInternal project) {
+        if (isSameOrAncestor(project, this) || isSameOrAncestor(this, project)) {
+            return;
+        }
+        if (getGradle().getStartParameter().isConfigureOnDemand()) {
+            getGradle().getServices().get(BuildConfigurer.class).configure(project);
+        }
+    }
+
+    private static boolean isSameOrAncestor(ProjectInternal ancestor, ProjectInternal project) {
+        for (ProjectInternal current = project; current != null; current = current.getParent()) {
+            if (current == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public ProjectInternal findProject(String path) {
         if (!isTrue(path)) {
             throw new InvalidUserDataException("A path must be specified!");
@@ -447,6 +478,9 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
 
     public <T> Iterable<T> configure(Iterable<T> objects, Action<? super T> configureAction) {
         for (T object : objects) {
+            if (object instanceof Project) {
+                ParallelProjectEvaluator.assertCanConfigure((Project) object);
+            }
             configureAction.execute(object);
         }
         return objects;
@@ -586,6 +620,7 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
             throw new InvalidUserDataException("You must specify a project!");
         }
         DefaultProject projectToEvaluate = (DefaultProject) project(path);
+        ParallelProjectEvaluator.assertCanEvaluate(projectToEvaluate);
         if (projectToEvaluate.getState().getExecuting()) {
             throw new CircularReferenceException(String.format("Circular referencing during evaluation for %s.",
                     projectToEvaluate));
@@ -750,18 +785,22 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
     }
 
     public void beforeEvaluate(Action<? super Project> action) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         evaluationListener.add("beforeEvaluate", action);
     }
 
     public void afterEvaluate(Action<? super Project> action) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         evaluationListener.add("afterEvaluate", action);
     }
 
     public void beforeEvaluate(Closure closure) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         evaluationListener.add("beforeEvaluate", closure);
     }
 
     public void afterEvaluate(Closure closure) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         evaluationListener.add("afterEvaluate", closure);
     }
 
@@ -792,6 +831,7 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
     }
 
     public void setProperty(String name, Object value) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         dynamicObjectHelper.setProperty(name, value);
     }
 
@@ -828,6 +868,7 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
     }
 
     public void apply(Closure closure) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         DefaultObjectConfigurationAction action = new DefaultObjectConfigurationAction(fileResolver, services.get(
                 ScriptPluginFactory.class), this);
         configure(action, closure);
@@ -835,6 +876,7 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
     }
 
     public void apply(Map<String, ?> options) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         DefaultObjectConfigurationAction action = new DefaultObjectConfigurationAction(fileResolver, services.get(
                 ScriptPluginFactory.class), this);
         ConfigureUtil.configureByMap(options, action);
@@ -854,10 +896,17 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
     }
 
     public Project project(String path, Closure configureClosure) {
-        return ConfigureUtil.configure(configureClosure, project(path));
+        // Does not configure the project on demand, so that the closure is applied before the project's build script
+        // is executed, as when all projects are configured
+        Project project = getExistingProject(path);
+        ParallelProjectEvaluator.assertCanConfigure(project);
+        return ConfigureUtil.configure(configureClosure, project);
     }
 
     public Object configure(Object object, Closure configureClosure) {
+        if (object instanceof Project) {
+            ParallelProjectEvaluator.assertCanConfigure((Project) object);
+        }
         return ConfigureUtil.configure(configureClosure, object);
     }
 
@@ -869,22 +918,27 @@ public abstract class AbstractProject implements ProjectInternal, DynamicObjectA
     }
 
     public void configurations(Closure configureClosure) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         ((Configurable<?>) getConfigurations()).configure(configureClosure);
     }
 
     public void repositories(Closure configureClosure) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         ConfigureUtil.configure(configureClosure, getRepositories());
     }
 
     public void dependencies(Closure configureClosure) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         ConfigureUtil.configure(configureClosure, getDependencies());
     }
 
     public void artifacts(Closure configureClosure) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         ConfigureUtil.configure(configureClosure, getArtifacts());
     }
 
     public void buildscript(Closure configureClosure) {
+        ParallelProjectEvaluator.assertCanConfigure(this);
         ConfigureUtil.configure(configureClosure, getBuildscript());
     }
 
@@ -181,7 +181,7 @@ public class DefaultServiceRegistry implements ServiceRegistry {
     private static abstract class ManagedObjectProvider<T> implements Provider {
         private T instance;
 
-        public T getInstance() {
+        public synchronized T getInstance() {
             if (instance == null) {
                 instance = create();
                 assert instance != null;
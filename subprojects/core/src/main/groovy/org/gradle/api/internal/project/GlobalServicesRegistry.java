@@ -24,6 +24,7 @@ import org.gradle.api.internal.classpath.ModuleRegistry;
 import org.gradle.api.internal.classpath.PluginModuleRegistry;
 import org.gradle.cache.internal.*;
 import org.gradle.cli.CommandLineConverter;
+import org.gradle.groovy.scripts.internal.CrossBuildScriptClassCache;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.initialization.DefaultClassLoaderRegistry;
 import org.gradle.initialization.DefaultCommandLineConverter;
@@ -73,6 +74,10 @@ public class GlobalServicesRegistry extends DefaultServiceRegistry {
         return new DefaultClassLoaderRegistry(get(ClassPathRegistry.class), get(ClassLoaderFactory.class));
     }
 
+    protected CrossBuildScriptClassCache createCrossBuildScriptClassCache() {
+        return new CrossBuildScriptClassCache(get(ClassLoaderRegistry.class).getRootClassLoader());
+    }
+
     protected ListenerManager createListenerManager() {
         return new DefaultListenerManager();
     }
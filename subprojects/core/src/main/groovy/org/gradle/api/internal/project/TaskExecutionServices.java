@@ -23,6 +23,7 @@ import org.gradle.api.internal.tasks.execution.*;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.util.RandomLongIdGenerator;
 
 public class TaskExecutionServices extends DefaultServiceRegistry {
@@ -52,7 +53,9 @@ public class TaskExecutionServices extends DefaultServiceRegistry {
                 new CachingHasher(
                         new DefaultHasher(),
                         cacheRepository,
-                        gradle));
+                        gradle),
+                get(ExecutorFactory.class),
+                Runtime.getRuntime().availableProcessors());
 
         FileSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(fileSnapshotter, new RandomLongIdGenerator(), cacheRepository, gradle);
 
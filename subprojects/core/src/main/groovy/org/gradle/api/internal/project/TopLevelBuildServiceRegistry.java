@@ -147,17 +147,23 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                                 get(ClassGenerator.class))));
     }
 
+    protected FileCacheBackedScriptClassCompiler createFileCacheBackedScriptClassCompiler() {
+        return new FileCacheBackedScriptClassCompiler(
+                get(CacheRepository.class),
+                new DefaultScriptCompilationHandler(
+                        new AsmBackedEmptyScriptGenerator()));
+    }
+
     protected ScriptCompilerFactory createScriptCompileFactory() {
         ScriptExecutionListener scriptExecutionListener = get(ListenerManager.class).getBroadcaster(ScriptExecutionListener.class);
         EmptyScriptGenerator emptyScriptGenerator = new AsmBackedEmptyScriptGenerator();
         return new DefaultScriptCompilerFactory(
                 new CachingScriptClassCompiler(
-                        new ShortCircuitEmptyScriptCompiler(
-                                new FileCacheBackedScriptClassCompiler(
-                                        get(CacheRepository.class),
-                                        new DefaultScriptCompilationHandler(
-                                                emptyScriptGenerator)),
-                                emptyScriptGenerator)),
+                        new CrossBuildCachingScriptClassCompiler(
+                                get(CrossBuildScriptClassCache.class),
+                                new ShortCircuitEmptyScriptCompiler(
+                                        get(FileCacheBackedScriptClassCompiler.class),
+                                        emptyScriptGenerator))),
                 new DefaultScriptRunnerFactory(scriptExecutionListener));
     }
 
@@ -216,6 +222,11 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
 
     protected BuildConfigurer createBuildConfigurer() {
         return new DefaultBuildConfigurer(
+                new ParallelProjectEvaluator(get(ExecutorFactory.class)),
+                new BuildScriptPrecompiler(
+                        get(FileCacheBackedScriptClassCompiler.class),
+                        get(ImportsReader.class),
+                        get(ExecutorFactory.class)),
                 new ProjectEvaluationConfigurer(),
                 new ProjectDependencies2TaskResolver(),
                 new ImplicitTasksConfigurer());
@@ -26,6 +26,8 @@ import org.gradle.api.internal.Instantiator;
 import org.gradle.api.internal.NamedDomainObjectContainerConfigureDelegate;
 import org.gradle.api.internal.project.ProjectInternal;
 import org.gradle.api.internal.project.taskfactory.ITaskFactory;
+import org.gradle.configuration.BuildConfigurer;
+import org.gradle.configuration.ParallelProjectEvaluator;
 import org.gradle.util.ConfigureUtil;
 import org.gradle.util.GUtil;
 
@@ -41,6 +43,7 @@ public class DefaultTaskContainer extends DefaultTaskCollection<Task> implements
     }
 
     public Task add(Map<String, ?> options) {
+        ParallelProjectEvaluator.assertCanConfigure(project);
         Map<String, Object> mutableOptions = new HashMap<String, Object>(options);
 
         Object replaceStr = mutableOptions.remove(Task.TASK_OVERWRITE);
@@ -109,6 +112,10 @@ public class DefaultTaskContainer extends DefaultTaskCollection<Task> implements
         if (project == null) {
             return null;
         }
+        if (project != this.project && this.project.getGradle().getStartParameter().isConfigureOnDemand()) {
+            // The project may not have been configured yet
+            this.project.getGradle().getServices().get(BuildConfigurer.class).configure((ProjectInternal) project);
+        }
         return project.getTasks().findByName(StringUtils.substringAfterLast(path, Project.PATH_SEPARATOR));
     }
 
@@ -20,7 +20,12 @@ import org.gradle.api.Action;
 import org.gradle.api.internal.Factory;
 import org.gradle.cache.*;
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.internal.btree.BlockStore;
+import org.gradle.cache.internal.btree.FileBackedBlockStore;
+import org.gradle.cache.internal.btree.MappedFileBlockStore;
+import org.gradle.os.OperatingSystem;
 import org.gradle.util.GFileUtils;
+import org.gradle.util.UncheckedException;
 
 import java.io.File;
 import java.util.*;
@@ -28,7 +33,11 @@ import java.util.*;
 import static org.gradle.cache.internal.FileLockManager.LockMode;
 
 public class DefaultCacheFactory implements Factory<CacheFactory> {
+    private static final int MAX_PENDING_INDEXED_CACHE_UPDATES = 1000;
+    // Caches may be opened and closed concurrently, for example when projects are evaluated in parallel
+    private final Object lock = new Object();
     private final Map<File, DirCacheReference> dirCaches = new HashMap<File, DirCacheReference>();
+    private final Set<File> opening = new HashSet<File>();
     private final FileLockManager lockManager;
 
     public DefaultCacheFactory(FileLockManager fileLockManager) {
@@ -42,12 +51,22 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
     void onOpen(Object cache) {
     }
 
+    BlockStore createBlockStore(File cacheFile) {
+        if (OperatingSystem.current().isWindows()) {
+            // Cannot truncate a mapped file on Windows
+            return new FileBackedBlockStore(cacheFile);
+        }
+        return new MappedFileBlockStore(cacheFile);
+    }
+
     void onClose(Object cache) {
     }
 
     public void close() {
-        for (DirCacheReference dirCacheReference : dirCaches.values()) {
-            dirCacheReference.close();
+        synchronized (lock) {
+            for (DirCacheReference dirCacheReference : new ArrayList<DirCacheReference>(dirCaches.values())) {
+                dirCacheReference.close();
+            }
         }
     }
 
@@ -56,27 +75,50 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
 
         private DirCacheReference doOpenDir(File cacheDir, CacheUsage usage, Map<String, ?> properties, FileLockManager.LockMode lockMode, Action<? super PersistentCache> action) {
             File canonicalDir = GFileUtils.canonicalise(cacheDir);
-            DirCacheReference dirCacheReference = dirCaches.get(canonicalDir);
-            if (dirCacheReference == null) {
-                DefaultPersistentDirectoryCache cache = new DefaultPersistentDirectoryCache(canonicalDir, usage, properties, lockMode, action, lockManager);
-                dirCacheReference = new DirCacheReference(cache, properties, lockMode);
-                dirCaches.put(canonicalDir, dirCacheReference);
-            } else {
-                if (usage == CacheUsage.REBUILD && dirCacheReference.rebuiltBy != this) {
-                    throw new IllegalStateException(String.format("Cannot rebuild cache '%s' as it is already open.", cacheDir));
-                }
-                if (lockMode != dirCacheReference.lockMode) {
-                    throw new IllegalStateException(String.format("Cannot open cache '%s' with %s lock mode as it is already open with %s lock mode.", cacheDir, lockMode.toString().toLowerCase(), dirCacheReference.lockMode.toString().toLowerCase()));
+            synchronized (lock) {
+                while (opening.contains(canonicalDir)) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.asUncheckedException(e);
+                    }
                 }
-                if (!properties.equals(dirCacheReference.properties)) {
-                    throw new IllegalStateException(String.format("Cache '%s' is already open with different state.", cacheDir));
+                DirCacheReference dirCacheReference = dirCaches.get(canonicalDir);
+                if (dirCacheReference != null) {
+                    if (usage == CacheUsage.REBUILD && dirCacheReference.rebuiltBy != this) {
+                        throw new IllegalStateException(String.format("Cannot rebuild cache '%s' as it is already open.", cacheDir));
+                    }
+                    if (lockMode != dirCacheReference.lockMode) {
+                        throw new IllegalStateException(String.format("Cannot open cache '%s' with %s lock mode as it is already open with %s lock mode.", cacheDir, lockMode.toString().toLowerCase(), dirCacheReference.lockMode.toString().toLowerCase()));
+                    }
+                    if (!properties.equals(dirCacheReference.properties)) {
+                        throw new IllegalStateException(String.format("Cache '%s' is already open with different state.", cacheDir));
+                    }
+                    dirCacheReference.addReference(this);
+                    return dirCacheReference;
                 }
+                opening.add(canonicalDir);
             }
-            if (usage == CacheUsage.REBUILD) {
-                dirCacheReference.rebuiltBy = this;
+
+            // Open the cache without holding the lock, so that other caches can be opened and initialized concurrently.
+            // Anything else which opens this cache waits until it has been opened
+            try {
+                DefaultPersistentDirectoryCache cache = new DefaultPersistentDirectoryCache(canonicalDir, usage, properties, lockMode, action, lockManager);
+                synchronized (lock) {
+                    DirCacheReference dirCacheReference = new DirCacheReference(cache, properties, lockMode);
+                    dirCaches.put(canonicalDir, dirCacheReference);
+                    if (usage == CacheUsage.REBUILD) {
+                        dirCacheReference.rebuiltBy = this;
+                    }
+                    dirCacheReference.addReference(this);
+                    return dirCacheReference;
+                }
+            } finally {
+                synchronized (lock) {
+                    opening.remove(canonicalDir);
+                    lock.notifyAll();
+                }
             }
-            dirCacheReference.addReference(this);
-            return dirCacheReference;
         }
 
         public PersistentCache openStore(File storeDir, LockMode lockMode, CrossVersionMode crossVersionMode, Action<? super PersistentCache> initializer) throws CacheOpenException {
@@ -95,9 +137,12 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
         }
 
         public <E> PersistentStateCache<E> openStateCache(File cacheDir, CacheUsage usage, Map<String, ?> properties, LockMode lockMode, CrossVersionMode crossVersionMode, Serializer<E> serializer) {
-            StateCacheReference<E> cacheReference = doOpenDir(cacheDir, usage, properties, lockMode, null).getStateCache(serializer);
-            cacheReference.addReference(this);
-            return cacheReference.getCache();
+            DirCacheReference dirCacheReference = doOpenDir(cacheDir, usage, properties, lockMode, null);
+            synchronized (lock) {
+                StateCacheReference<E> cacheReference = dirCacheReference.getStateCache(serializer);
+                cacheReference.addReference(this);
+                return cacheReference.getCache();
+            }
         }
 
         public <K, V> PersistentIndexedCache<K, V> openIndexedCache(File cacheDir, CacheUsage usage, Map<String, ?> properties, LockMode lockMode, CrossVersionMode crossVersionMode, Serializer<V> serializer) {
@@ -107,20 +152,25 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
             if (crossVersionMode == CrossVersionMode.CrossVersion) {
                 throw new UnsupportedOperationException("No indexed cache implementation is available that can be used by multiple Gradle versions.");
             }
-            IndexedCacheReference<K, V> cacheReference = doOpenDir(cacheDir, usage, properties, LockMode.Exclusive, null).getIndexedCache(serializer);
-            cacheReference.addReference(this);
-            return cacheReference.getCache();
+            DirCacheReference dirCacheReference = doOpenDir(cacheDir, usage, properties, LockMode.Exclusive, null);
+            synchronized (lock) {
+                IndexedCacheReference<K, V> cacheReference = dirCacheReference.getIndexedCache(serializer);
+                cacheReference.addReference(this);
+                return cacheReference.getCache();
+            }
         }
 
         public void close() {
-            try {
-                List<BasicCacheReference<?>> caches = new ArrayList<BasicCacheReference<?>>(this.caches);
-                Collections.reverse(caches);
-                for (BasicCacheReference cache : caches) {
-                    cache.release(this);
+            synchronized (lock) {
+                try {
+                    List<BasicCacheReference<?>> caches = new ArrayList<BasicCacheReference<?>>(this.caches);
+                    Collections.reverse(caches);
+                    for (BasicCacheReference cache : caches) {
+                        cache.release(this);
+                    }
+                } finally {
+                    caches.clear();
                 }
-            } finally {
-                caches.clear();
             }
         }
     }
@@ -179,7 +229,8 @@ public class DefaultCacheFactory implements Factory<CacheFactory> {
 
         public <K, V> IndexedCacheReference<K, V> getIndexedCache(Serializer<V> serializer) {
             if (indexedCache == null) {
-                BTreePersistentIndexedCache<K, V> indexedCache = new BTreePersistentIndexedCache<K, V>(new File(getCache().getBaseDir(), "cache.bin"), getCache().getLock(), serializer);
+                File cacheFile = new File(getCache().getBaseDir(), "cache.bin");
+                BTreePersistentIndexedCache<K, V> indexedCache = new BTreePersistentIndexedCache<K, V>(cacheFile, createBlockStore(cacheFile), getCache().getLock(), serializer, MAX_PENDING_INDEXED_CACHE_UPDATES);
                 this.indexedCache = new IndexedCacheReference<K, V>(indexedCache, this);
             }
             return indexedCache;
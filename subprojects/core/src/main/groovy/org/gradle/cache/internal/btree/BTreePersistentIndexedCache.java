@@ -44,6 +44,9 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
     private final StateCheckBlockStore store;
+    private final LockingBlockStore lockingStore;
+    private final int maxPendingUpdates;
+    private int pendingUpdates;
     private HeaderBlock header;
 
     public BTreePersistentIndexedCache(File cacheFile, FileLock fileLock, Serializer<V> serializer) {
@@ -52,11 +55,45 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public BTreePersistentIndexedCache(File cacheFile, FileLock fileLock, Serializer<V> serializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, new FileBackedBlockStore(cacheFile), fileLock, serializer, maxChildIndexEntries, maxFreeListEntries);
+    }
+
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore fileStore, FileLock fileLock, Serializer<V> serializer) {
+        this(cacheFile, fileStore, fileLock, serializer, (short) 512, 512);
+    }
+
+    /**
+     * Creates a cache which stores its blocks in the given file store, and which writes updates to the file store in
+     * batches of up to the given number of updates. The store must use the given cache file.
+     */
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore fileStore, FileLock fileLock, Serializer<V> serializer, int maxPendingUpdates) {
+        this(cacheFile, fileStore, fileLock, serializer, (short) 512, 512, maxPendingUpdates);
+    }
+
+    /**
+     * Creates a cache which stores its blocks in the given file store. The store must use the given cache file.
+     */
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore fileStore, FileLock fileLock, Serializer<V> serializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries) {
+        this(cacheFile, fileStore, fileLock, serializer, maxChildIndexEntries, maxFreeListEntries, 1);
+    }
+
+    /**
+     * Creates a cache which stores its blocks in the given file store. The store must use the given cache file.
+     *
+     * <p>Updates are kept in memory until the given number of updates have been made, or until {@link #flush()} or
+     * {@link #close()} is called. The pending updates are then written to the file store while holding the file lock
+     * once.</p>
+     */
+    public BTreePersistentIndexedCache(File cacheFile, BlockStore fileStore, FileLock fileLock, Serializer<V> serializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries, int maxPendingUpdates) {
         this.cacheFile = cacheFile;
         this.serializer = serializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
-        BlockStore cachingStore = new CachingBlockStore(new LockingBlockStore(new FileBackedBlockStore(cacheFile), fileLock), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        this.maxPendingUpdates = maxPendingUpdates;
+        lockingStore = new LockingBlockStore(fileStore, fileLock);
+        BlockStore cachingStore = new CachingBlockStore(lockingStore, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
 //        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
         store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
         try {
@@ -142,7 +179,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
                 store.write(block);
                 lookup.indexBlock.put(hashCode, block.getPos());
             }
-            store.flush();
+            updated();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
         }
@@ -157,12 +194,31 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
             lookup.indexBlock.remove(lookup.entry);
             DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
             store.remove(block);
-            store.flush();
+            updated();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not remove entry '%s' from %s.", key, this), e);
         }
     }
 
+    private void updated() {
+        pendingUpdates++;
+        if (pendingUpdates >= maxPendingUpdates) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes any pending updates to the file store.
+     */
+    public void flush() {
+        lockingStore.update(new Runnable() {
+            public void run() {
+                store.flush();
+            }
+        });
+        pendingUpdates = 0;
+    }
+
     private IndexBlock load(BlockPointer pos, IndexRoot root, IndexBlock parent, int index) {
         IndexBlock block = store.read(pos, IndexBlock.class);
         block.root = root;
@@ -182,6 +238,9 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
 
     public void close() {
         try {
+            if (pendingUpdates > 0 && store.isOpen()) {
+                flush();
+            }
             store.close();
         } catch (Exception e) {
             throw new UncheckedIOException(e);
@@ -195,6 +254,7 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     private void rebuild() throws Exception {
         LOGGER.warn(String.format("%s is corrupt. Discarding.", this));
         store.clear();
+        pendingUpdates = 0;
         close();
         doOpen();
     }
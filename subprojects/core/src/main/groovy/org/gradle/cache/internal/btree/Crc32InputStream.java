@@ -0,0 +1,57 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+class Crc32InputStream extends FilterInputStream {
+    final CRC32 checksum;
+
+    Crc32InputStream(InputStream inputStream) {
+        super(inputStream);
+        checksum = new CRC32();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0) {
+            checksum.update(b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes) throws IOException {
+        int count = in.read(bytes);
+        if (count > 0) {
+            checksum.update(bytes, 0, count);
+        }
+        return count;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int max) throws IOException {
+        int count = in.read(bytes, offset, max);
+        if (count > 0) {
+            checksum.update(bytes, offset, count);
+        }
+        return count;
+    }
+}
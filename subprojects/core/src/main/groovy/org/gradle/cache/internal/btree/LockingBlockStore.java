@@ -19,9 +19,14 @@ import org.gradle.cache.internal.FileLock;
 
 import java.util.concurrent.Callable;
 
+/**
+ * A {@link BlockStore} which holds the file lock for update while modifying the backing store. Modifications made
+ * by an action passed to {@link #update(Runnable)} are all made while holding the lock once.
+ */
 public class LockingBlockStore implements BlockStore {
     private final BlockStore store;
     private final FileLock fileLock;
+    private boolean updating;
 
     public LockingBlockStore(BlockStore store, FileLock fileLock) {
         this.store = store;
@@ -31,17 +36,33 @@ public class LockingBlockStore implements BlockStore {
     public void open(final Runnable initAction, final BlockStore.Factory factory) {
         store.open(new Runnable() {
             public void run() {
-                fileLock.writeToFile(initAction);
+                update(initAction);
             }
         }, factory);
     }
 
+    /**
+     * Runs the given action while holding the file lock for update.
+     */
+    public void update(Runnable action) {
+        if (updating) {
+            action.run();
+            return;
+        }
+        updating = true;
+        try {
+            fileLock.writeToFile(action);
+        } finally {
+            updating = false;
+        }
+    }
+
     public void close() {
         store.close();
     }
 
     public void flush() {
-        fileLock.writeToFile(new Runnable() {
+        update(new Runnable() {
             public void run() {
                 store.flush();
             }
@@ -49,7 +70,7 @@ public class LockingBlockStore implements BlockStore {
     }
 
     public void clear() {
-        fileLock.writeToFile(new Runnable() {
+        update(new Runnable() {
             public void run() {
                 store.clear();
             }
@@ -77,7 +98,7 @@ public class LockingBlockStore implements BlockStore {
     }
 
     public void write(final BlockPayload block) {
-        fileLock.writeToFile(new Runnable() {
+        update(new Runnable() {
             public void run() {
                 store.write(block);
             }
@@ -85,7 +106,7 @@ public class LockingBlockStore implements BlockStore {
     }
 
     public void remove(final BlockPayload block) {
-        fileLock.writeToFile(new Runnable() {
+        update(new Runnable() {
             public void run() {
                 store.remove(block);
             }
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link BlockStore} which reads blocks from a memory mapped view of the cache file, and writes blocks using
+ * positional writes to the file's channel. Uses the same file format as {@link FileBackedBlockStore}.
+ *
+ * <p>Any number of threads can read blocks concurrently. Writes, allocation and clearing are exclusive. The file is
+ * mapped in segments of at most {@link #DEFAULT_SEGMENT_SIZE} bytes, so that files larger than 2GB can be mapped. The
+ * mapped region is extended once the file has doubled in size since it was last mapped, and only the segments which
+ * have changed are mapped again. Blocks which are beyond the mapped region, or which span two segments, are read using
+ * the file's channel instead.</p>
+ *
+ * <p>This relies on the platform keeping the mapping and channel writes coherent, which is not the case on Windows,
+ * where a mapped file also cannot be truncated.</p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+    private final File cacheFile;
+    private final int segmentSize;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private long mappedLength;
+    private long length;
+    private long nextBlock;
+    private Factory factory;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_SEGMENT_SIZE);
+    }
+
+    MappedFileBlockStore(File cacheFile, int segmentSize) {
+        this.cacheFile = cacheFile;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cache '%s'", cacheFile);
+    }
+
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        lock.writeLock().lock();
+        try {
+            file = new RandomAccessFile(cacheFile, "rw");
+            channel = file.getChannel();
+            length = file.length();
+            nextBlock = length;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (nextBlock == 0) {
+            runnable.run();
+        }
+    }
+
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            discardMapping();
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            discardMapping();
+            file.setLength(0);
+            length = 0;
+            nextBlock = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    public void flush() {
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(new BlockPointer(0), payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long size) {
+        lock.writeLock().lock();
+        try {
+            long pos = nextBlock;
+            nextBlock += size;
+            return pos;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void discardMapping() {
+        segments.clear();
+        mappedLength = 0;
+    }
+
+    /**
+     * Extends the mapped region to cover the whole file, once the part of the file which is not mapped is at least as
+     * large as the mapped region. Must be called while holding the read lock, which may be released and reacquired
+     * while the file is mapped.
+     */
+    private void maybeExtendMapping() throws IOException {
+        if (!shouldExtendMapping()) {
+            return;
+        }
+        lock.readLock().unlock();
+        lock.writeLock().lock();
+        try {
+            if (shouldExtendMapping()) {
+                extendMapping();
+            }
+        } finally {
+            // Downgrade to the read lock, which the caller releases, even when the file could not be mapped
+            lock.readLock().lock();
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean shouldExtendMapping() {
+        return length > mappedLength && length - mappedLength >= mappedLength;
+    }
+
+    private void extendMapping() throws IOException {
+        // Full segments do not change, so only the last segment needs to be mapped again
+        if (!segments.isEmpty() && segments.get(segments.size() - 1).capacity() < segmentSize) {
+            segments.remove(segments.size() - 1);
+        }
+        long start = (long) segments.size() * segmentSize;
+        while (start < length) {
+            long size = Math.min(segmentSize, length - start);
+            segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start, size));
+            start += size;
+        }
+        mappedLength = length;
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 2 + INT_SIZE;
+        private static final int TAIL_SIZE = LONG_SIZE;
+        private static final int READ_AHEAD_SIZE = 4096;
+        static final int BLOCK_MARKER = 0xCC;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = new BlockPointer(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + TAIL_SIZE + payloadSize);
+            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(bytes);
+            DataOutputStream outputStream = new DataOutputStream(checkSumOutputStream);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(BLOCK_MARKER);
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write checksum
+            outputStream.writeLong(checkSumOutputStream.checksum.getValue());
+            outputStream.close();
+
+            lock.writeLock().lock();
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+                long writePos = pos;
+                while (buffer.hasRemaining()) {
+                    writePos += channel.write(buffer, writePos);
+                }
+
+                // Pad
+                if (length < finalSize) {
+                    file.setLength(finalSize);
+                    length = finalSize;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        public void read() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            lock.readLock().lock();
+            try {
+                if (pos + HEADER_SIZE >= length) {
+                    throw blockCorruptedException();
+                }
+                ByteBuffer buffer = readBlock(pos);
+
+                Crc32InputStream checkSumInputStream = new Crc32InputStream(new ByteBufferInputStream(buffer));
+                DataInputStream inputStream = new DataInputStream(checkSumInputStream);
+
+                BlockPayload payload = getPayload();
+
+                // Read header
+                byte type = inputStream.readByte();
+                if (type != (byte) BLOCK_MARKER) {
+                    throw blockCorruptedException();
+                }
+                type = inputStream.readByte();
+                if (type != (byte) payload.getType()) {
+                    throw blockCorruptedException();
+                }
+
+                // Read body
+                payloadSize = inputStream.readInt();
+                if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > length) {
+                    throw blockCorruptedException();
+                }
+                payload.read(inputStream);
+
+                // Read and verify checksum
+                long actualChecksum = checkSumInputStream.checksum.getValue();
+                long checksum = inputStream.readLong();
+                if (actualChecksum != checksum) {
+                    throw blockCorruptedException();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Returns a buffer which contains the block at the given position, positioned at the start of the block. Uses
+         * a view of the mapped segment which contains the block, if any. Must be called while holding the read lock.
+         */
+        private ByteBuffer readBlock(long pos) throws IOException {
+            maybeExtendMapping();
+            if (pos + HEADER_SIZE <= mappedLength) {
+                MappedByteBuffer segment = segments.get((int) (pos / segmentSize));
+                int offset = (int) (pos % segmentSize);
+                if (offset + HEADER_SIZE <= segment.capacity()) {
+                    int blockSize = getBlockSize(pos, segment.getInt(offset + 2));
+                    if (offset + (long) blockSize <= segment.capacity()) {
+                        ByteBuffer buffer = segment.duplicate();
+                        buffer.position(offset);
+                        buffer.limit(offset + blockSize);
+                        return buffer;
+                    }
+                }
+            }
+
+            // Read ahead, so that most blocks are read from the channel at once
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(READ_AHEAD_SIZE, length - pos));
+            readFully(buffer, pos);
+            int blockSize = getBlockSize(pos, buffer.getInt(2));
+            if (blockSize > buffer.capacity()) {
+                ByteBuffer blockBuffer = ByteBuffer.allocate(blockSize);
+                buffer.flip();
+                blockBuffer.put(buffer);
+                readFully(blockBuffer, pos);
+                buffer = blockBuffer;
+            }
+            buffer.position(0);
+            buffer.limit(blockSize);
+            return buffer;
+        }
+
+        private int getBlockSize(long pos, int payloadSize) {
+            long blockSize = (long) HEADER_SIZE + payloadSize + TAIL_SIZE;
+            if (payloadSize < 0 || pos + blockSize > length) {
+                throw blockCorruptedException();
+            }
+            return (int) blockSize;
+        }
+
+        private void readFully(ByteBuffer buffer, long pos) throws IOException {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, pos + buffer.position()) < 0) {
+                    throw blockCorruptedException();
+                }
+            }
+        }
+
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -16,7 +16,14 @@
 package org.gradle.configuration;
 
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.project.ProjectInternal;
 
 public interface BuildConfigurer {
     void configure(GradleInternal gradleInternal);
+
+    /**
+     * Makes sure the given project has been configured. When the build is configured on demand, configures the project
+     * if this has not been done already. Otherwise, does nothing, as all projects have already been configured.
+     */
+    void configure(ProjectInternal project);
 }
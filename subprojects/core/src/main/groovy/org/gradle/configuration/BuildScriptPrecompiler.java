@@ -0,0 +1,148 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration;
+
+import org.gradle.api.Project;
+import org.gradle.api.internal.artifacts.dsl.BuildScriptClasspathScriptTransformer;
+import org.gradle.api.internal.artifacts.dsl.BuildScriptTransformer;
+import org.gradle.api.internal.initialization.ScriptClassLoaderProvider;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.project.ProjectScript;
+import org.gradle.groovy.scripts.CachingScriptSource;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Compiles the build scripts of a set of projects to the script cache concurrently, before the projects are evaluated.
+ *
+ * <p>Each script is compiled against the script ClassLoader of its project at the time of precompilation. The build
+ * script classpath of a project is added to this ClassLoader when the project is evaluated, and is visible to the
+ * scripts of its subprojects. So a project whose own script has a {@code buildscript} block has only that block
+ * precompiled, and a project with an ancestor whose script has a {@code buildscript} block is not precompiled at all,
+ * as the script would be compiled again against the new classpath when it is evaluated. Compilation failures are
+ * ignored here, and are reported when the project is evaluated.</p>
+ */
+public class BuildScriptPrecompiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildScriptPrecompiler.class);
+    private static final String CLASSPATH_CLOSURE_NAME = "buildscript";
+    private final FileCacheBackedScriptClassCompiler scriptClassCompiler;
+    private final ImportsReader importsReader;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
+
+    public BuildScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptClassCompiler, ImportsReader importsReader, ExecutorFactory executorFactory) {
+        this(scriptClassCompiler, importsReader, executorFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BuildScriptPrecompiler(FileCacheBackedScriptClassCompiler scriptClassCompiler, ImportsReader importsReader, ExecutorFactory executorFactory, int maxThreads) {
+        this.scriptClassCompiler = scriptClassCompiler;
+        this.importsReader = importsReader;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Compiles the build scripts of the given project and its subprojects. Blocks until all scripts have been
+     * compiled.
+     */
+    public void precompile(ProjectInternal rootProject) {
+        final LinkedList<Compilation> queue = new LinkedList<Compilation>();
+        Map<Project, ScriptSource> sources = new HashMap<Project, ScriptSource>();
+        for (Project project : rootProject.getAllprojects()) {
+            sources.put(project, new CachingScriptSource(((ProjectInternal) project).getBuildScriptSource()));
+        }
+        for (Project project : rootProject.getAllprojects()) {
+            ScriptSource source = sources.get(project);
+            String text = source.getResource().getText();
+            if (text.matches("\\s*") || ancestorChangesClasspath(project, sources)) {
+                continue;
+            }
+            ClassLoader classLoader = ((ProjectInternal) project).getServices().get(ScriptClassLoaderProvider.class).getClassLoader();
+            queue.add(new Compilation(new CachingScriptSource(importsReader.withImports(source)), classLoader, !changesClasspath(text)));
+        }
+
+        Runnable worker = new Runnable() {
+            public void run() {
+                while (true) {
+                    Compilation compilation;
+                    synchronized (queue) {
+                        if (queue.isEmpty()) {
+                            return;
+                        }
+                        compilation = queue.removeFirst();
+                    }
+                    compilation.run();
+                }
+            }
+        };
+
+        StoppableExecutor executor = executorFactory.create("Build script compilation");
+        try {
+            for (int i = 0; i < Math.min(maxThreads, queue.size()); i++) {
+                executor.execute(worker);
+            }
+        } finally {
+            executor.stop();
+        }
+    }
+
+    private boolean ancestorChangesClasspath(Project project, Map<Project, ScriptSource> sources) {
+        for (Project ancestor = project.getParent(); ancestor != null; ancestor = ancestor.getParent()) {
+            if (changesClasspath(sources.get(ancestor).getResource().getText())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean changesClasspath(String scriptText) {
+        // Errs on the side of not precompiling, as the name may also appear in a comment or string
+        return scriptText.contains(CLASSPATH_CLOSURE_NAME);
+    }
+
+    private class Compilation implements Runnable {
+        private final ScriptSource source;
+        private final ClassLoader classLoader;
+        private final boolean compileScriptBody;
+
+        private Compilation(ScriptSource source, ClassLoader classLoader, boolean compileScriptBody) {
+            this.source = source;
+            this.classLoader = classLoader;
+            this.compileScriptBody = compileScriptBody;
+        }
+
+        public void run() {
+            try {
+                // Compile the same way the script is compiled when the project is evaluated
+                BuildScriptClasspathScriptTransformer classpathScriptTransformer = new BuildScriptClasspathScriptTransformer(CLASSPATH_CLOSURE_NAME);
+                scriptClassCompiler.precompile(source, classLoader, classpathScriptTransformer, ProjectScript.class);
+                if (compileScriptBody) {
+                    scriptClassCompiler.precompile(source, classLoader, new BuildScriptTransformer(classpathScriptTransformer), ProjectScript.class);
+                }
+            } catch (Throwable t) {
+                LOGGER.debug(String.format("Could not precompile %s.", source.getDisplayName()), t);
+            }
+        }
+    }
+}
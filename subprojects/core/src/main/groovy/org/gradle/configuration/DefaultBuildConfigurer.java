@@ -17,27 +17,100 @@ package org.gradle.configuration;
 
 import org.gradle.api.Action;
 import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.ProjectDependency;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.project.ProjectInternal;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+/**
+ * Configures the projects of a build by executing a set of actions against each project.
+ *
+ * <p>By default, all projects are configured. When the build is configured on demand, only the root project and the
+ * default project are configured up front. Other projects are configured when they are required, either because tasks
+ * are selected from them, or because they are required by a project which is configured. A project is also configured
+ * when another project which is not its ancestor looks it up using {@link Project#project(String)}. Projects which are
+ * reached in other ways, for example through {@link Project#getRootProject()} followed by {@link
+ * Project#getChildProjects()}, or using {@link Project#findProject(String)}, are not configured on demand, and must be
+ * required using {@link Project#evaluationDependsOn(String)}.</p>
+ *
+ * <p>When all projects are configured, their build scripts are first compiled concurrently using a {@link
+ * BuildScriptPrecompiler}. When projects are evaluated in parallel, all projects are evaluated up front using a {@link
+ * ParallelProjectEvaluator}. The remaining actions are then executed one project at a time.</p>
+ */
 public class DefaultBuildConfigurer implements BuildConfigurer {
     private List<Action<? super ProjectInternal>> actions;
+    private final ParallelProjectEvaluator parallelEvaluator;
+    private final BuildScriptPrecompiler precompiler;
+    private final Set<ProjectInternal> configured = new HashSet<ProjectInternal>();
+    private boolean configureOnDemand;
 
-    public DefaultBuildConfigurer(Action<? super ProjectInternal>... actions) {
+    public DefaultBuildConfigurer(ParallelProjectEvaluator parallelEvaluator, BuildScriptPrecompiler precompiler, Action<? super ProjectInternal>... actions) {
+        this.parallelEvaluator = parallelEvaluator;
+        this.precompiler = precompiler;
         this.actions = new ArrayList<Action<? super ProjectInternal>>(Arrays.asList(actions));
     }
 
     public void configure(GradleInternal gradle) {
+        if (gradle.getStartParameter().isConfigureOnDemand()) {
+            configureOnDemand = true;
+            configureProject(gradle.getRootProject());
+            configureProject(gradle.getDefaultProject());
+            return;
+        }
+
+        if (!gradle.getRootProject().getChildProjects().isEmpty()) {
+            precompiler.precompile(gradle.getRootProject());
+        }
+
+        if (gradle.getStartParameter().isParallelProjectEvaluation()) {
+            parallelEvaluator.evaluate(gradle.getRootProject());
+        }
+
         gradle.getRootProject().allprojects(new Action<Project>() {
             public void execute(Project project) {
-                for (Action<? super ProjectInternal> action : actions) {
-                    action.execute((ProjectInternal) project);
-                }
+                configureProject((ProjectInternal) project);
             }
         });
     }
+
+    public void configure(ProjectInternal project) {
+        if (configureOnDemand) {
+            configureProject(project);
+        }
+    }
+
+    private void configureProject(ProjectInternal project) {
+        if (!configured.add(project)) {
+            return;
+        }
+
+        if (configureOnDemand) {
+            // The parent project may configure its children
+            if (project.getParent() != null) {
+                configureProject(project.getParent());
+            }
+
+            // Evaluate the project to find out which other projects it requires, and configure those before the
+            // remaining actions are executed, as these refer to the tasks of the required projects
+            project.evaluate();
+            for (Project dependsOnProject : project.getDependsOnProjects()) {
+                configureProject((ProjectInternal) dependsOnProject);
+            }
+            for (Configuration configuration : project.getConfigurations()) {
+                for (ProjectDependency dependency : configuration.getDependencies().withType(ProjectDependency.class)) {
+                    configureProject((ProjectInternal) dependency.getDependencyProject());
+                }
+            }
+        }
+
+        for (Action<? super ProjectInternal> action : actions) {
+            action.execute(project);
+        }
+    }
 }
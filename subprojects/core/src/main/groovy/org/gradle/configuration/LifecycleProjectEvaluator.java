@@ -36,15 +36,21 @@ public class LifecycleProjectEvaluator implements ProjectEvaluator {
             return;
         }
 
+        // The listeners include the listeners of the build, which are not thread-safe. Notify them one project at a
+        // time, in case projects are evaluated in parallel
         ProjectEvaluationListener listener = project.getProjectEvaluationBroadcaster();
-        listener.beforeEvaluate(project);
+        synchronized (this) {
+            listener.beforeEvaluate(project);
+        }
         state.setExecuting(true);
         try {
             evaluator.evaluate(project, state);
         } finally {
             state.setExecuting(false);
             state.executed();
-            listener.afterEvaluate(project, state);
+            synchronized (this) {
+                listener.afterEvaluate(project, state);
+            }
         }
     }
 }
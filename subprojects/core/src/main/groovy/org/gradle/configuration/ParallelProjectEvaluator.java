@@ -0,0 +1,184 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.Project;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.gradle.util.UncheckedException;
+
+import java.util.LinkedList;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Evaluates the projects of a build concurrently. A project is evaluated once its parent has been evaluated, so that
+ * the {@code allprojects} and {@code subprojects} blocks of the parent have been applied to it.
+ *
+ * <p>While a project is evaluated, it may only configure itself and its subprojects, as other projects may be evaluated
+ * at the same time. The project can only depend on the evaluation of its parents and its subprojects. Other changes
+ * fail with an exception when they go through the {@link Project} or its task container, see {@link
+ * #assertCanConfigure(Project)}. Changes made through other objects of another project, such as its configurations or
+ * dependency handler, are not detected.</p>
+ */
+public class ParallelProjectEvaluator {
+    private static final ThreadLocal<ProjectInternal> EVALUATING = new ThreadLocal<ProjectInternal>();
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
+
+    public ParallelProjectEvaluator(ExecutorFactory executorFactory) {
+        this(executorFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelProjectEvaluator(ExecutorFactory executorFactory, int maxThreads) {
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Evaluates the given project and all of its subprojects. Blocks until all projects have been evaluated, and
+     * rethrows the first evaluation failure.
+     */
+    public void evaluate(ProjectInternal rootProject) {
+        Evaluation evaluation = new Evaluation(rootProject);
+        StoppableExecutor executor = executorFactory.create("Project evaluation");
+        try {
+            for (int i = 0; i < maxThreads; i++) {
+                executor.execute(evaluation);
+            }
+        } finally {
+            executor.stop();
+        }
+        evaluation.rethrowFailure();
+    }
+
+    /**
+     * Fails when the project being evaluated by the current thread cannot change the given project.
+     */
+    public static void assertCanConfigure(Project project) {
+        ProjectInternal evaluating = EVALUATING.get();
+        if (evaluating == null || isSubprojectOrSelf(project, evaluating)) {
+            return;
+        }
+        throw new GradleException(String.format(
+                "Cannot change %s while evaluating %s, as projects are evaluated in parallel. A project can only change itself and its subprojects.",
+                project, evaluating));
+    }
+
+    /**
+     * Fails when the project being evaluated by the current thread cannot depend on the evaluation of the given project.
+     */
+    public static void assertCanEvaluate(Project project) {
+        ProjectInternal evaluating = EVALUATING.get();
+        if (evaluating == null || isSubprojectOrSelf(project, evaluating) || isSubprojectOrSelf(evaluating, project)) {
+            return;
+        }
+        throw new GradleException(String.format(
+                "Cannot evaluate %s while evaluating %s, as projects are evaluated in parallel. A project can only depend on the evaluation of its parents and its subprojects.",
+                project, evaluating));
+    }
+
+    private static boolean isSubprojectOrSelf(Project project, Project parent) {
+        for (Project current = project; current != null; current = current.getParent()) {
+            if (current == parent) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Evaluation implements Runnable {
+        private final Lock lock = new ReentrantLock();
+        private final Condition condition = lock.newCondition();
+        private final LinkedList<ProjectInternal> queue = new LinkedList<ProjectInternal>();
+        private int evaluating;
+        private Throwable failure;
+
+        private Evaluation(ProjectInternal rootProject) {
+            queue.add(rootProject);
+        }
+
+        public void run() {
+            ProjectInternal project;
+            while ((project = next()) != null) {
+                Throwable failure = null;
+                EVALUATING.set(project);
+                try {
+                    project.evaluate();
+                } catch (Throwable t) {
+                    failure = t;
+                } finally {
+                    EVALUATING.remove();
+                }
+                finished(project, failure);
+            }
+        }
+
+        /**
+         * Returns the next project to evaluate, waiting for one to become available. Returns null when there are no
+         * more projects to evaluate.
+         */
+        private ProjectInternal next() {
+            lock.lock();
+            try {
+                while (queue.isEmpty()) {
+                    if (evaluating == 0) {
+                        return null;
+                    }
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.asUncheckedException(e);
+                    }
+                }
+                evaluating++;
+                return queue.removeFirst();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void finished(ProjectInternal project, Throwable projectFailure) {
+            lock.lock();
+            try {
+                evaluating--;
+                if (projectFailure != null) {
+                    // Stop evaluating as soon as possible
+                    if (failure == null) {
+                        failure = projectFailure;
+                    }
+                    queue.clear();
+                } else if (failure == null) {
+                    for (Project child : project.getChildProjects().values()) {
+                        queue.add((ProjectInternal) child);
+                    }
+                }
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void rethrowFailure() {
+            if (failure != null) {
+                throw UncheckedException.asUncheckedException(failure);
+            }
+        }
+    }
+}
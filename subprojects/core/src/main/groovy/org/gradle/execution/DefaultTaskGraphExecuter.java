@@ -27,11 +27,17 @@ import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 import org.gradle.util.Clock;
+import org.gradle.util.UncheckedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * @author Hans Dockter
@@ -42,6 +48,9 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final Map<Task, TaskInfo> executionPlan = new LinkedHashMap<Task, TaskInfo>();
+    private final ExecutorFactory executorFactory;
+    private final int parallelThreads;
+    private int batchCount;
     private boolean populated;
     private Spec<? super Task> filter = Specs.satisfyAll();
     private TaskFailureHandler failureHandler = new TaskFailureHandler() {
@@ -51,8 +60,18 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     };
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager) {
+        this(listenerManager, null, 0);
+    }
+
+    /**
+     * Creates an executer which runs independent tasks concurrently, using at most the given number of threads.
+     * Executes tasks serially when parallelThreads is less than 2.
+     */
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, ExecutorFactory executorFactory, int parallelThreads) {
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
+        this.executorFactory = executorFactory;
+        this.parallelThreads = parallelThreads;
     }
 
     public void useFilter(Spec<? super Task> filter) {
@@ -69,6 +88,7 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
             sortedTasks.add(task);
         }
         fillDag(sortedTasks);
+        batchCount++;
         populated = true;
 
         logger.debug("Timing: Creating the DAG took " + clock.getTime());
@@ -80,7 +100,11 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         graphListeners.getSource().graphPopulated(this);
 
         try {
-            doExecute(executionPlan.values());
+            if (executorFactory != null && parallelThreads > 1) {
+                new ParallelPlanExecution(executionPlan.values()).run();
+            } else {
+                doExecute(executionPlan.values());
+            }
             logger.debug("Timing: Executing the DAG took " + clock.getTime());
         } finally {
             executionPlan.clear();
@@ -135,7 +159,7 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
                     }
                     // else - the dependency has been filtered, so ignore it
                 }
-                executionPlan.put(task, new TaskInfo((TaskInternal) task, dependencies));
+                executionPlan.put(task, new TaskInfo((TaskInternal) task, dependencies, batchCount));
             }
         }
     }
@@ -200,6 +224,145 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         }
     }
 
+    /**
+     * Executes a plan using a bounded pool of worker threads. A task is handed to a worker once all of its
+     * dependencies have completed and all tasks from earlier batches have completed. Listener and failure handler
+     * notifications are serialized, so they never observe concurrent calls. Once the failure handler throws an
+     * exception, no further tasks are started and the exception is rethrown once the running tasks have completed.
+     */
+    private class ParallelPlanExecution implements Runnable {
+        private final Lock lock = new ReentrantLock();
+        private final Condition stateChanged = lock.newCondition();
+        private final Object notificationLock = new Object();
+        private final LinkedList<TaskInfo> pending;
+        private final LinkedList<TaskInfo> incomplete;
+        private Throwable failure;
+
+        private ParallelPlanExecution(Collection<TaskInfo> tasks) {
+            pending = new LinkedList<TaskInfo>(tasks);
+            incomplete = new LinkedList<TaskInfo>(tasks);
+        }
+
+        public void run() {
+            int workerCount = Math.min(parallelThreads, pending.size());
+            StoppableExecutor executor = executorFactory.create("Task worker");
+            try {
+                for (int i = 0; i < workerCount; i++) {
+                    executor.execute(new Runnable() {
+                        public void run() {
+                            executeWorker();
+                        }
+                    });
+                }
+            } finally {
+                executor.stop();
+            }
+            if (failure != null) {
+                throw UncheckedException.asUncheckedException(failure);
+            }
+        }
+
+        private void executeWorker() {
+            TaskInfo taskInfo;
+            while ((taskInfo = takeNextReadyTask()) != null) {
+                try {
+                    executeReadyTask(taskInfo);
+                } catch (Throwable t) {
+                    abort(t);
+                } finally {
+                    complete(taskInfo);
+                }
+            }
+        }
+
+        private TaskInfo takeNextReadyTask() {
+            lock.lock();
+            try {
+                while (true) {
+                    if (failure != null || pending.isEmpty()) {
+                        return null;
+                    }
+                    int currentBatch = incomplete.getFirst().batch;
+                    Iterator<TaskInfo> iterator = pending.iterator();
+                    while (iterator.hasNext()) {
+                        TaskInfo taskInfo = iterator.next();
+                        if (taskInfo.batch != currentBatch) {
+                            break;
+                        }
+                        if (allDependenciesComplete(taskInfo)) {
+                            iterator.remove();
+                            return taskInfo;
+                        }
+                    }
+                    stateChanged.await();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.asUncheckedException(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean allDependenciesComplete(TaskInfo taskInfo) {
+            for (TaskInfo dependency : taskInfo.dependencies) {
+                if (!dependency.complete) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void executeReadyTask(TaskInfo taskInfo) {
+            TaskInternal task = taskInfo.task;
+            for (TaskInfo dependency : taskInfo.dependencies) {
+                if (!dependency.executed) {
+                    // Cannot execute this task, as some dependencies have not been executed
+                    return;
+                }
+            }
+
+            synchronized (notificationLock) {
+                taskListeners.getSource().beforeExecute(task);
+            }
+            try {
+                task.executeWithoutThrowingTaskFailure();
+                if (task.getState().getFailure() != null) {
+                    synchronized (notificationLock) {
+                        failureHandler.onTaskFailure(task);
+                    }
+                } else {
+                    taskInfo.executed = true;
+                }
+            } finally {
+                synchronized (notificationLock) {
+                    taskListeners.getSource().afterExecute(task, task.getState());
+                }
+            }
+        }
+
+        private void abort(Throwable t) {
+            lock.lock();
+            try {
+                if (failure == null) {
+                    failure = t;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void complete(TaskInfo taskInfo) {
+            lock.lock();
+            try {
+                taskInfo.complete = true;
+                incomplete.remove(taskInfo);
+                stateChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
     public boolean hasTask(Task task) {
         assertPopulated();
         return executionPlan.containsKey(task);
@@ -231,11 +394,14 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private static class TaskInfo {
         private final TaskInternal task;
         private final Set<TaskInfo> dependencies;
-        private boolean executed;
+        private final int batch;
+        private volatile boolean executed;
+        private boolean complete;
 
-        private TaskInfo(TaskInternal task, Set<TaskInfo> dependencies) {
+        private TaskInfo(TaskInternal task, Set<TaskInfo> dependencies, int batch) {
             this.task = task;
             this.dependencies = dependencies;
+            this.batch = batch;
         }
     }
 }
@@ -21,6 +21,7 @@ import org.gradle.api.Project;
 import org.gradle.api.Task;
 import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.configuration.BuildConfigurer;
 import org.gradle.util.NameMatcher;
 
 import java.util.Map;
@@ -53,11 +54,13 @@ public class TaskSelector {
             baseName = StringUtils.substringAfterLast(path, Project.PATH_SEPARATOR);
             prefix = project.getPath() + Project.PATH_SEPARATOR;
 
+            configureOnDemand(gradle, project, false);
             tasksByName = taskNameResolver.select(baseName, project);
         } else {
             baseName = path;
             prefix = "";
 
+            configureOnDemand(gradle, project, true);
             tasksByName = taskNameResolver.selectAll(path, project);
         }
 
@@ -90,6 +93,19 @@ public class TaskSelector {
         return tasks;
     }
 
+    private static void configureOnDemand(GradleInternal gradle, ProjectInternal project, boolean includeSubprojects) {
+        if (!gradle.getStartParameter().isConfigureOnDemand()) {
+            return;
+        }
+        BuildConfigurer configurer = gradle.getServices().get(BuildConfigurer.class);
+        configurer.configure(project);
+        if (includeSubprojects) {
+            for (Project subproject : project.getSubprojects()) {
+                configurer.configure((ProjectInternal) subproject);
+            }
+        }
+    }
+
     private static ProjectInternal findProject(ProjectInternal startFrom, String path) {
         if (path.equals(Project.PATH_SEPARATOR)) {
             return startFrom.getRootProject();
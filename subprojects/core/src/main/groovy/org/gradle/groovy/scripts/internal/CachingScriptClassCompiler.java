@@ -31,10 +31,21 @@ public class CachingScriptClassCompiler implements ScriptClassCompiler {
 
     public <T extends Script> Class<? extends T> compile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<T> scriptBaseClass) {
         List<Object> key = Arrays.asList(source.getClassName(), classLoader, transformer.getId(), scriptBaseClass.getName());
-        Class<?> c = cachedClasses.get(key);
+        Class<?> c;
+        synchronized (cachedClasses) {
+            c = cachedClasses.get(key);
+        }
         if (c == null) {
+            // Don't hold the lock while compiling, so that scripts can be compiled concurrently
             c = scriptClassCompiler.compile(source, classLoader, transformer, scriptBaseClass);
-            cachedClasses.put(key, c);
+            synchronized (cachedClasses) {
+                Class<?> existing = cachedClasses.get(key);
+                if (existing != null) {
+                    c = existing;
+                } else {
+                    cachedClasses.put(key, c);
+                }
+            }
         }
         return c.asSubclass(scriptBaseClass);
     }
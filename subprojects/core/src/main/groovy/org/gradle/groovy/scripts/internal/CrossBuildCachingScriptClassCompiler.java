@@ -0,0 +1,53 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.groovy.scripts.internal;
+
+import groovy.lang.Script;
+import org.gradle.groovy.scripts.ScriptSource;
+import org.gradle.groovy.scripts.Transformer;
+import org.gradle.util.HashUtil;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link ScriptClassCompiler} which reuses the script classes loaded by earlier builds, using a {@link
+ * CrossBuildScriptClassCache}. A class is reused when the script is in the same file and has the same content.
+ */
+public class CrossBuildCachingScriptClassCompiler implements ScriptClassCompiler {
+    private final CrossBuildScriptClassCache cache;
+    private final ScriptClassCompiler scriptClassCompiler;
+
+    public CrossBuildCachingScriptClassCompiler(CrossBuildScriptClassCache cache, ScriptClassCompiler scriptClassCompiler) {
+        this.cache = cache;
+        this.scriptClassCompiler = scriptClassCompiler;
+    }
+
+    public <T extends Script> Class<? extends T> compile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<T> scriptBaseClass) {
+        if (!cache.canCache(classLoader)) {
+            return scriptClassCompiler.compile(source, classLoader, transformer, scriptBaseClass);
+        }
+
+        List<Object> key = Arrays.<Object>asList(source.getFileName(), HashUtil.createHash(source.getResource().getText()),
+                transformer.getId(), scriptBaseClass.getName());
+        Class<?> c = cache.get(key);
+        if (c == null) {
+            c = scriptClassCompiler.compile(source, cache.getClassLoader(), transformer, scriptBaseClass);
+            cache.put(key, c);
+        }
+        return c.asSubclass(scriptBaseClass);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.groovy.scripts.internal;
+
+import org.gradle.util.MultiParentClassLoader;
+
+import java.lang.ref.SoftReference;
+import java.net.URLClassLoader;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps loaded script classes for the lifetime of the process, so that they can be reused by later builds, such as
+ * the builds run by the daemon.
+ *
+ * <p>Only the classes of scripts whose ClassLoader adds nothing to the root ClassLoader can be kept. These classes are
+ * loaded using the root ClassLoader, so they do not refer to anything which belongs to a particular build. The
+ * classes of scripts with a build script classpath, or with a {@code buildSrc} project, are not kept.</p>
+ *
+ * <p>The cache holds at most a fixed number of classes, and discards the least recently used class when it is full.
+ * The classes are softly referenced, so that they are discarded when the process runs low on memory.</p>
+ */
+public class CrossBuildScriptClassCache {
+    /**
+     * The system property which specifies the maximum number of classes to keep.
+     */
+    public static final String MAX_ENTRIES_PROPERTY = "org.gradle.script.classcache.maxentries";
+    public static final int DEFAULT_MAX_ENTRIES = 500;
+    private final ClassLoader rootClassLoader;
+    private final int maxEntries;
+    private final Map<Object, SoftReference<Class<?>>> classes = new LinkedHashMap<Object, SoftReference<Class<?>>>(16, 0.75f, true);
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public CrossBuildScriptClassCache(ClassLoader rootClassLoader) {
+        this(rootClassLoader, Integer.getInteger(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES));
+    }
+
+    public CrossBuildScriptClassCache(ClassLoader rootClassLoader, int maxEntries) {
+        this.rootClassLoader = rootClassLoader;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the ClassLoader to load the classes which are kept by this cache.
+     */
+    public ClassLoader getClassLoader() {
+        return rootClassLoader;
+    }
+
+    /**
+     * Returns true when the classes of a script which uses the given ClassLoader can be kept by this cache.
+     */
+    public boolean canCache(ClassLoader classLoader) {
+        if (classLoader == rootClassLoader) {
+            return true;
+        }
+        if (classLoader instanceof MultiParentClassLoader) {
+            for (ClassLoader parent : ((MultiParentClassLoader) classLoader).getParents()) {
+                if (!canCache(parent)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (classLoader instanceof URLClassLoader && ((URLClassLoader) classLoader).getURLs().length == 0) {
+            return canCache(classLoader.getParent());
+        }
+        return false;
+    }
+
+    /**
+     * Returns the class with the given key, or null if this cache does not contain the class.
+     */
+    public synchronized Class<?> get(Object key) {
+        SoftReference<Class<?>> reference = classes.get(key);
+        Class<?> c = reference == null ? null : reference.get();
+        if (c != null) {
+            hits++;
+            return c;
+        }
+        if (reference != null) {
+            // Has been garbage collected
+            classes.remove(key);
+            evictions++;
+        }
+        misses++;
+        return null;
+    }
+
+    public synchronized void put(Object key, Class<?> c) {
+        classes.put(key, new SoftReference<Class<?>>(c));
+        Iterator<SoftReference<Class<?>>> iterator = classes.values().iterator();
+        while (classes.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized int getSize() {
+        return classes.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("script class cache: %s classes, %s hits, %s misses, %s evictions", classes.size(), hits,
+                misses, evictions);
+    }
+}
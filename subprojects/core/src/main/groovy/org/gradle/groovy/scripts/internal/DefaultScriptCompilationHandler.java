@@ -35,11 +35,17 @@ import org.gradle.util.Clock;
 import org.gradle.util.GFileUtils;
 import org.gradle.util.UncheckedException;
 import org.gradle.util.WrapUtil;
+import org.objectweb.asm.ClassAdapter;
+import org.objectweb.asm.ClassReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Field;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.net.URLClassLoader;
 import java.security.CodeSource;
 import java.util.List;
@@ -168,8 +174,7 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
         }
         
         try {
-            URLClassLoader urlClassLoader = new URLClassLoader(WrapUtil.toArray(scriptCacheDir.toURI().toURL()),
-                    classLoader);
+            URLClassLoader urlClassLoader = new ScriptClassLoader(scriptCacheDir, source.getFileName(), classLoader);
             return urlClassLoader.loadClass(source.getClassName()).asSubclass(scriptBaseClass);
         } catch (Exception e) {
             throw new GradleException(String.format("Could not load compiled classes for %s from cache.", source.getDisplayName()), e);
@@ -223,4 +228,45 @@ public class DefaultScriptCompilationHandler implements ScriptCompilationHandler
             return emptyScript;
         }
     }
+
+    /**
+     * Loads the compiled classes of a script, setting the source file of each class to the file of the script. The
+     * classes may have been compiled from a script with the same content in some other file.
+     */
+    private static class ScriptClassLoader extends URLClassLoader {
+        private final String sourceFileName;
+
+        public ScriptClassLoader(File classesDir, String sourceFileName, ClassLoader parent) throws MalformedURLException {
+            super(WrapUtil.toArray(classesDir.toURI().toURL()), parent);
+            this.sourceFileName = sourceFileName;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            URL resource = findResource(name.replace('.', '/') + ".class");
+            if (resource == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytes;
+            try {
+                InputStream instr = resource.openStream();
+                try {
+                    ClassReader reader = new ClassReader(instr);
+                    org.objectweb.asm.ClassWriter writer = new org.objectweb.asm.ClassWriter(reader, 0);
+                    reader.accept(new ClassAdapter(writer) {
+                        @Override
+                        public void visitSource(String source, String debug) {
+                            super.visitSource(sourceFileName, debug);
+                        }
+                    }, 0);
+                    bytes = writer.toByteArray();
+                } finally {
+                    instr.close();
+                }
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
 }
@@ -19,16 +19,27 @@ import groovy.lang.Script;
 import org.gradle.api.Action;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentCache;
+import org.gradle.groovy.scripts.DelegatingScriptSource;
 import org.gradle.groovy.scripts.ScriptSource;
 import org.gradle.groovy.scripts.Transformer;
 import org.gradle.util.HashUtil;
+import org.gradle.util.MultiParentClassLoader;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * A {@link ScriptClassCompiler} which compiles scripts to a cache directory, and loads them from there.
+ *
+ * <p>The cache directory is keyed by the hash of the script text and the hash of the classpath the script is compiled
+ * against, so that scripts with the same content share the same compiled classes, regardless of where they live. The
+ * classes are named after the hash of the script text, and are given the source file name of the script they are
+ * loaded for.</p>
  */
 public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler {
     private final ScriptCompilationHandler scriptCompilationHandler;
@@ -40,17 +51,49 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler {
     }
 
     public <T extends Script> Class<? extends T> compile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<T> scriptBaseClass) {
-        Map<String, Object> properties = new HashMap<String, Object>();
-        properties.put("source.filename", source.getFileName());
-        properties.put("source.hash", HashUtil.createHash(source.getResource().getText()));
+        ScriptSource hashedSource = new HashedScriptSource(source);
+        PersistentCache cache = openCache(hashedSource, classLoader, transformer, scriptBaseClass);
+        File classesDir = classesDir(cache);
+        return scriptCompilationHandler.loadFromDir(hashedSource, classLoader, classesDir, scriptBaseClass);
+    }
+
+    /**
+     * Compiles the given script to the cache directory, if it has not already been compiled, without loading it.
+     */
+    public void precompile(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<? extends Script> scriptBaseClass) {
+        openCache(new HashedScriptSource(source), classLoader, transformer, scriptBaseClass);
+    }
 
-        String cacheName = String.format("scripts/%s/%s/%s", source.getClassName(), scriptBaseClass.getSimpleName(), transformer.getId());
-        PersistentCache cache = cacheRepository.cache(cacheName)
-                .withProperties(properties)
+    private PersistentCache openCache(ScriptSource source, ClassLoader classLoader, Transformer transformer, Class<? extends Script> scriptBaseClass) {
+        String cacheName = String.format("scripts/%s/%s/%s/%s", source.getClassName(), classpathHash(classLoader),
+                scriptBaseClass.getSimpleName(), transformer.getId());
+        return cacheRepository.cache(cacheName)
                 .withInitializer(new CacheInitializer(source, classLoader, transformer, scriptBaseClass)).open();
+    }
 
-        File classesDir = classesDir(cache);
-        return scriptCompilationHandler.loadFromDir(source, classLoader, classesDir, scriptBaseClass);
+    private String classpathHash(ClassLoader classLoader) {
+        Set<URL> classpath = new LinkedHashSet<URL>();
+        collectClasspath(classLoader, new HashSet<ClassLoader>(), classpath);
+        StringBuilder builder = new StringBuilder();
+        for (URL url : classpath) {
+            builder.append(url).append('\n');
+        }
+        return HashUtil.createHash(builder.toString());
+    }
+
+    private void collectClasspath(ClassLoader classLoader, Set<ClassLoader> visited, Set<URL> classpath) {
+        if (classLoader == null || !visited.add(classLoader)) {
+            return;
+        }
+        if (classLoader instanceof URLClassLoader) {
+            classpath.addAll(Arrays.asList(((URLClassLoader) classLoader).getURLs()));
+        }
+        if (classLoader instanceof MultiParentClassLoader) {
+            for (ClassLoader parent : ((MultiParentClassLoader) classLoader).getParents()) {
+                collectClasspath(parent, visited, classpath);
+            }
+        }
+        collectClasspath(classLoader.getParent(), visited, classpath);
     }
 
     private File classesDir(PersistentCache cache) {
@@ -75,4 +118,21 @@ public class FileCacheBackedScriptClassCompiler implements ScriptClassCompiler {
             scriptCompilationHandler.compileToDir(source, classLoader, classesDir, transformer, scriptBaseClass);
         }
     }
+
+    /**
+     * A script source whose class name is derived from the content of the script.
+     */
+    private static class HashedScriptSource extends DelegatingScriptSource {
+        private final String className;
+
+        private HashedScriptSource(ScriptSource source) {
+            super(source);
+            className = "script_" + HashUtil.createHash(source.getResource().getText());
+        }
+
+        @Override
+        public String getClassName() {
+            return className;
+        }
+    }
 }
@@ -78,7 +78,7 @@ public class DefaultActorFactory implements ActorFactory, Stoppable {
         public ActorImpl(Object targetObject) {
             executor = executorFactory.create(String.format("Dispatch %s", targetObject));
             failureHandler = new ExceptionTrackingFailureHandler(Logging.getLogger(ActorImpl.class));
-            dispatch = new AsyncDispatch<MethodInvocation>(executor,
+            dispatch = executorFactory.createAsyncDispatch(executor,
                     new FailureHandlingDispatch<MethodInvocation>(
                             new ReflectionDispatch(targetObject),
                             failureHandler));
@@ -17,8 +17,12 @@
 package org.gradle.messaging.concurrent;
 
 import org.gradle.api.logging.Logging;
+import org.gradle.messaging.dispatch.AsyncDispatch;
+import org.gradle.messaging.dispatch.Dispatch;
 import org.gradle.messaging.dispatch.DispatchException;
 import org.gradle.messaging.dispatch.ExceptionTrackingFailureHandler;
+import org.gradle.messaging.dispatch.LockFreeAsyncDispatch;
+import org.gradle.messaging.dispatch.StoppableDispatch;
 import org.gradle.util.UncheckedException;
 
 import java.util.Set;
@@ -26,7 +30,20 @@ import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 public class DefaultExecutorFactory implements ExecutorFactory, Stoppable {
+    /**
+     * The system property which enables the lock-free implementation of {@link #createAsyncDispatch}.
+     */
+    public static final String LOCK_FREE_DISPATCH_PROPERTY = "org.gradle.messaging.lockFreeDispatch";
     private final Set<StoppableExecutorImpl> executors = new CopyOnWriteArraySet<StoppableExecutorImpl>();
+    private final boolean lockFreeDispatch;
+
+    public DefaultExecutorFactory() {
+        this(Boolean.getBoolean(LOCK_FREE_DISPATCH_PROPERTY));
+    }
+
+    public DefaultExecutorFactory(boolean lockFreeDispatch) {
+        this.lockFreeDispatch = lockFreeDispatch;
+    }
 
     public void stop() {
         try {
@@ -42,6 +59,13 @@ public class DefaultExecutorFactory implements ExecutorFactory, Stoppable {
         return executor;
     }
 
+    public <T> StoppableDispatch<T> createAsyncDispatch(Executor executor, Dispatch<? super T> handler) {
+        if (lockFreeDispatch) {
+            return new LockFreeAsyncDispatch<T>(executor, handler);
+        }
+        return new AsyncDispatch<T>(executor, handler);
+    }
+
     protected ExecutorService createExecutor(String displayName) {
         return Executors.newCachedThreadPool(new ThreadFactoryImpl(displayName));
     }
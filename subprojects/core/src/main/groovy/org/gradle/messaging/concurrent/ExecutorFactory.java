@@ -16,6 +16,11 @@
 
 package org.gradle.messaging.concurrent;
 
+import org.gradle.messaging.dispatch.Dispatch;
+import org.gradle.messaging.dispatch.StoppableDispatch;
+
+import java.util.concurrent.Executor;
+
 public interface ExecutorFactory {
     /**
      * Creates an executor which can run multiple tasks concurrently. It is the caller's responsibility to stop the executor.
@@ -24,4 +29,14 @@ public interface ExecutorFactory {
      * @return The executor.
      */
     StoppableExecutor create(String displayName);
+
+    /**
+     * Creates a dispatch which delivers messages asynchronously to the given handler, using a thread from the given
+     * executor. It is the caller's responsibility to stop the dispatch.
+     *
+     * @param executor The executor to use to deliver the messages.
+     * @param handler The handler to deliver the messages to. Does not need to be thread-safe.
+     * @return The dispatch.
+     */
+    <T> StoppableDispatch<T> createAsyncDispatch(Executor executor, Dispatch<? super T> handler);
 }
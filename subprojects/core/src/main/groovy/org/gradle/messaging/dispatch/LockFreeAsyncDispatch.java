@@ -0,0 +1,161 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.dispatch;
+
+import org.gradle.messaging.concurrent.AsyncStoppable;
+import org.gradle.util.UncheckedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A {@link Dispatch} implementation which delivers messages asynchronously to a single handler, in the order they
+ * have been received. Behaves the same way as {@link AsyncDispatch}, but does not use a lock to hand messages over to
+ * the handler thread, so that many threads can dispatch messages without contending with each other.</p>
+ *
+ * <p>Calls to {@link #dispatch} add the message to a lock-free queue, and block only while the queue is full. The
+ * handler thread takes messages from the queue in batches, and parks while the queue is empty.</p>
+ */
+public class LockFreeAsyncDispatch<T> implements StoppableDispatch<T>, AsyncStoppable {
+    private static final int MAX_QUEUE_SIZE = 200;
+    private static final int MAX_BATCH_SIZE = 50;
+    private static final long QUEUE_FULL_PARK_NANOS = 50000L;
+    private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<T>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicBoolean dispatcherWaiting = new AtomicBoolean();
+    private final CountDownLatch dispatcherFinished = new CountDownLatch(1);
+    private final int maxQueueSize;
+    private volatile Thread dispatcherThread;
+    private volatile boolean stopped;
+
+    public LockFreeAsyncDispatch(Executor executor, Dispatch<? super T> dispatch) {
+        this(executor, dispatch, MAX_QUEUE_SIZE);
+    }
+
+    public LockFreeAsyncDispatch(Executor executor, final Dispatch<? super T> dispatch, int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+        try {
+            executor.execute(new Runnable() {
+                public void run() {
+                    try {
+                        dispatchMessages(dispatch);
+                    } finally {
+                        dispatcherFinished.countDown();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            dispatcherFinished.countDown();
+            throw e;
+        }
+    }
+
+    private void dispatchMessages(Dispatch<? super T> dispatch) {
+        dispatcherThread = Thread.currentThread();
+        List<T> batch = new ArrayList<T>(MAX_BATCH_SIZE);
+        while (true) {
+            T message;
+            while (batch.size() < MAX_BATCH_SIZE && (message = queue.poll()) != null) {
+                batch.add(message);
+            }
+            if (!batch.isEmpty()) {
+                for (T batchMessage : batch) {
+                    dispatch.dispatch(batchMessage);
+                }
+                // Release the slots only once the batch has been delivered, so that the messages of a failed batch count as undelivered
+                queueSize.addAndGet(-batch.size());
+                batch.clear();
+                continue;
+            }
+
+            if (isStoppedAndEmpty()) {
+                // Have been stopped and nothing to deliver
+                return;
+            }
+
+            // Park until a producer adds a message or stop is requested. Check the queue again after advertising that we
+            // are waiting, so that a message added concurrently is not missed
+            dispatcherWaiting.set(true);
+            if (queue.isEmpty() && !isStoppedAndEmpty()) {
+                LockSupport.park(this);
+            }
+            dispatcherWaiting.set(false);
+        }
+    }
+
+    private boolean isStoppedAndEmpty() {
+        // A producer reserves its slot before adding its message, so the queue size covers messages which are about to be added
+        return stopped && queueSize.get() == 0;
+    }
+
+    private void wakeDispatcher() {
+        if (dispatcherWaiting.get() && dispatcherWaiting.compareAndSet(true, false)) {
+            LockSupport.unpark(dispatcherThread);
+        }
+    }
+
+    public void dispatch(T message) {
+        while (true) {
+            if (stopped) {
+                throw new IllegalStateException("Cannot dispatch message, as this message dispatch has been stopped. Message: " + message);
+            }
+            int size = queueSize.get();
+            if (size >= maxQueueSize) {
+                LockSupport.parkNanos(this, QUEUE_FULL_PARK_NANOS);
+            } else if (queueSize.compareAndSet(size, size + 1)) {
+                break;
+            }
+        }
+        if (stopped) {
+            queueSize.decrementAndGet();
+            wakeDispatcher();
+            throw new IllegalStateException("Cannot dispatch message, as this message dispatch has been stopped. Message: " + message);
+        }
+        queue.add(message);
+        wakeDispatcher();
+    }
+
+    /**
+     * Commences a shutdown of this dispatch.
+     */
+    public void requestStop() {
+        stopped = true;
+        wakeDispatcher();
+    }
+
+    /**
+     * Stops accepting new messages, and blocks until all queued messages have been dispatched.
+     */
+    public void stop() {
+        requestStop();
+        try {
+            dispatcherFinished.await();
+        } catch (InterruptedException e) {
+            throw new UncheckedException(e);
+        }
+
+        if (queueSize.get() > 0) {
+            throw new IllegalStateException(
+                    "Cannot wait for messages to be dispatched, as there are no dispatch threads running.");
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal;
+
+import org.gradle.messaging.remote.Address;
+import org.gradle.messaging.remote.internal.protocol.MessageCredits;
+import org.gradle.messaging.remote.internal.protocol.RemoteMethodInvocation;
+import org.gradle.messaging.remote.internal.protocol.Request;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A {@link MessageSerializer} which encodes values of registered types using a {@link BinaryCodec}, and values of any
+ * other type using Java serialization, as {@link DefaultMessageSerializer} does. Codecs are registered for the types
+ * which make up the messages of the messaging protocol, so that their class descriptors are not sent with each
+ * message.
+ *
+ * <p>Each value is preceded by a tag which identifies its codec. Tags are allocated in registration order, so both ends
+ * of a connection must register the same codecs in the same order, before the serializer is used. A codec is used only
+ * for values whose class is exactly the registered type.</p>
+ *
+ * <p>The values of a message which have no codec are Java-serialized together, using a single object stream which is
+ * written ahead of the binary encoded part of the message. This way class descriptors and shared references are written
+ * once per message, rather than once per value.</p>
+ */
+public class BinaryMessageSerializer<T> implements MessageSerializer<T> {
+    private static final byte NULL = 0;
+    private static final byte SERIALIZED = 1;
+    private static final int FIRST_REGISTERED = 2;
+    private final ClassLoader classLoader;
+    private final Map<Class<?>, Registration> registrationsByType = new HashMap<Class<?>, Registration>();
+    private final List<Registration> registrationsByTag = new ArrayList<Registration>();
+
+    public BinaryMessageSerializer(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+        register(String.class, new StringCodec());
+        register(Integer.class, new IntegerCodec());
+        register(Long.class, new LongCodec());
+        register(Boolean.class, new BooleanCodec());
+        register(UUID.class, new UUIDCodec());
+        register(Object[].class, new ArrayCodec());
+        register(Request.class, new RequestCodec());
+        register(RemoteMethodInvocation.class, new RemoteMethodInvocationCodec());
+        register(MessageCredits.class, new MessageCreditsCodec());
+    }
+
+    /**
+     * Registers a codec for the given type.
+     */
+    public <S> void register(Class<S> type, BinaryCodec<S> codec) {
+        int tag = registrationsByTag.size() + FIRST_REGISTERED;
+        if (tag > Byte.MAX_VALUE) {
+            throw new IllegalStateException(String.format("Cannot register codec for %s, as too many codecs have been registered.", type.getName()));
+        }
+        if (registrationsByType.containsKey(type)) {
+            throw new IllegalArgumentException(String.format("A codec for %s has already been registered.", type.getName()));
+        }
+        Registration registration = new Registration((byte) tag, codec);
+        registrationsByType.put(type, registration);
+        registrationsByTag.add(registration);
+    }
+
+    public T read(DataInputStream inputStream, Address localAddress, Address remoteAddress) throws Exception {
+        Object[] serializedValues = new Object[inputStream.readInt()];
+        if (serializedValues.length > 0) {
+            serializedValues = (Object[]) Message.receive(inputStream, classLoader);
+        }
+        return (T) new DefaultDecoder(inputStream, serializedValues).readValue();
+    }
+
+    public void write(T message, DataOutputStream outputStream) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DefaultEncoder encoder = new DefaultEncoder(buffer);
+        encoder.writeValue(message);
+        encoder.flush();
+
+        outputStream.writeInt(encoder.serializedValues.size());
+        if (!encoder.serializedValues.isEmpty()) {
+            Message.send(encoder.serializedValues.toArray(), outputStream);
+        }
+        buffer.writeTo(outputStream);
+    }
+
+    private static class Registration {
+        private final byte tag;
+        private final BinaryCodec<Object> codec;
+
+        private Registration(byte tag, BinaryCodec<?> codec) {
+            this.tag = tag;
+            this.codec = (BinaryCodec<Object>) codec;
+        }
+    }
+
+    /**
+     * Writes the values of a message.
+     */
+    public abstract static class Encoder extends DataOutputStream {
+        protected Encoder(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        /**
+         * Writes a value of any type, which may be null.
+         */
+        public abstract void writeValue(Object value) throws Exception;
+    }
+
+    /**
+     * Reads the values of a message.
+     */
+    public abstract static class Decoder extends DataInputStream {
+        protected Decoder(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        /**
+         * Reads a value written using {@link Encoder#writeValue(Object)}.
+         */
+        public abstract Object readValue() throws Exception;
+    }
+
+    private class DefaultEncoder extends Encoder {
+        private final List<Object> serializedValues = new ArrayList<Object>();
+
+        private DefaultEncoder(OutputStream outputStream) {
+            super(outputStream);
+        }
+
+        @Override
+        public void writeValue(Object value) throws Exception {
+            if (value == null) {
+                writeByte(NULL);
+                return;
+            }
+            Registration registration = registrationsByType.get(value.getClass());
+            if (registration == null) {
+                writeByte(SERIALIZED);
+                writeInt(serializedValues.size());
+                serializedValues.add(value);
+                return;
+            }
+            writeByte(registration.tag);
+            registration.codec.write(value, this);
+        }
+    }
+
+    private class DefaultDecoder extends Decoder {
+        private final Object[] serializedValues;
+
+        private DefaultDecoder(InputStream inputStream, Object[] serializedValues) {
+            super(inputStream);
+            this.serializedValues = serializedValues;
+        }
+
+        @Override
+        public Object readValue() throws Exception {
+            byte tag = readByte();
+            if (tag == NULL) {
+                return null;
+            }
+            if (tag == SERIALIZED) {
+                int index = readInt();
+                if (index < 0 || index >= serializedValues.length) {
+                    throw new IOException(String.format("Received serialized value with unknown index %s.", index));
+                }
+                return serializedValues[index];
+            }
+            int index = tag - FIRST_REGISTERED;
+            if (index < 0 || index >= registrationsByTag.size()) {
+                throw new IOException(String.format("Received value with unknown tag %s.", tag));
+            }
+            return registrationsByTag.get(index).codec.read(this);
+        }
+    }
+
+    private static class StringCodec implements BinaryCodec<String> {
+        public void write(String value, Encoder encoder) throws Exception {
+            // Don't use writeUTF(), as it cannot write strings longer than 64k
+            byte[] bytes = value.getBytes("UTF-8");
+            encoder.writeInt(bytes.length);
+            encoder.write(bytes);
+        }
+
+        public String read(Decoder decoder) throws Exception {
+            byte[] bytes = new byte[decoder.readInt()];
+            decoder.readFully(bytes);
+            return new String(bytes, "UTF-8");
+        }
+    }
+
+    private static class IntegerCodec implements BinaryCodec<Integer> {
+        public void write(Integer value, Encoder encoder) throws Exception {
+            encoder.writeInt(value);
+        }
+
+        public Integer read(Decoder decoder) throws Exception {
+            return decoder.readInt();
+        }
+    }
+
+    private static class LongCodec implements BinaryCodec<Long> {
+        public void write(Long value, Encoder encoder) throws Exception {
+            encoder.writeLong(value);
+        }
+
+        public Long read(Decoder decoder) throws Exception {
+            return decoder.readLong();
+        }
+    }
+
+    private static class BooleanCodec implements BinaryCodec<Boolean> {
+        public void write(Boolean value, Encoder encoder) throws Exception {
+            encoder.writeBoolean(value);
+        }
+
+        public Boolean read(Decoder decoder) throws Exception {
+            return decoder.readBoolean();
+        }
+    }
+
+    private static class UUIDCodec implements BinaryCodec<UUID> {
+        public void write(UUID value, Encoder encoder) throws Exception {
+            encoder.writeLong(value.getMostSignificantBits());
+            encoder.writeLong(value.getLeastSignificantBits());
+        }
+
+        public UUID read(Decoder decoder) throws Exception {
+            return new UUID(decoder.readLong(), decoder.readLong());
+        }
+    }
+
+    private static class ArrayCodec implements BinaryCodec<Object[]> {
+        public void write(Object[] value, Encoder encoder) throws Exception {
+            encoder.writeInt(value.length);
+            for (Object element : value) {
+                encoder.writeValue(element);
+            }
+        }
+
+        public Object[] read(Decoder decoder) throws Exception {
+            Object[] value = new Object[decoder.readInt()];
+            for (int i = 0; i < value.length; i++) {
+                value[i] = decoder.readValue();
+            }
+            return value;
+        }
+    }
+
+    private static class RequestCodec implements BinaryCodec<Request> {
+        public void write(Request value, Encoder encoder) throws Exception {
+            encoder.writeValue(value.getDestination());
+            encoder.writeValue(value.getPayload());
+        }
+
+        public Request read(Decoder decoder) throws Exception {
+            Object consumerId = decoder.readValue();
+            Object payload = decoder.readValue();
+            return new Request(consumerId, payload);
+        }
+    }
+
+    private static class RemoteMethodInvocationCodec implements BinaryCodec<RemoteMethodInvocation> {
+        public void write(RemoteMethodInvocation value, Encoder encoder) throws Exception {
+            encoder.writeValue(value.getKey());
+            encoder.writeValue(value.getArguments());
+        }
+
+        public RemoteMethodInvocation read(Decoder decoder) throws Exception {
+            Object key = decoder.readValue();
+            Object[] arguments = (Object[]) decoder.readValue();
+            return new RemoteMethodInvocation(key, arguments);
+        }
+    }
+
+    private static class MessageCreditsCodec implements BinaryCodec<MessageCredits> {
+        public void write(MessageCredits value, Encoder encoder) throws Exception {
+            encoder.writeInt(value.getCredits());
+        }
+
+        public MessageCredits read(Decoder decoder) throws Exception {
+            return new MessageCredits(decoder.readInt());
+        }
+    }
+}
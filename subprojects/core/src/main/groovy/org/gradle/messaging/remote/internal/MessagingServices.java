@@ -49,10 +49,16 @@ import java.util.UUID;
  * <li>{@link IncomingBroadcast}</li>
  *
  * </ul>
+ *
+ * <p>Messages are Java-serialized using a {@link DefaultMessageSerializer}. Setting the {@value #BINARY_SERIALIZER_PROPERTY}
+ * system property to {@code true} switches to a {@link BinaryMessageSerializer}. Both ends of a connection must use the
+ * same serializer.</p>
  */
 public class MessagingServices extends DefaultServiceRegistry implements Stoppable {
+    public static final String BINARY_SERIALIZER_PROPERTY = "org.gradle.messaging.binarySerializer";
     private final IdGenerator<UUID> idGenerator = new UUIDGenerator();
     private final ClassLoader messageClassLoader;
+    private final boolean binarySerializer;
     private final String broadcastGroup;
     private final SocketInetAddress broadcastAddress;
     private final MessageOriginator messageOriginator;
@@ -74,7 +80,13 @@ public class MessagingServices extends DefaultServiceRegistry implements Stoppab
     }
 
     public MessagingServices(ClassLoader messageClassLoader, String broadcastGroup, SocketInetAddress broadcastAddress) {
+        this(messageClassLoader, broadcastGroup, broadcastAddress, Boolean.getBoolean(BINARY_SERIALIZER_PROPERTY));
+    }
+
+    public MessagingServices(ClassLoader messageClassLoader, String broadcastGroup, SocketInetAddress broadcastAddress,
+                             boolean binarySerializer) {
         this.messageClassLoader = messageClassLoader;
+        this.binarySerializer = binarySerializer;
         this.broadcastGroup = broadcastGroup;
         this.broadcastAddress = broadcastAddress;
 
@@ -120,17 +132,22 @@ public class MessagingServices extends DefaultServiceRegistry implements Stoppab
         return executorFactory;
     }
 
+    protected MessageSerializer<Message> createMessageSerializer() {
+        if (binarySerializer) {
+            return new BinaryMessageSerializer<Message>(messageClassLoader);
+        }
+        return new DefaultMessageSerializer<Message>(messageClassLoader);
+    }
+
     protected OutgoingConnector<Message> createOutgoingConnector() {
         return new TcpOutgoingConnector<Message>(
-                new DefaultMessageSerializer<Message>(
-                        messageClassLoader));
+                get(MessageSerializer.class));
     }
 
     protected IncomingConnector<Message> createIncomingConnector() {
         incomingConnector = new TcpIncomingConnector<Message>(
                 get(ExecutorFactory.class),
-                new DefaultMessageSerializer<Message>(
-                        messageClassLoader),
+                get(MessageSerializer.class),
                 new InetAddressFactory(),
                 idGenerator);
         return incomingConnector;
@@ -108,6 +108,10 @@ public abstract class AbstractExecHandleBuilder extends DefaultProcessForkOption
         this.listeners.add(listener);
         return this;
     }
+
+    List<ExecHandleListener> getListeners() {
+        return listeners;
+    }
     
     public ExecHandle build() {
         String executable = getExecutable();
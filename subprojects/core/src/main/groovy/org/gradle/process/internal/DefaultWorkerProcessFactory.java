@@ -20,10 +20,13 @@ import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.Factory;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.logging.LogLevel;
+import org.gradle.messaging.concurrent.Stoppable;
 import org.gradle.messaging.remote.Address;
 import org.gradle.messaging.remote.MessagingServer;
+import org.gradle.messaging.remote.internal.MessagingServices;
 import org.gradle.process.internal.child.ApplicationClassesInIsolatedClassLoaderWorkerFactory;
 import org.gradle.process.internal.child.ApplicationClassesInSystemClassLoaderWorkerFactory;
+import org.gradle.process.internal.child.ReusableWorkerMain;
 import org.gradle.process.internal.child.WorkerFactory;
 import org.gradle.process.internal.launcher.GradleWorkerMain;
 import org.gradle.util.ClasspathUtil;
@@ -34,17 +37,20 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 
-public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder> {
+public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder>, Stoppable {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultWorkerProcessFactory.class);
     private final LogLevel workerLogLevel;
     private final MessagingServer server;
     private final ClassPathRegistry classPathRegistry;
     private final FileResolver resolver;
     private final IdGenerator<?> idGenerator;
+    private final WorkerProcessPool pool = new WorkerProcessPool();
 
     public DefaultWorkerProcessFactory(LogLevel workerLogLevel, MessagingServer server,
                                        ClassPathRegistry classPathRegistry, FileResolver resolver,
@@ -60,6 +66,13 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
         return new DefaultWorkerProcessBuilder();
     }
 
+    /**
+     * Stops the reusable worker processes which have been started by this factory.
+     */
+    public void stop() {
+        pool.stop();
+    }
+
     private class DefaultWorkerProcessBuilder extends WorkerProcessBuilder {
         public DefaultWorkerProcessBuilder() {
             super(resolver);
@@ -72,6 +85,13 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
             if (getWorker() == null) {
                 throw new IllegalStateException("No worker action specified for this worker process.");
             }
+            if (Boolean.getBoolean(MessagingServices.BINARY_SERIALIZER_PROPERTY)) {
+                // The worker must use the same message serializer as this process
+                getJavaCommand().systemProperty(MessagingServices.BINARY_SERIALIZER_PROPERTY, true);
+            }
+            if (isReusable()) {
+                return buildPooledWorker();
+            }
 
             final DefaultWorkerProcess workerProcess = new DefaultWorkerProcess(120, TimeUnit.SECONDS);
             Address localAddress = server.accept(workerProcess.getConnectAction());
@@ -106,5 +126,58 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
 
             return workerProcess;
         }
+
+        private WorkerProcess buildPooledWorker() {
+            PooledWorkerProcess workerProcess = new PooledWorkerProcess(pool, 120, TimeUnit.SECONDS);
+            Address localAddress = server.accept(workerProcess.getConnectAction());
+
+            // Build configuration for the worker. The application classes are always loaded in a ClassLoader created
+            // for this worker, so that the process can be reused by workers with a different application classpath
+            List<URL> implementationClassPath = ClasspathUtil.getClasspath(getWorker().getClass().getClassLoader());
+            Object id = idGenerator.generateId();
+            String displayName = String.format("Gradle Worker %s", id);
+
+            WorkerFactory workerFactory = new ApplicationClassesInIsolatedClassLoaderWorkerFactory(id, displayName, this,
+                    implementationClassPath, localAddress, classPathRegistry);
+            byte[] config = GUtil.serialize(workerFactory.create());
+
+            LOGGER.debug("Creating {}", displayName);
+            LOGGER.debug("Using application classpath {}", getApplicationClasspath());
+            LOGGER.debug("Using implementation classpath {}", implementationClassPath);
+
+            final JavaExecHandleBuilder javaCommand = getJavaCommand();
+            javaCommand.classpath(workerFactory.getSystemClasspath());
+
+            // The listeners are interested in this worker, rather than in the process which happens to execute it
+            List<ExecHandleListener> listeners = new ArrayList<ExecHandleListener>(javaCommand.getListeners());
+            javaCommand.getListeners().clear();
+
+            final Object key = Arrays.asList(javaCommand.getCommandLine(), javaCommand.getWorkingDir(),
+                    javaCommand.getActualEnvironment());
+            workerProcess.setWorker(displayName, config, listeners, key, new Factory<ReusableWorkerProcess>() {
+                public ReusableWorkerProcess create() {
+                    return startReusableProcess(javaCommand, key);
+                }
+            });
+
+            return workerProcess;
+        }
+    }
+
+    private ReusableWorkerProcess startReusableProcess(JavaExecHandleBuilder javaCommand, Object key) {
+        DefaultWorkerProcess workerProcess = new DefaultWorkerProcess(120, TimeUnit.SECONDS);
+        Address localAddress = server.accept(workerProcess.getConnectAction());
+        String displayName = String.format("Gradle Worker Process %s", idGenerator.generateId());
+
+        LOGGER.debug("Starting {}", displayName);
+
+        javaCommand.setStandardInput(new ByteArrayInputStream(GUtil.serialize(new ReusableWorkerMain(localAddress))));
+        javaCommand.setDisplayName(displayName);
+        ExecHandle execHandle = javaCommand.build();
+        workerProcess.setExecHandle(execHandle);
+
+        ReusableWorkerProcess process = new ReusableWorkerProcess(key, workerProcess, execHandle, pool);
+        process.start();
+        return process;
     }
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal;
+
+import org.gradle.api.Action;
+import org.gradle.api.internal.Factory;
+import org.gradle.messaging.remote.ConnectEvent;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.util.UncheckedException;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link WorkerProcess} which executes its worker in a {@link ReusableWorkerProcess} taken from a {@link
+ * WorkerProcessPool}, starting a new process when there is no idle process which matches. The process is returned to
+ * the pool when the worker has stopped.
+ */
+class PooledWorkerProcess implements WorkerProcess {
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final WorkerProcessPool pool;
+    private final long connectTimeout;
+    private String displayName;
+    private byte[] serializedWorker;
+    private List<ExecHandleListener> listeners;
+    private Object key;
+    private Factory<ReusableWorkerProcess> processFactory;
+    private ReusableWorkerProcess process;
+    private ObjectConnection connection;
+    private boolean running;
+    private boolean failed;
+    private ExecResult processResult;
+
+    public PooledWorkerProcess(WorkerProcessPool pool, int connectTimeoutValue, TimeUnit connectTimeoutUnits) {
+        this.pool = pool;
+        connectTimeout = connectTimeoutUnits.toMillis(connectTimeoutValue);
+    }
+
+    /**
+     * Sets the worker to execute.
+     *
+     * @param displayName The display name of the worker.
+     * @param serializedWorker The serialized worker main, to pass to the process.
+     * @param listeners The listeners to notify should the process exit while the worker is executing.
+     * @param key The key of the processes which can execute the worker.
+     * @param processFactory Starts a new process which can execute the worker.
+     */
+    public void setWorker(String displayName, byte[] serializedWorker, List<ExecHandleListener> listeners, Object key,
+                          Factory<ReusableWorkerProcess> processFactory) {
+        this.displayName = displayName;
+        this.serializedWorker = serializedWorker;
+        this.listeners = listeners;
+        this.key = key;
+        this.processFactory = processFactory;
+    }
+
+    public Action<ConnectEvent<ObjectConnection>> getConnectAction() {
+        return new Action<ConnectEvent<ObjectConnection>>() {
+            public void execute(ConnectEvent<ObjectConnection> event) {
+                onConnect(event.getConnection());
+            }
+        };
+    }
+
+    private void onConnect(ObjectConnection connection) {
+        lock.lock();
+        try {
+            this.connection = connection;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onWorkerFinished(boolean successful) {
+        lock.lock();
+        try {
+            failed = !successful;
+            running = false;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void onProcessStop(ExecHandle execHandle, ExecResult execResult) {
+        lock.lock();
+        try {
+            processResult = execResult;
+            failed = true;
+            running = false;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (ExecHandleListener listener : listeners) {
+            listener.executionFinished(execHandle, execResult);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+    public ObjectConnection getConnection() {
+        return connection;
+    }
+
+    public void start() {
+        process = pool.acquire(key);
+        if (process == null) {
+            process = processFactory.create();
+        }
+
+        lock.lock();
+        try {
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+
+        for (ExecHandleListener listener : listeners) {
+            listener.executionStarted(process.getExecHandle());
+        }
+        process.execute(this, serializedWorker);
+
+        Date connectExpiry = new Date(System.currentTimeMillis() + connectTimeout);
+        lock.lock();
+        try {
+            while (connection == null && running) {
+                try {
+                    if (!condition.awaitUntil(connectExpiry)) {
+                        throw new ExecException(String.format("Timeout waiting for %s to connect.", displayName));
+                    }
+                } catch (InterruptedException e) {
+                    throw UncheckedException.asUncheckedException(e);
+                }
+            }
+            rethrowFailure();
+            if (connection == null) {
+                throw new ExecException(String.format("Never received a connection from %s.", displayName));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public ExecResult waitForStop() {
+        ObjectConnection connection;
+        lock.lock();
+        try {
+            while (running) {
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.asUncheckedException(e);
+                }
+            }
+            connection = this.connection;
+        } finally {
+            this.connection = null;
+            lock.unlock();
+        }
+        if (connection != null) {
+            connection.stop();
+        }
+
+        lock.lock();
+        try {
+            rethrowFailure();
+            releaseProcess();
+        } finally {
+            lock.unlock();
+        }
+        return new WorkerResult();
+    }
+
+    private void releaseProcess() {
+        if (process != null) {
+            pool.release(process);
+            process = null;
+        }
+    }
+
+    private void rethrowFailure() {
+        if (processResult != null) {
+            processResult.rethrowFailure().assertNormalExitValue();
+            throw new ExecException(String.format("%s stopped while executing %s.", process, displayName));
+        }
+        if (failed) {
+            // The failure has been written to the error output of the process, which can execute other workers
+            releaseProcess();
+            throw new ExecException(String.format("%s failed.", displayName));
+        }
+    }
+
+    private static class WorkerResult implements ExecResult {
+        public int getExitValue() {
+            return 0;
+        }
+
+        public ExecResult assertNormalExitValue() throws ExecException {
+            return this;
+        }
+
+        public ExecResult rethrowFailure() throws ExecException {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal;
+
+import org.gradle.messaging.concurrent.Stoppable;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.child.ReusableWorkerMain;
+import org.gradle.process.internal.child.WorkerJobExecutor;
+import org.gradle.process.internal.child.WorkerJobListener;
+
+/**
+ * A worker process which runs {@link ReusableWorkerMain}, and executes the workers of a sequence of {@link
+ * PooledWorkerProcess} instances, one at a time.
+ */
+class ReusableWorkerProcess implements Stoppable {
+    private final Object lock = new Object();
+    private final Object key;
+    private final WorkerProcess process;
+    private final ExecHandle execHandle;
+    private final WorkerProcessPool pool;
+    private WorkerJobExecutor executor;
+    private PooledWorkerProcess currentWorker;
+    private boolean finished;
+
+    ReusableWorkerProcess(Object key, WorkerProcess process, ExecHandle execHandle, WorkerProcessPool pool) {
+        this.key = key;
+        this.process = process;
+        this.execHandle = execHandle;
+        this.pool = pool;
+        execHandle.addListener(new ExecHandleListener() {
+            public void executionStarted(ExecHandle execHandle) {
+            }
+
+            public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+                onProcessStop(execResult);
+            }
+        });
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    public ExecHandle getExecHandle() {
+        return execHandle;
+    }
+
+    @Override
+    public String toString() {
+        return execHandle.toString();
+    }
+
+    /**
+     * Starts this process, and adds it to the pool.
+     */
+    public void start() {
+        pool.add(this);
+        try {
+            process.start();
+        } catch (RuntimeException e) {
+            pool.remove(this);
+            throw e;
+        }
+
+        ObjectConnection connection = process.getConnection();
+        connection.addIncoming(WorkerJobListener.class, new WorkerJobListener() {
+            public void jobCompleted() {
+                onWorkerFinished(true);
+            }
+
+            public void jobFailed() {
+                onWorkerFinished(false);
+            }
+        });
+        executor = connection.addOutgoing(WorkerJobExecutor.class);
+    }
+
+    public boolean isRunning() {
+        synchronized (lock) {
+            return !finished;
+        }
+    }
+
+    /**
+     * Starts executing the given worker in this process. The worker is notified when it has finished executing.
+     */
+    public void execute(PooledWorkerProcess worker, byte[] serializedWorker) {
+        synchronized (lock) {
+            if (finished) {
+                throw new ExecException(String.format("Cannot execute %s, as %s has stopped.", worker, execHandle));
+            }
+            currentWorker = worker;
+        }
+        executor.execute(serializedWorker);
+    }
+
+    private void onWorkerFinished(boolean successful) {
+        PooledWorkerProcess worker;
+        synchronized (lock) {
+            worker = currentWorker;
+            currentWorker = null;
+        }
+        if (worker != null) {
+            worker.onWorkerFinished(successful);
+        }
+    }
+
+    private void onProcessStop(ExecResult execResult) {
+        PooledWorkerProcess worker;
+        synchronized (lock) {
+            finished = true;
+            worker = currentWorker;
+            currentWorker = null;
+        }
+        pool.remove(this);
+        if (worker != null) {
+            worker.onProcessStop(execHandle, execResult);
+        }
+    }
+
+    /**
+     * Asks this process to exit once its current worker has finished, and blocks until it has exited.
+     */
+    public void stop() {
+        if (!isRunning()) {
+            return;
+        }
+        executor.stop();
+        process.waitForStop();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal;
+
+import org.gradle.messaging.concurrent.CompositeStoppable;
+import org.gradle.messaging.concurrent.Stoppable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of the running {@link ReusableWorkerProcess} instances, and which of them are idle. Processes are
+ * matched by a key which describes their JVM options and system classpath.
+ */
+class WorkerProcessPool implements Stoppable {
+    private final Set<ReusableWorkerProcess> processes = new LinkedHashSet<ReusableWorkerProcess>();
+    private final Map<Object, LinkedList<ReusableWorkerProcess>> idle = new HashMap<Object, LinkedList<ReusableWorkerProcess>>();
+    private boolean stopped;
+
+    /**
+     * Takes an idle process with the given key out of the pool.
+     *
+     * @return the process, or null if there is no idle process with the given key.
+     */
+    public synchronized ReusableWorkerProcess acquire(Object key) {
+        LinkedList<ReusableWorkerProcess> candidates = idle.get(key);
+        while (candidates != null && !candidates.isEmpty()) {
+            ReusableWorkerProcess process = candidates.removeFirst();
+            if (process.isRunning()) {
+                return process;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds a process which is about to be started. The process is busy until it is released.
+     */
+    public synchronized void add(ReusableWorkerProcess process) {
+        if (stopped) {
+            throw new IllegalStateException("Cannot start a worker process, as the worker process pool has been stopped.");
+        }
+        processes.add(process);
+    }
+
+    /**
+     * Returns a busy process to the pool, so that it can be acquired again. Does nothing if the process has exited, or
+     * if this pool has been stopped, in which case the process is being stopped.
+     */
+    public synchronized void release(ReusableWorkerProcess process) {
+        if (stopped || !processes.contains(process)) {
+            return;
+        }
+        LinkedList<ReusableWorkerProcess> candidates = idle.get(process.getKey());
+        if (candidates == null) {
+            candidates = new LinkedList<ReusableWorkerProcess>();
+            idle.put(process.getKey(), candidates);
+        }
+        candidates.addFirst(process);
+    }
+
+    /**
+     * Removes a process which has exited.
+     */
+    public synchronized void remove(ReusableWorkerProcess process) {
+        processes.remove(process);
+        LinkedList<ReusableWorkerProcess> candidates = idle.get(process.getKey());
+        if (candidates != null) {
+            candidates.remove(process);
+        }
+    }
+
+    /**
+     * Stops all processes in this pool, blocking until they have exited.
+     */
+    public void stop() {
+        List<ReusableWorkerProcess> toStop;
+        synchronized (this) {
+            stopped = true;
+            toStop = new ArrayList<ReusableWorkerProcess>(processes);
+            processes.clear();
+            idle.clear();
+        }
+        new CompositeStoppable(toStop).stop();
+    }
+}
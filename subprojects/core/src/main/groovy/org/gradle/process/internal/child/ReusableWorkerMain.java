@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal.child;
+
+import org.gradle.messaging.remote.Address;
+import org.gradle.messaging.remote.MessagingClient;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.messaging.remote.internal.MessagingServices;
+import org.gradle.util.ClassLoaderObjectInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>The main action of a reusable worker process. Connects to the server process, then executes the jobs it is sent,
+ * one at a time, until it is asked to stop. Each job is a serialized {@link IsolatedApplicationClassLoaderWorker},
+ * so creates its own application and implementation ClassLoaders and its own connection to the server process.</p>
+ *
+ * <p>The system properties are reset after each job, so that a job does not see the changes made by previous
+ * jobs.</p>
+ */
+public class ReusableWorkerMain implements Callable<Void>, Serializable {
+    private static final byte[] STOP = new byte[0];
+    private final Address serverAddress;
+
+    public ReusableWorkerMain(Address serverAddress) {
+        this.serverAddress = serverAddress;
+    }
+
+    public Void call() throws Exception {
+        final BlockingQueue<byte[]> jobs = new LinkedBlockingQueue<byte[]>();
+        MessagingServices messagingServices = new MessagingServices(getClass().getClassLoader());
+        try {
+            ObjectConnection connection = messagingServices.get(MessagingClient.class).getConnection(serverAddress);
+            WorkerJobListener listener = connection.addOutgoing(WorkerJobListener.class);
+            connection.addIncoming(WorkerJobExecutor.class, new WorkerJobExecutor() {
+                public void execute(byte[] serializedJob) {
+                    jobs.add(serializedJob);
+                }
+
+                public void stop() {
+                    jobs.add(STOP);
+                }
+            });
+
+            while (true) {
+                byte[] serializedJob = jobs.take();
+                if (serializedJob == STOP) {
+                    break;
+                }
+                if (execute(serializedJob)) {
+                    listener.jobCompleted();
+                } else {
+                    listener.jobFailed();
+                }
+            }
+        } finally {
+            messagingServices.stop();
+        }
+        return null;
+    }
+
+    private boolean execute(byte[] serializedJob) {
+        Properties systemProperties = (Properties) System.getProperties().clone();
+        try {
+            ObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(serializedJob),
+                    getClass().getClassLoader());
+            Callable<?> job = (Callable<?>) instr.readObject();
+            job.call();
+            return true;
+        } catch (Throwable throwable) {
+            throwable.printStackTrace(System.err);
+            return false;
+        } finally {
+            System.setProperties(systemProperties);
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.gradle.reporting;
 import org.gradle.util.UncheckedException;
 
 import java.io.*;
+import java.nio.channels.Channels;
 
 public abstract class TextReportRenderer<T> {
     /**
@@ -31,7 +32,7 @@ public abstract class TextReportRenderer<T> {
     public void writeTo(T model, File file) {
         try {
             file.getParentFile().mkdirs();
-            Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file)), "utf-8");
+            Writer writer = new BufferedWriter(Channels.newWriter(new FileOutputStream(file).getChannel(), "utf-8"));
             try {
                 writeTo(model, writer);
             } finally {
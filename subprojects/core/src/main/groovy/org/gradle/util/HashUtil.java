@@ -30,13 +30,17 @@ import java.io.IOException;
  */
 public class HashUtil {
     public static String createHash(String scriptText) {
+        return createHash(scriptText.getBytes());
+    }
+
+    public static String createHash(byte[] bytes) {
         MessageDigest messageDigest;
         try {
             messageDigest = MessageDigest.getInstance("MD5");
         } catch (NoSuchAlgorithmException e) {
             throw UncheckedException.asUncheckedException(e);
         }
-        messageDigest.update(scriptText.getBytes());
+        messageDigest.update(bytes);
         return new BigInteger(1, messageDigest.digest()).toString(32);
     }
 
@@ -48,7 +52,7 @@ public class HashUtil {
             throw UncheckedException.asUncheckedException(e);
         }
         try {
-            byte[] buffer = new byte[4096];
+            byte[] buffer = new byte[64 * 1024];
             InputStream instr = new FileInputStream(file);
             try {
                 while (true) {
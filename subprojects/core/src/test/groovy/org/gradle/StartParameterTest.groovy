@@ -58,6 +58,9 @@ class StartParameterTest {
         testObj.logLevel = LogLevel.WARN
         testObj.colorOutput = false
         testObj.continueOnFailure = true
+        testObj.parallelThreadCount = 4
+        testObj.configureOnDemand = true
+        testObj.parallelProjectEvaluation = true
 
         StartParameter startParameter = testObj.newInstance()
         assertEquals(testObj, startParameter)
@@ -80,6 +83,9 @@ class StartParameterTest {
         assertThat(parameter.defaultProjectSelector, reflectionEquals(new DefaultProjectSpec(parameter.currentDir)))
         assertFalse(parameter.dryRun)
         assertFalse(parameter.continueOnFailure)
+        assertThat(parameter.parallelThreadCount, equalTo(0))
+        assertFalse(parameter.configureOnDemand)
+        assertFalse(parameter.parallelProjectEvaluation)
     }
 
     @Test public void testDefaultWithGradleUserHomeSystemProp() {
@@ -199,6 +205,9 @@ class StartParameterTest {
         parameter.defaultProjectSelector = [:] as ProjectSpec
         parameter.dryRun = true
         parameter.continueOnFailure = true
+        parameter.parallelThreadCount = 4
+        parameter.configureOnDemand = true
+        parameter.parallelProjectEvaluation = true
 
         StartParameter newParameter = parameter.newBuild();
 
@@ -209,6 +218,9 @@ class StartParameterTest {
         assertThat(newParameter.logLevel, equalTo(parameter.logLevel));
         assertThat(newParameter.colorOutput, equalTo(parameter.colorOutput));
         assertThat(newParameter.continueOnFailure, equalTo(parameter.continueOnFailure))
+        assertThat(newParameter.parallelThreadCount, equalTo(parameter.parallelThreadCount))
+        assertThat(newParameter.configureOnDemand, equalTo(parameter.configureOnDemand))
+        assertThat(newParameter.parallelProjectEvaluation, equalTo(parameter.parallelProjectEvaluation))
 
         assertThat(newParameter.buildFile, nullValue())
         assertThat(newParameter.taskNames, isEmpty())
@@ -28,6 +28,7 @@ import org.junit.Test;
 
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 
 import static org.gradle.util.HelperUtil.TEST_CLOSURE;
 import static org.gradle.util.HelperUtil.call;
@@ -95,6 +96,39 @@ public abstract class AbstractClassGeneratorTest {
         assertSame(generator.generate(Bean.class), generator.generate(Bean.class));
     }
 
+    @Test
+    public void generatesSubclassOnceWhenCalledConcurrently() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Class<?>> generated = Collections.synchronizedList(new ArrayList<Class<?>>());
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 10; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        generated.add(generator.generate(ConcurrentlyGeneratedBean.class));
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(failures, isEmpty());
+        assertThat(generated.size(), equalTo(10));
+        for (Class<?> c : generated) {
+            assertSame(generated.get(0), c);
+        }
+    }
+
     @Test
     public void doesNotDecorateAlreadyDecoratedClass() {
         Class<? extends Bean> generatedClass = generator.generate(Bean.class);
@@ -449,6 +483,9 @@ public abstract class AbstractClassGeneratorTest {
         }
     }
 
+    public static class ConcurrentlyGeneratedBean extends Bean {
+    }
+
     public static class BeanWithReadOnlyProperties {
         public String getProp() {
             return "value";
@@ -33,6 +33,7 @@ class CacheBackedFileSnapshotRepositoryTest extends Specification {
         ObjectCacheBuilder<Object, PersistentCache> builder = Mock()
         1 * cacheRepository.indexedCache(Object, Object, "fileSnapshots") >> builder
         1 * builder.forObject(gradle) >> builder
+        1 * builder.withSerializer({it instanceof FileSnapshotSerializer}) >> builder
         1 * builder.open() >> indexedCache
 
         repository = new CacheBackedFileSnapshotRepository(cacheRepository, gradle)
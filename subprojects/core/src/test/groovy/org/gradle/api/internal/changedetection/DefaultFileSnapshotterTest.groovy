@@ -29,6 +29,7 @@ import org.gradle.util.TestFile
 import org.gradle.api.file.FileCollection
 import org.gradle.util.ChangeListener
 import org.gradle.api.file.FileTree
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
 
 @RunWith(JMock.class)
 public class DefaultFileSnapshotterTest {
@@ -316,6 +317,67 @@ public class DefaultFileSnapshotterTest {
         target.changesSince(snapshotter.emptySnapshot(), listener)
     }
 
+    @Test
+    public void reusesPreviousSnapshotWhenNoFilesHaveChanged() {
+        TestFile file = tmpDir.createFile('file')
+        TestFile dir = tmpDir.createDir('dir')
+        TestFile noExist = tmpDir.file('missing')
+
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(file, dir, noExist))
+
+        assertThat(snapshotter.snapshot(files(file, dir, noExist), snapshot), sameInstance(snapshot))
+        assertThat(snapshotter.snapshot(files(file, dir), snapshot), not(sameInstance(snapshot)))
+        assertThat(snapshotter.snapshot(files(file, dir, noExist, tmpDir.createFile('other')), snapshot), not(sameInstance(snapshot)))
+    }
+
+    @Test
+    public void hashesOnlyThoseFilesWhoseLengthOrTimestampHasChanged() {
+        TestFile file1 = tmpDir.createFile('file1')
+        TestFile file2 = tmpDir.createFile('file2')
+        Hasher hasher = context.mock(Hasher.class)
+        DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(hasher)
+
+        context.checking {
+            one(hasher).hash(file1)
+            will(returnValue(new byte[0]))
+            one(hasher).hash(file2)
+            will(returnValue(new byte[0]))
+        }
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(file1, file2))
+
+        file2.write('new content')
+
+        context.checking {
+            one(hasher).hash(file2)
+            will(returnValue(new byte[1]))
+        }
+        FileCollectionSnapshot newSnapshot = snapshotter.snapshot(files(file1, file2), snapshot)
+
+        context.checking {
+            one(listener).changed(file2)
+        }
+        newSnapshot.changesSince(snapshot, listener)
+    }
+
+    @Test
+    public void hashesLargeCollectionsConcurrentlyWithSameResult() {
+        List<TestFile> testFiles = (1..200).collect { tmpDir.file("file$it").write("content $it") }
+        DefaultFileSnapshotter concurrentSnapshotter = new DefaultFileSnapshotter(hasher, new DefaultExecutorFactory(), 4)
+
+        FileCollectionSnapshot snapshot = snapshotter.snapshot(files(testFiles as File[]))
+        FileCollectionSnapshot concurrentSnapshot = concurrentSnapshotter.snapshot(files(testFiles as File[]))
+
+        assertThat(concurrentSnapshot.files.files, equalTo(snapshot.files.files))
+        concurrentSnapshot.changesSince(snapshot, listener)
+
+        testFiles[100].write('new content')
+
+        context.checking {
+            one(listener).changed(testFiles[100])
+        }
+        concurrentSnapshotter.snapshot(files(testFiles as File[])).changesSince(snapshot, listener)
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = context.mock(FileTree.class)
         context.checking {
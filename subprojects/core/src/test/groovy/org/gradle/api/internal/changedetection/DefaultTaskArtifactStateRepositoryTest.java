@@ -511,6 +511,46 @@ public class DefaultTaskArtifactStateRepositoryTest {
         assertThat(state.getExecutionHistory().getOutputFiles().getFiles(), equalTo(toLinkedSet((File) outputDirFile2)));
     }
 
+    @Test
+    public void canExecuteTasksConcurrently() throws Exception {
+        final List<TaskInternal> tasks = new ArrayList<TaskInternal>();
+        for (int i = 0; i < 20; i++) {
+            TestFile taskDir = tmpDir.createDir("task" + i);
+            tasks.add(builder().withPath("task" + i).withInputFiles(taskDir.createFile("input")).withOutputFiles(
+                    taskDir.file("output")).task());
+        }
+
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < tasks.size(); i++) {
+            final TaskInternal task = tasks.get(i);
+            final TestFile outputFile = tmpDir.file("task" + i, "output");
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        TaskArtifactState state = repository.getStateFor(task);
+                        assertFalse(state.isUpToDate());
+                        outputFile.createFile();
+                        state.afterTask();
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(failures, isEmpty());
+
+        for (TaskInternal task : tasks) {
+            assertTrue(repository.getStateFor(task).isUpToDate());
+        }
+    }
+
     private void execute() {
         execute(task());
     }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection
+
+import org.gradle.api.file.FileCollection
+import org.gradle.api.file.FileTree
+import org.gradle.cache.DefaultSerializer
+import org.gradle.util.ChangeListener
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class FileSnapshotSerializerTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final FileSnapshotSerializer serializer = new FileSnapshotSerializer()
+    final DefaultFileSnapshotter snapshotter = new DefaultFileSnapshotter(new DefaultHasher())
+    final ChangeListener<File> listener = Mock()
+
+    def "can serialize an id"() {
+        expect:
+        roundTrip(12L) == 12L
+    }
+
+    def "can serialize a snapshot of files, directories and missing files"() {
+        TestFile file1 = tmpDir.createFile('dir/file1')
+        TestFile file2 = tmpDir.createFile('dir/sub/file2')
+        TestFile dir = tmpDir.file('dir/sub')
+        TestFile missing = tmpDir.file('dir/missing')
+        def snapshot = snapshotter.snapshot(files(file1, file2, dir, missing))
+
+        when:
+        FileCollectionSnapshot copy = roundTrip(snapshot)
+        copy.changesSince(snapshot, listener)
+
+        then:
+        copy.files.files == [file1, file2] as Set
+        0 * listener._
+
+        when:
+        file1.write('new content')
+        snapshotter.snapshot(files(file1, file2, dir, missing)).changesSince(copy, listener)
+
+        then:
+        1 * listener.changed(file1)
+        0 * listener._
+    }
+
+    def "can serialize an empty snapshot"() {
+        expect:
+        roundTrip(snapshotter.emptySnapshot()).files.files.empty
+    }
+
+    def "can serialize an output files snapshot"() {
+        TestFile file = tmpDir.createFile('dir/file')
+        TestFile dir = tmpDir.file('dir')
+        TestFile missing = tmpDir.file('missing')
+        def snapshot = new OutputFilesSnapshotter.OutputFilesSnapshot([(dir.absolutePath): 12L, (missing.absolutePath): null], snapshotter.snapshot(files(file)))
+
+        when:
+        FileCollectionSnapshot copy = roundTrip(snapshot)
+        copy.changesSince(snapshot, listener)
+
+        then:
+        copy instanceof OutputFilesSnapshotter.OutputFilesSnapshot
+        copy.files.files == [file] as Set
+        0 * listener._
+    }
+
+    def "uses java serialization for other values"() {
+        expect:
+        roundTrip("some value") == "some value"
+    }
+
+    def "compact format is smaller than java serialization"() {
+        def testFiles = (1..100).collect { tmpDir.createFile("some/long/directory/path/file${it}.txt") }
+        def snapshot = snapshotter.snapshot(files(testFiles as File[]))
+
+        def compact = new ByteArrayOutputStream()
+        serializer.write(compact, snapshot)
+        def serialized = new ByteArrayOutputStream()
+        new DefaultSerializer<Object>().write(serialized, snapshot)
+
+        expect:
+        compact.size() < serialized.size() / 2
+    }
+
+    def roundTrip(Object value) {
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, value)
+        return serializer.read(new ByteArrayInputStream(outstr.toByteArray()))
+    }
+
+    FileCollection files(File... files) {
+        FileTree tree = Mock()
+        _ * tree.asFileTree >> tree
+        _ * tree.iterator() >> { (files as List).iterator() }
+        return tree
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive
+
+import java.nio.charset.Charset
+import java.util.zip.ZipEntry
+import java.util.zip.ZipFile
+import java.util.zip.ZipInputStream
+import org.gradle.api.file.FileTreeElement
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class ParallelZipWriterTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory()
+    final long lastModified = new GregorianCalendar(2011, 5, 1, 10, 20, 30).timeInMillis
+    final File zipFile = tmpDir.file("test.zip")
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "writes entries in the order they are added"() {
+        def writer = new ParallelZipWriter(zipFile, executorFactory.create("compress"), 4)
+
+        when:
+        writer.addDirectory("dir", lastModified, 0755)
+        50.times { writer.addFile("dir/file${it}.txt", lastModified, 0644, content("content ${it} " * (it * 100))) }
+        writer.addDirectory("dir/empty", lastModified, 0700)
+        writer.close()
+
+        then:
+        def expectedNames = ["dir/"] + (0..<50).collect { "dir/file${it}.txt" } + ["dir/empty/"]
+        entryNames() == expectedNames
+
+        def zip = new ZipFile(zipFile)
+        50.times {
+            assert zip.getInputStream(zip.getEntry("dir/file${it}.txt")).text == "content ${it} " * (it * 100)
+        }
+        zip.getEntry("dir/file10.txt").time == lastModified
+        zip.close()
+
+        def antZip = new org.apache.tools.zip.ZipFile(zipFile)
+        antZip.getEntry("dir/").unixMode == (0755 | org.apache.tools.zip.UnixStat.DIR_FLAG)
+        antZip.getEntry("dir/").directory
+        antZip.getEntry("dir/file0.txt").unixMode == (0644 | org.apache.tools.zip.UnixStat.FILE_FLAG)
+        antZip.getEntry("dir/empty/").unixMode == (0700 | org.apache.tools.zip.UnixStat.DIR_FLAG)
+        antZip.close()
+    }
+
+    def "compresses entries in the calling thread when no executor is given"() {
+        def writer = new ParallelZipWriter(zipFile, null, 1)
+
+        when:
+        writer.addFile("a.txt", lastModified, 0644, content("aaaa" * 1000))
+        writer.addFile("b.txt", lastModified, 0644, content("bbbb" * 1000))
+        writer.close()
+
+        then:
+        entryNames() == ["a.txt", "b.txt"]
+        def zip = new ZipFile(zipFile)
+        zip.getEntry("a.txt").method == ZipEntry.DEFLATED
+        zip.getInputStream(zip.getEntry("b.txt")).text == "bbbb" * 1000
+        zip.close()
+    }
+
+    def "stores files which are already compressed"() {
+        def writer = new ParallelZipWriter(zipFile, executorFactory.create("compress"), 4)
+        def random = randomBytes(10000)
+
+        when:
+        writer.addFile("lib/some.jar", lastModified, 0644, content("jar content " * 100))
+        writer.addFile("image.PNG", lastModified, 0644, content("png content " * 100))
+        writer.addFile("random.bin", lastModified, 0644, content(random))
+        writer.addFile("empty.txt", lastModified, 0644, content(new byte[0]))
+        writer.addFile("text.txt", lastModified, 0644, content("text " * 100))
+        writer.close()
+
+        then:
+        def zip = new ZipFile(zipFile)
+        zip.getEntry("lib/some.jar").method == ZipEntry.STORED
+        zip.getEntry("image.PNG").method == ZipEntry.STORED
+        zip.getEntry("random.bin").method == ZipEntry.STORED
+        zip.getEntry("empty.txt").method == ZipEntry.STORED
+        zip.getEntry("text.txt").method == ZipEntry.DEFLATED
+        zip.getInputStream(zip.getEntry("lib/some.jar")).text == "jar content " * 100
+        zip.getInputStream(zip.getEntry("random.bin")).bytes == random
+        zip.getInputStream(zip.getEntry("empty.txt")).bytes.length == 0
+        zip.close()
+    }
+
+    def "writes large files without holding them in memory"() {
+        def writer = new ParallelZipWriter(zipFile, executorFactory.create("compress"), 4)
+        def text = "large file content\n" * ParallelZipWriter.MAX_BUFFERED_ENTRY_SIZE.intdiv(5)
+        def random = randomBytes(ParallelZipWriter.MAX_BUFFERED_ENTRY_SIZE * 2)
+
+        when:
+        writer.addFile("before.txt", lastModified, 0644, content("before " * 1000))
+        writer.addFile("large.txt", lastModified, 0644, content(text))
+        writer.addFile("between.txt", lastModified, 0644, content("between " * 1000))
+        writer.addFile("large.jar", lastModified, 0644, content(random))
+        writer.addFile("after.txt", lastModified, 0644, content("after " * 1000))
+        writer.close()
+
+        then:
+        entryNames() == ["before.txt", "large.txt", "between.txt", "large.jar", "after.txt"]
+        def zip = new ZipFile(zipFile)
+        zip.getEntry("large.txt").method == ZipEntry.DEFLATED
+        zip.getEntry("large.txt").size == text.length()
+        zip.getInputStream(zip.getEntry("large.txt")).text == text
+        zip.getEntry("large.jar").method == ZipEntry.STORED
+        zip.getInputStream(zip.getEntry("large.jar")).bytes == random
+        zip.getInputStream(zip.getEntry("after.txt")).text == "after " * 1000
+        zip.close()
+    }
+
+    def "encodes entry names using the given charset and sets the language encoding flag only for UTF-8"() {
+        def name = "dir/caf\u00e9.txt"
+
+        when:
+        def writer = new ParallelZipWriter(zipFile, null, 1, Charset.forName(charset))
+        writer.addFile(name, lastModified, 0644, content("content"))
+        writer.close()
+
+        then:
+        def bytes = zipFile.bytes
+        def generalPurposeFlags = (bytes[6] & 0xff) | ((bytes[7] & 0xff) << 8)
+        generalPurposeFlags == flags
+        def zip = new org.apache.tools.zip.ZipFile(zipFile, charset)
+        zip.getEntry(name) != null
+        zip.close()
+
+        where:
+        charset      | flags
+        "UTF-8"      | 1 << 11
+        "ISO-8859-1" | 0
+    }
+
+    def "propagates failure to read file content"() {
+        def writer = new ParallelZipWriter(zipFile, executorFactory.create("compress"), 4)
+        def failure = new RuntimeException("broken")
+        def element = [copyTo: { OutputStream outstr -> throw failure }] as FileTreeElement
+
+        when:
+        writer.addFile("broken.txt", lastModified, 0644, element)
+
+        then:
+        RuntimeException e = thrown()
+        e.is(failure)
+
+        cleanup:
+        writer.close()
+    }
+
+    private List<String> entryNames() {
+        def names = []
+        def zipInput = new ZipInputStream(new FileInputStream(zipFile))
+        try {
+            for (ZipEntry entry = zipInput.nextEntry; entry != null; entry = zipInput.nextEntry) {
+                names << entry.name
+            }
+        } finally {
+            zipInput.close()
+        }
+        return names
+    }
+
+    private byte[] randomBytes(int count) {
+        def bytes = new byte[count]
+        new Random(1).nextBytes(bytes)
+        return bytes
+    }
+
+    private FileTreeElement content(String text) {
+        return content(text.getBytes("UTF-8"))
+    }
+
+    private FileTreeElement content(byte[] bytes) {
+        return [copyTo: { OutputStream outstr -> outstr.write(bytes) }] as FileTreeElement
+    }
+}
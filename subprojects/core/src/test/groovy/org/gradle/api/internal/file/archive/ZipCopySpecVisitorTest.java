@@ -21,6 +21,7 @@ import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.copy.ArchiveCopyAction;
 import org.gradle.api.internal.file.copy.ReadableCopySpec;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.util.TestFile;
 import org.gradle.util.TemporaryFolder;
 import org.hamcrest.Description;
@@ -81,6 +82,31 @@ public class ZipCopySpecVisitorTest {
         expandDir.file("file2").assertContents(equalTo("contents of file2"));
     }
 
+    @Test
+    public void createsZipFileUsingAntWhenNoCompressionThreadsAreSpecified() {
+        final TestFile zipFile = tmpDir.getDir().file("test.zip");
+        ZipCopySpecVisitor antVisitor = new ZipCopySpecVisitor(context.mock(ExecutorFactory.class), 0);
+
+        context.checking(new Expectations(){{
+            allowing(copyAction).getArchivePath();
+            will(returnValue(zipFile));
+        }});
+
+        antVisitor.startVisit(copyAction);
+        antVisitor.visitSpec(copySpec);
+
+        antVisitor.visitDir(dir("dir"));
+        antVisitor.visitFile(file("dir/file1"));
+        antVisitor.visitFile(file("file2"));
+
+        antVisitor.endVisit();
+
+        TestFile expandDir = tmpDir.getDir().file("expanded");
+        zipFile.unzipTo(expandDir);
+        expandDir.file("dir/file1").assertContents(equalTo("contents of dir/file1"));
+        expandDir.file("file2").assertContents(equalTo("contents of file2"));
+    }
+
     @Test
     public void wrapsFailureToOpenOutputFile() {
         final TestFile zipFile = tmpDir.createDir("test.zip");
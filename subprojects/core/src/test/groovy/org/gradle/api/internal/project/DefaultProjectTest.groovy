@@ -22,6 +22,7 @@ package org.gradle.api.internal.project
 import java.awt.Point
 import java.text.FieldPosition
 import org.apache.tools.ant.types.FileSet
+import org.gradle.StartParameter
 import org.gradle.api.artifacts.Module
 import org.gradle.api.artifacts.dsl.ArtifactHandler
 import org.gradle.api.artifacts.dsl.DependencyHandler
@@ -42,6 +43,7 @@ import org.gradle.api.logging.LogLevel
 import org.gradle.api.plugins.Convention
 import org.gradle.api.plugins.PluginContainer
 import org.gradle.api.tasks.Directory
+import org.gradle.configuration.BuildConfigurer
 import org.gradle.configuration.ProjectEvaluator
 import org.gradle.configuration.ScriptPluginFactory
 import org.gradle.groovy.scripts.EmptyScript
@@ -551,6 +553,36 @@ class DefaultProjectTest {
         assertSame(child1, childchild.project(Project.PATH_SEPARATOR + "child1"))
     }
 
+    @Test void testGetProjectConfiguresOtherProjectWhenConfiguringOnDemand() {
+        BuildConfigurer buildConfigurer = expectConfigureOnDemand()
+        context.checking {
+            one(buildConfigurer).configure(child2)
+        }
+
+        assertSame(child2, childchild.project(Project.PATH_SEPARATOR + "child2"))
+        assertSame(child1, childchild.project(Project.PATH_SEPARATOR + "child1"))
+        assertSame(childchild, project.project(Project.PATH_SEPARATOR + "child1:childchild"))
+    }
+
+    @Test void testGetProjectWithClosureDoesNotConfigureProjectWhenConfiguringOnDemand() {
+        expectConfigureOnDemand()
+
+        assertSame(child2, child1.project(Project.PATH_SEPARATOR + "child2") {})
+    }
+
+    private BuildConfigurer expectConfigureOnDemand() {
+        StartParameter startParameter = new StartParameter()
+        startParameter.configureOnDemand = true
+        ServiceRegistryFactory gradleServices = context.mock(ServiceRegistryFactory, 'gradle')
+        BuildConfigurer buildConfigurer = context.mock(BuildConfigurer)
+        context.checking {
+            allowing(build).getStartParameter(); will(returnValue(startParameter))
+            allowing(build).getServices(); will(returnValue(gradleServices))
+            allowing(gradleServices).get(BuildConfigurer); will(returnValue(buildConfigurer))
+        }
+        return buildConfigurer
+    }
+
     @Test void testGetProjectWithUnknownAbsolutePath() {
         try {
             project.project(Project.PATH_SEPARATOR + "unknownchild")
@@ -27,6 +27,7 @@ import org.gradle.cache.internal.DefaultFileLockManager;
 import org.gradle.cache.internal.FileLockManager;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.cli.CommandLineConverter;
+import org.gradle.groovy.scripts.internal.CrossBuildScriptClassCache;
 import org.gradle.initialization.DefaultClassLoaderRegistry;
 import org.gradle.initialization.DefaultCommandLineConverter;
 import org.gradle.listener.DefaultListenerManager;
@@ -121,4 +122,9 @@ public class GlobalServicesRegistryTest {
     public void providesAFileLockManager() {
         assertThat(registry.get(FileLockManager.class), instanceOf(DefaultFileLockManager.class));
     }
+
+    @Test
+    public void providesACrossBuildScriptClassCache() {
+        assertThat(registry.get(CrossBuildScriptClassCache.class), instanceOf(CrossBuildScriptClassCache.class));
+    }
 }
@@ -25,6 +25,7 @@ import org.gradle.execution.DefaultTaskGraphExecuter;
 import org.gradle.execution.TaskGraphExecuter;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.util.JUnit4GroovyMockery;
 import org.gradle.util.MultiParentClassLoader;
 import org.jmock.Expectations;
@@ -46,12 +47,15 @@ public class GradleInternalServiceRegistryTest {
     private final GradleInternalServiceRegistry registry = new GradleInternalServiceRegistry(parent, gradle);
     private final StartParameter startParameter = new StartParameter();
     private final ListenerManager listenerManager = context.mock(ListenerManager.class);
+    private final ExecutorFactory executorFactory = context.mock(ExecutorFactory.class);
 
     @Before
     public void setUp() {
         context.checking(new Expectations() {{
             allowing(parent).get(ListenerManager.class);
             will(returnValue(listenerManager));
+            allowing(parent).get(ExecutorFactory.class);
+            will(returnValue(executorFactory));
             allowing(gradle).getStartParameter();
             will(returnValue(startParameter));
             allowing(gradle).getScriptClassLoader();
@@ -34,6 +34,7 @@ import org.gradle.execution.BuildExecuter;
 import org.gradle.execution.DefaultBuildExecuter;
 import org.gradle.groovy.scripts.DefaultScriptCompilerFactory;
 import org.gradle.groovy.scripts.ScriptCompilerFactory;
+import org.gradle.groovy.scripts.internal.CrossBuildScriptClassCache;
 import org.gradle.initialization.*;
 import org.gradle.listener.DefaultListenerManager;
 import org.gradle.listener.ListenerManager;
@@ -87,6 +88,8 @@ public class TopLevelBuildServiceRegistryTest {
             will(returnValue(new DefaultModuleRegistry()));
             allowing(parent).get(PluginModuleRegistry.class);
             will(returnValue(context.mock(PluginModuleRegistry.class)));
+            allowing(parent).get(CrossBuildScriptClassCache.class);
+            will(returnValue(new CrossBuildScriptClassCache(getClass().getClassLoader())));
         }});
     }
     
@@ -16,14 +16,18 @@
 package org.gradle.api.internal.tasks;
 
 import groovy.lang.Closure;
+import org.gradle.StartParameter;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.Rule;
 import org.gradle.api.Task;
 import org.gradle.api.UnknownTaskException;
+import org.gradle.api.internal.GradleInternal;
 import org.gradle.api.internal.Instantiator;
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.api.internal.project.ServiceRegistryFactory;
 import org.gradle.api.internal.project.taskfactory.ITaskFactory;
+import org.gradle.configuration.BuildConfigurer;
 import org.gradle.util.GUtil;
 import org.gradle.util.HelperUtil;
 import org.jmock.Expectations;
@@ -44,6 +48,8 @@ public class DefaultTaskContainerTest {
     private final JUnit4Mockery context = new JUnit4Mockery();
     private final ITaskFactory taskFactory = context.mock(ITaskFactory.class);
     private final ProjectInternal project = context.mock(ProjectInternal.class, "<project>");
+    private final GradleInternal gradle = context.mock(GradleInternal.class);
+    private final StartParameter startParameter = new StartParameter();
     private int taskCount;
     private final DefaultTaskContainer container = new DefaultTaskContainer(project, context.mock(Instantiator.class), taskFactory);
 
@@ -262,11 +268,36 @@ public class DefaultTaskContainerTest {
         assertThat(container.resolveTask(new StringBuilder(":task")), sameInstance(task));
     }
     
-    private void expectTaskLookupInOtherProject(final String projectPath, final String taskName, final Task task) {
+    @Test
+    public void configuresOtherProjectWhenConfiguringOnDemand() {
+        final Task task = task("task");
+        final ProjectInternal otherProject = expectTaskLookupInOtherProject(":other", "task", task);
+        final ServiceRegistryFactory services = context.mock(ServiceRegistryFactory.class);
+        final BuildConfigurer buildConfigurer = context.mock(BuildConfigurer.class);
+        startParameter.setConfigureOnDemand(true);
+
+        context.checking(new Expectations() {{
+            allowing(gradle).getServices();
+            will(returnValue(services));
+            allowing(services).get(BuildConfigurer.class);
+            will(returnValue(buildConfigurer));
+            one(buildConfigurer).configure(otherProject);
+        }});
+
+        assertThat(container.getByPath(":other:task"), sameInstance(task));
+    }
+
+    private ProjectInternal expectTaskLookupInOtherProject(final String projectPath, final String taskName, final Task task) {
+        final ProjectInternal otherProject = context.mock(ProjectInternal.class);
         context.checking(new Expectations() {{
-            ProjectInternal otherProject = context.mock(ProjectInternal.class);
             TaskContainerInternal otherTaskContainer = context.mock(TaskContainerInternal.class);
 
+            allowing(project).getGradle();
+            will(returnValue(gradle));
+
+            allowing(gradle).getStartParameter();
+            will(returnValue(startParameter));
+
             allowing(project).findProject(projectPath);
             will(returnValue(otherProject));
 
@@ -276,6 +307,7 @@ public class DefaultTaskContainerTest {
             allowing(otherTaskContainer).findByName(taskName);
             will(returnValue(task));
         }});
+        return otherProject;
     }
 
     private TaskInternal task(final String name) {
@@ -22,6 +22,8 @@ import org.gradle.cache.internal.CacheFactory.CrossVersionMode
 import org.gradle.cache.internal.btree.BTreePersistentIndexedCache
 import org.gradle.util.TemporaryFolder
 import org.junit.Rule
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
 import spock.lang.Specification
 
 class DefaultCacheFactoryTest extends Specification {
@@ -348,7 +350,29 @@ class DefaultCacheFactoryTest extends Specification {
         IllegalStateException e = thrown()
         e.message == "Cannot open cache '${tmpDir.dir}' with exclusive lock mode as it is already open with shared lock mode."
     }
-}
 
+    public void "can open a directory cache while another directory cache is being initialized"() {
+        given:
+        def factory = factoryFactory.create()
+        def initializing = new CountDownLatch(1)
+        def otherOpened = new CountDownLatch(1)
+        def openedConcurrently = false
+        def initializer = { cache ->
+            initializing.countDown()
+            openedConcurrently = otherOpened.await(20, TimeUnit.SECONDS)
+        } as Action
+        def thread = new Thread({
+            factory.open(tmpDir.file('slow'), CacheUsage.ON, [prop: 'value'], FileLockManager.LockMode.Exclusive, CrossVersionMode.VersionSpecific, initializer)
+        } as Runnable)
 
+        when:
+        thread.start()
+        initializing.await()
+        factory.open(tmpDir.file('fast'), CacheUsage.ON, [prop: 'value'], FileLockManager.LockMode.Exclusive, CrossVersionMode.VersionSpecific, null)
+        otherOpened.countDown()
+        thread.join()
 
+        then:
+        openedConcurrently
+    }
+}
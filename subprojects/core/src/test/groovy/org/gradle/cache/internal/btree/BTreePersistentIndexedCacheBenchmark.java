@@ -0,0 +1,96 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.cache.internal.NoOpFileLock;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Measures the number of gets and puts per second made by a {@link BTreePersistentIndexedCache} which stores its blocks
+ * in a {@link FileBackedBlockStore} and in a {@link MappedFileBlockStore}. This is not run as part of the test suite.
+ * Run it using the {@link #main} method.
+ */
+public class BTreePersistentIndexedCacheBenchmark {
+    private static final int ENTRIES = 50000;
+    private static final int GETS = 500000;
+    private static final int UPDATES = 20000;
+
+    public static void main(String[] args) throws Exception {
+        File cacheFile = File.createTempFile("indexed-cache", ".bin");
+        cacheFile.deleteOnExit();
+        try {
+            for (int i = 0; i < 3; i++) {
+                cacheFile.delete();
+                run("FileBackedBlockStore", cacheFile, new FileBackedBlockStore(cacheFile));
+                cacheFile.delete();
+                run("MappedFileBlockStore", cacheFile, new MappedFileBlockStore(cacheFile));
+            }
+        } finally {
+            cacheFile.delete();
+        }
+    }
+
+    private static void run(String displayName, File cacheFile, BlockStore store) {
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, store, new NoOpFileLock(), new DefaultSerializer<String>());
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < ENTRIES; i++) {
+                cache.put(key(i), value(i));
+            }
+            report(displayName, "put new entries", ENTRIES, start);
+
+            Random random = new Random(1);
+            start = System.nanoTime();
+            for (int i = 0; i < GETS; i++) {
+                int index = random.nextInt(ENTRIES);
+                check(cache.get(key(index)), index);
+            }
+            report(displayName, "get existing entries", GETS, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < UPDATES; i++) {
+                int index = ENTRIES + i;
+                cache.put(key(index), value(index));
+                check(cache.get(key(index)), index);
+            }
+            report(displayName, "put then get", UPDATES, start);
+        } finally {
+            cache.close();
+        }
+    }
+
+    private static String key(int index) {
+        return "org.gradle:module-" + index + ":1.0";
+    }
+
+    private static String value(int index) {
+        return "/some/path/to/the/cache/files-1.1/org.gradle/module-" + index + "/1.0/module-" + index + "-1.0.jar";
+    }
+
+    private static void check(String value, int index) {
+        if (!value(index).equals(value)) {
+            throw new IllegalStateException(String.format("Expected value %s, found %s.", value(index), value));
+        }
+    }
+
+    private static void report(String displayName, String operation, int count, long start) {
+        long duration = System.nanoTime() - start;
+        System.out.println(String.format("%s, %s: %.0f operations/sec", displayName, operation, count * 1e9 / duration));
+    }
+}
@@ -50,7 +50,7 @@ public class BTreePersistentIndexedCacheTest {
     public void setup() {
         cacheFile = tmpDir.file("cache.bin");
         fileLock = new DefaultFileLockManager(new DefaultProcessMetaDataProvider(NativeEnvironment.current())).lock(cacheFile, FileLockManager.LockMode.Exclusive, "cache");
-        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, fileLock, serializer, (short) 4, 100);
+        cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, createStore(cacheFile), fileLock, serializer, (short) 4, 100, getMaxPendingUpdates());
     }
 
     @After
@@ -58,6 +58,14 @@ public class BTreePersistentIndexedCacheTest {
         fileLock.close();
     }
 
+    protected BlockStore createStore(File cacheFile) {
+        return new FileBackedBlockStore(cacheFile);
+    }
+
+    protected int getMaxPendingUpdates() {
+        return 1;
+    }
+
     @Test
     public void getReturnsNullWhenEntryDoesNotExist() {
         assertNull(cache.get("unknown"));
@@ -123,7 +131,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void reusesEmptySpaceWhenPuttingEntries() {
-        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, fileLock, new DefaultSerializer<String>(), (short) 4, 100);
+        BTreePersistentIndexedCache<String, String> cache = new BTreePersistentIndexedCache<String, String>(cacheFile, createStore(cacheFile), fileLock, new DefaultSerializer<String>(), (short) 4, 100);
 
         cache.put("key_1", "abcd");
         cache.put("key_2", "abcd");
@@ -232,7 +240,7 @@ public class BTreePersistentIndexedCacheTest {
         cacheFile.assertIsFile();
         cacheFile.write("some junk");
 
-        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, fileLock, serializer);
+        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(cacheFile, createStore(cacheFile), fileLock, serializer);
 
         assertNull(cache.get("key_1"));
         cache.put("key_1", 99);
@@ -248,7 +256,7 @@ public class BTreePersistentIndexedCacheTest {
 
     @Test
     public void canUseFileAsKey() {
-        BTreePersistentIndexedCache<File, Integer> cache = new BTreePersistentIndexedCache<File, Integer>(cacheFile, fileLock, serializer);
+        BTreePersistentIndexedCache<File, Integer> cache = new BTreePersistentIndexedCache<File, Integer>(cacheFile, createStore(cacheFile), fileLock, serializer);
 
         cache.put(new File("file"), 1);
         cache.put(new File("dir/file"), 2);
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.cache.DefaultSerializer;
+import org.gradle.cache.internal.NoOpFileLock;
+import org.gradle.util.TestFile;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class BatchedUpdatesBTreePersistentIndexedCacheTest extends BTreePersistentIndexedCacheTest {
+    @Override
+    protected int getMaxPendingUpdates() {
+        return 10;
+    }
+
+    @Test
+    public void writesPendingUpdatesWhileHoldingLockOnce() {
+        TestFile file = tmpDir.file("batched.bin");
+        CountingFileLock lock = new CountingFileLock();
+        BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(file, new FileBackedBlockStore(file), lock, new DefaultSerializer<Integer>(), 10);
+        long initialLength = file.length();
+        int initialWrites = lock.writes;
+
+        for (int i = 0; i < 9; i++) {
+            cache.put(String.format("key_%d", i), i);
+        }
+
+        assertThat(file.length(), equalTo(initialLength));
+        assertThat(lock.writes, equalTo(initialWrites));
+        assertThat(cache.get("key_4"), equalTo(4));
+
+        cache.put("key_9", 9);
+
+        assertThat(file.length(), greaterThan(initialLength));
+        assertThat(lock.writes, equalTo(initialWrites + 1));
+
+        cache.remove("key_4");
+        cache.close();
+
+        assertThat(lock.writes, equalTo(initialWrites + 2));
+
+        cache = new BTreePersistentIndexedCache<String, Integer>(file, new FileBackedBlockStore(file), lock, new DefaultSerializer<Integer>(), 10);
+        assertThat(cache.get("key_4"), nullValue());
+        assertThat(cache.get("key_9"), equalTo(9));
+        cache.close();
+    }
+
+    private static class CountingFileLock extends NoOpFileLock {
+        int writes;
+
+        @Override
+        public void writeToFile(Runnable action) {
+            writes++;
+            super.writeToFile(action);
+        }
+    }
+}
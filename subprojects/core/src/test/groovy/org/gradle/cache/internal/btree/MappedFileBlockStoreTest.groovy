@@ -0,0 +1,208 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree
+
+import org.gradle.util.ConcurrentSpecification
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+
+class MappedFileBlockStoreTest extends ConcurrentSpecification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final TestFile cacheFile = tmpDir.file("cache.bin")
+    MappedFileBlockStore store = new MappedFileBlockStore(cacheFile)
+    final BlockStore.Factory factory = { new TestBlock() } as BlockStore.Factory
+
+    def cleanup() {
+        store.close()
+    }
+
+    def "runs init action when file is empty"() {
+        Runnable action = Mock()
+
+        when:
+        store.open(action, factory)
+
+        then:
+        1 * action.run()
+    }
+
+    def "can read back blocks which have been written"() {
+        store.open({} as Runnable, factory)
+        def blocks = (0..9).collect { new TestBlock(value: "value $it") }
+
+        when:
+        blocks.each { write(store, it) }
+
+        then:
+        blocks.each { block ->
+            assert store.read(block.pos, TestBlock).value == block.value
+        }
+        store.readFirst(TestBlock).value == "value 0"
+    }
+
+    def "can update a block in place"() {
+        store.open({} as Runnable, factory)
+        def block = new TestBlock(value: "a")
+        def other = new TestBlock(value: "b")
+        write(store, block)
+        write(store, other)
+        store.read(block.pos, TestBlock)
+
+        when:
+        block.value = "c"
+        write(store, block)
+
+        then:
+        store.read(block.pos, TestBlock).value == "c"
+        store.read(other.pos, TestBlock).value == "b"
+    }
+
+    def "can read blocks written by another store"() {
+        def fileStore = new FileBackedBlockStore(cacheFile)
+        fileStore.open({} as Runnable, factory)
+        def block = new TestBlock(value: "value")
+        write(fileStore, block)
+        fileStore.close()
+
+        when:
+        store.open({} as Runnable, factory)
+
+        then:
+        store.read(block.pos, TestBlock).value == "value"
+    }
+
+    def "detects corrupted block"() {
+        store.open({} as Runnable, factory)
+        write(store, new TestBlock(value: "value"))
+
+        when:
+        store.read(new BlockPointer(1), TestBlock)
+
+        then:
+        thrown(CorruptedCacheException)
+    }
+
+    def "discards blocks on clear"() {
+        store.open({} as Runnable, factory)
+        def block = new TestBlock(value: "value")
+        write(store, block)
+        store.read(block.pos, TestBlock)
+
+        when:
+        store.clear()
+
+        then:
+        cacheFile.length() == 0
+
+        when:
+        store.read(block.pos, TestBlock)
+
+        then:
+        thrown(CorruptedCacheException)
+    }
+
+    def "multiple threads can read concurrently while blocks are appended"() {
+        store.open({} as Runnable, factory)
+        def blocks = (0..99).collect { new TestBlock(value: "value $it") }
+        blocks.each { write(store, it) }
+
+        when:
+        8.times {
+            start {
+                100.times {
+                    blocks.each { block ->
+                        assert store.read(block.pos, TestBlock).value == block.value
+                    }
+                }
+            }
+        }
+        start {
+            100.times { write(store, new TestBlock(value: "appended $it")) }
+        }
+        finished()
+
+        then:
+        noExceptionThrown()
+    }
+
+    def "can read blocks which span segments or which are beyond the mapped region"() {
+        store = new MappedFileBlockStore(cacheFile, 64)
+        store.open({} as Runnable, factory)
+        def blocks = (0..49).collect { new TestBlock(value: "value $it") }
+
+        when:
+        blocks.each { write(store, it) }
+
+        then:
+        blocks.each { block ->
+            assert store.read(block.pos, TestBlock).value == block.value
+        }
+
+        when:
+        def appended = (0..9).collect { new TestBlock(value: "appended $it") }
+        appended.each { write(store, it) }
+
+        then:
+        (blocks + appended).each { block ->
+            assert store.read(block.pos, TestBlock).value == block.value
+        }
+    }
+
+    def "can read blocks which are larger than a segment"() {
+        store = new MappedFileBlockStore(cacheFile, 64)
+        store.open({} as Runnable, factory)
+        def small = new TestBlock(value: "small")
+        def large = new TestBlock(value: "large " * 100)
+
+        when:
+        write(store, small)
+        write(store, large)
+
+        then:
+        store.read(large.pos, TestBlock).value == large.value
+        store.read(small.pos, TestBlock).value == small.value
+    }
+
+    def write(BlockStore store, BlockPayload block) {
+        store.attach(block)
+        store.write(block)
+    }
+
+    static class TestBlock extends BlockPayload {
+        String value = ""
+
+        @Override
+        protected int getSize() {
+            return value.length() * 3 + 2
+        }
+
+        @Override
+        protected int getType() {
+            return 0x77
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) {
+            value = inputStream.readUTF()
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) {
+            outputStream.writeUTF(value)
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration
+
+import java.util.concurrent.CopyOnWriteArrayList
+import org.gradle.api.internal.initialization.ScriptClassLoaderProvider
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.api.internal.project.ProjectScript
+import org.gradle.api.internal.project.ServiceRegistryFactory
+import org.gradle.api.internal.resource.Resource
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.groovy.scripts.internal.FileCacheBackedScriptClassCompiler
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+class BuildScriptPrecompilerTest extends Specification {
+    final FileCacheBackedScriptClassCompiler compiler = Mock()
+    final ImportsReader importsReader = Mock()
+    final BuildScriptPrecompiler precompiler = new BuildScriptPrecompiler(compiler, importsReader, new DefaultExecutorFactory(), 4)
+    final List<Object> compiled = new CopyOnWriteArrayList<Object>()
+
+    def setup() {
+        _ * importsReader.withImports(_) >> { args -> args[0] }
+        _ * compiler.precompile(_, _, _, ProjectScript) >> { args -> compiled << args[0].resource.text }
+    }
+
+    def "compiles build script of each project"() {
+        def root = project('root script')
+        def child1 = project('child1 script')
+        def child2 = project('child2 script')
+        _ * root.allprojects >> ([root, child1, child2] as Set)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        compiled.size() == 6
+        compiled.count('root script') == 2
+        compiled.count('child1 script') == 2
+        compiled.count('child2 script') == 2
+    }
+
+    def "does not compile empty build scripts"() {
+        def root = project('  ')
+        def child = project('child script')
+        _ * root.allprojects >> ([root, child] as Set)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        compiled == ['child script', 'child script']
+    }
+
+    def "compiles only the classpath block of a build script which declares build script dependencies"() {
+        def root = project('root script')
+        def child1 = project('buildscript { } child1 script', root)
+        def child2 = project('child2 script', root)
+        _ * root.allprojects >> ([root, child1, child2] as Set)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        compiled.size() == 5
+        compiled.count('root script') == 2
+        compiled.count('buildscript { } child1 script') == 1
+        compiled.count('child2 script') == 2
+    }
+
+    def "does not compile build scripts of projects whose ancestor declares build script dependencies"() {
+        def root = project('buildscript { } root script')
+        def child = project('child script', root)
+        def grandchild = project('grandchild script', child)
+        _ * root.allprojects >> ([root, child, grandchild] as Set)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        compiled == ['buildscript { } root script']
+    }
+
+    def "ignores compilation failures"() {
+        def root = project('root script')
+        def child = project('child script')
+        _ * root.allprojects >> ([root, child] as Set)
+
+        when:
+        precompiler.precompile(root)
+
+        then:
+        _ * compiler.precompile({ it.resource.text == 'root script' }, _, _, _) >> { throw new RuntimeException() }
+        compiled == ['child script', 'child script']
+    }
+
+    def project(String scriptText, ProjectInternal parent = null) {
+        ProjectInternal project = Mock()
+        ScriptSource source = Mock()
+        Resource resource = Mock()
+        ServiceRegistryFactory services = Mock()
+        ScriptClassLoaderProvider classLoaderProvider = Mock()
+        _ * project.buildScriptSource >> source
+        _ * project.parent >> parent
+        _ * source.resource >> resource
+        _ * resource.text >> scriptText
+        _ * project.services >> services
+        _ * services.get(ScriptClassLoaderProvider) >> classLoaderProvider
+        _ * classLoaderProvider.classLoader >> getClass().classLoader
+        return project
+    }
+}
@@ -15,16 +15,27 @@
  */
 package org.gradle.configuration
 
+import org.gradle.StartParameter
 import org.gradle.api.internal.GradleInternal
 import org.gradle.api.internal.project.ProjectInternal
 import spock.lang.Specification
 import org.gradle.api.Action
+import org.gradle.api.artifacts.ConfigurationContainer
 
 class DefaultBuildConfigurerTest extends Specification {
     private final GradleInternal gradle = Mock()
     private final ProjectInternal rootProject = Mock()
     private final Action<? super ProjectInternal> action = Mock()
-    private final DefaultBuildConfigurer configurer = new DefaultBuildConfigurer(action)
+    private final ParallelProjectEvaluator parallelEvaluator = Mock()
+    private final BuildScriptPrecompiler precompiler = Mock()
+    private final DefaultBuildConfigurer configurer = new DefaultBuildConfigurer(parallelEvaluator, precompiler, action)
+    private final StartParameter startParameter = new StartParameter()
+
+    def setup() {
+        _ * gradle.startParameter >> startParameter
+        _ * rootProject.configurations >> configurations()
+        _ * rootProject.childProjects >> [:]
+    }
 
     def executesActionsForEachProject() {
         when:
@@ -36,5 +47,119 @@ class DefaultBuildConfigurerTest extends Specification {
             args[0].execute(rootProject)
         }
         1 * action.execute(rootProject)
+        0 * parallelEvaluator._
+        0 * precompiler._
+    }
+
+    def precompilesBuildScriptsBeforeExecutingActionsWhenThereAreMultipleProjects() {
+        ProjectInternal child = project(rootProject)
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        _ * gradle.rootProject >> rootProject
+        _ * rootProject.childProjects >> [child: child]
+        1 * precompiler.precompile(rootProject)
+
+        then:
+        1 * rootProject.allprojects(!null) >> { args ->
+            args[0].execute(rootProject)
+            args[0].execute(child)
+        }
+        1 * action.execute(rootProject)
+        1 * action.execute(child)
+    }
+
+    def evaluatesProjectsInParallelBeforeExecutingActions() {
+        startParameter.parallelProjectEvaluation = true
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        _ * gradle.rootProject >> rootProject
+        1 * parallelEvaluator.evaluate(rootProject)
+
+        then:
+        1 * rootProject.allprojects(!null) >> { args ->
+            args[0].execute(rootProject)
+        }
+        1 * action.execute(rootProject)
+    }
+
+    def configuresRootAndDefaultProjectWhenConfiguringOnDemand() {
+        ProjectInternal defaultProject = project(rootProject)
+        ProjectInternal otherProject = project(rootProject)
+        startParameter.configureOnDemand = true
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        _ * gradle.rootProject >> rootProject
+        _ * gradle.defaultProject >> defaultProject
+        _ * rootProject.dependsOnProjects >> ([] as Set)
+        1 * rootProject.evaluate()
+        1 * action.execute(rootProject)
+        0 * precompiler._
+        1 * defaultProject.evaluate()
+        1 * action.execute(defaultProject)
+        0 * otherProject.evaluate()
+        0 * action._
+
+        when:
+        configurer.configure(otherProject)
+        configurer.configure(otherProject)
+
+        then:
+        1 * otherProject.evaluate()
+        1 * action.execute(otherProject)
+        0 * action._
+    }
+
+    def configuresRequiredProjectsWhenConfiguringOnDemand() {
+        ProjectInternal dependsOnProject = project(null)
+        startParameter.configureOnDemand = true
+
+        when:
+        configurer.configure(gradle)
+
+        then:
+        _ * gradle.rootProject >> rootProject
+        _ * gradle.defaultProject >> rootProject
+        _ * rootProject.dependsOnProjects >> ([dependsOnProject] as Set)
+        1 * dependsOnProject.evaluate()
+
+        then:
+        1 * action.execute(dependsOnProject)
+
+        then:
+        1 * action.execute(rootProject)
+    }
+
+    def doesNotConfigureProjectOnDemandWhenAllProjectsAreConfigured() {
+        ProjectInternal project = Mock()
+
+        when:
+        configurer.configure(project)
+
+        then:
+        0 * project._
+        0 * action._
+    }
+
+    def project(ProjectInternal parent) {
+        ProjectInternal project = Mock()
+        _ * project.parent >> parent
+        _ * project.configurations >> configurations()
+        _ * project.dependsOnProjects >> ([] as Set)
+        return project
+    }
+
+    def configurations() {
+        ConfigurationContainer configurations = Mock()
+        _ * configurations.iterator() >> { [].iterator() }
+        return configurations
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.configuration
+
+import java.util.concurrent.CopyOnWriteArrayList
+import org.gradle.api.GradleException
+import org.gradle.api.internal.project.ProjectInternal
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+class ParallelProjectEvaluatorTest extends Specification {
+    final ParallelProjectEvaluator evaluator = new ParallelProjectEvaluator(new DefaultExecutorFactory(), 4)
+    final List<ProjectInternal> evaluated = new CopyOnWriteArrayList<ProjectInternal>()
+    ProjectInternal root
+    ProjectInternal child1
+    ProjectInternal child2
+    ProjectInternal grandChild1
+    ProjectInternal grandChild2
+
+    def setup() {
+        root = project(null)
+        child1 = project(root)
+        child2 = project(root)
+        grandChild1 = project(child1)
+        grandChild2 = project(child2)
+    }
+
+    def "evaluates each project after its parent"() {
+        when:
+        evaluator.evaluate(root)
+
+        then:
+        evaluated.size() == 5
+        evaluated.indexOf(root) < evaluated.indexOf(child1)
+        evaluated.indexOf(root) < evaluated.indexOf(child2)
+        evaluated.indexOf(child1) < evaluated.indexOf(grandChild1)
+        evaluated.indexOf(child2) < evaluated.indexOf(grandChild2)
+    }
+
+    def "rethrows evaluation failure and does not evaluate the subprojects of the failed project"() {
+        def failure = new RuntimeException()
+
+        when:
+        evaluator.evaluate(root)
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+        1 * child1.evaluate() >> { throw failure }
+        0 * grandChild1.evaluate()
+    }
+
+    def "project can change itself and its subprojects while it is evaluated"() {
+        when:
+        evaluator.evaluate(root)
+
+        then:
+        1 * child1.evaluate() >> {
+            ParallelProjectEvaluator.assertCanConfigure(child1)
+            ParallelProjectEvaluator.assertCanConfigure(grandChild1)
+            ParallelProjectEvaluator.assertCanEvaluate(root)
+            ParallelProjectEvaluator.assertCanEvaluate(grandChild1)
+            evaluated << child1
+            null
+        }
+    }
+
+    def "project cannot change other projects while it is evaluated"() {
+        when:
+        evaluator.evaluate(root)
+
+        then:
+        GradleException e = thrown()
+        e.message.startsWith("Cannot change ")
+        e.message.endsWith(", as projects are evaluated in parallel. A project can only change itself and its subprojects.")
+        1 * child1.evaluate() >> { ParallelProjectEvaluator.assertCanConfigure(this."$target") }
+
+        where:
+        target << ['root', 'child2', 'grandChild2']
+    }
+
+    def "project cannot depend on the evaluation of an unrelated project"() {
+        when:
+        evaluator.evaluate(root)
+
+        then:
+        GradleException e = thrown()
+        e.message.startsWith("Cannot evaluate ")
+        e.message.endsWith(", as projects are evaluated in parallel. A project can only depend on the evaluation of its parents and its subprojects.")
+        1 * child1.evaluate() >> { ParallelProjectEvaluator.assertCanEvaluate(child2) }
+    }
+
+    def "can change any project when not evaluating projects in parallel"() {
+        when:
+        ParallelProjectEvaluator.assertCanConfigure(child1)
+        ParallelProjectEvaluator.assertCanEvaluate(child2)
+
+        then:
+        notThrown(GradleException)
+    }
+
+    def project(ProjectInternal parent) {
+        ProjectInternal project = Mock()
+        Map<String, ProjectInternal> children = [:]
+        _ * project.parent >> parent
+        _ * project.childProjects >> children
+        _ * project.evaluate() >> { evaluated << project; null }
+        if (parent != null) {
+            parent.childProjects.put("child${parent.childProjects.size()}".toString(), project)
+        }
+        return project
+    }
+}
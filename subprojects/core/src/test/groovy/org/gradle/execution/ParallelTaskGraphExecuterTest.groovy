@@ -0,0 +1,151 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.execution
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.TimeUnit
+import org.gradle.api.Task
+import org.gradle.api.execution.TaskExecutionListener
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.api.tasks.TaskDependency
+import org.gradle.listener.DefaultListenerManager
+import org.gradle.util.ConcurrentSpecification
+
+class ParallelTaskGraphExecuterTest extends ConcurrentSpecification {
+    final List<Task> executedTasks = new CopyOnWriteArrayList<Task>()
+    final DefaultTaskGraphExecuter taskExecuter = new DefaultTaskGraphExecuter(new DefaultListenerManager(), executorFactory, 4)
+
+    def "executes independent tasks concurrently"() {
+        def barrier = new CyclicBarrier(2)
+        def a = task("a") { barrier.await(5, TimeUnit.SECONDS) }
+        def b = task("b") { barrier.await(5, TimeUnit.SECONDS) }
+
+        when:
+        taskExecuter.execute([a, b])
+
+        then:
+        executedTasks as Set == [a, b] as Set
+    }
+
+    def "executes dependencies before the tasks which depend on them"() {
+        def a = task("a")
+        def b = task("b", a)
+        def c = task("c", a)
+        def d = task("d", b, c)
+
+        when:
+        taskExecuter.execute([d])
+
+        then:
+        executedTasks.size() == 4
+        executedTasks.first() == a
+        executedTasks.last() == d
+    }
+
+    def "executes batches in the order they were added"() {
+        def a = task("a")
+        def b = task("b")
+        def c = task("c")
+
+        when:
+        taskExecuter.addTasks([b])
+        taskExecuter.addTasks([a])
+        taskExecuter.addTasks([c])
+        taskExecuter.execute()
+
+        then:
+        executedTasks == [b, a, c]
+    }
+
+    def "notifies task listener before and after each task"() {
+        def events = new CopyOnWriteArrayList()
+        def a = task("a")
+        def b = task("b", a)
+        taskExecuter.addTaskExecutionListener([
+                beforeExecute: { Task task -> events << ["beforeExecute", task.name] },
+                afterExecute: { Task task, state -> events << ["afterExecute", task.name] }
+        ] as TaskExecutionListener)
+
+        when:
+        taskExecuter.execute([b])
+
+        then:
+        events == [["beforeExecute", "a"], ["afterExecute", "a"], ["beforeExecute", "b"], ["afterExecute", "b"]]
+    }
+
+    def "stops starting tasks when failure handler throws exception"() {
+        def failure = new RuntimeException()
+        def handlerFailure = new RuntimeException()
+        def a = brokenTask("a", failure)
+        def b = task("b", a)
+        taskExecuter.useFailureHandler({ throw handlerFailure } as TaskFailureHandler)
+
+        when:
+        taskExecuter.execute([b])
+
+        then:
+        RuntimeException e = thrown()
+        e.is(handlerFailure)
+        executedTasks == [a]
+    }
+
+    def "does not execute tasks whose dependencies failed when failure handler continues"() {
+        def failedTasks = new CopyOnWriteArrayList()
+        def a = brokenTask("a", new RuntimeException())
+        def b = task("b", a)
+        def c = task("c")
+        taskExecuter.useFailureHandler({ failedTasks << it } as TaskFailureHandler)
+
+        when:
+        taskExecuter.execute([b, c])
+
+        then:
+        failedTasks == [a]
+        executedTasks as Set == [a, c] as Set
+    }
+
+    def brokenTask(String name, RuntimeException failure) {
+        return createTask(name, [], failure, {})
+    }
+
+    def task(String name, Task... dependsOn) {
+        return createTask(name, dependsOn as List, null, {})
+    }
+
+    def task(String name, Closure action) {
+        return createTask(name, [], null, action)
+    }
+
+    def createTask(String name, List<Task> dependsOn, RuntimeException failure, Closure action) {
+        TaskInternal task = Mock()
+        TaskStateInternal state = Mock()
+        TaskDependency dependencies = Mock()
+        _ * task.name >> name
+        _ * task.path >> ":$name"
+        _ * task.state >> state
+        _ * task.taskDependencies >> dependencies
+        _ * task.compareTo(_) >> { Task other -> name.compareTo(other.name) }
+        _ * task.executeWithoutThrowingTaskFailure() >> {
+            action.call()
+            executedTasks << task
+        }
+        _ * dependencies.getDependencies(task) >> (dependsOn as Set)
+        _ * state.failure >> failure
+        return task
+    }
+}
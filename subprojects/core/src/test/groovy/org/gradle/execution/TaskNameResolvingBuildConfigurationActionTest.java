@@ -65,6 +65,8 @@ public class TaskNameResolvingBuildConfigurationActionTest {
             will(returnValue(taskExecuter));
             allowing(gradle).getStartParameter();
             will(returnValue(startParameter));
+            allowing(startParameter).isConfigureOnDemand();
+            will(returnValue(false));
             allowing(project).getAllprojects();
             will(returnValue(toSet(project, otherProject)));
             allowing(otherProject).getPath();
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.groovy.scripts.internal
+
+import org.gradle.api.internal.resource.Resource
+import org.gradle.groovy.scripts.Script
+import org.gradle.groovy.scripts.ScriptSource
+import org.gradle.groovy.scripts.Transformer
+import spock.lang.Specification
+
+class CrossBuildCachingScriptClassCompilerTest extends Specification {
+    final ScriptClassCompiler target = Mock()
+    final ClassLoader rootClassLoader = new URLClassLoader(new URL[0], (ClassLoader) null)
+    final CrossBuildScriptClassCache cache = new CrossBuildScriptClassCache(rootClassLoader, 10)
+    final CrossBuildCachingScriptClassCompiler compiler = new CrossBuildCachingScriptClassCompiler(cache, target)
+    final Transformer transformer = Mock()
+
+    def setup() {
+        _ * transformer.id >> 'id'
+    }
+
+    def "compiles script using root ClassLoader and reuses the class for a script in the same file with the same content"() {
+        def buildClassLoader = new URLClassLoader(new URL[0], rootClassLoader)
+        def otherBuildClassLoader = new URLClassLoader(new URL[0], rootClassLoader)
+        def source = scriptSource('build.gradle', 'content')
+        def sameSource = scriptSource('build.gradle', 'content')
+
+        when:
+        def c1 = compiler.compile(source, buildClassLoader, transformer, Script)
+        def c2 = compiler.compile(sameSource, otherBuildClassLoader, transformer, Script)
+
+        then:
+        c1 == Script
+        c2 == Script
+        1 * target.compile(source, rootClassLoader, transformer, Script) >> Script
+        0 * target._
+    }
+
+    def "does not reuse the class for a script with different content or in a different file"() {
+        def classLoader = new URLClassLoader(new URL[0], rootClassLoader)
+        def source = scriptSource('build.gradle', 'content')
+        def changed = scriptSource('build.gradle', 'changed')
+        def otherFile = scriptSource('other.gradle', 'content')
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script)
+        compiler.compile(changed, classLoader, transformer, Script)
+        compiler.compile(otherFile, classLoader, transformer, Script)
+
+        then:
+        1 * target.compile(source, rootClassLoader, transformer, Script) >> Script
+        1 * target.compile(changed, rootClassLoader, transformer, Script) >> Script
+        1 * target.compile(otherFile, rootClassLoader, transformer, Script) >> Script
+    }
+
+    def "does not cache the class of a script with a build script classpath"() {
+        def classLoader = new URLClassLoader([new URL('file:some.jar')] as URL[], rootClassLoader)
+        def source = scriptSource('build.gradle', 'content')
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script)
+        compiler.compile(source, classLoader, transformer, Script)
+
+        then:
+        2 * target.compile(source, classLoader, transformer, Script) >> Script
+        cache.size == 0
+    }
+
+    def scriptSource(String fileName, String text) {
+        ScriptSource source = Mock()
+        Resource resource = Mock()
+        _ * source.fileName >> fileName
+        _ * source.resource >> resource
+        _ * resource.text >> text
+        return source
+    }
+}
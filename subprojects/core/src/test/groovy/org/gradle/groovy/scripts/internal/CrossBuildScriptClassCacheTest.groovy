@@ -0,0 +1,78 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.groovy.scripts.internal
+
+import org.gradle.util.MultiParentClassLoader
+import spock.lang.Specification
+
+class CrossBuildScriptClassCacheTest extends Specification {
+    final ClassLoader rootClassLoader = new URLClassLoader([new URL('file:root.jar')] as URL[])
+    final CrossBuildScriptClassCache cache = new CrossBuildScriptClassCache(rootClassLoader, 2)
+
+    def "can cache classes of scripts whose ClassLoader adds nothing to the root ClassLoader"() {
+        def emptyLoader = new URLClassLoader(new URL[0], rootClassLoader)
+        def multiParentLoader = new MultiParentClassLoader(rootClassLoader, new URLClassLoader(new URL[0], rootClassLoader))
+
+        expect:
+        cache.canCache(rootClassLoader)
+        cache.canCache(emptyLoader)
+        cache.canCache(new URLClassLoader(new URL[0], emptyLoader))
+        cache.canCache(new URLClassLoader(new URL[0], multiParentLoader))
+    }
+
+    def "cannot cache classes of scripts whose ClassLoader adds to the root ClassLoader"() {
+        def jarLoader = new URLClassLoader([new URL('file:some.jar')] as URL[], rootClassLoader)
+        def multiParentLoader = new MultiParentClassLoader(rootClassLoader, jarLoader)
+
+        expect:
+        !cache.canCache(jarLoader)
+        !cache.canCache(new URLClassLoader(new URL[0], jarLoader))
+        !cache.canCache(multiParentLoader)
+        !cache.canCache(new URLClassLoader(new URL[0], getClass().classLoader))
+    }
+
+    def "returns cached class and tracks hits and misses"() {
+        expect:
+        cache.get('key') == null
+
+        when:
+        cache.put('key', String)
+
+        then:
+        cache.get('key') == String
+        cache.get('other') == null
+        cache.size == 1
+        cache.hits == 1
+        cache.misses == 2
+        cache.evictions == 0
+    }
+
+    def "discards least recently used class when full"() {
+        cache.put('key1', String)
+        cache.put('key2', Integer)
+        cache.get('key1')
+
+        when:
+        cache.put('key3', Long)
+
+        then:
+        cache.size == 2
+        cache.evictions == 1
+        cache.get('key1') == String
+        cache.get('key2') == null
+        cache.get('key3') == Long
+    }
+}
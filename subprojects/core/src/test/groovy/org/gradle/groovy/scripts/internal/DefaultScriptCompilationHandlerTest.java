@@ -132,6 +132,28 @@ public class DefaultScriptCompilationHandlerTest {
         evaluateScript(script);
     }
 
+    @Test
+    public void testLoadFromDirUsesFileNameOfScriptSource() throws Exception {
+        ScriptSource source = scriptSource("throw new RuntimeException('broken')");
+        scriptCompilationHandler.compileToDir(source, classLoader, scriptCacheDir, null, expectedScriptClass);
+
+        scriptFileName = "other-script-file-name";
+        ScriptSource otherSource = scriptSource("throw new RuntimeException('broken') ");
+        Script script = scriptCompilationHandler.loadFromDir(otherSource, classLoader, scriptCacheDir,
+                expectedScriptClass).newInstance();
+
+        try {
+            script.run();
+            fail();
+        } catch (RuntimeException e) {
+            boolean found = false;
+            for (StackTraceElement element : e.getStackTrace()) {
+                found |= element.getClassName().equals(scriptClassName) && "other-script-file-name".equals(element.getFileName());
+            }
+            assertTrue(found);
+        }
+    }
+
     @Test
     public void testCompileScriptToDirWithPackageDeclaration() throws Exception {
         final ScriptSource scriptSource = scriptSource("package org.gradle.test\n" + scriptText);
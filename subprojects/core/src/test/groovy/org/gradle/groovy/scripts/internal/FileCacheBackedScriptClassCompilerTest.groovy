@@ -51,15 +51,10 @@ class FileCacheBackedScriptClassCompilerTest extends Specification {
 
         then:
         result == Script
-        1 * cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        1 * cacheBuilder.withProperties(!null) >> { args ->
-            assert args[0].get('source.filename') == 'ScriptFileName'
-            assert args[0].containsKey('source.hash')
-            return cacheBuilder
-        }
+        1 * cacheRepository.cache({ it ==~ /scripts\/script_\w+\/\w+\/Script\/TransformerId/ }) >> cacheBuilder
         1 * cacheBuilder.withInitializer(!null) >> cacheBuilder
         1 * cacheBuilder.open() >> cache
-        1 * scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+        1 * scriptCompilationHandler.loadFromDir({ it.className ==~ /script_\w+/ && it.fileName == 'ScriptFileName' }, classLoader, new File(cacheDir, "classes"), Script) >> Script
         0 * scriptCompilationHandler._
     }
 
@@ -71,13 +66,53 @@ class FileCacheBackedScriptClassCompilerTest extends Specification {
 
         then:
         result == Script
-        1 * cacheRepository.cache("scripts/ScriptClassName/Script/TransformerId") >> cacheBuilder
-        1 * cacheBuilder.withProperties(!null) >> cacheBuilder
+        1 * cacheRepository.cache(!null) >> cacheBuilder
         1 * cacheBuilder.withInitializer(!null) >> {args -> initializer = args[0]; return cacheBuilder}
         1 * cacheBuilder.open() >> {initializer.execute(cache); return cache}
-        1 * scriptCompilationHandler.compileToDir(source, classLoader, new File(cacheDir, "classes"), transformer, Script)
-        1 * scriptCompilationHandler.loadFromDir(source, classLoader, new File(cacheDir, "classes"), Script) >> Script
+        1 * scriptCompilationHandler.compileToDir({ it.className ==~ /script_\w+/ }, classLoader, new File(cacheDir, "classes"), transformer, Script)
+        1 * scriptCompilationHandler.loadFromDir(!null, classLoader, new File(cacheDir, "classes"), Script) >> Script
         0 * scriptCompilationHandler._
     }
 
+    def "scripts with the same content share a cache directory"() {
+        def cacheNames = []
+        ScriptSource other = otherSource('this is the script')
+        ScriptSource changed = otherSource('this is another script')
+
+        when:
+        compiler.compile(source, classLoader, transformer, Script)
+        compiler.compile(other, classLoader, transformer, Script)
+        compiler.compile(changed, classLoader, transformer, Script)
+
+        then:
+        3 * cacheRepository.cache(!null) >> { args -> cacheNames << args[0]; return cacheBuilder }
+        _ * cacheBuilder.withInitializer(!null) >> cacheBuilder
+        _ * cacheBuilder.open() >> cache
+        cacheNames[0] == cacheNames[1]
+        cacheNames[0] != cacheNames[2]
+    }
+
+    def "precompiles classes to cache directory without loading them"() {
+        def initializer
+
+        when:
+        compiler.precompile(source, classLoader, transformer, Script)
+
+        then:
+        1 * cacheRepository.cache(!null) >> cacheBuilder
+        1 * cacheBuilder.withInitializer(!null) >> {args -> initializer = args[0]; return cacheBuilder}
+        1 * cacheBuilder.open() >> {initializer.execute(cache); return cache}
+        1 * scriptCompilationHandler.compileToDir(!null, classLoader, new File(cacheDir, "classes"), transformer, Script)
+        0 * scriptCompilationHandler._
+    }
+
+    def otherSource(String text) {
+        ScriptSource source = Mock()
+        Resource resource = Mock()
+        _ * source.resource >> resource
+        _ * resource.text >> text
+        _ * source.className >> 'OtherScriptClassName'
+        _ * source.fileName >> 'OtherScriptFileName'
+        return source
+    }
 }
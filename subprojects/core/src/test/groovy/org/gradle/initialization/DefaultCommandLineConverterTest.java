@@ -70,6 +70,9 @@ public class DefaultCommandLineConverterTest {
 
     private final DefaultCommandLineConverter commandLineConverter = new DefaultCommandLineConverter();
     private boolean expectedContinue;
+    private int expectedParallelThreadCount;
+    private boolean expectedConfigureOnDemand;
+    private boolean expectedParallelProjectEvaluation;
 
     @Test
     public void withoutAnyOptions() {
@@ -100,6 +103,9 @@ public class DefaultCommandLineConverterTest {
         assertEquals(expectedInitScripts, startParameter.getInitScripts());
         assertEquals(expectedProfile, startParameter.isProfile());
         assertEquals(expectedContinue, startParameter.isContinueOnFailure());
+        assertEquals(expectedParallelThreadCount, startParameter.getParallelThreadCount());
+        assertEquals(expectedConfigureOnDemand, startParameter.isConfigureOnDemand());
+        assertEquals(expectedParallelProjectEvaluation, startParameter.isParallelProjectEvaluation());
         assertEquals(expectedProjectCacheDir, startParameter.getProjectCacheDir());
     }
 
@@ -363,6 +369,29 @@ public class DefaultCommandLineConverterTest {
         checkConversion("--continue");
     }
 
+    @Test
+    public void withParallelThreads() {
+        expectedParallelThreadCount = 4;
+        checkConversion("--parallel-threads", "4");
+    }
+
+    @Test
+    public void withConfigureOnDemand() {
+        expectedConfigureOnDemand = true;
+        checkConversion("--configure-on-demand");
+    }
+
+    @Test
+    public void withParallelEvaluation() {
+        expectedParallelProjectEvaluation = true;
+        checkConversion("--parallel-evaluation");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withInvalidParallelThreads() {
+        checkConversion("--parallel-threads", "many");
+    }
+
     @Test(expected = CommandLineArgumentException.class)
     public void withUnknownOption() {
         checkConversion("--unknown");
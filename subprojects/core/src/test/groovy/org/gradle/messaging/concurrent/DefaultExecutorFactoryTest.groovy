@@ -21,6 +21,9 @@ package org.gradle.messaging.concurrent
 import static org.hamcrest.Matchers.*
 
 import java.util.concurrent.ExecutorService
+import org.gradle.messaging.dispatch.AsyncDispatch
+import org.gradle.messaging.dispatch.Dispatch
+import org.gradle.messaging.dispatch.LockFreeAsyncDispatch
 import org.gradle.util.JUnit4GroovyMockery
 import org.gradle.util.MultithreadedTestCase
 import org.jmock.integration.junit4.JMock
@@ -156,4 +159,21 @@ class DefaultExecutorFactoryTest extends MultithreadedTestCase {
         }
 
     }
+
+    @Test
+    public void createsAsyncDispatchByDefault() {
+        def dispatch = factory.createAsyncDispatch(executor, {} as Dispatch)
+        dispatch.stop()
+
+        assertThat(dispatch, instanceOf(AsyncDispatch))
+    }
+
+    @Test
+    public void createsLockFreeDispatchWhenEnabled() {
+        def factory = new DefaultExecutorFactory(true)
+        def dispatch = factory.createAsyncDispatch(executor, {} as Dispatch)
+        dispatch.stop()
+
+        assertThat(dispatch, instanceOf(LockFreeAsyncDispatch))
+    }
 }
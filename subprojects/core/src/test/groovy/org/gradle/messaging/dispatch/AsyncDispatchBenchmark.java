@@ -0,0 +1,90 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.dispatch;
+
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the number of messages per second which can be delivered by {@link AsyncDispatch} and {@link
+ * LockFreeAsyncDispatch} to a single handler, with 1, 8 and 32 threads dispatching messages concurrently. This is not
+ * run as part of the test suite. Run it using the {@link #main} method.
+ */
+public class AsyncDispatchBenchmark {
+    private static final int WARM_UP_MESSAGES = 200000;
+    private static final int MESSAGES = 2000000;
+    private static final int[] PRODUCERS = {1, 8, 32};
+
+    public static void main(String[] args) throws Exception {
+        for (int i = 0; i < 3; i++) {
+            for (int producers : PRODUCERS) {
+                run("AsyncDispatch", new DefaultExecutorFactory(false), producers);
+                run("LockFreeAsyncDispatch", new DefaultExecutorFactory(true), producers);
+            }
+        }
+    }
+
+    private static void run(String displayName, DefaultExecutorFactory executorFactory, int producers) throws Exception {
+        try {
+            transfer(executorFactory, producers, WARM_UP_MESSAGES);
+            long start = System.nanoTime();
+            transfer(executorFactory, producers, MESSAGES);
+            long duration = System.nanoTime() - start;
+            System.out.println(String.format("%s, %s producers: %.0f messages/sec", displayName, producers, MESSAGES * 1e9 / duration));
+        } finally {
+            executorFactory.stop();
+        }
+    }
+
+    private static void transfer(DefaultExecutorFactory executorFactory, int producers, int count) throws Exception {
+        StoppableExecutor executor = executorFactory.create("Dispatch");
+        final CountingDispatch handler = new CountingDispatch();
+        final StoppableDispatch<Long> dispatch = executorFactory.createAsyncDispatch(executor, handler);
+        final int messagesPerProducer = count / producers;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < producers; i++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (long i = 0; i < messagesPerProducer; i++) {
+                        dispatch.dispatch(i);
+                    }
+                }
+            };
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        dispatch.stop();
+        executor.stop();
+        if (handler.count != messagesPerProducer * producers) {
+            throw new IllegalStateException(String.format("Expected %s messages, received %s.", messagesPerProducer * producers, handler.count));
+        }
+    }
+
+    private static class CountingDispatch implements Dispatch<Long> {
+        private long count;
+
+        public void dispatch(Long message) {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.dispatch
+
+import org.gradle.util.JUnit4GroovyMockery
+import org.gradle.util.MultithreadedTestCase
+import org.jmock.integration.junit4.JMock
+import org.junit.Test
+import org.junit.runner.RunWith
+import static org.hamcrest.Matchers.*
+import static org.junit.Assert.*
+
+@RunWith(JMock.class)
+public class LockFreeAsyncDispatchTest extends MultithreadedTestCase {
+    private final JUnit4GroovyMockery context = new JUnit4GroovyMockery()
+    private final Dispatch<String> target = context.mock(Dispatch.class)
+
+    @Test
+    public void dispatchesMessagesToTargetInOrder() {
+        context.checking {
+            one(target).dispatch('message1')
+            one(target).dispatch('message2')
+            one(target).dispatch('message3')
+        }
+
+        def dispatch = new LockFreeAsyncDispatch<String>(executor, target)
+        dispatch.dispatch('message1')
+        dispatch.dispatch('message2')
+        dispatch.dispatch('message3')
+
+        dispatch.stop()
+    }
+
+    @Test
+    public void deliversAllMessagesFromMultipleThreads() {
+        List<String> received = []
+        Dispatch<String> collector = { String message -> received << message } as Dispatch
+        def dispatch = new LockFreeAsyncDispatch<String>(executor, collector, 4)
+
+        5.times { thread ->
+            start {
+                100.times { i -> dispatch.dispatch("$thread:$i".toString()) }
+            }
+        }
+        waitForAll()
+        dispatch.stop()
+
+        assertThat(received.size(), equalTo(500))
+        5.times { thread ->
+            assertThat(received.findAll { it.startsWith("$thread:") }, equalTo((0..99).collect { "$thread:$it".toString() }))
+        }
+    }
+
+    @Test
+    public void dispatchBlocksWhileQueueIsFull() {
+        context.checking {
+            one(target).dispatch('message1')
+            will {
+                syncAt(1)
+                syncAt(2)
+            }
+            one(target).dispatch('message2')
+        }
+
+        def dispatch = new LockFreeAsyncDispatch<String>(executor, target, 1)
+
+        run {
+            dispatch.dispatch('message1')
+            syncAt(1)
+            expectBlocksUntil(2) {
+                dispatch.dispatch('message2')
+            }
+        }
+
+        dispatch.stop()
+    }
+
+    @Test
+    public void canStopFromMultipleThreads() {
+        def dispatch = new LockFreeAsyncDispatch<String>(executor, target)
+
+        start {
+            dispatch.stop()
+        }
+        start {
+            dispatch.stop()
+        }
+    }
+
+    @Test
+    public void stopBlocksUntilAllMessagesDispatched() {
+        context.checking {
+            one(target).dispatch('message1')
+            will {
+                syncAt(1)
+                syncAt(2)
+            }
+            one(target).dispatch('message2')
+        }
+
+        def dispatch = new LockFreeAsyncDispatch<String>(executor, target)
+
+        run {
+            dispatch.dispatch('message1')
+            syncAt(1)
+            dispatch.dispatch('message2')
+
+            expectBlocksUntil(2) {
+                dispatch.stop()
+            }
+        }
+    }
+
+    @Test
+    public void requestStopDoesNotBlockWhenMessagesAreQueued() {
+        context.checking {
+            one(target).dispatch('message1')
+            will {
+                syncAt(1)
+                syncAt(2)
+            }
+        }
+
+        def dispatch = new LockFreeAsyncDispatch<String>(executor, target)
+
+        run {
+            dispatch.dispatch('message1')
+            syncAt(1)
+            dispatch.requestStop()
+            shouldBeAt(1)
+            syncAt(2)
+        }
+
+        waitForAll()
+        dispatch.stop()
+    }
+
+    @Test
+    public void stopFailsWhenTargetHasFailed() {
+        context.checking {
+            one(target).dispatch('message1')
+            will {
+                syncAt(1)
+                RuntimeException failure = new RuntimeException()
+                willFailWith(sameInstance(failure))
+                throw failure
+            }
+        }
+
+        def dispatch = new LockFreeAsyncDispatch<String>(executor, target)
+        run {
+            dispatch.dispatch('message1')
+            dispatch.dispatch('message2')
+            syncAt(1)
+        }
+
+        try {
+            dispatch.stop()
+            fail()
+        } catch (IllegalStateException e) {
+            assertThat(e.message, equalTo('Cannot wait for messages to be dispatched, as there are no dispatch threads running.'))
+        }
+    }
+
+    @Test
+    public void cannotDispatchMessagesAfterStop() {
+        def dispatch = new LockFreeAsyncDispatch<String>(executor, target)
+        dispatch.stop()
+
+        try {
+            dispatch.dispatch('message')
+            fail()
+        } catch (IllegalStateException e) {
+            assertThat(e.message, equalTo('Cannot dispatch message, as this message dispatch has been stopped. Message: message'))
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal
+
+import org.gradle.messaging.remote.internal.protocol.MessageCredits
+import org.gradle.messaging.remote.internal.protocol.RemoteMethodInvocation
+import org.gradle.messaging.remote.internal.protocol.Request
+import spock.lang.Specification
+
+class BinaryMessageSerializerTest extends Specification {
+    final BinaryMessageSerializer<Object> serializer = new BinaryMessageSerializer<Object>(getClass().classLoader)
+
+    def "can transport values of built-in types"() {
+        expect:
+        transport(value) == value
+
+        where:
+        value << [null, "string", 12, 12L, true, UUID.randomUUID(), new MessageCredits(4)]
+    }
+
+    def "can transport strings longer than 64k"() {
+        def value = "a" * 100000
+
+        expect:
+        transport(value) == value
+    }
+
+    def "can transport method invocation request"() {
+        def id = UUID.randomUUID()
+        def request = new Request(id, new RemoteMethodInvocation(3, ["arg", 12L, null, [1, 2]] as Object[]))
+
+        when:
+        def result = transport(request)
+
+        then:
+        result instanceof Request
+        result == request
+        result.payload.arguments == ["arg", 12L, null, [1, 2]] as Object[]
+    }
+
+    def "can transport method invocation with no arguments"() {
+        def invocation = new RemoteMethodInvocation(3, null)
+
+        when:
+        def result = transport(invocation)
+
+        then:
+        result.key == 3
+        result.arguments == null
+    }
+
+    def "uses Java serialization for values of other types"() {
+        def value = new SerializableValue(name: "value", values: ["a", "b"])
+
+        when:
+        def result = transport(new Request("channel", value))
+
+        then:
+        result.payload instanceof SerializableValue
+        result.payload.name == "value"
+        result.payload.values == ["a", "b"]
+    }
+
+    def "serializes the values of a message which have no codec using a single stream"() {
+        def value = new SerializableValue(name: "value")
+
+        when:
+        def result = transport(new RemoteMethodInvocation(1, [value, "arg", value, new SerializableValue(name: "other")] as Object[]))
+
+        then:
+        result.arguments[0].name == "value"
+        result.arguments[1] == "arg"
+        result.arguments[2].is(result.arguments[0])
+        result.arguments[3].name == "other"
+    }
+
+    def "replaces unserializable exceptions"() {
+        def failure = new RuntimeException("broken", new IOException("cause"))
+
+        when:
+        def result = transport(new RemoteMethodInvocation(1, [failure] as Object[]))
+
+        then:
+        def transported = result.arguments[0]
+        transported.class == RuntimeException
+        transported.message == "broken"
+        transported.stackTrace == failure.stackTrace
+        transported.cause.class == IOException
+    }
+
+    def "uses registered codec for a type"() {
+        BinaryCodec<SerializableValue> codec = Mock()
+        serializer.register(SerializableValue, codec)
+        def value = new SerializableValue(name: "value")
+        def decoded = new SerializableValue(name: "decoded")
+
+        when:
+        def result = transport(new Request("channel", value))
+
+        then:
+        1 * codec.write(value, !null) >> { SerializableValue v, BinaryMessageSerializer.Encoder encoder -> encoder.writeValue(v.name) }
+        1 * codec.read(!null) >> { BinaryMessageSerializer.Decoder decoder -> assert decoder.readValue() == "value"; decoded }
+        0 * codec._
+
+        and:
+        result.payload == decoded
+    }
+
+    def "cannot register more than one codec for a type"() {
+        when:
+        serializer.register(String, Mock(BinaryCodec))
+
+        then:
+        IllegalArgumentException e = thrown()
+        e.message == "A codec for java.lang.String has already been registered."
+    }
+
+    def "can read multiple messages from a stream"() {
+        def outstr = new ByteArrayOutputStream()
+        def output = new DataOutputStream(outstr)
+        serializer.write(new Request("channel", "a"), output)
+        serializer.write(new SerializableValue(name: "b"), output)
+        serializer.write(new MessageCredits(3), output)
+
+        when:
+        def input = new DataInputStream(new ByteArrayInputStream(outstr.toByteArray()))
+
+        then:
+        serializer.read(input, null, null) == new Request("channel", "a")
+        serializer.read(input, null, null).name == "b"
+        serializer.read(input, null, null) == new MessageCredits(3)
+        input.read() < 0
+    }
+
+    def "fails on unknown tag"() {
+        def input = new DataInputStream(new ByteArrayInputStream([0, 0, 0, 0, 100] as byte[]))
+
+        when:
+        serializer.read(input, null, null)
+
+        then:
+        IOException e = thrown()
+        e.message == "Received value with unknown tag 100."
+    }
+
+    def "fails on unknown serialized value index"() {
+        def input = new DataInputStream(new ByteArrayInputStream([0, 0, 0, 0, 1, 0, 0, 0, 2] as byte[]))
+
+        when:
+        serializer.read(input, null, null)
+
+        then:
+        IOException e = thrown()
+        e.message == "Received serialized value with unknown index 2."
+    }
+
+    def transport(Object value) {
+        def outstr = new ByteArrayOutputStream()
+        serializer.write(value, new DataOutputStream(outstr))
+        return serializer.read(new DataInputStream(new ByteArrayInputStream(outstr.toByteArray())), null, null)
+    }
+}
+
+class SerializableValue implements Serializable {
+    String name
+    List<String> values
+}
@@ -45,4 +45,19 @@ class MessagingServicesTest extends Specification {
         expect:
         services.get(OutgoingBroadcast.class) != null
     }
+
+    def "uses Java serialization for messages by default"() {
+        expect:
+        services.get(MessageSerializer.class) instanceof DefaultMessageSerializer
+    }
+
+    def "uses binary serializer for messages when enabled"() {
+        def binaryServices = new MessagingServices(getClass().classLoader, "gradle", null, true)
+
+        expect:
+        binaryServices.get(MessageSerializer.class) instanceof BinaryMessageSerializer
+
+        cleanup:
+        binaryServices.stop()
+    }
 }
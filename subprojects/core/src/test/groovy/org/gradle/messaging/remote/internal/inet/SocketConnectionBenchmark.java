@@ -0,0 +1,101 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal.inet;
+
+import org.gradle.api.Action;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.gradle.messaging.remote.Address;
+import org.gradle.messaging.remote.ConnectEvent;
+import org.gradle.messaging.remote.internal.BinaryMessageSerializer;
+import org.gradle.messaging.remote.internal.Connection;
+import org.gradle.messaging.remote.internal.DefaultMessageSerializer;
+import org.gradle.messaging.remote.internal.Message;
+import org.gradle.messaging.remote.internal.MessageSerializer;
+import org.gradle.messaging.remote.internal.protocol.RemoteMethodInvocation;
+import org.gradle.messaging.remote.internal.protocol.Request;
+import org.gradle.util.UUIDGenerator;
+
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+
+/**
+ * Measures the number of messages per second which can be sent over a {@link SocketConnection} using each {@link
+ * MessageSerializer} implementation. The messages are method invocation requests, like those sent by a test worker.
+ * This is not run as part of the test suite. Run it using the {@link #main} method.
+ */
+public class SocketConnectionBenchmark {
+    private static final int WARM_UP_MESSAGES = 50000;
+    private static final int MESSAGES = 200000;
+
+    public static void main(String[] args) throws Exception {
+        ClassLoader classLoader = SocketConnectionBenchmark.class.getClassLoader();
+        for (int i = 0; i < 3; i++) {
+            run("Java serialization", new DefaultMessageSerializer<Message>(classLoader));
+            run("binary codecs", new BinaryMessageSerializer<Message>(classLoader));
+        }
+    }
+
+    private static void run(String displayName, MessageSerializer<Message> serializer) throws Exception {
+        DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
+        TcpIncomingConnector<Message> incomingConnector = new TcpIncomingConnector<Message>(executorFactory, serializer, new InetAddressFactory(), new UUIDGenerator());
+        final BlockingQueue<Connection<Message>> incoming = new SynchronousQueue<Connection<Message>>();
+        try {
+            Address address = incomingConnector.accept(new Action<ConnectEvent<Connection<Message>>>() {
+                public void execute(ConnectEvent<Connection<Message>> event) {
+                    try {
+                        incoming.put(event.getConnection());
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            }, false);
+            final Connection<Message> sender = new TcpOutgoingConnector<Message>(serializer).connect(address);
+            Connection<Message> receiver = incoming.take();
+            try {
+                transfer(sender, receiver, WARM_UP_MESSAGES);
+                long start = System.nanoTime();
+                transfer(sender, receiver, MESSAGES);
+                long duration = System.nanoTime() - start;
+                System.out.println(String.format("%s: %.0f messages/sec", displayName, MESSAGES * 1e9 / duration));
+            } finally {
+                sender.stop();
+                receiver.stop();
+            }
+        } finally {
+            incomingConnector.stop();
+            executorFactory.stop();
+        }
+    }
+
+    private static void transfer(final Connection<Message> sender, Connection<Message> receiver, final int count) throws Exception {
+        final UUID consumerId = UUID.randomUUID();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    Object[] arguments = {consumerId, "some test output " + i};
+                    sender.dispatch(new Request(consumerId, new RemoteMethodInvocation(1, arguments)));
+                }
+            }
+        };
+        thread.start();
+        for (int i = 0; i < count; i++) {
+            receiver.receive();
+        }
+        thread.join();
+    }
+}
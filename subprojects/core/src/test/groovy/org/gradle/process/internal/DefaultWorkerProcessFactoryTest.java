@@ -93,6 +93,39 @@ public class DefaultWorkerProcessFactoryTest {
         assertThat(instr.readObject(), instanceOf(IsolatedApplicationClassLoaderWorker.class));
     }
 
+    @Test
+    public void createsAPooledWorkerProcessWhenReusable() throws Exception {
+        final Set<File> processClassPath = Collections.singleton(new File("something.jar"));
+
+        context.checking(new Expectations() {{
+            one(classPathRegistry).getClassPathFiles("WORKER_PROCESS");
+            will(returnValue(processClassPath));
+            allowing(fileResolver).resolveLater(".");
+            allowing(fileResolver).resolveFiles(with(Matchers.<Object>notNullValue()));
+            will(returnValue(new SimpleFileCollection()));
+        }});
+
+        WorkerProcessBuilder builder = factory.create();
+        builder.worker(new TestAction());
+        builder.applicationClasspath(Arrays.asList(new File("app.jar")));
+        builder.setLoadApplicationInSystemClassLoader(true);
+        builder.setReusable(true);
+
+        final Address serverAddress = new SocketInetAddress(InetAddress.getByName("127.0.0.1"), 40);
+
+        context.checking(new Expectations(){{
+            one(messagingServer).accept(with(notNullValue(Action.class)));
+            will(returnValue(serverAddress));
+            one(idGenerator).generateId();
+            will(returnValue("<id>"));
+        }});
+
+        WorkerProcess process = builder.build();
+
+        assertThat(process, instanceOf(PooledWorkerProcess.class));
+        assertThat(process.toString(), equalTo("Gradle Worker <id>"));
+    }
+
     private static class TestAction implements Action<WorkerProcessContext>, Serializable {
         public void execute(WorkerProcessContext workerProcessContext) {
             throw new UnsupportedOperationException();
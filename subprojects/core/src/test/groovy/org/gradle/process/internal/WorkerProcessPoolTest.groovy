@@ -0,0 +1,117 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal
+
+import org.gradle.messaging.remote.ObjectConnection
+import org.gradle.process.ExecResult
+import org.gradle.process.internal.child.WorkerJobExecutor
+import spock.lang.Specification
+
+class WorkerProcessPoolTest extends Specification {
+    final WorkerProcessPool pool = new WorkerProcessPool()
+
+    def "acquires a released process with the same key"() {
+        def process = startProcess('key')
+
+        expect:
+        pool.acquire('key') == null
+
+        when:
+        pool.release(process.process)
+
+        then:
+        pool.acquire('other') == null
+        pool.acquire('key') == process.process
+        pool.acquire('key') == null
+    }
+
+    def "does not acquire a process which has exited"() {
+        def process = startProcess('key')
+        pool.release(process.process)
+
+        when:
+        process.listener.executionFinished(process.execHandle, Mock(ExecResult))
+
+        then:
+        pool.acquire('key') == null
+    }
+
+    def "does not return a process which has exited to the pool"() {
+        def process = startProcess('key')
+        process.listener.executionFinished(process.execHandle, Mock(ExecResult))
+
+        when:
+        pool.release(process.process)
+
+        then:
+        pool.acquire('key') == null
+    }
+
+    def "stops idle and busy processes"() {
+        def idle = startProcess('key')
+        def busy = startProcess('key')
+        pool.release(idle.process)
+
+        when:
+        pool.stop()
+
+        then:
+        1 * idle.executor.stop()
+        1 * idle.workerProcess.waitForStop()
+        1 * busy.executor.stop()
+        1 * busy.workerProcess.waitForStop()
+        0 * _._
+
+        and:
+        pool.acquire('key') == null
+    }
+
+    def "does not return a process to the pool once the pool has been stopped"() {
+        def process = startProcess('key')
+        pool.stop()
+
+        when:
+        pool.release(process.process)
+
+        then:
+        pool.acquire('key') == null
+    }
+
+    def "cannot start a process once the pool has been stopped"() {
+        pool.stop()
+
+        when:
+        new ReusableWorkerProcess('key', Mock(WorkerProcess), Mock(ExecHandle), pool).start()
+
+        then:
+        IllegalStateException e = thrown()
+        e.message == 'Cannot start a worker process, as the worker process pool has been stopped.'
+    }
+
+    def startProcess(Object key) {
+        def result = [:]
+        result.execHandle = Mock(ExecHandle)
+        result.workerProcess = Mock(WorkerProcess)
+        result.executor = Mock(WorkerJobExecutor)
+        def connection = Mock(ObjectConnection)
+        _ * result.execHandle.addListener(_) >> { result.listener = it[0] }
+        _ * result.workerProcess.getConnection() >> connection
+        _ * connection.addOutgoing(WorkerJobExecutor) >> result.executor
+        result.process = new ReusableWorkerProcess(key, result.workerProcess, result.execHandle, pool)
+        result.process.start()
+        return result
+    }
+}
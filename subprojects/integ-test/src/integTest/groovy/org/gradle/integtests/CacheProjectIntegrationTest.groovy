@@ -16,8 +16,6 @@
 
 package org.gradle.integtests
 
-import org.gradle.groovy.scripts.ScriptSource
-import org.gradle.groovy.scripts.UriScriptSource
 import org.gradle.integtests.fixtures.GradleDistribution
 import org.gradle.integtests.fixtures.GradleDistributionExecuter
 import org.gradle.util.GradleVersion
@@ -39,8 +37,7 @@ class CacheProjectIntegrationTest {
     TestFile projectDir
     TestFile userHomeDir
     TestFile buildFile
-    TestFile propertiesFile
-    TestFile classFile
+    TestFile scriptCacheDir
     TestFile artifactsCache
     TestFile dependenciesCache
 
@@ -54,9 +51,7 @@ class CacheProjectIntegrationTest {
         projectDir.mkdirs()
         userHomeDir = dist.getUserHomeDir()
         buildFile = projectDir.file('build.gradle')
-        ScriptSource source = new UriScriptSource("build file", buildFile)
-        propertiesFile = userHomeDir.file("caches/$version/scripts/$source.className/ProjectScript/no_buildscript/cache.properties")
-        classFile = userHomeDir.file("caches/$version/scripts/$source.className/ProjectScript/no_buildscript/classes/${source.className}.class")
+        scriptCacheDir = userHomeDir.file("caches/$version/scripts")
         dependenciesCache = userHomeDir.file("caches/artifacts-3/commons-io/commons-io/")
         artifactsCache = projectDir.file(".gradle/$version/taskArtifacts/cache.bin")
     }
@@ -65,20 +60,37 @@ class CacheProjectIntegrationTest {
     public void "caches compiled build script"() {
         createLargeBuildScript()
         testBuild("hello1", "Hello 1")
+        assertEquals(1, compiledBuildScripts().size())
+        TestFile classFile = compiledBuildScripts()[0]
         TestFile.Snapshot classFileSnapshot = classFile.snapshot()
 
         testBuild("hello2", "Hello 2")
+        assertEquals([classFile], compiledBuildScripts())
         classFile.assertHasNotChangedSince(classFileSnapshot)
 
         modifyLargeBuildScript()
         testBuild("newTask", "I am new")
-        classFile.assertHasChangedSince(classFileSnapshot)
+        List<TestFile> newClassFiles = compiledBuildScripts() - [classFile]
+        assertEquals(1, newClassFiles.size())
+        classFile = newClassFiles[0]
         classFileSnapshot = classFile.snapshot()
 
         testBuild("newTask", "I am new", "-Crebuild")
         classFile.assertHasChangedSince(classFileSnapshot)
     }
 
+    @Test
+    public void "projects with the same build script share the compiled build script"() {
+        projectDir.file('settings.gradle').write("include 'a', 'b'")
+        ['a', 'b'].each {
+            projectDir.file("$it/build.gradle").write("task hello << { println 'hello' }")
+        }
+
+        executer.inDirectory(projectDir).withTasks("hello").run()
+
+        assertEquals(1, compiledBuildScripts().size())
+    }
+
     @Test
     public void "caches incremental build state"() {
         createLargeBuildScript()
@@ -110,11 +122,20 @@ class CacheProjectIntegrationTest {
     private def testBuild(String taskName, String expected, String... args) {
         executer.inDirectory(projectDir).withTasks(taskName).withArguments(args).run()
         assertEquals(expected, projectDir.file(TEST_FILE).text)
-        classFile.assertIsFile()
-        propertiesFile.assertIsFile()
+        assertFalse(compiledBuildScripts().isEmpty())
         artifactsCache.assertIsFile()
     }
 
+    private List<TestFile> compiledBuildScripts() {
+        List<TestFile> classFiles = []
+        scriptCacheDir.eachFileRecurse { File file ->
+            if (file.name ==~ /script_\w+\.class/ && file.parentFile.parentFile.name == 'no_buildscript') {
+                classFiles << new TestFile(file)
+            }
+        }
+        return classFiles
+    }
+
     // We once ran into a cache problem under windows, which was not reproducible with small build scripts. Therefore we
     // create a larger one here.
 
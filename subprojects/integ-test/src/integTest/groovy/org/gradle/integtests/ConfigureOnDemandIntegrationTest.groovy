@@ -0,0 +1,143 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.integtests
+
+import org.gradle.integtests.fixtures.internal.AbstractIntegrationSpec
+
+class ConfigureOnDemandIntegrationTest extends AbstractIntegrationSpec {
+    def setup() {
+        // A large multi-project layout, where each project reports when it is configured
+        def projects = (1..100).collect { "project$it" }
+        file('settings.gradle') << "include ${(projects + ['api', 'impl', 'app']).collect { "'$it'" }.join(', ')}"
+        file('build.gradle') << '''
+            allprojects {
+                afterEvaluate { println "configured $path" }
+            }
+        '''
+        projects.each { file("$it/build.gradle") << 'task build' }
+        file('api/build.gradle') << '''
+            apply plugin: 'java'
+            task build
+        '''
+        file('impl/build.gradle') << '''
+            apply plugin: 'java'
+            dependencies { compile project(':api') }
+            task build
+        '''
+        file('app/build.gradle') << '''
+            task build(dependsOn: ':project1:build')
+        '''
+    }
+
+    def "configures all projects by default"() {
+        when:
+        run ':project2:build'
+
+        then:
+        configuredProjects.size() == 104
+    }
+
+    def "configures only the root project and the project of the selected task"() {
+        when:
+        executer.withArguments('--configure-on-demand')
+        run ':project2:build'
+
+        then:
+        configuredProjects == [':', ':project2'] as Set
+        executedTasks == [':project2:build']
+    }
+
+    def "configures the projects which are referenced by task dependencies"() {
+        when:
+        executer.withArguments('--configure-on-demand')
+        run ':app:build'
+
+        then:
+        configuredProjects == [':', ':app', ':project1'] as Set
+        executedTasks == [':project1:build', ':app:build']
+    }
+
+    def "configures the projects which are required by project dependencies"() {
+        when:
+        executer.withArguments('--configure-on-demand')
+        run ':impl:compileJava'
+
+        then:
+        configuredProjects == [':', ':api', ':impl'] as Set
+        executedTasks.contains(':api:jar')
+    }
+
+    def "configures the projects which are looked up by a configured project"() {
+        file('settings.gradle') << "\ninclude 'lib', 'consumer'"
+        file('lib/build.gradle') << "version = '1.2'"
+        file('consumer/build.gradle') << '''
+            description = "uses lib ${project(':lib').version}"
+            task build << { println description }
+        '''
+
+        when:
+        executer.withArguments('--configure-on-demand')
+        run ':consumer:build'
+
+        then:
+        configuredProjects == [':', ':consumer', ':lib'] as Set
+        output.contains('uses lib 1.2')
+    }
+
+    def "does not configure the projects which are reached through the root project unless required"() {
+        file('settings.gradle') << "\ninclude 'lib', 'consumer'"
+        file('lib/build.gradle') << "version = '1.2'"
+        file('consumer/build.gradle') << '''
+            evaluationDependsOn(':lib')
+            description = "uses lib ${rootProject.childProjects.lib.version}"
+            task build << { println description }
+        '''
+        file('other/build.gradle') << '''
+            description = "uses lib ${rootProject.childProjects.lib.version}"
+            task build << { println description }
+        '''
+        file('settings.gradle') << "\ninclude 'other'"
+
+        when:
+        executer.withArguments('--configure-on-demand')
+        run ':consumer:build'
+
+        then:
+        configuredProjects == [':', ':consumer', ':lib'] as Set
+        output.contains('uses lib 1.2')
+
+        when:
+        executer.withArguments('--configure-on-demand')
+        run ':other:build'
+
+        then:
+        configuredProjects == [':', ':other'] as Set
+        output.contains('uses lib unspecified')
+    }
+
+    def "configures the project the build is run from and its subprojects when selecting tasks by name"() {
+        when:
+        executer.withArguments('--configure-on-demand')
+        run 'build'
+
+        then:
+        configuredProjects.size() == 104
+    }
+
+    Set<String> getConfiguredProjects() {
+        output.readLines().findAll { it.startsWith('configured ') }.collect { it.substring('configured '.length()) } as Set
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.integtests
+
+import org.gradle.integtests.fixtures.internal.AbstractIntegrationSpec
+
+class ParallelEvaluationIntegrationTest extends AbstractIntegrationSpec {
+    def "sibling projects can create tasks of the same type and apply the same plugins in parallel"() {
+        def projects = (1..40).collect { "project$it" }
+        file('settings.gradle') << "include ${projects.collect { "'$it'" }.join(', ')}"
+        file('buildSrc/src/main/groovy/CustomTask.groovy') << '''
+            import org.gradle.api.DefaultTask
+            import org.gradle.api.tasks.TaskAction
+
+            class CustomTask extends DefaultTask {
+                String message
+                @TaskAction def print() { println message }
+            }
+        '''
+        projects.each { name ->
+            file("$name/build.gradle") << """
+                apply plugin: 'java'
+                task custom(type: CustomTask) { message = 'custom $name' }
+                task copyStuff(type: Copy) { from 'src'; into 'build/stuff' }
+                task zipStuff(type: Zip) { from 'src' }
+                task check2(dependsOn: [custom, copyStuff, zipStuff])
+            """
+        }
+
+        when:
+        executer.withArguments('--parallel-evaluation')
+        run 'custom'
+
+        then:
+        projects.each { name ->
+            assert output.contains("custom $name")
+        }
+        projects.each { name ->
+            assert executedTasks.contains(":$name:custom".toString())
+        }
+    }
+
+    def "project cannot configure the dependencies of a sibling project"() {
+        file('settings.gradle') << "include 'a', 'b'"
+        file('a/build.gradle') << "project(':b').dependencies { }"
+
+        when:
+        executer.withArguments('--parallel-evaluation')
+        fails 'help'
+
+        then:
+        failureHasCause("Cannot change project ':b' while evaluating project ':a', as projects are evaluated in parallel. A project can only change itself and its subprojects.")
+    }
+}
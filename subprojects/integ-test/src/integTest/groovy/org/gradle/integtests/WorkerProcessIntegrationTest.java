@@ -48,6 +48,9 @@ import org.junit.runner.RunWith;
 
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -78,6 +81,7 @@ public class WorkerProcessIntegrationTest {
 
     @After
     public void tearDown() {
+        workerFactory.stop();
         messagingServices.stop();
     }
 
@@ -160,6 +164,45 @@ public class WorkerProcessIntegrationTest {
         execute(mainClass("no-such-class").expectStartFailure());
     }
 
+    @Test
+    public void reusableWorkerProcessCanSendMessagesToThisProcess() throws Throwable {
+        context.checking(new Expectations() {{
+            Sequence sequence = context.sequence("sequence");
+            one(listenerMock).send("message 1", 1);
+            inSequence(sequence);
+            one(listenerMock).send("message 2", 2);
+            inSequence(sequence);
+        }});
+
+        execute(worker(new RemoteProcess()).reusable());
+    }
+
+    @Test
+    public void reusableWorkerProcessIsReusedByLaterWorkers() throws Throwable {
+        final Set<String> processNames = new CopyOnWriteArraySet<String>();
+        broadcast.add(new TestListenerInterface() {
+            public void send(String message, int count) {
+                processNames.add(message);
+            }
+        });
+        context.checking(new Expectations() {{
+            exactly(2).of(listenerMock).send(with(any(String.class)), with(equal(0)));
+        }});
+
+        executeInSequence(worker(new ProcessNameRemoteProcess()).reusable(), worker(new ProcessNameRemoteProcess()).reusable());
+
+        assertThat(processNames.size(), equalTo(1));
+    }
+
+    @Test
+    public void reusableWorkerProcessIsReusedAfterWorkerActionThrowsException() throws Throwable {
+        context.checking(new Expectations() {{
+            one(listenerMock).send(with(any(String.class)), with(equal(0)));
+        }});
+
+        executeInSequence(worker(new BrokenRemoteProcess()).reusable().expectStopFailure(), worker(new ProcessNameRemoteProcess()).reusable());
+    }
+
     private ChildProcess worker(Action<WorkerProcessContext> action) {
         return new ChildProcess(action);
     }
@@ -179,9 +222,20 @@ public class WorkerProcessIntegrationTest {
         exceptionListener.rethrow();
     }
 
+    void executeInSequence(ChildProcess... processes) throws Throwable {
+        for (ChildProcess process : processes) {
+            process.start();
+            process.waitForStop();
+        }
+        workerFactory.stop();
+        messagingServices.stop();
+        exceptionListener.rethrow();
+    }
+
     private class ChildProcess {
         private boolean stopFails;
         private boolean startFails;
+        private boolean reusable;
         private WorkerProcess proc;
         private Action<WorkerProcessContext> action;
         private String mainClass;
@@ -196,6 +250,11 @@ public class WorkerProcessIntegrationTest {
             return this;
         }
 
+        ChildProcess reusable() {
+            reusable = true;
+            return this;
+        }
+
         ChildProcess expectStartFailure() {
             startFails = true;
             return this;
@@ -208,6 +267,7 @@ public class WorkerProcessIntegrationTest {
             builder.getJavaCommand().systemProperty("test.system.property", "value");
             builder.getJavaCommand().environment("TEST_ENV_VAR", "value");
             builder.worker(action);
+            builder.setReusable(reusable);
 
             if (mainClass != null) {
                 builder.getJavaCommand().setMain(mainClass);
@@ -297,6 +357,17 @@ public class WorkerProcessIntegrationTest {
         }
     }
 
+    public static class ProcessNameRemoteProcess implements Action<WorkerProcessContext>, Serializable {
+        public void execute(WorkerProcessContext workerProcessContext) {
+            // Check that changes made by earlier workers have been discarded
+            assertThat(System.getProperty("test.worker.property"), nullValue());
+            System.setProperty("test.worker.property", "value");
+
+            TestListenerInterface sender = workerProcessContext.getServerConnection().addOutgoing(TestListenerInterface.class);
+            sender.send(ManagementFactory.getRuntimeMXBean().getName(), 0);
+        }
+    }
+
     public static class OtherRemoteProcess implements Action<WorkerProcessContext>, Serializable {
         public void execute(WorkerProcessContext workerProcessContext) {
             TestListenerInterface sender = workerProcessContext.getServerConnection().addOutgoing(TestListenerInterface.class);
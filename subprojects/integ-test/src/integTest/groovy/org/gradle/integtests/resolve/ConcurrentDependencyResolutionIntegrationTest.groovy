@@ -0,0 +1,82 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.integtests.resolve
+
+import org.gradle.integtests.fixtures.GradleHandles
+import org.gradle.integtests.fixtures.HttpServer
+import org.gradle.integtests.fixtures.IvyRepository
+import org.junit.Rule
+import spock.lang.Specification
+
+class ConcurrentDependencyResolutionIntegrationTest extends Specification {
+    static final int BUILDS = 4
+    static final int MODULES = 10
+
+    @Rule public final GradleHandles handles = new GradleHandles()
+    @Rule public final HttpServer server = new HttpServer()
+
+    def "builds can concurrently resolve overlapping dependency graphs using the same cache"() {
+        handles.distribution.requireOwnUserHomeDir()
+
+        given:
+        def repo = new IvyRepository(handles.distribution.testDir.file('ivy-repo'))
+        (0..<MODULES).each {
+            def module = repo.module('group', "module$it", '1.0')
+            if (it + 1 < MODULES) {
+                module.dependsOn('group', "module${it + 1}", '1.0')
+            }
+            module.publish()
+        }
+        server.allowGet('/repo', repo.rootDir)
+        server.start()
+
+        and:
+        def buildDirs = (0..<BUILDS).collect {
+            def buildDir = handles.distribution.testDir.file("build$it")
+            buildDir.file('build.gradle') << """
+repositories {
+    ivy {
+        url "http://localhost:${server.port}/repo"
+    }
+}
+configurations { compile }
+dependencies {
+    compile 'group:module$it:1.0'
+}
+task resolve << {
+    assert configurations.compile.collect { it.name } as Set == (${it}..<${MODULES}).collect { "module\${it}-1.0.jar" } as Set
+}
+"""
+            buildDir
+        }
+
+        expect:
+        // Populate the cache concurrently, then read from it concurrently
+        runConcurrently(buildDirs)
+        runConcurrently(buildDirs)
+    }
+
+    def runConcurrently(List<File> buildDirs) {
+        def builds = buildDirs.collect { buildDir ->
+            handles.createHandle {
+                usingProjectDirectory buildDir
+                withTasks 'resolve'
+            }.start()
+        }
+        builds.each { it.waitForFinish() }
+        return true
+    }
+}
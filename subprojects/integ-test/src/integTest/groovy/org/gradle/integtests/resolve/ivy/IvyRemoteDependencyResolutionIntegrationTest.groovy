@@ -117,6 +117,42 @@ task listJars << {
         succeeds('listJars')
     }
 
+    public void "releases connections for missing resources so that many misses do not exhaust the connection pool"() {
+        distribution.requireOwnUserHomeDir()
+
+        given:
+        def repo = ivyRepo()
+        def modules = (1..10).collect { repo.module('group', "project$it", '1.0') }
+        modules*.publish()
+
+        and:
+        server.allowGet('/empty', file('empty-repo').createDir())
+        server.allowGet('/repo', repo.rootDir)
+        server.start()
+
+        and:
+        buildFile << """
+repositories {
+    ivy {
+        url "http://localhost:${server.port}/empty"
+    }
+    ivy {
+        url "http://localhost:${server.port}/repo"
+    }
+}
+configurations { compile }
+dependencies {
+    compile ${modules.collect { "'group:${it.module}:1.0'" }.join(', ')}
+}
+task listJars << {
+    assert configurations.compile.collect { it.name } as Set == (1..10).collect { "project\${it}-1.0.jar" } as Set
+}
+"""
+
+        expect:
+        succeeds('listJars')
+    }
+
     public void "can resolve dependencies from password protected HTTP Ivy repository"() {
         distribution.requireOwnUserHomeDir()
 
@@ -40,6 +40,10 @@ public class GradleHandles implements MethodRule {
         this.executer = new GradleDistributionExecuter(GradleDistributionExecuter.Executer.forking, distribution);
     }
 
+    public GradleDistribution getDistribution() {
+        return distribution;
+    }
+
     public GradleDistributionExecuter getExecuter() {
         return this.executer;
     }
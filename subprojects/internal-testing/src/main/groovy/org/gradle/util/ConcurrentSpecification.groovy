@@ -23,6 +23,9 @@ import java.util.concurrent.locks.Lock
 import java.util.concurrent.locks.ReentrantLock
 import org.gradle.messaging.concurrent.ExecutorFactory
 import org.gradle.messaging.concurrent.StoppableExecutor
+import org.gradle.messaging.dispatch.AsyncDispatch
+import org.gradle.messaging.dispatch.Dispatch
+import org.gradle.messaging.dispatch.StoppableDispatch
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import spock.lang.Specification
@@ -80,6 +83,10 @@ class ConcurrentSpecification extends Specification {
             StoppableExecutor create(String displayName) {
                 return new StoppableExecutorStub(ConcurrentSpecification.this)
             }
+
+            public <T> StoppableDispatch<T> createAsyncDispatch(Executor executor, Dispatch<? super T> handler) {
+                return new AsyncDispatch<T>(executor, handler)
+            }
         }
     }
 
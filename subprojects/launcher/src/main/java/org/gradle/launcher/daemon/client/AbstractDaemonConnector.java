@@ -25,8 +25,11 @@ import org.gradle.messaging.remote.internal.ConnectException;
 import org.gradle.messaging.remote.internal.Connection;
 import org.gradle.messaging.remote.internal.DefaultMessageSerializer;
 import org.gradle.messaging.remote.internal.inet.TcpOutgoingConnector;
+import org.gradle.util.Jvm;
 import org.gradle.util.UncheckedException;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -36,6 +39,11 @@ import java.util.List;
  * 
  * Subclassing instead of delegation with regard to creating new daemons seems more appropriate
  * as the way that new daemons are launched is likely to be coupled to the DaemonRegistry implementation.
+ * <p>
+ * When connecting, idle daemons which run in the same jvm as this client are preferred, and of those the daemons which
+ * last ran a build from the same directory are tried first, as their caches are already warmed up for the build.
+ * Optionally, a number of spare idle daemons can be kept running so that the next build does not have to wait for a
+ * daemon to start.
  */
 abstract public class AbstractDaemonConnector<T extends DaemonRegistry> implements DaemonConnector {
 
@@ -43,6 +51,7 @@ abstract public class AbstractDaemonConnector<T extends DaemonRegistry> implemen
 
     private final T daemonRegistry;
     private final long connectTimout;
+    private final int poolSize;
     public final static int DEFAULT_CONNECT_TIMEOUT = 30000;
 
     protected AbstractDaemonConnector(T daemonRegistry) {
@@ -50,8 +59,16 @@ abstract public class AbstractDaemonConnector<T extends DaemonRegistry> implemen
     }
 
     protected AbstractDaemonConnector(T daemonRegistry, int connectTimout) {
+        this(daemonRegistry, connectTimout, 0);
+    }
+
+    /**
+     * @param poolSize The number of spare idle daemons to keep running, in addition to the daemon a client connects to.
+     */
+    protected AbstractDaemonConnector(T daemonRegistry, int connectTimout, int poolSize) {
         this.daemonRegistry = daemonRegistry;
         this.connectTimout = connectTimout;
+        this.poolSize = poolSize;
     }
 
     public Connection<Object> maybeConnect() {
@@ -77,8 +94,14 @@ abstract public class AbstractDaemonConnector<T extends DaemonRegistry> implemen
     }
 
     public Connection<Object> connect() {
-        Connection<Object> connection = findConnection(daemonRegistry.getIdle());
+        return connect(null);
+    }
+
+    public Connection<Object> connect(File buildDir) {
+        List<DaemonStatus> candidates = getCompatibleIdle(buildDir);
+        Connection<Object> connection = findConnection(candidates);
         if (connection != null) {
+            startSpareDaemons(candidates.size() - 1);
             return connection;
         }
 
@@ -86,8 +109,9 @@ abstract public class AbstractDaemonConnector<T extends DaemonRegistry> implemen
         startDaemon();
         Date expiry = new Date(System.currentTimeMillis() + connectTimout);
         do {
-            connection = findConnection(daemonRegistry.getIdle());
+            connection = findConnection(getCompatibleIdle(buildDir));
             if (connection != null) {
+                startSpareDaemons(0);
                 return connection;
             }
             try {
@@ -100,6 +124,37 @@ abstract public class AbstractDaemonConnector<T extends DaemonRegistry> implemen
         throw new GradleException("Timeout waiting to connect to Gradle daemon.");
     }
 
+    /**
+     * Returns the idle daemons which run in the same jvm as this client, with those which last ran a build from the
+     * given directory first.
+     */
+    List<DaemonStatus> getCompatibleIdle(File buildDir) {
+        File javaHome = Jvm.current().getJavaHome();
+        List<DaemonStatus> sameBuild = new ArrayList<DaemonStatus>();
+        List<DaemonStatus> otherBuild = new ArrayList<DaemonStatus>();
+        for (DaemonStatus status : daemonRegistry.getIdle()) {
+            if (status.getJavaHome() != null && !status.getJavaHome().equals(javaHome)) {
+                continue;
+            }
+            if (buildDir != null && buildDir.equals(status.getBuildDir())) {
+                sameBuild.add(status);
+            } else {
+                otherBuild.add(status);
+            }
+        }
+        sameBuild.addAll(otherBuild);
+        return sameBuild;
+    }
+
+    private void startSpareDaemons(int spareDaemons) {
+        // The registry may be out of date, as other clients start and use daemons concurrently. This may lead to
+        // a few more or less spare daemons, which is ok as idle daemons eventually stop
+        for (int i = spareDaemons; i < poolSize; i++) {
+            LOGGER.info("Starting spare Gradle daemon");
+            startDaemon();
+        }
+    }
+
     public T getDaemonRegistry() {
         return daemonRegistry;
     }
@@ -84,7 +84,7 @@ public class DaemonClient implements GradleLauncherActionExecuter<BuildActionPar
         LOGGER.warn("Note: the Gradle build daemon is an experimental feature.");
         LOGGER.warn("As such, you may experience unexpected build failures. You may need to occasionally stop the daemon.");
         while(true) {
-            Connection<Object> connection = connector.connect();
+            Connection<Object> connection = connector.connect(parameters.getCurrentDir());
 
             Result<T> result = runBuild(new Build(action, parameters), connection);
             if (result instanceof DaemonBusy) {
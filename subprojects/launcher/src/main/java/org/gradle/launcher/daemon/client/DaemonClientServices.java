@@ -38,15 +38,21 @@ public class DaemonClientServices extends DefaultServiceRegistry {
     private final ServiceRegistry loggingServices;
     private final File userHomeDir;
     private final int idleTimeout;
+    private final int poolSize;
 
     public DaemonClientServices(ServiceRegistry loggingServices, File userHomeDir) {
         this(loggingServices, userHomeDir, DaemonIdleTimeout.DEFAULT_IDLE_TIMEOUT);
     }
 
     public DaemonClientServices(ServiceRegistry loggingServices, File userHomeDir, int idleTimeout) {
+        this(loggingServices, userHomeDir, idleTimeout, 0);
+    }
+
+    public DaemonClientServices(ServiceRegistry loggingServices, File userHomeDir, int idleTimeout, int poolSize) {
         this.loggingServices = loggingServices;
         this.userHomeDir = userHomeDir;
         this.idleTimeout = idleTimeout;
+        this.poolSize = poolSize;
     }
 
     protected ProcessEnvironment createProcessEnvironment() {
@@ -66,7 +72,7 @@ public class DaemonClientServices extends DefaultServiceRegistry {
     }
 
     protected DaemonConnector createDaemonConnector() {
-        return new ExternalDaemonConnector(get(DaemonRegistry.class), userHomeDir, idleTimeout);
+        return new ExternalDaemonConnector(get(DaemonRegistry.class), userHomeDir, idleTimeout, AbstractDaemonConnector.DEFAULT_CONNECT_TIMEOUT, poolSize);
     }
     
     protected DaemonClient createDaemonClient() {
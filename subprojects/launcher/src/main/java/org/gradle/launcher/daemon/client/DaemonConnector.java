@@ -18,6 +18,8 @@ package org.gradle.launcher.daemon.client;
 import org.gradle.launcher.daemon.registry.DaemonRegistry;
 import org.gradle.messaging.remote.internal.Connection;
 
+import java.io.File;
+
 /**
  * A daemon connector establishes a connection to either an already running daemon, or a newly started daemon.
  */
@@ -37,6 +39,15 @@ public interface DaemonConnector {
      */
     public Connection<Object> connect();
 
+    /**
+     * Connects to a daemon to run a build from the given directory, starting a daemon if required. Prefers a daemon
+     * which has previously run a build from the same directory.
+     *
+     * @param buildDir The directory the build is run from. May be null.
+     * @return The connection. Never returns null.
+     */
+    public Connection<Object> connect(File buildDir);
+
     /**
      * The registry that this connector is using.
      *
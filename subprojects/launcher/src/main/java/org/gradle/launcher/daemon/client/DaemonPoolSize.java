@@ -0,0 +1,64 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.client;
+
+import org.gradle.StartParameter;
+import org.gradle.api.GradleException;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Centralises determining the number of spare idle daemons the client keeps running.
+ */
+public class DaemonPoolSize {
+    public static final int DEFAULT_POOL_SIZE = 0;
+    private static final String POOL_SIZE_PROPERTY = "org.gradle.daemon.poolsize";
+    private final int poolSize;
+
+    public DaemonPoolSize(StartParameter startParameter) {
+        this(startParameter.getSystemPropertiesArgs());
+    }
+
+    /**
+     * throws exception when the pool size property is not a valid, non-negative int
+     */
+    public DaemonPoolSize(Map<String, String> sysProperties) {
+        if (sysProperties == null) {
+            sysProperties = Collections.<String, String>emptyMap();
+        }
+
+        String poolSizeProperty = sysProperties.get(POOL_SIZE_PROPERTY);
+        if (poolSizeProperty == null) {
+            poolSize = DEFAULT_POOL_SIZE;
+        } else {
+            int value;
+            try {
+                value = Integer.parseInt(poolSizeProperty);
+            } catch (Exception e) {
+                value = -1;
+            }
+            if (value < 0) {
+                throw new GradleException(String.format("Unable to parse %s sys property. The value should be a non-negative int but is: %s", POOL_SIZE_PROPERTY, poolSizeProperty));
+            }
+            poolSize = value;
+        }
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+}
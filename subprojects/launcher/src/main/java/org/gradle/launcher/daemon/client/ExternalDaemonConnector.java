@@ -45,7 +45,11 @@ public class ExternalDaemonConnector extends AbstractDaemonConnector<DaemonRegis
     }
 
     public ExternalDaemonConnector(DaemonRegistry registry, File userHomeDir, int idleTimeout, int connectTimeout) {
-        super(registry, connectTimeout);
+        this(registry, userHomeDir, idleTimeout, connectTimeout, 0);
+    }
+
+    public ExternalDaemonConnector(DaemonRegistry registry, File userHomeDir, int idleTimeout, int connectTimeout, int poolSize) {
+        super(registry, connectTimeout, poolSize);
         this.idleTimeout = idleTimeout;
         this.userHomeDir = userHomeDir;
     }
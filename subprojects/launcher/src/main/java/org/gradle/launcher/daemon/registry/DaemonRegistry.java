@@ -18,6 +18,7 @@ package org.gradle.launcher.daemon.registry;
 
 import org.gradle.messaging.remote.Address;
 
+import java.io.File;
 import java.util.List;
 
 /**
@@ -29,9 +30,17 @@ public interface DaemonRegistry {
     List<DaemonStatus> getIdle();
     List<DaemonStatus> getBusy();
     
-    void store(Address address);
+    /**
+     * Adds an idle daemon which runs in a jvm with the given java home.
+     */
+    void store(Address address, File javaHome);
     void remove(Address address);
-    void markBusy(Address address);
+
+    /**
+     * Marks the daemon as busy running a build from the given directory, which may be null if the daemon is not running
+     * a build.
+     */
+    void markBusy(Address address, File buildDir);
     void markIdle(Address address);
 
     static class EmptyRegistryException extends RuntimeException {
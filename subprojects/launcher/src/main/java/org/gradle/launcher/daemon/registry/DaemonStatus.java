@@ -18,6 +18,7 @@ package org.gradle.launcher.daemon.registry;
 
 import org.gradle.messaging.remote.Address;
 
+import java.io.File;
 import java.io.Serializable;
 
 /**
@@ -27,6 +28,8 @@ public class DaemonStatus implements Serializable {
 
     private final Address address;
     private boolean idle = true;
+    private File javaHome;
+    private File buildDir;
 
     public DaemonStatus(Address address) {
         this.address = address;
@@ -37,6 +40,16 @@ public class DaemonStatus implements Serializable {
         return this;
     }
 
+    public DaemonStatus setJavaHome(File javaHome) {
+        this.javaHome = javaHome;
+        return this;
+    }
+
+    public DaemonStatus setBuildDir(File buildDir) {
+        this.buildDir = buildDir;
+        return this;
+    }
+
     public Address getAddress() {
         return address;
     }
@@ -45,11 +58,28 @@ public class DaemonStatus implements Serializable {
         return idle;
     }
 
+    /**
+     * The java home of the jvm the daemon runs in. May be null.
+     */
+    public File getJavaHome() {
+        return javaHome;
+    }
+
+    /**
+     * The directory the most recent build of the daemon was run from. May be null if the daemon has not run a build.
+     * The daemon's caches are warmed up for this build.
+     */
+    public File getBuildDir() {
+        return buildDir;
+    }
+
     @Override
     public String toString() {
         return "DaemonStatus{"
                 + "address=" + address
                 + ", idle=" + idle
+                + ", javaHome=" + javaHome
+                + ", buildDir=" + buildDir
                 + '}';
     }
 }
@@ -21,6 +21,7 @@ import org.gradle.launcher.daemon.server.Daemon;
 import org.gradle.messaging.remote.Address;
 import org.gradle.messaging.concurrent.CompositeStoppable;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -76,17 +77,20 @@ public class EmbeddedDaemonRegistry implements DaemonRegistry {
         return statusesOfEntriesMatching(busySpec);
     }
 
-    public void store(Address address) {
-        statuses.put(address, new DaemonStatus(address));
+    public void store(Address address, File javaHome) {
+        statuses.put(address, new DaemonStatus(address).setJavaHome(javaHome));
     }
 
     public void remove(Address address) {
         statuses.remove(address);
     }
 
-    public void markBusy(Address address) {
+    public void markBusy(Address address, File buildDir) {
         synchronized (statuses) {
-            statuses.get(address).setIdle(false);
+            DaemonStatus status = statuses.get(address).setIdle(false);
+            if (buildDir != null) {
+                status.setBuildDir(buildDir);
+            }
         }
     }
 
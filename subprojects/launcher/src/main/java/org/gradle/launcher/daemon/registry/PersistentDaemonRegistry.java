@@ -92,12 +92,15 @@ public class PersistentDaemonRegistry implements DaemonRegistry {
         });
     }
 
-    public synchronized void markBusy(final Address address) {
+    public synchronized void markBusy(final Address address, final File buildDir) {
         cache.update(new PersistentStateCache.UpdateAction<DaemonRegistryContent>() {
             public DaemonRegistryContent update(DaemonRegistryContent oldValue) {
                 assertCacheNotEmpty(oldValue);
                 DaemonStatus status = oldValue.getStatus(address);
                 status.setIdle(false);
+                if (buildDir != null) {
+                    status.setBuildDir(buildDir);
+                }
                 return oldValue;
             }
         });
@@ -119,14 +122,14 @@ public class PersistentDaemonRegistry implements DaemonRegistry {
         }
     }
 
-    public synchronized void store(final Address address) {
+    public synchronized void store(final Address address, final File javaHome) {
         cache.update(new PersistentStateCache.UpdateAction<DaemonRegistryContent>() {
             public DaemonRegistryContent update(DaemonRegistryContent oldValue) {
                 if (oldValue == null) {
                     //it means the registry didn't exist yet
                     oldValue = new DaemonRegistryContent();
                 }
-                DaemonStatus status = new DaemonStatus(address).setIdle(true);
+                DaemonStatus status = new DaemonStatus(address).setIdle(true).setJavaHome(javaHome);
                 oldValue.setStatus(address, status);
                 return oldValue;
             }
@@ -17,6 +17,7 @@ package org.gradle.launcher.daemon.server;
 
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
+import org.gradle.launcher.daemon.protocol.Build;
 import org.gradle.launcher.daemon.protocol.Command;
 import org.gradle.launcher.daemon.registry.DaemonRegistry;
 import org.gradle.launcher.daemon.server.exec.DaemonCommandExecuter;
@@ -119,7 +120,9 @@ public class Daemon implements Runnable, Stoppable {
             
             Runnable onStartCommand = new Runnable() {
                 public void run() {
-                    registryUpdater.onStartActivity();
+                    // Record which build the daemon is running, so that clients can prefer this daemon for the same build
+                    Command command = stateCoordinator.getCurrentCommandExecution().getCommand();
+                    registryUpdater.onStartActivity(command instanceof Build ? ((Build) command).getParameters().getCurrentDir() : null);
                 }
             };
 
@@ -20,6 +20,9 @@ import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.launcher.daemon.registry.DaemonRegistry;
 import org.gradle.messaging.remote.Address;
+import org.gradle.util.Jvm;
+
+import java.io.File;
 
 /**
 * @author: Szczepan Faber, created at: 9/12/11
@@ -36,10 +39,10 @@ class DomainRegistryUpdater {
         this.connectorAddress = connectorAddress;
     }
 
-    public void onStartActivity() {
+    public void onStartActivity(File buildDir) {
         LOGGER.info("Marking the daemon as busy, address: " + connectorAddress);
         try {
-            daemonRegistry.markBusy(connectorAddress);
+            daemonRegistry.markBusy(connectorAddress, buildDir);
         } catch (DaemonRegistry.EmptyRegistryException e) {
             LOGGER.warn("Cannot mark daemon as busy because the registry is empty.");
         }
@@ -56,7 +59,7 @@ class DomainRegistryUpdater {
 
     public void onStart() {
         LOGGER.info("Advertising the daemon address to the clients: " + connectorAddress);
-        daemonRegistry.store(connectorAddress);
+        daemonRegistry.store(connectorAddress, Jvm.current().getJavaHome());
     }
 
     public void onStop() {
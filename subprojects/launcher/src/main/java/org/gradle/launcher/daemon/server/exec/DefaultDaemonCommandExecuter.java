@@ -15,7 +15,9 @@
  */
 package org.gradle.launcher.daemon.server.exec;
 
+import org.gradle.api.internal.project.GlobalServicesRegistry;
 import org.gradle.api.internal.project.ServiceRegistry;
+import org.gradle.groovy.scripts.internal.CrossBuildScriptClassCache;
 import org.gradle.initialization.DefaultGradleLauncherFactory;
 import org.gradle.initialization.GradleLauncherFactory;
 import org.gradle.launcher.daemon.protocol.Command;
@@ -35,12 +37,15 @@ public class DefaultDaemonCommandExecuter implements DaemonCommandExecuter {
     private final ExecutorFactory executorFactory;
     final private LoggingOutputInternal loggingOutput;
     final private GradleLauncherFactory launcherFactory;
+    final private CrossBuildScriptClassCache scriptClassCache;
 
     public DefaultDaemonCommandExecuter(ServiceRegistry loggingServices, ExecutorFactory executorFactory) {
         this.loggingServices = loggingServices;
         this.executorFactory = executorFactory;
         this.loggingOutput = loggingServices.get(LoggingOutputInternal.class);
-        this.launcherFactory = new DefaultGradleLauncherFactory(loggingServices);
+        GlobalServicesRegistry globalServices = new GlobalServicesRegistry(loggingServices);
+        this.launcherFactory = new DefaultGradleLauncherFactory(globalServices);
+        this.scriptClassCache = globalServices.get(CrossBuildScriptClassCache.class);
     }
 
     public void executeCommand(Connection<Object> connection, Command command, DaemonStateCoordinator daemonStateCoordinator) {
@@ -53,6 +58,7 @@ public class DefaultDaemonCommandExecuter implements DaemonCommandExecuter {
             new CatchAndForwardDaemonFailure(),
             new HandleStop(),
             new UpdateDaemonStateAndHandleBusyDaemon(),
+            new LogScriptClassCacheStatistics(scriptClassCache),
             new ReturnResult(),
             new ForwardOutput(loggingOutput),
             new ResetDeprecationLogger(),
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.server.exec;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.groovy.scripts.internal.CrossBuildScriptClassCache;
+
+/**
+ * Logs the statistics of the script class cache shared by the builds of the daemon, once the command has been executed.
+ */
+public class LogScriptClassCacheStatistics implements DaemonCommandAction {
+    private static final Logger LOGGER = Logging.getLogger(LogScriptClassCacheStatistics.class);
+    private final CrossBuildScriptClassCache scriptClassCache;
+
+    public LogScriptClassCacheStatistics(CrossBuildScriptClassCache scriptClassCache) {
+        this.scriptClassCache = scriptClassCache;
+    }
+
+    public void execute(DaemonCommandExecution execution) {
+        try {
+            execution.proceed();
+        } finally {
+            LOGGER.info("Daemon {}.", scriptClassCache);
+        }
+    }
+}
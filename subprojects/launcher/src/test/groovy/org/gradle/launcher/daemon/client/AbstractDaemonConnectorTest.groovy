@@ -0,0 +1,56 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.client
+
+import org.gradle.launcher.daemon.registry.EmbeddedDaemonRegistry
+import org.gradle.messaging.remote.Address
+import org.gradle.util.Jvm
+import spock.lang.Specification
+
+class AbstractDaemonConnectorTest extends Specification {
+    final EmbeddedDaemonRegistry registry = new EmbeddedDaemonRegistry()
+    final AbstractDaemonConnector connector = new AbstractDaemonConnector(registry) {
+        protected void startDaemon() {
+        }
+    }
+    final File buildDir = new File("build")
+    final Address address1 = {} as Address
+    final Address address2 = {} as Address
+    final Address address3 = {} as Address
+
+    def "prefers idle daemons which ran the same build"() {
+        given:
+        registry.store(address1, Jvm.current().javaHome)
+        registry.store(address2, Jvm.current().javaHome)
+        registry.store(address3, Jvm.current().javaHome)
+        registry.markBusy(address2, buildDir)
+        registry.markIdle(address2)
+        registry.markBusy(address3, buildDir)
+
+        expect:
+        connector.getCompatibleIdle(buildDir)*.address == [address2, address1]
+        connector.getCompatibleIdle(null).size() == 2
+    }
+
+    def "ignores idle daemons which run in a different jvm"() {
+        given:
+        registry.store(address1, new File("other-java-home"))
+        registry.store(address2, null)
+
+        expect:
+        connector.getCompatibleIdle(buildDir)*.address == [address2]
+    }
+}
@@ -73,7 +73,7 @@ class DaemonClientTest extends Specification {
 
         then:
         result == '[result]'
-        1 * connector.connect() >> connection
+        1 * connector.connect(_) >> connection
         1 * connection.dispatch({it instanceof Build})
         1 * connection.receive() >> new Success('[result]')
         1 * connection.stop()
@@ -90,7 +90,7 @@ class DaemonClientTest extends Specification {
         then:
         RuntimeException e = thrown()
         e == failure
-        1 * connector.connect() >> connection
+        1 * connector.connect(_) >> connection
         1 * connection.dispatch({it instanceof Build})
         1 * connection.receive() >> new CommandFailure(failure)
         1 * connection.stop()
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher.daemon.client
+
+import org.gradle.api.GradleException
+import spock.lang.Specification
+
+class DaemonPoolSizeTest extends Specification {
+    def "reads and validates pool size"() {
+        expect:
+        2 == new DaemonPoolSize(['org.gradle.daemon.poolsize': '2']).poolSize
+        DaemonPoolSize.DEFAULT_POOL_SIZE == new DaemonPoolSize([:]).poolSize
+
+        when:
+        new DaemonPoolSize(['org.gradle.daemon.poolsize': '-1'])
+
+        then:
+        def ex = thrown(GradleException)
+        ex.message.contains 'org.gradle.daemon.poolsize'
+        ex.message.contains '-1'
+    }
+}
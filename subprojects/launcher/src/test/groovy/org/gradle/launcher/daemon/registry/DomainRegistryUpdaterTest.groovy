@@ -20,6 +20,7 @@ import org.gradle.launcher.daemon.registry.DaemonRegistry.EmptyRegistryException
 import org.gradle.messaging.remote.Address
 import spock.lang.Specification
 import org.gradle.launcher.daemon.server.DomainRegistryUpdater
+import org.gradle.util.Jvm
 
 /**
  * @author: Szczepan Faber, created at: 9/12/11
@@ -49,20 +50,30 @@ public class DomainRegistryUpdaterTest extends Specification {
         noExceptionThrown()
     }
 
+    def "stores address and java home"() {
+        when:
+        updater.onStart()
+
+        then:
+        1 * registry.store(address, Jvm.current().javaHome)
+    }
+
     def "marks busy"() {
+        def buildDir = new File("build")
+
         when:
-        updater.onStartActivity()
+        updater.onStartActivity(buildDir)
 
         then:
-        1 * registry.markBusy(address)
+        1 * registry.markBusy(address, buildDir)
     }
 
     def "ignores empty cache on marking busy"() {
         given:
-        1 * registry.markBusy(address) >> { throw new EmptyRegistryException("") }
+        1 * registry.markBusy(address, null) >> { throw new EmptyRegistryException("") }
 
         when:
-        updater.onStartActivity()
+        updater.onStartActivity(null)
 
         then:
         noExceptionThrown()
@@ -35,8 +35,8 @@ class EmbeddedDaemonRegistrySpec extends Specification {
 
     def "lifecycle"() {
         given:
-        store(address(10))
-        store(address(20))
+        store(address(10), null)
+        store(address(20), null)
 
         expect:
         all.size() == 2
@@ -44,7 +44,7 @@ class EmbeddedDaemonRegistrySpec extends Specification {
         busy.empty
 
         when:
-        markBusy(address(10))
+        markBusy(address(10), null)
 
         then:
         all.size() == 2
@@ -52,7 +52,7 @@ class EmbeddedDaemonRegistrySpec extends Specification {
         busy.size() == 1
 
         when:
-        markBusy(address(20))
+        markBusy(address(20), null)
 
         then:
         all.size() == 2
@@ -77,4 +77,21 @@ class EmbeddedDaemonRegistrySpec extends Specification {
         idle.empty
         busy.empty
     }
-}
\ No newline at end of file
+
+    def "remembers java home and most recent build dir"() {
+        def javaHome = new File("java")
+        def buildDir = new File("build")
+
+        given:
+        store(address(10), javaHome)
+
+        when:
+        markBusy(address(10), buildDir)
+        markIdle(address(10))
+        markBusy(address(10), null)
+
+        then:
+        all[0].javaHome == javaHome
+        all[0].buildDir == buildDir
+    }
+}
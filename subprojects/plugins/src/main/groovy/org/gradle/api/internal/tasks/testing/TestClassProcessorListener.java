@@ -0,0 +1,32 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing;
+
+/**
+ * Receives notifications as a {@link TestClassProcessor} works through the test classes given to it. Implementations
+ * must be thread-safe.
+ */
+public interface TestClassProcessorListener {
+    /**
+     * Called when the processor has finished with the given test class, and is ready to accept another.
+     */
+    void testClassProcessed(TestClassRunInfo testClass);
+
+    /**
+     * Called when the processor has failed, and will not finish with the test classes it currently holds.
+     */
+    void processorFailed();
+}
@@ -16,19 +16,17 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.util.HashUtil;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.util.*;
 
 /**
@@ -42,26 +40,40 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     private final FileCollection testClasspath;
     private List<File> testClassDirectories;
     private final ClassFileExtractionManager classFileExtractionManager;
-    private final Map<File, Boolean> superClasses;
+    private final Map<String, Boolean> superClasses;
+    private final Map<String, TestClassDetails> superClassDetails;
     private TestClassProcessor testClassProcessor;
+    private TestClassDetailsRepository classDetailsRepository;
     private final List<String> knownTestCaseClassNames;
 
     protected AbstractTestFrameworkDetector(File testClassesDirectory, FileCollection testClasspath, ClassFileExtractionManager classFileExtractionManager) {
         this.testClassesDirectory = testClassesDirectory;
         this.testClasspath = testClasspath;
         this.classFileExtractionManager = classFileExtractionManager;
-        this.superClasses = new HashMap<File, Boolean>();
+        this.superClasses = new HashMap<String, Boolean>();
+        this.superClassDetails = new HashMap<String, TestClassDetails>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
-    protected File getSuperTestClassFile(String superClassName) {
-        prepareClasspath();
+    /**
+     * Returns the details of the given super class, or null if the class file cannot be found. Super classes in library
+     * jars are read from the jar without being extracted.
+     */
+    protected TestClassDetails getSuperTestClass(String superClassName) {
         if (StringUtils.isEmpty(superClassName)) {
             throw new IllegalArgumentException("superClassName is empty!");
         }
+        if (!superClassDetails.containsKey(superClassName)) {
+            superClassDetails.put(superClassName, findSuperTestClass(superClassName));
+        }
+        return superClassDetails.get(superClassName);
+    }
+
+    private TestClassDetails findSuperTestClass(String superClassName) {
+        prepareClasspath();
 
         final Iterator<File> testClassDirectoriesIt = testClassDirectories.iterator();
 
@@ -75,10 +87,15 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         }
 
         if (superTestClassFile != null) {
-            return superTestClassFile;
-        } else { // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
+            return classDetails(superTestClassFile);
         }
+
+        // super test class file not in test class directories
+        final byte[] superTestClassBytes = classFileExtractionManager.getLibraryClassBytes(superClassName);
+        if (superTestClassBytes != null) {
+            return classDetails(superTestClassBytes, superClassName);
+        }
+        return null;
     }
 
     private void prepareClasspath() {
@@ -99,38 +116,62 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         }
     }
 
-    protected TestClassVisitor classVisitor(final File testClassFile) {
-        final TestClassVisitor classVisitor = createClassVisitor();
+    protected TestClassDetails classDetails(final File testClassFile) {
+        final byte[] classBytes;
+        try {
+            classBytes = FileUtils.readFileToByteArray(testClassFile);
+        } catch (Throwable e) {
+            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
+        }
+        return classDetails(classBytes, testClassFile.getAbsolutePath());
+    }
+
+    /**
+     * Returns the details of the given class file content. When a repository is set, class files which have been
+     * scanned before are not parsed again.
+     */
+    private TestClassDetails classDetails(byte[] classBytes, String displayName) {
+        String key = null;
+        if (classDetailsRepository != null) {
+            // The details depend on the class visitor, so include the detector type in the key
+            key = getClass().getName() + ":" + HashUtil.createHash(classBytes);
+            TestClassDetails details = classDetailsRepository.get(key);
+            if (details != null) {
+                return details;
+            }
+        }
 
-        InputStream classStream = null;
+        final TestClassVisitor classVisitor = createClassVisitor();
         try {
-            classStream = new BufferedInputStream(new FileInputStream(testClassFile));
-            final ClassReader classReader = new ClassReader(classStream);
+            final ClassReader classReader = new ClassReader(classBytes);
             classReader.accept(classVisitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
         } catch (Throwable e) {
-            throw new GradleException("failed to read class file " + testClassFile.getAbsolutePath(), e);
-        } finally {
-            IOUtils.closeQuietly(classStream);
+            throw new GradleException("failed to read class file " + displayName, e);
         }
 
-        return classVisitor;
+        TestClassDetails details = new TestClassDetails(classVisitor.getClassName(), classVisitor.getSuperClassName(),
+                classVisitor.isTest(), classVisitor.isAbstract());
+        if (key != null) {
+            classDetailsRepository.put(key, details);
+        }
+        return details;
     }
 
     public boolean processTestClass(File testClassFile) {
-        return processTestClass(testClassFile, false);
+        return processTestClass(classDetails(testClassFile), false);
     }
 
-    protected abstract boolean processTestClass(File testClassFile, boolean superClass);
+    protected abstract boolean processTestClass(TestClassDetails testClass, boolean superClass);
 
-    protected boolean processSuperClass(File testClassFile) {
+    protected boolean processSuperClass(TestClassDetails testClass) {
         boolean isTest = false;
 
-        Boolean isSuperTest = superClasses.get(testClassFile);
+        Boolean isSuperTest = superClasses.get(testClass.getClassName());
 
         if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
+            isTest = processTestClass(testClass, true);
 
-            superClasses.put(testClassFile, isTest);
+            superClasses.put(testClass.getClassName(), isTest);
         } else {
             isTest = isSuperTest;
         }
@@ -143,9 +184,9 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
      * class mode it musn't publish the class otherwise it will get published multiple times (for each extending
      * class).
      */
-    protected void publishTestClass(boolean isTest, TestClassVisitor classVisitor, boolean superClass) {
-        if (isTest && !classVisitor.isAbstract() && !superClass) {
-            String className = Type.getObjectType(classVisitor.getClassName()).getClassName();
+    protected void publishTestClass(boolean isTest, TestClassDetails testClass, boolean superClass) {
+        if (isTest && !testClass.isAbstract() && !superClass) {
+            String className = Type.getObjectType(testClass.getClassName()).getClassName();
             testClassProcessor.processTestClass(new DefaultTestClassRunInfo(className));
         }
     }
@@ -154,6 +195,10 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
         this.testClassProcessor = testClassProcessor;
     }
 
+    public void setClassDetailsRepository(TestClassDetailsRepository classDetailsRepository) {
+        this.classDetailsRepository = classDetailsRepository;
+    }
+
     public void addKnownTestCaseClassNames(String... knownTestCaseClassNames) {
         if (knownTestCaseClassNames != null && knownTestCaseClassNames.length != 0) {
             for (String knownTestCaseClassName : knownTestCaseClassNames) {
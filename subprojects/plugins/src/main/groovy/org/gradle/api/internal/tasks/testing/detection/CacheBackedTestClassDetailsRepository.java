@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.invocation.Gradle;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
+
+import java.io.*;
+
+public class CacheBackedTestClassDetailsRepository implements TestClassDetailsRepository {
+    private final PersistentIndexedCache<String, TestClassDetails> cache;
+
+    public CacheBackedTestClassDetailsRepository(CacheRepository cacheRepository, Gradle gradle) {
+        cache = cacheRepository.indexedCache(String.class, TestClassDetails.class, "testClassDetails").forObject(gradle).withSerializer(new TestClassDetailsSerializer()).open();
+    }
+
+    public TestClassDetails get(String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    public void put(String key, TestClassDetails details) {
+        synchronized (cache) {
+            cache.put(key, details);
+        }
+    }
+
+    private static class TestClassDetailsSerializer implements Serializer<TestClassDetails> {
+        public TestClassDetails read(InputStream instr) throws Exception {
+            DataInputStream input = new DataInputStream(instr);
+            String className = input.readUTF();
+            String superClassName = input.readBoolean() ? input.readUTF() : null;
+            boolean test = input.readBoolean();
+            boolean isAbstract = input.readBoolean();
+            return new TestClassDetails(className, superClassName, test, isAbstract);
+        }
+
+        public void write(OutputStream outstr, TestClassDetails value) throws Exception {
+            DataOutputStream output = new DataOutputStream(outstr);
+            output.writeUTF(value.getClassName());
+            output.writeBoolean(value.getSuperClassName() != null);
+            if (value.getSuperClassName() != null) {
+                output.writeUTF(value.getSuperClassName());
+            }
+            output.writeBoolean(value.isTest());
+            output.writeBoolean(value.isAbstract());
+            output.flush();
+        }
+    }
+}
@@ -16,62 +16,107 @@
 
 package org.gradle.api.internal.tasks.testing.detection;
 
+import org.gradle.api.Action;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.internal.Factory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessorListener;
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.history.CacheBackedTestClassHistoryRepository;
+import org.gradle.api.internal.tasks.testing.history.TestClassHistoryOrder;
+import org.gradle.api.internal.tasks.testing.history.TestClassHistoryRecorder;
+import org.gradle.api.internal.tasks.testing.history.TestClassHistoryRepository;
 import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
+import org.gradle.api.internal.tasks.testing.processors.NotifyingTestClassProcessorFactory;
 import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
 import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.cache.CacheRepository;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 import org.gradle.util.TrueTimeProvider;
 
+import java.util.Comparator;
+
 /**
  * The default test class scanner factory.
  *
  * @author Tom Eyckmans
  */
 public class DefaultTestExecuter implements TestExecuter {
+    /**
+     * The system property which, when set to false, disables ordering test classes using their history.
+     */
+    public static final String ORDER_BY_HISTORY_PROPERTY = "org.gradle.test.orderByHistory";
+    /**
+     * The system property which, when set to true, allows test workers to run in processes reused from earlier test
+     * tasks of the build. The test classes are then loaded in an isolated ClassLoader rather than the system
+     * ClassLoader. Processes are not reused when {@link Test#getForkEvery()} is set.
+     */
+    public static final String REUSE_WORKERS_PROPERTY = "org.gradle.test.reuseWorkers";
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactor;
+    private final CacheRepository cacheRepository;
 
-    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor) {
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor, CacheRepository cacheRepository) {
         this.workerFactory = workerFactory;
         this.actorFactor = actorFactor;
+        this.cacheRepository = cacheRepository;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
-        final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
-                return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                        testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
-            }
-        };
-        Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
-            public TestClassProcessor create() {
+        final Action<WorkerProcessBuilder> workerConfigurationAction = getWorkerConfigurationAction(testTask);
+        NotifyingTestClassProcessorFactory reforkingProcessorFactory = new NotifyingTestClassProcessorFactory() {
+            public TestClassProcessor create(final TestClassProcessorListener listener) {
+                Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
+                    public TestClassProcessor create() {
+                        return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
+                                testTask.getClasspath(), workerConfigurationAction, listener);
+                    }
+                };
                 return new RestartEveryNTestClassProcessor(forkingProcessorFactory, testTask.getForkEvery());
             }
         };
 
+        TestClassHistoryRepository history = new CacheBackedTestClassHistoryRepository(cacheRepository, testTask.getProject().getGradle());
+        Comparator<TestClassRunInfo> testClassOrder = null;
+        if (!"false".equals(System.getProperty(ORDER_BY_HISTORY_PROPERTY))) {
+            testClassOrder = new TestClassHistoryOrder(history, testTask.getPath());
+        }
         TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-                reforkingProcessorFactory, actorFactor);
+                reforkingProcessorFactory, actorFactor, testClassOrder);
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
         Runnable detector;
         if (testTask.isScanForTestClasses()) {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
+            testFrameworkDetector.setClassDetailsRepository(new CacheBackedTestClassDetailsRepository(cacheRepository, testTask.getProject().getGradle()));
             detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
         }
-        new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider()).run();
+        TestClassHistoryRecorder historyRecorder = new TestClassHistoryRecorder(testResultProcessor);
+        new TestMainAction(detector, processor, historyRecorder, new TrueTimeProvider()).run();
+        historyRecorder.writeTo(history, testTask.getPath());
+    }
+
+    private Action<WorkerProcessBuilder> getWorkerConfigurationAction(Test testTask) {
+        final Action<WorkerProcessBuilder> frameworkAction = testTask.getTestFramework().getWorkerConfigurationAction();
+        if (!"true".equals(System.getProperty(REUSE_WORKERS_PROPERTY)) || testTask.getForkEvery() > 0) {
+            return frameworkAction;
+        }
+        return new Action<WorkerProcessBuilder>() {
+            public void execute(WorkerProcessBuilder builder) {
+                frameworkAction.execute(builder);
+                builder.setReusable(true);
+            }
+        };
     }
 }
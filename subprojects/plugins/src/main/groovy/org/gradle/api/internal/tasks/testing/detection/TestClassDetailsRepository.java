@@ -0,0 +1,28 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.detection;
+
+/**
+ * Keeps the details of previously scanned class files, keyed by the hash of their content.
+ */
+public interface TestClassDetailsRepository {
+    /**
+     * Returns the details of the class file with the given key, or null if the class file has not been scanned before.
+     */
+    TestClassDetails get(String key);
+
+    void put(String key, TestClassDetails details);
+}
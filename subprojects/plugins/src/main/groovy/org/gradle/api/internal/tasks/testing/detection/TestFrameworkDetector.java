@@ -26,4 +26,9 @@ public interface TestFrameworkDetector {
     void startDetection(TestClassProcessor testClassProcessor);
 
     boolean processTestClass(File testClassFile);
+
+    /**
+     * Sets the repository used to skip scanning class files which have been scanned before. May be null.
+     */
+    void setClassDetailsRepository(TestClassDetailsRepository classDetailsRepository);
 }
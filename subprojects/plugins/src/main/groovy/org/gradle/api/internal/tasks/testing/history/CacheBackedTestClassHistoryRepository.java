@@ -0,0 +1,63 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.history;
+
+import org.gradle.api.invocation.Gradle;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
+
+import java.io.*;
+
+public class CacheBackedTestClassHistoryRepository implements TestClassHistoryRepository {
+    private final PersistentIndexedCache<String, TestClassHistory> cache;
+
+    public CacheBackedTestClassHistoryRepository(CacheRepository cacheRepository, Gradle gradle) {
+        cache = cacheRepository.indexedCache(String.class, TestClassHistory.class, "testClassHistory").forObject(gradle).withSerializer(new TestClassHistorySerializer()).open();
+    }
+
+    public TestClassHistory get(String taskPath, String className) {
+        synchronized (cache) {
+            return cache.get(key(taskPath, className));
+        }
+    }
+
+    public void put(String taskPath, String className, TestClassHistory history) {
+        synchronized (cache) {
+            cache.put(key(taskPath, className), history);
+        }
+    }
+
+    private String key(String taskPath, String className) {
+        return taskPath + " " + className;
+    }
+
+    private static class TestClassHistorySerializer implements Serializer<TestClassHistory> {
+        public TestClassHistory read(InputStream instr) throws Exception {
+            DataInputStream input = new DataInputStream(instr);
+            long duration = input.readLong();
+            boolean failed = input.readBoolean();
+            return new TestClassHistory(duration, failed);
+        }
+
+        public void write(OutputStream outstr, TestClassHistory value) throws Exception {
+            DataOutputStream output = new DataOutputStream(outstr);
+            output.writeLong(value.getDuration());
+            output.writeBoolean(value.isFailed());
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.history;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Orders test classes using their history, so that the test classes which are most likely to fail or take longest to
+ * execute are started first: test classes which failed last time, followed by test classes which have not been executed
+ * before, followed by the remaining test classes with the slowest first. Not thread-safe.
+ */
+public class TestClassHistoryOrder implements Comparator<TestClassRunInfo> {
+    private static final TestClassHistory NO_HISTORY = new TestClassHistory(0, false);
+    private final TestClassHistoryRepository repository;
+    private final String taskPath;
+    private final Map<String, TestClassHistory> histories = new HashMap<String, TestClassHistory>();
+
+    public TestClassHistoryOrder(TestClassHistoryRepository repository, String taskPath) {
+        this.repository = repository;
+        this.taskPath = taskPath;
+    }
+
+    public int compare(TestClassRunInfo testClass1, TestClassRunInfo testClass2) {
+        TestClassHistory history1 = getHistory(testClass1.getTestClassName());
+        TestClassHistory history2 = getHistory(testClass2.getTestClassName());
+        int rank1 = rank(history1);
+        int rank2 = rank(history2);
+        if (rank1 != rank2) {
+            return rank1 - rank2;
+        }
+        if (history1.getDuration() != history2.getDuration()) {
+            return history1.getDuration() > history2.getDuration() ? -1 : 1;
+        }
+        return testClass1.getTestClassName().compareTo(testClass2.getTestClassName());
+    }
+
+    private int rank(TestClassHistory history) {
+        if (history == NO_HISTORY) {
+            return 1;
+        }
+        return history.isFailed() ? 0 : 2;
+    }
+
+    private TestClassHistory getHistory(String className) {
+        TestClassHistory history = histories.get(className);
+        if (history == null) {
+            history = repository.get(taskPath, className);
+            if (history == null) {
+                history = NO_HISTORY;
+            }
+            histories.put(className, history);
+        }
+        return history;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.history;
+
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestResult;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link TestResultProcessor} which works out how long each test class took to execute and whether it failed, from
+ * the events of the tests which belong to the test class, and forwards all events to another processor. The execution
+ * time of a test class is the time from the start of its first test to the end of its last test. Not thread-safe.
+ */
+public class TestClassHistoryRecorder implements TestResultProcessor {
+    private final TestResultProcessor processor;
+    private final Map<Object, ClassExecution> running = new HashMap<Object, ClassExecution>();
+    private final Map<String, ClassExecution> classes = new LinkedHashMap<String, ClassExecution>();
+
+    public TestClassHistoryRecorder(TestResultProcessor processor) {
+        this.processor = processor;
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        processor.started(test, event);
+        if (test.getClassName() == null) {
+            return;
+        }
+        ClassExecution execution = classes.get(test.getClassName());
+        if (execution == null) {
+            execution = new ClassExecution(event.getStartTime());
+            classes.put(test.getClassName(), execution);
+        }
+        execution.startTime = Math.min(execution.startTime, event.getStartTime());
+        running.put(test.getId(), execution);
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        processor.completed(testId, event);
+        ClassExecution execution = running.remove(testId);
+        if (execution == null) {
+            return;
+        }
+        execution.endTime = Math.max(execution.endTime, event.getEndTime());
+        if (event.getResultType() == TestResult.ResultType.FAILURE) {
+            execution.failed = true;
+        }
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        processor.output(testId, event);
+    }
+
+    public void failure(Object testId, Throwable result) {
+        processor.failure(testId, result);
+        ClassExecution execution = running.get(testId);
+        if (execution != null) {
+            execution.failed = true;
+        }
+    }
+
+    /**
+     * Writes the history of the test classes which have completed to the given repository.
+     */
+    public void writeTo(TestClassHistoryRepository repository, String taskPath) {
+        for (Map.Entry<String, ClassExecution> entry : classes.entrySet()) {
+            ClassExecution execution = entry.getValue();
+            if (execution.endTime >= execution.startTime) {
+                repository.put(taskPath, entry.getKey(), new TestClassHistory(execution.endTime - execution.startTime, execution.failed));
+            }
+        }
+    }
+
+    private static class ClassExecution {
+        private long startTime;
+        private long endTime = Long.MIN_VALUE;
+        private boolean failed;
+
+        private ClassExecution(long startTime) {
+            this.startTime = startTime;
+        }
+    }
+}
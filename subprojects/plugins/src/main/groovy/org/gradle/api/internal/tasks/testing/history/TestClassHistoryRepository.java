@@ -0,0 +1,29 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.history;
+
+/**
+ * Keeps the history of the test classes executed by each test task. Implementations must be thread-safe.
+ */
+public interface TestClassHistoryRepository {
+    /**
+     * Returns the history of the given test class for the given task, or null if the test class has not been executed
+     * by the task before.
+     */
+    TestClassHistory get(String taskPath, String className);
+
+    void put(String taskPath, String className, TestClassHistory history);
+}
@@ -28,28 +28,38 @@ import org.gradle.util.UncheckedException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.*;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.UUID;
 
+/**
+ * <p>Writes a JUnit XML report file for each test class.</p>
+ *
+ * <p>To keep memory usage flat for test classes with many tests or a lot of output, the test cases and the output of
+ * the test class are written to temporary files as they arrive. The report is assembled from these files once the
+ * test class completes. Every element is rendered using {@link DOMElementWriter}, so that the report is the same as
+ * one rendered from a DOM of the whole test class.</p>
+ */
 public class JUnitXmlReportGenerator extends StateTrackingTestResultProcessor {
+    private static final String INDENT = "  ";
+    private static final String ENCODING = "UTF-8";
     private final File testResultsDir;
-    private final DocumentBuilder documentBuilder;
+    private final Document document;
+    private final DOMElementWriter elementWriter = new DOMElementWriter(true);
     private final String hostName;
-    private Document testSuiteReport;
     private TestState testSuite;
-    private Element rootElement;
-    private Map<TestOutputEvent.Destination, StringBuilder> outputs
-            = new EnumMap<TestOutputEvent.Destination, StringBuilder>(TestOutputEvent.Destination.class);
+    private SpoolFile testCases;
+    private final Map<TestOutputEvent.Destination, SpoolFile> outputs
+            = new EnumMap<TestOutputEvent.Destination, SpoolFile>(TestOutputEvent.Destination.class);
 
     public JUnitXmlReportGenerator(File testResultsDir) {
         this.testResultsDir = testResultsDir;
         try {
-            documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
         } catch (Exception e) {
             throw UncheckedException.asUncheckedException(e);
         }
@@ -58,78 +68,114 @@ public class JUnitXmlReportGenerator extends StateTrackingTestResultProcessor {
 
     @Override
     public void output(Object testId, TestOutputEvent event) {
-        outputs.get(event.getDestination()).append(event.getMessage());
+        SpoolFile output = outputs.get(event.getDestination());
+        if (output != null) {
+            output.write(event.getMessage());
+        }
     }
 
     @Override
     protected void started(TestState state) {
         TestDescriptorInternal test = state.test;
         if (test.getName().equals(test.getClassName())) {
-            testSuiteReport = documentBuilder.newDocument();
-            rootElement = testSuiteReport.createElement("testsuite");
-            testSuiteReport.appendChild(rootElement);
-            // Add an empty properties element for compatibility
-            rootElement.appendChild(testSuiteReport.createElement("properties"));
-            outputs.put(TestOutputEvent.Destination.StdOut, new StringBuilder());
-            outputs.put(TestOutputEvent.Destination.StdErr, new StringBuilder());
             testSuite = state;
+            testCases = new SpoolFile();
+            outputs.put(TestOutputEvent.Destination.StdOut, new SpoolFile());
+            outputs.put(TestOutputEvent.Destination.StdErr, new SpoolFile());
         }
     }
 
     @Override
     protected void completed(TestState state) {
-        String testClassName = state.test.getClassName();
-        Element element;
         if (!state.equals(testSuite)) {
-            element = testSuiteReport.createElement(state.resultType == TestResult.ResultType.SKIPPED ? "ignored-testcase" : "testcase");
+            Element element = document.createElement(state.resultType == TestResult.ResultType.SKIPPED ? "ignored-testcase" : "testcase");
             element.setAttribute("name", state.test.getName());
-            element.setAttribute("classname", testClassName);
-            rootElement.appendChild(element);
-        } else {
-            element = rootElement;
-            rootElement.setAttribute("name", testClassName);
-            rootElement.setAttribute("tests", String.valueOf(state.testCount));
-            rootElement.setAttribute("failures", String.valueOf(state.failedCount));
-            rootElement.setAttribute("errors", "0");
-            rootElement.setAttribute("timestamp", DateUtils.format(state.getStartTime(), DateUtils.ISO8601_DATETIME_PATTERN));
-            rootElement.setAttribute("hostname", hostName);
-            Element stdoutElement = testSuiteReport.createElement("system-out");
-            stdoutElement.appendChild(testSuiteReport.createCDATASection(outputs.get(TestOutputEvent.Destination.StdOut)
-                    .toString()));
-            rootElement.appendChild(stdoutElement);
-            Element stderrElement = testSuiteReport.createElement("system-err");
-            stderrElement.appendChild(testSuiteReport.createCDATASection(outputs.get(TestOutputEvent.Destination.StdErr)
-                    .toString()));
-            rootElement.appendChild(stderrElement);
-        }
-
-        element.setAttribute("time", String.valueOf(state.getExecutionTime() / 1000.0));
-        for (Throwable failure : state.failures) {
-            Element failureElement = testSuiteReport.createElement("failure");
-            element.appendChild(failureElement);
-            failureElement.setAttribute("message", failureMessage(failure));
-            failureElement.setAttribute("type", failure.getClass().getName());
-            failureElement.appendChild(testSuiteReport.createTextNode(stackTrace(failure)));
+            element.setAttribute("classname", state.test.getClassName());
+            element.setAttribute("time", String.valueOf(state.getExecutionTime() / 1000.0));
+            appendFailures(element, state);
+            testCases.write(element, 1);
+            return;
         }
 
-        if (state.equals(testSuite)) {
-            File reportFile = new File(testResultsDir, "TEST-" + testClassName + ".xml");
-            try {
-                OutputStream outstr = new BufferedOutputStream(new FileOutputStream(reportFile));
-                try {
-                    new DOMElementWriter(true).write(rootElement, outstr);
-                } finally {
-                    outstr.close();
-                }
-            } catch (IOException e) {
-                throw new GradleException(String.format("Could not write test report file '%s'.", reportFile), e);
+        File reportFile = new File(testResultsDir, "TEST-" + state.test.getClassName() + ".xml");
+        try {
+            writeReport(state, reportFile);
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not write test report file '%s'.", reportFile), e);
+        } finally {
+            testCases.delete();
+            for (SpoolFile output : outputs.values()) {
+                output.delete();
             }
-
             testSuite = null;
+            testCases = null;
             outputs.clear();
         }
     }
 
+    private void writeReport(TestState state, File reportFile) throws IOException {
+        // Render the report without the test cases and output, with markers in their place
+        String marker = UUID.randomUUID().toString();
+        String testCasesMarker = "testcases-" + marker;
+        String stdoutMarker = "stdout-" + marker;
+        String stderrMarker = "stderr-" + marker;
+
+        Element rootElement = document.createElement("testsuite");
+        rootElement.setAttribute("name", state.test.getClassName());
+        rootElement.setAttribute("tests", String.valueOf(state.testCount));
+        rootElement.setAttribute("failures", String.valueOf(state.failedCount));
+        rootElement.setAttribute("errors", "0");
+        rootElement.setAttribute("timestamp", DateUtils.format(state.getStartTime(), DateUtils.ISO8601_DATETIME_PATTERN));
+        rootElement.setAttribute("hostname", hostName);
+        rootElement.setAttribute("time", String.valueOf(state.getExecutionTime() / 1000.0));
+        // Add an empty properties element for compatibility
+        rootElement.appendChild(document.createElement("properties"));
+        rootElement.appendChild(document.createElement(testCasesMarker));
+        Element stdoutElement = document.createElement("system-out");
+        stdoutElement.appendChild(document.createCDATASection(stdoutMarker));
+        rootElement.appendChild(stdoutElement);
+        Element stderrElement = document.createElement("system-err");
+        stderrElement.appendChild(document.createCDATASection(stderrMarker));
+        rootElement.appendChild(stderrElement);
+        appendFailures(rootElement, state);
+
+        ByteArrayOutputStream skeletonBytes = new ByteArrayOutputStream();
+        elementWriter.write(rootElement, skeletonBytes);
+        String skeleton = skeletonBytes.toString(ENCODING);
+
+        // Replace the whole line containing the test cases marker, and the content of the output CDATA sections
+        int testCasesStart = skeleton.indexOf("<" + testCasesMarker);
+        testCasesStart = skeleton.lastIndexOf('\n', testCasesStart) + 1;
+        int testCasesEnd = skeleton.indexOf('\n', testCasesStart) + 1;
+        int stdoutStart = skeleton.indexOf(stdoutMarker, testCasesEnd);
+        int stderrStart = skeleton.indexOf(stderrMarker, stdoutStart);
+
+        Writer writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(reportFile)), ENCODING);
+        try {
+            writer.write(skeleton, 0, testCasesStart);
+            testCases.copyTo(writer);
+            writer.write(skeleton, testCasesEnd, stdoutStart - testCasesEnd);
+            outputs.get(TestOutputEvent.Destination.StdOut).copyCDataTo(writer);
+            int stdoutEnd = stdoutStart + stdoutMarker.length();
+            writer.write(skeleton, stdoutEnd, stderrStart - stdoutEnd);
+            outputs.get(TestOutputEvent.Destination.StdErr).copyCDataTo(writer);
+            int stderrEnd = stderrStart + stderrMarker.length();
+            writer.write(skeleton, stderrEnd, skeleton.length() - stderrEnd);
+        } finally {
+            writer.close();
+        }
+    }
+
+    private void appendFailures(Element element, TestState state) {
+        for (Throwable failure : state.failures) {
+            Element failureElement = document.createElement("failure");
+            element.appendChild(failureElement);
+            failureElement.setAttribute("message", failureMessage(failure));
+            failureElement.setAttribute("type", failure.getClass().getName());
+            failureElement.appendChild(document.createTextNode(stackTrace(failure)));
+        }
+    }
+
     private String stackTrace(Throwable throwable) {
         try {
             StringWriter stringWriter = new StringWriter();
@@ -162,4 +208,88 @@ public class JUnitXmlReportGenerator extends StateTrackingTestResultProcessor {
             return "localhost";
         }
     }
+
+    /**
+     * A temporary file which text is appended to, and which is later copied into the report.
+     */
+    private class SpoolFile {
+        private final File file;
+        private final Writer writer;
+
+        SpoolFile() {
+            try {
+                file = File.createTempFile("gradle-test-report", ".tmp");
+                writer = new OutputStreamWriter(new BufferedOutputStream(new FileOutputStream(file)), ENCODING);
+            } catch (IOException e) {
+                throw new GradleException("Could not create temporary file for test report.", e);
+            }
+        }
+
+        void write(String text) {
+            try {
+                writer.write(text);
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not write to temporary file '%s'.", file), e);
+            }
+        }
+
+        void write(Element element, int indent) {
+            try {
+                elementWriter.write(element, writer, indent, INDENT);
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not write to temporary file '%s'.", file), e);
+            }
+        }
+
+        void copyTo(Writer target) throws IOException {
+            writer.close();
+            Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(file)), ENCODING);
+            try {
+                char[] buffer = new char[8192];
+                int nread;
+                while ((nread = reader.read(buffer)) > 0) {
+                    target.write(buffer, 0, nread);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        /**
+         * Copies the content of this file as the content of a CDATA section, encoded the same way as {@link
+         * DOMElementWriter} encodes it.
+         */
+        void copyCDataTo(Writer target) throws IOException {
+            writer.close();
+            Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(file)), ENCODING);
+            try {
+                StringBuilder pending = new StringBuilder();
+                char[] buffer = new char[8192];
+                int nread;
+                while ((nread = reader.read(buffer)) > 0) {
+                    pending.append(buffer, 0, nread);
+                    // Hold back a trailing ']' and any characters which are discarded, as they may be the start of a
+                    // ']]>' sequence which is completed by the next chunk
+                    int end = pending.length();
+                    while (end > 0 && (pending.charAt(end - 1) == ']' || !elementWriter.isLegalCharacter(pending.charAt(end - 1)))) {
+                        end--;
+                    }
+                    target.write(elementWriter.encodedata(pending.substring(0, end)));
+                    pending.delete(0, end);
+                }
+                target.write(elementWriter.encodedata(pending.toString()));
+            } finally {
+                reader.close();
+            }
+        }
+
+        void delete() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            file.delete();
+        }
+    }
 }
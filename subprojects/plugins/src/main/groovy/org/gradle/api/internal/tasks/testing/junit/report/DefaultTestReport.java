@@ -15,7 +15,11 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report;
 
+import org.gradle.api.Action;
 import org.gradle.api.GradleException;
+import org.gradle.api.internal.Factory;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 import org.gradle.reporting.HtmlReportRenderer;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -27,17 +31,38 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+/**
+ * Generates the HTML test report from the XML result files. The result files are loaded, and the package and class
+ * pages are rendered, by up to the given number of threads.
+ */
 public class DefaultTestReport implements TestReporter {
-    private final HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
+    private final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
+    private final int maxThreads;
     private File resultDir;
     private File reportDir;
 
     public DefaultTestReport() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public DefaultTestReport(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    private HtmlReportRenderer createHtmlRenderer() {
+        // Not thread-safe, so each thread uses its own instance
+        HtmlReportRenderer htmlRenderer = new HtmlReportRenderer();
         htmlRenderer.requireResource(getClass().getResource("/org/gradle/reporting/report.js"));
         htmlRenderer.requireResource(getClass().getResource("/org/gradle/reporting/base-style.css"));
         htmlRenderer.requireResource(getClass().getResource("/org/gradle/reporting/css3-pie-1.0beta3.htc"));
         htmlRenderer.requireResource(getClass().getResource("style.css"));
+        return htmlRenderer;
     }
 
     public void setTestResultsDir(File resultDir) {
@@ -54,26 +79,48 @@ public class DefaultTestReport implements TestReporter {
     }
 
     private AllTestResults loadModel() {
-        AllTestResults model = new AllTestResults();
+        final AllTestResults model = new AllTestResults();
         if (resultDir.exists()) {
+            List<File> resultFiles = new ArrayList<File>();
             for (File file : resultDir.listFiles()) {
                 if (file.getName().startsWith("TEST-") && file.getName().endsWith(".xml")) {
-                    mergeFromFile(file, model);
+                    resultFiles.add(file);
                 }
             }
+            executeInParallel("Test report loader", resultFiles, new Factory<Action<File>>() {
+                public Action<File> create() {
+                    return new Action<File>() {
+                        public void execute(File file) {
+                            mergeFromFile(file, model);
+                        }
+                    };
+                }
+            });
         }
         return model;
     }
 
     private void mergeFromFile(File file, AllTestResults model) {
+        Document document;
         try {
             InputStream inputStream = new FileInputStream(file);
-            Document document;
             try {
                 document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(inputStream));
             } finally {
                 inputStream.close();
             }
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not load test results from '%s'.", file), e);
+        }
+
+        // The model is not thread-safe, so merge the results one file at a time
+        synchronized (model) {
+            mergeFromDocument(file, document, model);
+        }
+    }
+
+    private void mergeFromDocument(File file, Document document, AllTestResults model) {
+        try {
             NodeList testCases = document.getElementsByTagName("testcase");
             for (int i = 0; i < testCases.getLength(); i++) {
                 Element testCase = (Element) testCases.item(i);
@@ -113,19 +160,77 @@ public class DefaultTestReport implements TestReporter {
 
     private void generateFiles(AllTestResults model) {
         try {
-            generatePage(model, new OverviewPageRenderer(), new File(reportDir, "index.html"));
+            // Generate the overview page first, which also copies the resources shared by all pages
+            new Page<AllTestResults>(model, new OverviewPageRenderer(), new File(reportDir, "index.html")).generate(createHtmlRenderer());
+
+            List<Page<?>> pages = new ArrayList<Page<?>>();
             for (PackageTestResults packageResults : model.getPackages()) {
-                generatePage(packageResults, new PackagePageRenderer(), new File(reportDir, packageResults.getName() + ".html"));
+                pages.add(new Page<PackageTestResults>(packageResults, new PackagePageRenderer(), new File(reportDir, packageResults.getName() + ".html")));
                 for (ClassTestResults classResults : packageResults.getClasses()) {
-                    generatePage(classResults, new ClassPageRenderer(), new File(reportDir, classResults.getName() + ".html"));
+                    pages.add(new Page<ClassTestResults>(classResults, new ClassPageRenderer(), new File(reportDir, classResults.getName() + ".html")));
                 }
             }
+            executeInParallel("Test report renderer", pages, new Factory<Action<Page<?>>>() {
+                public Action<Page<?>> create() {
+                    final HtmlReportRenderer htmlRenderer = createHtmlRenderer();
+                    return new Action<Page<?>>() {
+                        public void execute(Page<?> page) {
+                            page.generate(htmlRenderer);
+                        }
+                    };
+                }
+            });
         } catch (Exception e) {
             throw new GradleException(String.format("Could not generate test report to '%s'.", reportDir), e);
         }
     }
 
-    private <T extends CompositeTestResults> void generatePage(T model, PageRenderer<T> renderer, File outputFile) throws Exception {
-        htmlRenderer.renderer(renderer).writeTo(model, outputFile);
+    /**
+     * Executes an action for each of the given items, using up to {@link #maxThreads} threads. Each thread creates its
+     * own action using the given factory. Blocks until all items have been processed, and rethrows the first failure.
+     */
+    private <T> void executeInParallel(String displayName, Collection<? extends T> items, final Factory<? extends Action<? super T>> actionFactory) {
+        final Queue<T> queue = new ConcurrentLinkedQueue<T>(items);
+        int threads = Math.min(maxThreads, queue.size());
+        if (threads <= 1) {
+            Action<? super T> action = actionFactory.create();
+            for (T item : queue) {
+                action.execute(item);
+            }
+            return;
+        }
+
+        StoppableExecutor executor = executorFactory.create(displayName);
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        Action<? super T> action = actionFactory.create();
+                        T item;
+                        while ((item = queue.poll()) != null) {
+                            action.execute(item);
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.stop();
+        }
+    }
+
+    private static class Page<T extends CompositeTestResults> {
+        private final T model;
+        private final PageRenderer<T> renderer;
+        private final File outputFile;
+
+        private Page(T model, PageRenderer<T> renderer, File outputFile) {
+            this.model = model;
+            this.renderer = renderer;
+            this.outputFile = outputFile;
+        }
+
+        void generate(HtmlReportRenderer htmlRenderer) {
+            htmlRenderer.renderer(renderer).writeTo(model, outputFile);
+        }
     }
 }
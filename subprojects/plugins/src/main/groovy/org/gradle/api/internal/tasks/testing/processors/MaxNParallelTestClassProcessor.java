@@ -16,8 +16,8 @@
 
 package org.gradle.api.internal.tasks.testing.processors;
 
-import org.gradle.api.internal.Factory;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessorListener;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.messaging.actor.Actor;
@@ -26,27 +26,44 @@ import org.gradle.messaging.concurrent.CompositeStoppable;
 import org.gradle.messaging.dispatch.DispatchException;
 import org.gradle.util.UncheckedException;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors. Test classes are queued, and each processor is given the next test
+ * class from the queue when it has finished with its previous test class. This way, a processor which is given some
+ * slow test classes does not hold up test classes which another processor could run. The queue can optionally be
+ * ordered, for example to start the slowest test classes first.
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     private final int maxProcessors;
-    private final Factory<TestClassProcessor> factory;
+    private final NotifyingTestClassProcessorFactory factory;
     private final ActorFactory actorFactory;
+    private final Object lock = new Object();
+    private final Queue<TestClassRunInfo> pending;
     private TestResultProcessor resultProcessor;
-    private int pos;
+    private List<ProcessorSlot> slots = new ArrayList<ProcessorSlot>();
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
 
-    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+    public MaxNParallelTestClassProcessor(int maxProcessors, NotifyingTestClassProcessorFactory factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, null);
+    }
+
+    /**
+     * @param testClassOrder The order in which to hand out queued test classes. Uses the order in which the test
+     * classes are received when null.
+     */
+    public MaxNParallelTestClassProcessor(int maxProcessors, NotifyingTestClassProcessorFactory factory, ActorFactory actorFactory,
+                                          Comparator<? super TestClassRunInfo> testClassOrder) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        if (testClassOrder == null) {
+            pending = new LinkedList<TestClassRunInfo>();
+        } else {
+            pending = new PriorityQueue<TestClassRunInfo>(11, testClassOrder);
+        }
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -55,26 +72,93 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
+        synchronized (lock) {
+            pending.add(testClass);
+            if (findIdleSlot() == null && slots.size() < maxProcessors) {
+                startProcessor();
+            }
+            assignTestClasses();
+        }
+    }
+
+    private void startProcessor() {
+        ProcessorSlot slot = new ProcessorSlot();
+        TestClassProcessor processor = factory.create(slot);
+        Actor actor = actorFactory.createActor(processor);
+        slot.processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(slot.processor);
+        slots.add(slot);
+        slot.processor.startProcessing(resultProcessor);
+    }
+
+    private ProcessorSlot findIdleSlot() {
+        for (ProcessorSlot slot : slots) {
+            if (slot.current == null && !slot.failed) {
+                return slot;
+            }
         }
-        processor.processTestClass(testClass);
+        return null;
+    }
+
+    private void assignTestClasses() {
+        while (!pending.isEmpty()) {
+            ProcessorSlot slot = findIdleSlot();
+            if (slot == null) {
+                return;
+            }
+            slot.current = pending.remove();
+            slot.processor.processTestClass(slot.current);
+        }
+    }
+
+    private boolean hasWorkingProcessor() {
+        for (ProcessorSlot slot : slots) {
+            if (!slot.failed) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public void stop() {
+        synchronized (lock) {
+            // Wait until every queued test class has been given to a processor. When all processors have failed, leave it
+            // to the processors to report the failure
+            while (!pending.isEmpty() && hasWorkingProcessor()) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.asUncheckedException(e);
+                }
+            }
+            pending.clear();
+        }
         try {
             new CompositeStoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
             throw UncheckedException.asUncheckedException(e.getCause());
         }
     }
+
+    private class ProcessorSlot implements TestClassProcessorListener {
+        private TestClassProcessor processor;
+        private TestClassRunInfo current;
+        private boolean failed;
+
+        public void testClassProcessed(TestClassRunInfo testClass) {
+            synchronized (lock) {
+                current = null;
+                assignTestClasses();
+                lock.notifyAll();
+            }
+        }
+
+        public void processorFailed() {
+            synchronized (lock) {
+                failed = true;
+                lock.notifyAll();
+            }
+        }
+    }
 }
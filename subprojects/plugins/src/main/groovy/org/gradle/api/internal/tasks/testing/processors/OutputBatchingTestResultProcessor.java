@@ -0,0 +1,166 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.Stoppable;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.gradle.util.UncheckedException;
+
+import java.util.Date;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link TestResultProcessor} which combines consecutive output events for the same test and destination into a
+ * single event, to reduce the number of events sent from a test worker to the build process.
+ *
+ * <p>The pending output is forwarded before any other event, so that it stays attached to the same test and in the
+ * same order relative to the other events. It is also forwarded once it reaches the maximum batch size, or once the
+ * oldest output in the batch reaches the maximum batch age.</p>
+ */
+public class OutputBatchingTestResultProcessor implements TestResultProcessor, Stoppable {
+    private final TestResultProcessor processor;
+    private final int maxBatchSize;
+    private final long maxBatchAgeMillis;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final StringBuilder batch = new StringBuilder();
+    private final StoppableExecutor executor;
+    private Object batchTestId;
+    private TestOutputEvent.Destination batchDestination;
+    private long batchExpiry;
+    private boolean stopped;
+
+    /**
+     * @param processor The processor to forward events to.
+     * @param maxBatchSize The maximum number of characters to hold back.
+     * @param maxBatchAgeMillis The maximum time to hold back output for.
+     * @param executorFactory The factory to create the thread which forwards expired batches.
+     */
+    public OutputBatchingTestResultProcessor(TestResultProcessor processor, int maxBatchSize, long maxBatchAgeMillis,
+                                             ExecutorFactory executorFactory) {
+        this.processor = processor;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchAgeMillis = maxBatchAgeMillis;
+        executor = executorFactory.create("Test output batching");
+        executor.execute(new Runnable() {
+            public void run() {
+                flushExpiredBatches();
+            }
+        });
+    }
+
+    public void started(TestDescriptorInternal test, TestStartEvent event) {
+        lock.lock();
+        try {
+            flush();
+            processor.started(test, event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void completed(Object testId, TestCompleteEvent event) {
+        lock.lock();
+        try {
+            flush();
+            processor.completed(testId, event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void failure(Object testId, Throwable result) {
+        lock.lock();
+        try {
+            flush();
+            processor.failure(testId, result);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void output(Object testId, TestOutputEvent event) {
+        lock.lock();
+        try {
+            if (batch.length() > 0 && (!testId.equals(batchTestId) || event.getDestination() != batchDestination)) {
+                flush();
+            }
+            if (batch.length() == 0) {
+                batchTestId = testId;
+                batchDestination = event.getDestination();
+                batchExpiry = System.currentTimeMillis() + maxBatchAgeMillis;
+                condition.signalAll();
+            }
+            batch.append(event.getMessage());
+            if (batch.length() >= maxBatchSize) {
+                flush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Forwards any pending output, and stops forwarding expired batches. Blocks until the pending output has been
+     * forwarded.
+     */
+    public void stop() {
+        lock.lock();
+        try {
+            flush();
+            stopped = true;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        executor.stop();
+    }
+
+    private void flushExpiredBatches() {
+        lock.lock();
+        try {
+            while (!stopped) {
+                if (batch.length() == 0) {
+                    condition.await();
+                } else if (System.currentTimeMillis() >= batchExpiry) {
+                    flush();
+                } else {
+                    condition.awaitUntil(new Date(batchExpiry));
+                }
+            }
+        } catch (InterruptedException e) {
+            throw UncheckedException.asUncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flush() {
+        if (batch.length() == 0) {
+            return;
+        }
+        TestOutputEvent event = new TestOutputEvent(batchDestination, batch.toString());
+        Object testId = batchTestId;
+        batch.setLength(0);
+        batchTestId = null;
+        batchDestination = null;
+        processor.output(testId, event);
+    }
+}
@@ -19,10 +19,13 @@ package org.gradle.api.internal.tasks.testing.worker;
 import org.gradle.api.Action;
 import org.gradle.api.internal.project.DefaultServiceRegistry;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
+import org.gradle.api.internal.tasks.testing.TestClassProcessorListener;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.processors.OutputBatchingTestResultProcessor;
 import org.gradle.listener.ContextClassLoaderProxy;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
 import org.gradle.messaging.remote.ObjectConnection;
 import org.gradle.process.internal.WorkerProcessContext;
 import org.gradle.util.*;
@@ -35,10 +38,13 @@ import java.util.concurrent.CountDownLatch;
 public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClassProcessor, Serializable {
     private static final Logger LOGGER = LoggerFactory.getLogger(TestWorker.class);
     public static final String WORKER_ID_SYS_PROPERTY = "org.gradle.test.worker";
+    private static final int MAX_OUTPUT_BATCH_SIZE = 8192;
+    private static final long MAX_OUTPUT_BATCH_AGE_MILLIS = 100;
     private final WorkerTestClassProcessorFactory factory;
     private CountDownLatch completed;
     private TestClassProcessor processor;
-    private TestResultProcessor resultProcessor;
+    private OutputBatchingTestResultProcessor resultProcessor;
+    private TestClassProcessorListener listener;
 
     public TestWorker(WorkerTestClassProcessorFactory factory) {
         this.factory = factory;
@@ -66,7 +72,10 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
                 TestClassProcessor.class, targetProcessor, workerProcessContext.getApplicationClassLoader());
         processor = proxy.getSource();
 
-        this.resultProcessor = serverConnection.addOutgoing(TestResultProcessor.class);
+        // Combine the output of the tests into fewer events, as each event is sent to the build process separately
+        this.resultProcessor = new OutputBatchingTestResultProcessor(serverConnection.addOutgoing(TestResultProcessor.class),
+                MAX_OUTPUT_BATCH_SIZE, MAX_OUTPUT_BATCH_AGE_MILLIS, new DefaultExecutorFactory());
+        this.listener = serverConnection.addOutgoing(TestClassProcessorListener.class);
 
         serverConnection.addIncoming(RemoteTestClassProcessor.class, this);
 
@@ -83,12 +92,20 @@ public class TestWorker implements Action<WorkerProcessContext>, RemoteTestClass
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        processor.processTestClass(testClass);
+        try {
+            processor.processTestClass(testClass);
+        } finally {
+            listener.testClassProcessed(testClass);
+        }
     }
 
     public void stop() {
         try {
-            processor.stop();
+            try {
+                processor.stop();
+            } finally {
+                resultProcessor.stop();
+            }
         } finally {
             completed.countDown();
         }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.history
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import spock.lang.Specification
+
+class TestClassHistoryOrderTest extends Specification {
+    final TestClassHistoryRepository repository = Mock()
+    final TestClassHistoryOrder order = new TestClassHistoryOrder(repository, ":test")
+
+    def "orders failed test classes first, then new test classes, then slowest test classes"() {
+        _ * repository.get(":test", "Fast") >> new TestClassHistory(10, false)
+        _ * repository.get(":test", "Slow") >> new TestClassHistory(1000, false)
+        _ * repository.get(":test", "Failed") >> new TestClassHistory(5, true)
+        _ * repository.get(":test", "New") >> null
+
+        expect:
+        sort(["Fast", "New", "Slow", "Failed"]) == ["Failed", "New", "Slow", "Fast"]
+    }
+
+    def "orders test classes with the same history by name"() {
+        _ * repository.get(":test", _) >> new TestClassHistory(10, false)
+
+        expect:
+        sort(["b", "c", "a"]) == ["a", "b", "c"]
+    }
+
+    def "looks up the history of each test class once"() {
+        when:
+        sort(["a", "b", "c", "d"])
+
+        then:
+        1 * repository.get(":test", "a")
+        1 * repository.get(":test", "b")
+        1 * repository.get(":test", "c")
+        1 * repository.get(":test", "d")
+    }
+
+    def sort(List<String> classNames) {
+        def testClasses = classNames.collect { new DefaultTestClassRunInfo(it) }
+        Collections.sort(testClasses, order)
+        return testClasses*.testClassName
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.history
+
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestSuiteDescriptor
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestResult
+import spock.lang.Specification
+
+class TestClassHistoryRecorderTest extends Specification {
+    final TestResultProcessor target = Mock()
+    final TestClassHistoryRepository repository = Mock()
+    final TestClassHistoryRecorder recorder = new TestClassHistoryRecorder(target)
+
+    def "forwards events to target processor"() {
+        def test = new DefaultTestDescriptor(1, "SomeTest", "method")
+        def startEvent = new TestStartEvent(100)
+        def completeEvent = new TestCompleteEvent(200)
+        TestOutputEvent outputEvent = Mock()
+        def failure = new RuntimeException()
+
+        when:
+        recorder.started(test, startEvent)
+        recorder.output(1, outputEvent)
+        recorder.failure(1, failure)
+        recorder.completed(1, completeEvent)
+
+        then:
+        1 * target.started(test, startEvent)
+        1 * target.output(1, outputEvent)
+        1 * target.failure(1, failure)
+        1 * target.completed(1, completeEvent)
+    }
+
+    def "records time from start of first test to end of last test of each test class"() {
+        when:
+        recorder.started(new DefaultTestSuiteDescriptor("worker", "worker"), new TestStartEvent(50))
+        recorder.started(new DefaultTestDescriptor(1, "SomeTest", "method1"), new TestStartEvent(100))
+        recorder.completed(1, new TestCompleteEvent(150))
+        recorder.started(new DefaultTestDescriptor(2, "SomeTest", "method2"), new TestStartEvent(160))
+        recorder.completed(2, new TestCompleteEvent(300))
+        recorder.started(new DefaultTestDescriptor(3, "OtherTest", "method"), new TestStartEvent(310))
+        recorder.completed(3, new TestCompleteEvent(320))
+        recorder.completed("worker", new TestCompleteEvent(400))
+        recorder.writeTo(repository, ":test")
+
+        then:
+        1 * repository.put(":test", "SomeTest", { it.duration == 200 && !it.failed })
+        1 * repository.put(":test", "OtherTest", { it.duration == 10 && !it.failed })
+        0 * repository._
+    }
+
+    def "records test class which has a failed test as failed"() {
+        when:
+        recorder.started(new DefaultTestDescriptor(1, "SomeTest", "method1"), new TestStartEvent(100))
+        recorder.failure(1, new RuntimeException())
+        recorder.completed(1, new TestCompleteEvent(150))
+        recorder.started(new DefaultTestDescriptor(2, "OtherTest", "method"), new TestStartEvent(160))
+        recorder.completed(2, new TestCompleteEvent(170, TestResult.ResultType.FAILURE))
+        recorder.writeTo(repository, ":test")
+
+        then:
+        1 * repository.put(":test", "SomeTest", { it.failed })
+        1 * repository.put(":test", "OtherTest", { it.failed })
+    }
+
+    def "does not record test class whose tests have not completed"() {
+        when:
+        recorder.started(new DefaultTestDescriptor(1, "SomeTest", "method1"), new TestStartEvent(100))
+        recorder.writeTo(repository, ":test")
+
+        then:
+        0 * repository._
+    }
+}
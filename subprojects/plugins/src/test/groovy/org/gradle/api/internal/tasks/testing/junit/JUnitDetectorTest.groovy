@@ -0,0 +1,136 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.junit
+
+import java.util.jar.JarEntry
+import java.util.jar.JarOutputStream
+import org.gradle.api.file.FileCollection
+import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.detection.ClassFileExtractionManager
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetails
+import org.gradle.api.internal.tasks.testing.detection.TestClassDetailsRepository
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class JUnitDetectorTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final TestFile classesDir = tmpDir.file('classes')
+    final TestFile libJar = tmpDir.file('lib.jar')
+    final FileCollection classpath = Mock()
+    final TestClassProcessor processor = Mock()
+    final TestClassDetailsRepository repository = Mock()
+    final JUnitDetector detector = new JUnitDetector(classesDir, classpath, new ClassFileExtractionManager())
+
+    def setup() {
+        _ * classpath.iterator() >> { [classesDir, libJar].iterator() }
+        detector.startDetection(processor)
+    }
+
+    def "detects test class whose super class is in a library jar"() {
+        writeJar(JUnitDetectorTestBase)
+        def testClass = writeClass(JUnitDetectorTestSub)
+
+        when:
+        detector.processTestClass(testClass)
+
+        then:
+        1 * processor.processTestClass({ it.testClassName == JUnitDetectorTestSub.name })
+        0 * processor._
+    }
+
+    def "does not detect class which does not extend a test class"() {
+        writeJar(JUnitDetectorTestBase)
+        def testClass = writeClass(JUnitDetectorTestNotATest)
+
+        when:
+        detector.processTestClass(testClass)
+
+        then:
+        0 * processor._
+    }
+
+    def "stores details of each scanned class file in repository"() {
+        writeJar(JUnitDetectorTestBase)
+        def testClass = writeClass(JUnitDetectorTestSub)
+        detector.classDetailsRepository = repository
+
+        when:
+        detector.processTestClass(testClass)
+
+        then:
+        2 * repository.get(_) >> null
+        1 * repository.put(_, { it.className == internalName(JUnitDetectorTestSub) && !it.test })
+        1 * repository.put(_, { it.className == internalName(JUnitDetectorTestBase) && it.superClassName == 'junit/framework/TestCase' })
+        1 * processor.processTestClass({ it.testClassName == JUnitDetectorTestSub.name })
+    }
+
+    def "uses details from repository for previously scanned class file"() {
+        def testClass = writeClass(JUnitDetectorTestNotATest)
+        detector.classDetailsRepository = repository
+
+        when:
+        detector.processTestClass(testClass)
+
+        then:
+        1 * repository.get(_) >> new TestClassDetails(internalName(JUnitDetectorTestNotATest), 'java/lang/Object', true, false)
+        0 * repository._
+        1 * processor.processTestClass({ it.testClassName == JUnitDetectorTestNotATest.name })
+    }
+
+    def writeClass(Class<?> type) {
+        TestFile classFile = classesDir.file("${internalName(type)}.class")
+        classFile.parentFile.mkdirs()
+        classFile.bytes = classBytes(type)
+        return classFile
+    }
+
+    def writeJar(Class<?> type) {
+        def jar = new JarOutputStream(new FileOutputStream(libJar))
+        try {
+            // Packages are detected using the directory entries of the jar
+            def path = ''
+            internalName(type).tokenize('/')[0..-2].each { name ->
+                path += name + '/'
+                jar.putNextEntry(new JarEntry(path))
+                jar.closeEntry()
+            }
+            jar.putNextEntry(new JarEntry("${internalName(type)}.class"))
+            jar.write(classBytes(type))
+            jar.closeEntry()
+        } finally {
+            jar.close()
+        }
+    }
+
+    def internalName(Class<?> type) {
+        return type.name.replace('.', '/')
+    }
+
+    def classBytes(Class<?> type) {
+        return getClass().classLoader.getResourceAsStream("${internalName(type)}.class").bytes
+    }
+}
+
+abstract class JUnitDetectorTestBase extends junit.framework.TestCase {
+}
+
+class JUnitDetectorTestSub extends JUnitDetectorTestBase {
+}
+
+class JUnitDetectorTestNotATest {
+}
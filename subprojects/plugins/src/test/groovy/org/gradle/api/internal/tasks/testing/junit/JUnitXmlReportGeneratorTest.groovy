@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.junit
+
+import javax.xml.parsers.DocumentBuilderFactory
+import org.apache.tools.ant.util.DOMElementWriter
+import org.apache.tools.ant.util.DateUtils
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestDescriptor
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+import org.w3c.dom.Element
+
+class JUnitXmlReportGeneratorTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final JUnitXmlReportGenerator generator = new JUnitXmlReportGenerator(tmpDir.dir)
+    final failure = new RuntimeException("broken <message> & \"quotes\"")
+
+    def "writes the same report as a DOM of the test class"() {
+        def suite = new DefaultTestClassDescriptor("suite", "org.gradle.SomeTest")
+        def test1 = new DefaultTestDescriptor("test1", "org.gradle.SomeTest", "passes")
+        def test2 = new DefaultTestDescriptor("test2", "org.gradle.SomeTest", "fails")
+        def test3 = new DefaultTestDescriptor("test3", "org.gradle.SomeTest", "skipped")
+
+        when:
+        generator.started(suite, new TestStartEvent(1000))
+        generator.started(test1, new TestStartEvent(1100, "suite"))
+        generator.output("test1", new TestOutputEvent(TestOutputEvent.Destination.StdOut, "some output\n"))
+        generator.output("test1", new TestOutputEvent(TestOutputEvent.Destination.StdErr, "some error <& ]]> \u0001\n"))
+        generator.completed("test1", new TestCompleteEvent(1200))
+        generator.started(test2, new TestStartEvent(1300, "suite"))
+        generator.output("test2", new TestOutputEvent(TestOutputEvent.Destination.StdOut, "more output ]]"))
+        generator.output("test2", new TestOutputEvent(TestOutputEvent.Destination.StdOut, "> ]"))
+        generator.failure("test2", failure)
+        generator.completed("test2", new TestCompleteEvent(1400))
+        generator.started(test3, new TestStartEvent(1500, "suite"))
+        generator.completed("test3", new TestCompleteEvent(1500, TestResult.ResultType.SKIPPED))
+        generator.completed("suite", new TestCompleteEvent(2000))
+
+        then:
+        def document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument()
+        Element root = document.createElement("testsuite")
+        document.appendChild(root)
+        root.appendChild(document.createElement("properties"))
+        root.appendChild(testCase(document, "passes", "0.1"))
+        def failed = testCase(document, "fails", "0.1")
+        def failureElement = document.createElement("failure")
+        failureElement.setAttribute("message", failure.toString())
+        failureElement.setAttribute("type", RuntimeException.name)
+        def stackTrace = new StringWriter()
+        failure.printStackTrace(new PrintWriter(stackTrace))
+        failureElement.appendChild(document.createTextNode(stackTrace.toString()))
+        failed.appendChild(failureElement)
+        root.appendChild(failed)
+        def skipped = document.createElement("ignored-testcase")
+        skipped.setAttribute("name", "skipped")
+        skipped.setAttribute("classname", "org.gradle.SomeTest")
+        skipped.setAttribute("time", "0.0")
+        root.appendChild(skipped)
+        root.setAttribute("name", "org.gradle.SomeTest")
+        root.setAttribute("tests", "3")
+        root.setAttribute("failures", "1")
+        root.setAttribute("errors", "0")
+        root.setAttribute("timestamp", DateUtils.format(1000, DateUtils.ISO8601_DATETIME_PATTERN))
+        root.setAttribute("hostname", InetAddress.localHost.hostName)
+        def stdout = document.createElement("system-out")
+        stdout.appendChild(document.createCDATASection("some output\nmore output ]]> ]"))
+        root.appendChild(stdout)
+        def stderr = document.createElement("system-err")
+        stderr.appendChild(document.createCDATASection("some error <& ]]> \u0001\n"))
+        root.appendChild(stderr)
+        root.setAttribute("time", "1.0")
+        def expected = new ByteArrayOutputStream()
+        new DOMElementWriter(true).write(root, expected)
+
+        tmpDir.file("TEST-org.gradle.SomeTest.xml").bytes == expected.toByteArray()
+    }
+
+    def "writes report for test class with no tests or output"() {
+        def suite = new DefaultTestClassDescriptor("suite", "org.gradle.SomeTest")
+
+        when:
+        generator.started(suite, new TestStartEvent(1000))
+        generator.completed("suite", new TestCompleteEvent(1000))
+
+        then:
+        def document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument()
+        Element root = document.createElement("testsuite")
+        root.appendChild(document.createElement("properties"))
+        root.setAttribute("name", "org.gradle.SomeTest")
+        root.setAttribute("tests", "0")
+        root.setAttribute("failures", "0")
+        root.setAttribute("errors", "0")
+        root.setAttribute("timestamp", DateUtils.format(1000, DateUtils.ISO8601_DATETIME_PATTERN))
+        root.setAttribute("hostname", InetAddress.localHost.hostName)
+        def stdout = document.createElement("system-out")
+        stdout.appendChild(document.createCDATASection(""))
+        root.appendChild(stdout)
+        def stderr = document.createElement("system-err")
+        stderr.appendChild(document.createCDATASection(""))
+        root.appendChild(stderr)
+        root.setAttribute("time", "0.0")
+        def expected = new ByteArrayOutputStream()
+        new DOMElementWriter(true).write(root, expected)
+
+        tmpDir.file("TEST-org.gradle.SomeTest.xml").bytes == expected.toByteArray()
+    }
+
+    def testCase(def document, String name, String time) {
+        def element = document.createElement("testcase")
+        element.setAttribute("name", name)
+        element.setAttribute("classname", "org.gradle.SomeTest")
+        element.setAttribute("time", time)
+        return element
+    }
+}
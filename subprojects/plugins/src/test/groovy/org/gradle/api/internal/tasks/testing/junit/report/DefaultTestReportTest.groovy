@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report
 
+import org.gradle.api.GradleException
 import org.gradle.util.TemporaryFolder
 import org.gradle.util.TestFile
 import org.junit.Rule
@@ -253,6 +254,58 @@ message">this is a failure.</failure></testcase>
         results(indexFile).assertHasTests(1)
     }
 
+    def generatesReportUsingMultipleThreads() {
+        def report = new DefaultTestReport(4)
+        report.testReportDir = reportDir
+        report.testResultsDir = resultsDir
+        20.times { i ->
+            resultsDir.file("TEST-org.gradle.pkg${i % 3}.Test${i}.xml") << """
+<testsuite name="org.gradle.pkg${i % 3}.Test${i}">
+    <testcase classname="org.gradle.pkg${i % 3}.Test${i}" name="test1" time="0"/>
+    <testcase classname="org.gradle.pkg${i % 3}.Test${i}" name="test2" time="0"/>
+    <system-out>output from ${i}</system-out>
+</testsuite>
+"""
+        }
+
+        when:
+        report.generateReport()
+
+        then:
+        def index = results(indexFile)
+        index.assertHasTests(40)
+        index.assertHasFailures(0)
+        3.times { i ->
+            results(reportDir.file("org.gradle.pkg${i}.html")).assertHasLinkTo("org.gradle.pkg${i}.Test${i}", "Test${i}")
+        }
+        20.times { i ->
+            def testClassFile = results(reportDir.file("org.gradle.pkg${i % 3}.Test${i}.html"))
+            testClassFile.assertHasTests(2)
+            testClassFile.assertHasStandardOutput("output from ${i}")
+        }
+    }
+
+    def reportsFailureToLoadTestResultsUsingMultipleThreads() {
+        def report = new DefaultTestReport(4)
+        report.testReportDir = reportDir
+        report.testResultsDir = resultsDir
+        def brokenFile = resultsDir.file('TEST-broken.xml') << 'broken'
+        5.times { i ->
+            resultsDir.file("TEST-org.gradle.Test${i}.xml") << """
+<testsuite name="org.gradle.Test${i}">
+    <testcase classname="org.gradle.Test${i}" name="test1" time="0"/>
+</testsuite>
+"""
+        }
+
+        when:
+        report.generateReport()
+
+        then:
+        GradleException e = thrown()
+        e.message == "Could not load test results from '${brokenFile}'."
+    }
+
     def results(TestFile file) {
         return new TestResultsFixture(file)
     }
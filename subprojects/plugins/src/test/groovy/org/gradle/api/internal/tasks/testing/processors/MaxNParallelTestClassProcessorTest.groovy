@@ -17,20 +17,31 @@
 package org.gradle.api.internal.tasks.testing.processors
 
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassProcessorListener
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.messaging.actor.Actor
 import org.gradle.messaging.actor.ActorFactory
-import spock.lang.Specification
-import org.gradle.api.internal.Factory
+import org.gradle.util.ConcurrentSpecification
 
-class MaxNParallelTestClassProcessorTest extends Specification {
-    private final Factory<TestClassProcessor> factory = Mock()
+class MaxNParallelTestClassProcessorTest extends ConcurrentSpecification {
+    private final NotifyingTestClassProcessorFactory factory = Mock()
     private final TestResultProcessor resultProcessor = Mock()
     private final TestResultProcessor asyncResultProcessor = Mock()
     private final Actor resultProcessorActor = Mock()
     private final ActorFactory actorFactory = Mock()
     private final MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
+    private final TestClassRunInfo test1 = Mock()
+    private final TestClassRunInfo test2 = Mock()
+    private final TestClassRunInfo test3 = Mock()
+    private final TestClassProcessor processor1 = Mock()
+    private final TestClassProcessor processor2 = Mock()
+    private final TestClassProcessor asyncProcessor1 = Mock()
+    private final TestClassProcessor asyncProcessor2 = Mock()
+    private final Actor actor1 = Mock()
+    private final Actor actor2 = Mock()
+    private TestClassProcessorListener listener1
+    private TestClassProcessorListener listener2
 
     def createsThreadSafeWrapperForResultProcessorOnStart() {
         when:
@@ -48,33 +59,22 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         processor.stop()
 
         then:
-        0 * factory.create()
+        0 * factory.create(_)
         1 * resultProcessorActor.stop()
     }
 
-    def startProcessor() {
-        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
-        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
-        processor.startProcessing(resultProcessor)
-    }
-
     def startsProcessorsOnDemandAndStopsAtEnd() {
-        TestClassRunInfo test = Mock()
-        TestClassProcessor processor1 = Mock()
-        TestClassProcessor asyncProcessor1 = Mock()
-        Actor actor1 = Mock()
-
         startProcessor()
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(test1)
 
         then:
-        1 * factory.create() >> processor1
+        1 * factory.create(!null) >> { listener1 = it[0]; processor1 }
         1 * actorFactory.createActor(processor1) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
         1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor1.processTestClass(test1)
 
         when:
         processor.stop()
@@ -85,36 +85,26 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * resultProcessorActor.stop()
     }
 
-    def startsMultipleProcessorsOnDemandAndStopsAtEnd() {
-        TestClassRunInfo test = Mock()
-        TestClassProcessor processor1 = Mock()
-        TestClassProcessor processor2 = Mock()
-        TestClassProcessor asyncProcessor1 = Mock()
-        TestClassProcessor asyncProcessor2 = Mock()
-        Actor actor1 = Mock()
-        Actor actor2 = Mock()
-
+    def startsAnotherProcessorWhenAllProcessorsAreBusy() {
         startProcessor()
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
 
         then:
-        1 * factory.create() >> processor1
+        1 * factory.create(!null) >> { listener1 = it[0]; processor1 }
         1 * actorFactory.createActor(processor1) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
         1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor1.processTestClass(test1)
 
-        when:
-        processor.processTestClass(test)
-
-        then:
-        1 * factory.create() >> processor2
+        and:
+        1 * factory.create(!null) >> { listener2 = it[0]; processor2 }
         1 * actorFactory.createActor(processor2) >> actor2
         1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
         1 * asyncProcessor2.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor2.processTestClass(test)
+        1 * asyncProcessor2.processTestClass(test2)
 
         when:
         processor.stop()
@@ -124,47 +114,138 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.stop()
     }
 
-    def roundRobinsTestClassesToProcessors() {
-        TestClassRunInfo test = Mock()
-        TestClassProcessor processor1 = Mock()
-        TestClassProcessor processor2 = Mock()
-        TestClassProcessor asyncProcessor1 = Mock()
-        TestClassProcessor asyncProcessor2 = Mock()
-        Actor actor1 = Mock()
-        Actor actor2 = Mock()
+    def reusesAnIdleProcessorRatherThanStartingAnotherProcessor() {
+        startProcessor()
+        startProcessors(1)
+
+        when:
+        listener1.testClassProcessed(test1)
+        processor.processTestClass(test2)
+
+        then:
+        0 * factory.create(_)
+        1 * asyncProcessor1.processTestClass(test2)
+    }
 
+    def queuesTestClassesUntilAProcessorIsReady() {
         startProcessor()
+        startProcessors(2)
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(test3)
 
         then:
-        1 * factory.create() >> processor1
+        0 * factory.create(_)
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+
+        when:
+        listener2.testClassProcessed(test2)
+
+        then:
+        1 * asyncProcessor2.processTestClass(test3)
+        0 * asyncProcessor1.processTestClass(_)
+    }
+
+    def handsQueuedTestClassesOutInTheGivenOrder() {
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory, { a, b -> a.testClassName <=> b.testClassName } as Comparator)
+        _ * test1.testClassName >> "c"
+        _ * test2.testClassName >> "b"
+        _ * test3.testClassName >> "a"
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+
+        then:
+        1 * factory.create(!null) >> { listener1 = it[0]; processor1 }
         1 * actorFactory.createActor(processor1) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor1.processTestClass(test1)
 
         when:
-        processor.processTestClass(test)
+        listener1.testClassProcessed(test1)
 
         then:
-        1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
-        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor2.processTestClass(test)
+        1 * asyncProcessor1.processTestClass(test3)
 
         when:
-        processor.processTestClass(test)
+        listener1.testClassProcessed(test3)
 
         then:
-        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor1.processTestClass(test2)
+    }
+
+    def stopBlocksUntilAllQueuedTestClassesHaveBeenHandedOut() {
+        def handedOut = waitsForAsyncActionToComplete()
+        startProcessor()
+        startProcessors(2)
+        processor.processTestClass(test3)
 
         when:
-        processor.processTestClass(test)
+        handedOut.start {
+            start { listener1.testClassProcessed(test1) }
+            processor.stop()
+        }
+        finished()
 
         then:
-        1 * asyncProcessor2.processTestClass(test)
+        1 * asyncProcessor1.processTestClass(test3) >> { handedOut.done() }
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+    }
+
+    def stopDoesNotWaitForQueuedTestClassesWhenAllProcessorsHaveFailed() {
+        startProcessor()
+        startProcessors(2)
+        processor.processTestClass(test3)
+
+        when:
+        listener1.processorFailed()
+        listener2.processorFailed()
+        processor.stop()
+
+        then:
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+    }
+
+    def doesNotHandTestClassesToAFailedProcessor() {
+        startProcessor()
+        startProcessors(2)
+
+        when:
+        listener1.processorFailed()
+        processor.processTestClass(test3)
+        listener2.testClassProcessed(test2)
+
+        then:
+        0 * asyncProcessor1.processTestClass(_)
+        1 * asyncProcessor2.processTestClass(test3)
+    }
+
+    def startProcessor() {
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+    }
+
+    def startProcessors(int count) {
+        1 * factory.create(!null) >> { listener1 = it[0]; processor1 }
+        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        processor.processTestClass(test1)
+        if (count > 1) {
+            1 * factory.create(!null) >> { listener2 = it[0]; processor2 }
+            1 * actorFactory.createActor(processor2) >> actor2
+            1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+            processor.processTestClass(test2)
+        }
     }
 }
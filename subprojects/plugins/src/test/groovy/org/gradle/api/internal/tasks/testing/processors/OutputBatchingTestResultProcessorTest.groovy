@@ -0,0 +1,127 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.processors
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+import org.gradle.api.internal.tasks.testing.*
+import static org.gradle.api.internal.tasks.testing.TestOutputEvent.Destination.*
+
+class OutputBatchingTestResultProcessorTest extends Specification {
+    private final TestResultProcessor target = Mock()
+    private final DefaultExecutorFactory executorFactory = new DefaultExecutorFactory()
+    private OutputBatchingTestResultProcessor processor = new OutputBatchingTestResultProcessor(target, 20, 60000, executorFactory)
+
+    def cleanup() {
+        processor.stop()
+    }
+
+    def "combines consecutive output for the same test and destination"() {
+        TestDescriptorInternal test = Mock()
+        TestStartEvent startEvent = Mock()
+
+        when:
+        processor.output('id', new TestOutputEvent(StdOut, 'line 1\n'))
+        processor.output('id', new TestOutputEvent(StdOut, 'line 2\n'))
+        processor.started(test, startEvent)
+
+        then:
+        1 * target.output('id', { it.destination == StdOut && it.message == 'line 1\nline 2\n' })
+
+        then:
+        1 * target.started(test, startEvent)
+        0 * target._
+    }
+
+    def "forwards pending output before other events"() {
+        TestCompleteEvent completeEvent = Mock()
+        def failure = new RuntimeException()
+
+        when:
+        processor.output('id', new TestOutputEvent(StdOut, 'before failure'))
+        processor.failure('id', failure)
+        processor.output('id', new TestOutputEvent(StdOut, 'before complete'))
+        processor.completed('id', completeEvent)
+
+        then:
+        1 * target.output('id', { it.message == 'before failure' })
+
+        then:
+        1 * target.failure('id', failure)
+
+        then:
+        1 * target.output('id', { it.message == 'before complete' })
+
+        then:
+        1 * target.completed('id', completeEvent)
+        0 * target._
+    }
+
+    def "forwards pending output when test or destination changes"() {
+        when:
+        processor.output('id1', new TestOutputEvent(StdOut, 'out'))
+        processor.output('id1', new TestOutputEvent(StdErr, 'err'))
+        processor.output('id2', new TestOutputEvent(StdErr, 'other'))
+        processor.stop()
+
+        then:
+        1 * target.output('id1', { it.destination == StdOut && it.message == 'out' })
+
+        then:
+        1 * target.output('id1', { it.destination == StdErr && it.message == 'err' })
+
+        then:
+        1 * target.output('id2', { it.destination == StdErr && it.message == 'other' })
+        0 * target._
+    }
+
+    def "forwards pending output when batch reaches maximum size"() {
+        when:
+        processor.output('id', new TestOutputEvent(StdOut, '0123456789'))
+        processor.output('id', new TestOutputEvent(StdOut, '0123456789'))
+        processor.output('id', new TestOutputEvent(StdOut, 'more'))
+
+        then:
+        1 * target.output('id', { it.message == '01234567890123456789' })
+        0 * target._
+    }
+
+    def "forwards pending output when batch reaches maximum age"() {
+        processor.stop()
+        processor = new OutputBatchingTestResultProcessor(target, 20, 100, executorFactory)
+        def forwarded = new CountDownLatch(1)
+
+        when:
+        processor.output('id', new TestOutputEvent(StdOut, 'text'))
+        forwarded.await(10, TimeUnit.SECONDS)
+
+        then:
+        1 * target.output('id', { it.message == 'text' }) >> { forwarded.countDown() }
+        0 * target._
+    }
+
+    def "forwards pending output on stop"() {
+        when:
+        processor.output('id', new TestOutputEvent(StdOut, 'text'))
+        processor.stop()
+
+        then:
+        1 * target.output('id', { it.message == 'text' })
+        0 * target._
+    }
+}
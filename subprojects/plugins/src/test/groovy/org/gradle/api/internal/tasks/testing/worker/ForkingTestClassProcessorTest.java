@@ -18,11 +18,13 @@ package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
 import org.gradle.api.internal.Factory;
+import org.gradle.api.internal.tasks.testing.TestClassProcessorListener;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
 import org.gradle.messaging.remote.ObjectConnection;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecHandleListener;
 import org.gradle.process.internal.JavaExecHandleBuilder;
 import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
@@ -38,6 +40,9 @@ import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 @RunWith(JMock.class)
 public class ForkingTestClassProcessorTest {
@@ -54,7 +59,8 @@ public class ForkingTestClassProcessorTest {
     private final JavaForkOptions options = context.mock(JavaForkOptions.class);
     @SuppressWarnings("unchecked")
     private final Action<WorkerProcessBuilder> action = context.mock(Action.class);
-    private final ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerFactory, processorFactory, options, appClassPath, action);
+    private final TestClassProcessorListener listener = context.mock(TestClassProcessorListener.class);
+    private final ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerFactory, processorFactory, options, appClassPath, action, listener);
 
     @Test
     public void onFirstTestCaseStartsWorkerProcess() {
@@ -94,6 +100,25 @@ public class ForkingTestClassProcessorTest {
         processor.stop();
     }
 
+    @Test
+    public void notifiesListenerWhenWorkerProcessCannotBeStarted() {
+        final RuntimeException failure = new RuntimeException("broken");
+        context.checking(new Expectations() {{
+            one(workerFactory).create();
+            will(throwException(failure));
+
+            one(listener).processorFailed();
+        }});
+
+        processor.startProcessing(resultProcessor);
+        try {
+            processor.processTestClass(test1);
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(e, sameInstance(failure));
+        }
+    }
+
     @Test
     public void onEndProcessingDoesNothingIfNoTestsProcessed() {
         processor.startProcessing(resultProcessor);
@@ -122,6 +147,8 @@ public class ForkingTestClassProcessorTest {
 
             one(options).copyTo(javaCommandBuilder);
 
+            one(javaCommandBuilder).listener(with(notNullValue(ExecHandleListener.class)));
+
             one(builder).build();
             will(returnValue(workerProcess));
 
@@ -129,6 +156,8 @@ public class ForkingTestClassProcessorTest {
             will(returnValue(connection));
 
             one(connection).addIncoming(TestResultProcessor.class, resultProcessor);
+
+            one(connection).addIncoming(TestClassProcessorListener.class, listener);
             
             one(connection).addOutgoing(RemoteTestClassProcessor.class);
             will(returnValue(worker));
@@ -19,6 +19,7 @@ package org.gradle.api.internal.tasks.testing.worker
 
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
+import org.gradle.api.internal.tasks.testing.TestClassProcessorListener
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
 import org.gradle.messaging.remote.ObjectConnection
 import org.gradle.process.internal.WorkerProcessContext
@@ -44,6 +45,7 @@ public class TestWorkerTest extends MultithreadedTestCase {
     private final TestClassProcessor processor = context.mock(TestClassProcessor.class)
     private final TestClassRunInfo test = context.mock(TestClassRunInfo.class)
     private final TestResultProcessor resultProcessor = context.mock(TestResultProcessor.class)
+    private final TestClassProcessorListener listener = context.mock(TestClassProcessorListener.class)
     private final TestWorker worker = new TestWorker(factory)
 
     @Before
@@ -70,6 +72,9 @@ public class TestWorkerTest extends MultithreadedTestCase {
             one(connection).addOutgoing(TestResultProcessor.class)
             will(returnValue(resultProcessor))
 
+            one(connection).addOutgoing(TestClassProcessorListener.class)
+            will(returnValue(listener))
+
             one(connection).addIncoming(RemoteTestClassProcessor.class, worker)
             will {
                 start {
@@ -84,6 +89,7 @@ public class TestWorkerTest extends MultithreadedTestCase {
 
             one(processor).startProcessing(withParam(notNullValue()))
             one(processor).processTestClass(test)
+            one(listener).testClassProcessed(test)
             one(processor).stop()
         }
 